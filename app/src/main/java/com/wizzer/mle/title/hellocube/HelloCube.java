@@ -6,6 +6,7 @@ package com.wizzer.mle.title.hellocube;
 
 // Import standard Java classes.
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.nio.ByteOrder;
 
 // Import Android classes.
@@ -14,8 +15,15 @@ import android.app.ActivityManager;
 import android.content.res.Resources;
 import android.content.pm.ConfigurationInfo;
 import android.content.Context;
+import android.content.Intent;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.opengl.GLSurfaceView;
 import android.os.Bundle;
+import android.os.Process;
 import android.util.Log;
+import android.view.SurfaceView;
+import android.view.ViewConfiguration;
 
 // Import Magic Lantern Math classes.
 import com.wizzer.mle.math.MlMath;
@@ -27,7 +35,6 @@ import com.wizzer.mle.runtime.core.MleRuntimeException;
 import com.wizzer.mle.runtime.core.MleSet;
 import com.wizzer.mle.runtime.core.MleProp;
 import com.wizzer.mle.runtime.core.MleStage;
-import com.wizzer.mle.runtime.event.MleEventDispatcher;
 import com.wizzer.mle.runtime.event.MleEventManager;
 import com.wizzer.mle.runtime.scheduler.MlePhase;
 import com.wizzer.mle.runtime.scheduler.MleScheduler;
@@ -40,7 +47,32 @@ import com.wizzer.mle.parts.sets.Mle3dSet;
 
 // Import title classes.
 import com.wizzer.mle.title.hellocube.actors.CubeActor;
+import com.wizzer.mle.title.hellocube.event.EventQueue;
+import com.wizzer.mle.title.hellocube.event.TitleEventDispatcher;
+import com.wizzer.mle.title.hellocube.gl.GlResourceRegistry;
+import com.wizzer.mle.title.hellocube.input.InputQueue;
+import com.wizzer.mle.title.hellocube.input.SensorInput;
+import com.wizzer.mle.title.hellocube.input.TapPicker;
+import com.wizzer.mle.title.hellocube.input.TouchInput;
+import com.wizzer.mle.title.hellocube.mesh.LodCache;
+import com.wizzer.mle.title.hellocube.mesh.MeshLibrary;
+import com.wizzer.mle.title.hellocube.playprint.Playprint;
+import com.wizzer.mle.title.hellocube.playprint.PlayprintLoader;
+import com.wizzer.mle.title.hellocube.quality.IQualityListener;
+import com.wizzer.mle.title.hellocube.quality.QualityGovernor;
+import com.wizzer.mle.title.hellocube.render.IRedrawListener;
+import com.wizzer.mle.title.hellocube.render.RedrawTracker;
+import com.wizzer.mle.title.hellocube.resource.IResourceTask;
+import com.wizzer.mle.title.hellocube.resource.ResourceGraph;
 import com.wizzer.mle.title.hellocube.roles.CubeRole;
+import com.wizzer.mle.title.hellocube.scheduler.BudgetedPhase;
+import com.wizzer.mle.title.hellocube.sets.CubeSet;
+import com.wizzer.mle.title.hellocube.startup.StartupSequence;
+import com.wizzer.mle.title.hellocube.stress.StressMonitor;
+import com.wizzer.mle.title.hellocube.stress.StressScene;
+import com.wizzer.mle.title.hellocube.texture.TextureManager;
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+import com.wizzer.mle.title.hellocube.trace.PhaseTracer;
 
 public class HelloCube extends Activity
 {
@@ -55,6 +87,156 @@ public class HelloCube extends Activity
     // Container for title specific data.
     private MleTitle m_title = null;
 
+    // The maximum number of resources loaded at once.
+    private static final int MAX_RESOURCE_LOADERS = 4;
+    // The maximum time to wait for the title resources, in milliseconds.
+    private static final long RESOURCE_TIMEOUT = 30000L;
+
+    // The title resources, loading in the background from onCreate().
+    private ResourceGraph m_resources = null;
+
+    // The title's Actors, Roles and their properties.
+    private Playprint m_playprint = null;
+
+    // The playprint's Actors, created in the background and bound by onStart().
+    private CubeActor[] m_actors = null;
+
+    // The intent extras configuring the stress scene, for example
+    //   adb shell am start -n com.wizzer.mle.title.hellocube/.HelloCube \
+    //       --ei stress_cubes 2000 --es stress_layout random
+    // The cube count defaults to the stress_cube_count resource. With
+    // stress_measure, the counts of the stress_cube_counts resource are measured.
+    private static final String EXTRA_STRESS_CUBES = "stress_cubes";
+    private static final String EXTRA_STRESS_LAYOUT = "stress_layout";
+    private static final String EXTRA_STRESS_SEED = "stress_seed";
+    private static final String EXTRA_STRESS_MEASURE = "stress_measure";
+
+    // The stress scene, replacing the playprint's Actors; null unless configured.
+    private StressScene m_stress = null;
+
+    // The Set, checked for camera changes each tick.
+    private CubeSet m_cubeSet = null;
+
+    // The intent extra enabling the flight recorder. While it records, a frame
+    // slower than FlightRecorder.DEFAULT_SPIKE_THRESHOLD and each pause dump
+    // the last seconds as Chrome trace JSON into the traces directory.
+    private static final String EXTRA_TRACE = "trace";
+
+    // The names of the spans recorded by the main loop.
+    private static final int TRACE_TICK = FlightRecorder.register("Mainloop.tick");
+    private static final int TRACE_DISPATCH = FlightRecorder.register("MleEventDispatcher.dispatchEvents");
+
+    // Records a span for each scheduler phase.
+    private PhaseTracer m_phaseTracer = null;
+
+    // The touch and sensor input, delivered to the dispatcher once per tick.
+    private InputQueue m_input = null;
+
+    // Set to feed gyroscope samples to the input queue while resumed.
+    private static final String EXTRA_SENSORS = "sensors";
+    private SensorInput m_sensorInput = null;
+
+    // The gyroscope sampling period, in microseconds (200 Hz).
+    private static final int SENSOR_PERIOD = 5000;
+
+    // The intent extra setting the time the Actors' behaviors may take per tick,
+    // in microseconds; 0 runs them all every tick.
+    private static final String EXTRA_ACTOR_BUDGET = "actor_budget";
+    private static final int ACTOR_BUDGET = 4000;
+
+    // Runs the Actors' behaviors within the budget; null without one.
+    private BudgetedPhase m_actorTasks = null;
+
+    // The intent extra enabling the quality governor, which lowers the render
+    // resolution and shader tier when frames take too long; on by default.
+    private static final String EXTRA_ADAPTIVE_QUALITY = "adaptive_quality";
+
+    /*
+     * Resizes the view's surface to the quality governor's render scale. The
+     * surface is rendered at that size and scaled up to the view by the display
+     * compositor, so the title renders fewer pixels without an extra pass.
+     */
+    private static class RenderScaler implements IQualityListener
+    {
+        private final SurfaceView m_view;
+
+        RenderScaler(SurfaceView view)
+        {
+            super();
+            m_view = view;
+        }
+
+        public void onQualityChanged(QualityGovernor governor, QualityGovernor.Decision decision)
+        {
+            Log.i(MleTitle.DEBUG_TAG, "Quality " + decision);
+            final float scale = QualityGovernor.RENDER_SCALES[decision.getTo()];
+            if (scale == QualityGovernor.RENDER_SCALES[decision.getFrom()])
+                return;
+
+            // The surface may only be resized on the UI thread.
+            m_view.post(new Runnable()
+            {
+                public void run()
+                {
+                    int width = m_view.getWidth();
+                    int height = m_view.getHeight();
+                    if ((scale >= 1.0f) || (width == 0) || (height == 0))
+                        m_view.getHolder().setSizeFromLayout();
+                    else
+                        m_view.getHolder().setFixedSize(Math.max(1, Math.round(width * scale)),
+                            Math.max(1, Math.round(height * scale)));
+                }
+            });
+        }
+    }
+
+    // The intent extra enabling render on demand, which stops drawing and slows
+    // the main loop to IDLE_TICK_PERIOD while nothing changes; on by default.
+    private static final String EXTRA_RENDER_ON_DEMAND = "render_on_demand";
+    private static final long IDLE_TICK_PERIOD = 100;
+
+    // Switches the surface's render mode as the scene goes idle; null when
+    // rendering continuously.
+    private RenderModeSwitcher m_renderModeSwitcher = null;
+
+    /*
+     * Stops the view's continuous rendering while the scene is idle, and
+     * measures the CPU time the process uses meanwhile.
+     */
+    private static class RenderModeSwitcher implements IRedrawListener
+    {
+        private final GLSurfaceView m_view;
+
+        // The process CPU time used while idle, in milliseconds.
+        private long m_idleCpuTime = 0;
+        private long m_idleCpuStart = 0;
+
+        RenderModeSwitcher(GLSurfaceView view)
+        {
+            super();
+            m_view = view;
+        }
+
+        public synchronized void onIdleChanged(boolean idle)
+        {
+            m_view.setRenderMode(idle ? GLSurfaceView.RENDERMODE_WHEN_DIRTY : GLSurfaceView.RENDERMODE_CONTINUOUSLY);
+            long cpuTime = Process.getElapsedCpuTime();
+            if (idle)
+                m_idleCpuStart = cpuTime;
+            else
+                m_idleCpuTime += cpuTime - m_idleCpuStart;
+        }
+
+        synchronized long getIdleCpuTime()
+        { return m_idleCpuTime; }
+    }
+
+    // The fallback cube Actor's property data, prepared while the resources load.
+    private byte[] m_positionProperty = null;
+    private byte[] m_orientationProperty = null;
+    private byte[] m_scaleProperty = null;
+    private byte[] m_colorProperty = null;
+
     /**
      * The main loop of execution.
      */
@@ -67,34 +249,213 @@ public class HelloCube extends Activity
     	 */
     	public void run()
     	{
+	        StressMonitor monitor = StressMonitor.getInstance();
+	        RedrawTracker tracker = RedrawTracker.getInstance();
 	        while (! MleEventManager.okToExit())
 	        {
-	            // Process delayed events.
+	            long start = System.nanoTime();
+	            FlightRecorder.begin(TRACE_TICK);
+
+	            // Deliver the input received since the last tick, then process delayed events.
+	            FlightRecorder.begin(TRACE_DISPATCH);
+	            m_input.dispatch(m_title.m_theDispatcher);
 	            m_title.m_theDispatcher.dispatchEvents();
+	            FlightRecorder.end();
 	        
 	            // Run the scheduled phases.
 	            m_title.m_theScheduler.run();
+	            m_phaseTracer.finish();
+	            FlightRecorder.end();
+	            monitor.onTick(System.nanoTime() - start);
+
+	            // Let the stress scene step between ticks, while no phase is running.
+	            if (m_stress != null)
+	            {
+	                try
+	                {
+	                    m_stress.update();
+	                } catch (MleRuntimeException ex)
+	                {
+	                    Log.e(MleTitle.DEBUG_TAG, "Unable to grow stress scene: " + ex.getMessage());
+	                    m_stress = null;
+	                }
+	            }
 	            
                 // Attempt to garbage collect.
 	            System.gc();
+
+	            // While nothing changes, tick at the idle rate until input or a change
+	            // wakes the loop. No frame is drawn to notice a camera moved while
+	            // idle, so the Set is checked here.
+	            if (m_renderModeSwitcher != null)
+	            {
+	                if (m_cubeSet != null)
+	                    m_cubeSet.checkCamera();
+	                try
+	                {
+	                    tracker.awaitTick(IDLE_TICK_PERIOD);
+	                } catch (InterruptedException ex)
+	                {
+	                    // Tick now.
+	                }
+	            }
 	        }
     	}
     }
     
-    // Parse the title resources.
-    private boolean parseResources(Resources resources)
+    // Parse the title resources. The resources are loaded concurrently on a
+    // bounded pool while the Stage initializes; onStart() joins them.
+    private boolean parseResources(final Resources resources)
     {
         boolean retValue = false;
         
         if (resources != null)
         {
-            // ToDo: parse resources here.
+            MeshLibrary.getInstance().setCacheDirectory(new File(getCacheDir(), "meshes"));
+            TextureManager.getInstance().setCacheDirectory(new File(getCacheDir(), "textures"));
+            TextureManager.getInstance().setCompression(true);
+            GlResourceRegistry.getInstance().setCacheDirectory(new File(getCacheDir(), "programs"));
+
+            final StartupSequence startup = StartupSequence.getInstance();
+            int numLoaders = Math.min(MAX_RESOURCE_LOADERS, Runtime.getRuntime().availableProcessors());
+            m_resources = new ResourceGraph(numLoaders);
+
+            // Load the cube mesh. The Role falls back to its built-in geometry
+            // if the mesh is unavailable, so a failure here is not fatal. Parsed
+            // meshes are cached in binary form and mapped on later launches.
+            m_resources.add("mesh:box", null, startup.traced("mesh:box", new IResourceTask()
+            {
+                public void load() throws Exception
+                {
+                    MeshLibrary.getInstance().load(resources, R.raw.box);
+                }
+            }));
+
+            // Register the cube mesh's level of detail chain. The 12 triangle box
+            // is below LodCache.MIN_TRIANGLES, so its chain is a single level;
+            // larger meshes have their coarser levels simplified in the background.
+            m_resources.add("lod:box", new String[] { "mesh:box" }, startup.traced("lod:box", new IResourceTask()
+            {
+                public void load() throws Exception
+                {
+                    LodCache.getInstance().getChain(CubeRole.MESH_NAME,
+                        MeshLibrary.getInstance().get(CubeRole.MESH_NAME));
+                }
+            }));
+
+            // Request the logo texture once the first frame is up; nothing in
+            // the first frame samples it. It is decoded, mipmapped and compressed
+            // on a loader thread, then uploaded by the Set within a per-frame
+            // budget. Compression is dropped if the GL context lacks ETC1.
+            startup.defer("texture:wwlogo", new Runnable()
+            {
+                public void run()
+                {
+                    TextureManager.getInstance().load(resources, R.raw.wwlogo);
+                }
+            });
+
+            // Map the title's playprint.
+            m_resources.add("playprint:hellocube", null, startup.traced("playprint:hellocube", new IResourceTask()
+            {
+                public void load() throws Exception
+                {
+                    m_playprint = Playprint.open(resources, R.raw.hellocube);
+                }
+            }));
+
+            // Decode the playprint's Actors and their properties. Only binding
+            // them to Roles and the Set is left for onStart().
+            m_resources.add("actors:hellocube", new String[] { "playprint:hellocube" },
+                startup.traced("actors:hellocube", new IResourceTask()
+            {
+                public void load() throws Exception
+                {
+                    m_actors = PlayprintLoader.createActors(m_playprint);
+                }
+            }));
+
+            // Build the packed cube geometry that every Role copies.
+            m_resources.add("geometry:cube", null, startup.traced("geometry:cube", new IResourceTask()
+            {
+                public void load() throws Exception
+                {
+                    CubeRole.prepareGeometry();
+                }
+            }));
+
+            // Prepare the fallback cube Actor's property data.
+            m_resources.add("properties:cube", null, startup.traced("properties:cube", new IResourceTask()
+            {
+                public void load() throws Exception
+                {
+                    m_positionProperty = createPositionProperty(0.0F, 0.0F, -5.0F);
+                    m_orientationProperty = createOrientationProperty(0.0F, 1.0F, 1.0F, 1.0F);
+                    m_scaleProperty = createScaleProperty(1.0F, 1.0F, 1.0F);
+                    m_colorProperty = createColorProperty(1.0F, 0.0F, 0.0F, 1.0F);
+                }
+            }));
+
+            m_resources.start();
             retValue = true;
         }
         
         return retValue;
     }
 
+    // Configure the stress scene from the intent extras and resources.
+    private StressScene createStressScene(Intent intent, Resources resources)
+    {
+        int numCubes = intent.getIntExtra(EXTRA_STRESS_CUBES,
+            resources.getInteger(R.integer.stress_cube_count));
+        boolean measure = intent.getBooleanExtra(EXTRA_STRESS_MEASURE, false);
+        if ((numCubes <= 0) && ! measure)
+            return null;
+
+        String layout = intent.getStringExtra(EXTRA_STRESS_LAYOUT);
+        long seed = intent.getLongExtra(EXTRA_STRESS_SEED, 0L);
+        int[] counts = measure ? resources.getIntArray(R.array.stress_cube_counts) : new int[] { numCubes };
+        try
+        {
+            return new StressScene(counts, (layout != null) ? StressScene.parseLayout(layout) : StressScene.LAYOUT_GRID,
+                seed, measure);
+        } catch (IllegalArgumentException ex)
+        {
+            Log.w(MleTitle.DEBUG_TAG, "Ignoring stress scene: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    // Wait for the title resources to finish loading.
+    private boolean joinResources()
+    {
+        try
+        {
+            if (! m_resources.join(RESOURCE_TIMEOUT))
+                return false;
+        } catch (InterruptedException ex)
+        {
+            return false;
+        }
+
+        for (String name : m_resources.getNames())
+        {
+            Throwable failure = m_resources.getFailure(name);
+            if (failure != null)
+                Log.w(MleTitle.DEBUG_TAG, "Unable to load " + name + ": " + failure.getMessage());
+        }
+
+        // The timing summary is not needed for the first frame.
+        StartupSequence.getInstance().defer("resources:summary", new Runnable()
+        {
+            public void run()
+            {
+                Log.i(MleTitle.DEBUG_TAG, "Title resources:\n" + m_resources.getSummary());
+            }
+        });
+        return m_resources.isLoaded("properties:cube");
+    }
+
     /**
      * Called when the activity is first created.
      */
@@ -103,6 +464,10 @@ public class HelloCube extends Activity
     {
         super.onCreate(savedInstanceState);
 
+        // Time startup up to the first frame. Each step below is a trace section.
+        StartupSequence startup = StartupSequence.getInstance();
+        startup.start();
+
         // Check if the system supports OpenGL ES 2.0.
         final ActivityManager activityManager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
         final ConfigurationInfo configurationInfo = activityManager.getDeviceConfigurationInfo();
@@ -114,13 +479,30 @@ public class HelloCube extends Activity
             System.exit(-1);
         }
         
-        // Parse the application resources.
-        if (! parseResources(getResources()))
+        // Parse the application resources. They load in the background
+        // while the rest of onCreate() runs.
+        startup.begin("HelloCube.parseResources");
+        boolean parsed = parseResources(getResources());
+        startup.end();
+        if (! parsed)
         {
         	Log.e(MleTitle.DEBUG_TAG, "Unable to parse title resources.");
             System.exit(-1);
         }
         
+        // Configure the stress scene, if any.
+        m_stress = createStressScene(getIntent(), getResources());
+
+        // Start the flight recorder if asked to.
+        if (getIntent().getBooleanExtra(EXTRA_TRACE, false))
+        {
+            FlightRecorder.setDumpDirectory(new File(getCacheDir(), "traces"),
+                FlightRecorder.DEFAULT_SPIKE_THRESHOLD);
+            FlightRecorder.setEnabled(true);
+        }
+
+        startup.begin("HelloCube.createScheduler");
+
         // Get a reference to the global title container.
         m_title  = MleTitle.getInstance();
         
@@ -132,9 +514,28 @@ public class HelloCube extends Activity
         platformData.m_R = com.wizzer.mle.title.hellocube.R.class;
         m_title.m_platformData = platformData;
         
-        // Create the event dispatcher.
-        MleEventDispatcher manager = new MleEventDispatcher();
+        // Create the event dispatcher. Delayed events go through a lock-free queue;
+        // a producer waits for room rather than lose an event, except camera changes,
+        // of which only the latest matters.
+        EventQueue events = new EventQueue(EventQueue.DEFAULT_CAPACITY, EventQueue.POLICY_BLOCK);
+        events.setPolicy(CubeSet.MLE_CAMERA_CHANGED, EventQueue.POLICY_COALESCE);
+        TitleEventDispatcher manager = new TitleEventDispatcher(events);
         m_title.m_theDispatcher = manager;
+
+        // Create the input queue; touches are fed to it by the Stage's view,
+        // and a tap picks the cube under it.
+        m_input = new InputQueue(InputQueue.DEFAULT_POOL_SIZE);
+        if (getIntent().getBooleanExtra(EXTRA_SENSORS, false))
+            m_sensorInput = new SensorInput(m_input);
+        try
+        {
+            manager.installEventCB(InputQueue.MLE_TOUCH_EVENT,
+                new TapPicker(ViewConfiguration.get(this).getScaledTouchSlop()), null);
+        } catch (MleRuntimeException ex)
+        {
+        	Log.e(MleTitle.DEBUG_TAG, "Unable to install tap callback.");
+            System.exit(-1);
+        }
         
         //  Create the scheduler.
         MleScheduler scheduler = new MleScheduler(NUM_PHASES);
@@ -151,10 +552,28 @@ public class HelloCube extends Activity
         MleTitle.g_theStagePhase = new MlePhase("Stage Phase");
         scheduler.addPhase(MleTitle.g_theStagePhase);
         m_title.m_theScheduler = scheduler;
+
+        // Trace the phases; this must precede the tasks the Actors add.
+        m_phaseTracer = new PhaseTracer(scheduler,
+            new MlePhase[] { MleTitle.g_theActorPhase, MleTitle.g_thePostActorPhase, MleTitle.g_thePreRolePhase,
+                MleTitle.g_theRolePhase, MleTitle.g_theSetPhase, MleTitle.g_theStagePhase },
+            new String[] { "Actor Phase", "Post Actor Phase", "Pre Role Phase",
+                "Role Phase", "Set Phase", "Stage Phase" });
+
+        // Bound the time the Actors' behaviors take per tick; those that do not
+        // fit are deferred to the next tick.
+        int actorBudget = getIntent().getIntExtra(EXTRA_ACTOR_BUDGET, ACTOR_BUDGET);
+        if (actorBudget > 0)
+        {
+            m_actorTasks = new BudgetedPhase("Actor tasks", actorBudget * 1000L);
+            m_actorTasks.install(scheduler, MleTitle.g_theActorPhase);
+        }
         
         MleEventManager.setExitStatus(false);
+        startup.end();
      
         // Create a Stage.
+        startup.begin("HelloCube.initStage");
         try
         {
         	Mle3dStage theStage = new Mle3dStage();
@@ -162,12 +581,35 @@ public class HelloCube extends Activity
 	        
 	        // Set the Activity's View.
 	        setContentView(theStage.m_windowView);
+
+	        // Keep the EGL context while paused where the device allows it; if it is
+	        // lost anyway, the GL resource registry recreates the title's GL objects.
+	        if (theStage.m_windowView instanceof GLSurfaceView)
+	            ((GLSurfaceView) theStage.m_windowView).setPreserveEGLContextOnPause(true);
+
+	        // Queue the view's touches for the main loop.
+	        theStage.m_windowView.setOnTouchListener(new TouchInput(m_input));
+
+	        // Let the quality governor lower the render resolution under load.
+	        QualityGovernor governor = QualityGovernor.getInstance();
+	        governor.setEnabled(getIntent().getBooleanExtra(EXTRA_ADAPTIVE_QUALITY, true));
+	        if (theStage.m_windowView instanceof SurfaceView)
+	            governor.addListener(new RenderScaler((SurfaceView) theStage.m_windowView));
+
+	        // Stop drawing while the scene is unchanged.
+	        if (getIntent().getBooleanExtra(EXTRA_RENDER_ON_DEMAND, true)
+	            && (theStage.m_windowView instanceof GLSurfaceView))
+	        {
+	            m_renderModeSwitcher = new RenderModeSwitcher((GLSurfaceView) theStage.m_windowView);
+	            RedrawTracker.getInstance().setListener(m_renderModeSwitcher);
+	        }
 	        
         } catch (MleRuntimeException ex)
         {
         	Log.e(MleTitle.DEBUG_TAG, "Unable to create and initialize the Stage.");
             System.exit(-1);
         }
+        startup.end();
     }
 
     /**
@@ -178,46 +620,114 @@ public class HelloCube extends Activity
     public void onStart()
     {
     	super.onStart();
+        StartupSequence startup = StartupSequence.getInstance();
+
+        // The Roles below use the mesh, playprint and property data, so wait for them.
+        startup.begin("HelloCube.joinResources");
+        boolean joined = joinResources();
+        startup.end();
+        if (! joined)
+        {
+        	Log.e(MleTitle.DEBUG_TAG, "Unable to load title resources.");
+            System.exit(-1);
+        }
         
         // Create a Set. The model specified by the Actor will be
-        // rendered onto this Set via the Role.
+        // rendered onto this Set via the Role. The Set culls Roles
+        // that fall outside of the view frustum.
+        startup.begin("HelloCube.initSet");
         try
         {
-	        Mle3dSet modelSet = new Mle3dSet();
+	        CubeSet modelSet = new CubeSet();
 	        modelSet.init();
 	        MleSet.setCurrentSet(modelSet);
+	        m_cubeSet = modelSet;
         } catch (MleRuntimeException ex)
         {
         	Log.e(MleTitle.DEBUG_TAG, "Unable to create and initialize the Set.");
             System.exit(-1);
         }
+        startup.end();
+
+        // Spawn the stress scene's cubes if one is configured. Otherwise bind the
+        // playprint's Actors to Roles on the Set. They are decoded in the
+        // background on first start; after a restart they are decoded again.
+        // If the playprint could not be loaded, fall back to a single
+        // hand-assembled cube.
+        startup.begin("HelloCube.bindActors");
+        if (m_stress != null)
+        {
+            try
+            {
+                m_stress.spawn((Mle3dSet) MleSet.getCurrentSet());
+            } catch (MleRuntimeException ex)
+            {
+            	Log.e(MleTitle.DEBUG_TAG, "Unable to spawn stress scene: " + ex.getMessage());
+                System.exit(-1);
+            }
+        } else if (m_playprint != null)
+        {
+            try
+            {
+                CubeActor[] actors = m_actors;
+                m_actors = null;
+                if (actors == null)
+                    actors = PlayprintLoader.createActors(m_playprint);
+                PlayprintLoader.bind(actors, (Mle3dSet) MleSet.getCurrentSet());
+            } catch (MleRuntimeException ex)
+            {
+            	Log.e(MleTitle.DEBUG_TAG, "Unable to load playprint: " + ex.getMessage());
+                System.exit(-1);
+            }
+        } else
+        {
+            createCube();
+        }
+        startup.end();
 
+        // Install a callback for exiting the title cleanly.
+        try
+        {
+            MleTitle.getInstance().m_theDispatcher.installEventCB(
+                    MleEventManager.MLE_QUIT,new MleShutdownCallback(),null);
+        } catch (MleRuntimeException ex)
+        {
+        	Log.e(MleTitle.DEBUG_TAG, "Unable to install shutdown callback.");
+            System.exit(-1);            
+        }
+        
+        // Return to Android application life cycle.
+    }
+    
+    // Create a cube Actor and Role from the prepared property data.
+    private void createCube()
+    {
         // Create a model Actor.
         CubeActor cubeActor = new CubeActor();
         
-        // Initialize the Actor's properties. Note that this will usually be done
-        // by loading a Group from a Digital Workprint (Rehearsal Player) or the
-        // Digital Playprint (Target Player).
+        // Initialize the Actor's properties. Note that this is usually done by
+        // loading a Group from a Digital Workprint (Rehearsal Player) or the
+        // Digital Playprint (Target Player); see PlayprintLoader.
 
         try
         {
         	// Set the 'position' property on the actor.
-            byte[] position = createPositionProperty(0.0F, 0.0F, -5.0F);
+            byte[] position = m_positionProperty;
             MleProp positionProp = new MleProp(position.length, new ByteArrayInputStream(position));
             cubeActor.setProperty("position", positionProp);
 
             // Set the 'orientation' property on the actor.
-            byte[] orientation = createOrientationProperty(0.0F, 1.0F, 1.0F, 1.0F);
+            byte[] orientation = m_orientationProperty;
             MleProp orientationProp = new MleProp(orientation.length, new ByteArrayInputStream(orientation));
             cubeActor.setProperty("orientation", orientationProp);
 
             // Set the 'scale' property on the actor.
-            byte[] scale = createScaleProperty(1.0F, 1.0F, 1.0F);
+            byte[] scale = m_scaleProperty;
             MleProp scaleProp = new MleProp(scale.length, new ByteArrayInputStream(scale));
             cubeActor.setProperty("scale", scaleProp);
 
             // Set the 'color' property on the actor.
-            byte[] color = createColorProperty(1.0F, 0.0F, 0.0F, 1.0F);
+            byte[] color = m_colorProperty;
             MleProp colorProp = new MleProp(color.length, new ByteArrayInputStream(color));
             cubeActor.setProperty("color", colorProp);
         } catch (MleRuntimeException ex)
@@ -250,21 +760,8 @@ public class HelloCube extends Activity
         	Log.e(MleTitle.DEBUG_TAG, "Unable to initialize Actor.");
             System.exit(-1);            
         }
-        
-        // Install a callback for exiting the title cleanly.
-        try
-        {
-            MleTitle.getInstance().m_theDispatcher.installEventCB(
-                    MleEventManager.MLE_QUIT,new MleShutdownCallback(),null);
-        } catch (MleRuntimeException ex)
-        {
-        	Log.e(MleTitle.DEBUG_TAG, "Unable to install shutdown callback.");
-            System.exit(-1);            
-        }
-        
-        // Return to Android application life cycle.
     }
-    
+
     @Override
     public void onRestart()
     {
@@ -282,6 +779,13 @@ public class HelloCube extends Activity
         // This is handled indirectly by the 3D Stage because it owns the GLViewSurface.
         MleStage theStage = Mle3dStage.getInstance();
         ((Mle3dStage) theStage).resume();
+        StartupSequence.getInstance().onResume();
+        RedrawTracker.getInstance().markDirty();
+
+        // Feed the gyroscope to the input queue if asked to.
+        if (m_sensorInput != null)
+            m_sensorInput.start((SensorManager) getSystemService(Context.SENSOR_SERVICE),
+                new int[] { Sensor.TYPE_GYROSCOPE }, SENSOR_PERIOD);
 
         // Begin main loop execution.
         Mainloop mainloop = new Mainloop();
@@ -299,8 +803,33 @@ public class HelloCube extends Activity
         MleStage theStage = Mle3dStage.getInstance();
         ((Mle3dStage) theStage).pause();
 
-    	// Stop the scheduler and event manager.
+    	// Stop the scheduler and event manager. Marking the scene dirty ends any
+    	// idle period, so that the main loop exits at once and the time paused is
+    	// not counted as idle.
     	MleEventManager.setExitStatus(true);
+    	RedrawTracker.getInstance().markDirty();
+
+        // Stop sampling the sensors while paused.
+        if (m_sensorInput != null)
+            m_sensorInput.stop();
+
+        if (m_actorTasks != null)
+            Log.i(MleTitle.DEBUG_TAG, "Actor tasks: " + m_actorTasks.getTicks() + " ticks, "
+                + m_actorTasks.getOverruns() + " over budget, " + m_actorTasks.getDeferrals() + " behaviors deferred.");
+        if (QualityGovernor.getInstance().isEnabled())
+            Log.i(MleTitle.DEBUG_TAG, "Quality: " + QualityGovernor.getInstance().getSummary());
+        if (m_renderModeSwitcher != null)
+        {
+            RedrawTracker tracker = RedrawTracker.getInstance();
+            long idleTime = tracker.getIdleTime() / 1000000L;
+            long idleCpuTime = m_renderModeSwitcher.getIdleCpuTime();
+            Log.i(MleTitle.DEBUG_TAG, "Redraw: " + tracker.getSummary() + ", " + idleCpuTime + " ms CPU while idle"
+                + ((idleTime > 0) ? (" (" + ((100 * idleCpuTime) / idleTime) + "%)") : "") + ".");
+        }
+
+        // Dump the recorded window, so that a trace can be taken on demand by
+        // sending the title to the background.
+        FlightRecorder.requestDump("paused");
     }
     
     @Override
@@ -22,6 +22,10 @@ import com.wizzer.mle.title.hellocube.props.ColorProperty;
 import com.wizzer.mle.title.hellocube.props.PositionProperty;
 import com.wizzer.mle.title.hellocube.props.RotationProperty;
 import com.wizzer.mle.title.hellocube.props.ScaleProperty;
+import com.wizzer.mle.title.hellocube.scheduler.BudgetedPhase;
+import com.wizzer.mle.title.hellocube.scheduler.BudgetedTask;
+import com.wizzer.mle.title.hellocube.sets.IPickable;
+import com.wizzer.mle.title.hellocube.sets.PickResult;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
@@ -33,9 +37,15 @@ import java.nio.ByteOrder;
  * <p>
  * The cube has four properties: "position", "orientation", "scale" and "color".
  * </p>
+ * <p>
+ * Picking the cube stops it spinning; picking it again starts it.
+ * </p>
  */
-public class CubeActor extends MleActor
+public class CubeActor extends MleActor implements IPickable
 {
+    /** The default time taken by the cube to spin through a complete rotation, in milliseconds. */
+    public static final long DEFAULT_SPIN_PERIOD = 10000L;
+
     // The properties are "position", "orientation", "scale",
     // and "color".
     public PositionProperty position;
@@ -63,8 +73,19 @@ public class CubeActor extends MleActor
         private DoBehave() {}
     }
 
-    // The behavior task executed during the Actor phase.
+    // The behavior task executed during the Actor phase, and the phase it was added to.
     private MleTask m_behaveTask = null;
+    private MlePhase m_behavePhase = null;
+
+    // The behavior task, if the Actor phase has a budget, and the budgeted phase running it.
+    private BudgetedTask m_budgetedTask = null;
+    private BudgetedPhase m_budgetedPhase = null;
+
+    // The time taken to spin through a complete rotation, in milliseconds.
+    private long m_spinPeriod = DEFAULT_SPIN_PERIOD;
+
+    // Cleared while the cube is stopped.
+    private volatile boolean m_spinning = true;
 
     /**
      * The default constructor.
@@ -75,18 +96,46 @@ public class CubeActor extends MleActor
      * @see com.wizzer.mle.runtime.core.MleActor#init()
      */
     public void init() throws MleRuntimeException
+    {
+        init(MleTitle.getInstance().m_theScheduler, MleTitle.g_theActorPhase);
+    }
+
+    /**
+     * Initialize the Actor, registering its behavior with the specified
+     * scheduler rather than the title's. This allows several scenes, each
+     * with its own scheduler, to run at once.
+     *
+     * @param scheduler The scheduler.
+     * @param actorPhase The scheduler's Actor phase.
+     *
+     * @throws MleRuntimeException This exception is thrown if the Actor phase
+     * does not exist.
+     */
+    public void init(MleScheduler scheduler, MlePhase actorPhase) throws MleRuntimeException
     {
         // Update the Role by pushing the property values.
         if (color != null) color.push(this);
         update();
 
         // Register with the scheduler.
-        MleScheduler scheduler = MleTitle.getInstance().m_theScheduler;
-        MlePhase actorPhase = MleTitle.g_theActorPhase;
-        if (actorPhase == null)
+        if ((scheduler == null) || (actorPhase == null))
             throw new MleRuntimeException("CubeActor: Actor phase does not exist.");
-        m_behaveTask = new MleTask(new DoBehave(this), "Do behave");
-        scheduler.addTask(actorPhase, m_behaveTask);
+        m_behavePhase = actorPhase;
+
+        // The spin angle is computed from the time, so a behavior deferred by a
+        // budgeted phase catches up on its next run.
+        BudgetedPhase budgetedPhase = BudgetedPhase.getInstalled(actorPhase);
+        if (budgetedPhase != null)
+        {
+            m_budgetedTask = new BudgetedTask(new DoBehave(this), "Do behave",
+                BudgetedPhase.PRIORITY_NORMAL, 0);
+            m_budgetedPhase = budgetedPhase;
+            budgetedPhase.addTask(m_budgetedTask);
+        } else
+        {
+            m_behaveTask = new MleTask(new DoBehave(this), "Do behave");
+            scheduler.addTask(actorPhase, m_behaveTask);
+        }
     }
 
     /* (non-Javadoc)
@@ -94,13 +143,65 @@ public class CubeActor extends MleActor
      */
     public void dispose() throws MleRuntimeException
     {
-        // Remove the behave function from the scheduler.
-        MleScheduler scheduler = MleTitle.getInstance().m_theScheduler;
-        MlePhase actorPhase = MleTitle.g_theActorPhase;
+        // Remove the behave function from the phase it was added to.
+        if (m_budgetedPhase != null)
+        {
+            m_budgetedPhase.removeTask(m_budgetedTask);
+            m_budgetedTask = null;
+            m_budgetedPhase = null;
+            m_behavePhase = null;
+            return;
+        }
+        MlePhase actorPhase = (m_behavePhase != null) ? m_behavePhase : MleTitle.g_theActorPhase;
         if (actorPhase == null)
             throw new MleRuntimeException("CubeActor: Actor phase does not exist.");
         actorPhase.deleteTask(m_behaveTask);
         m_behaveTask = null;
+        m_behavePhase = null;
+    }
+
+    /**
+     * Set the time taken by the cube to spin through a complete rotation.
+     *
+     * @param period The period in milliseconds; it must be positive.
+     */
+    public void setSpinPeriod(long period)
+    {
+        if (period <= 0)
+            throw new IllegalArgumentException("CubeActor: Invalid spin period " + period + ".");
+        m_spinPeriod = period;
+    }
+
+    /**
+     * Get the time taken by the cube to spin through a complete rotation.
+     *
+     * @return The period in milliseconds is returned.
+     */
+    public long getSpinPeriod()
+    { return m_spinPeriod; }
+
+    /**
+     * Start or stop the cube spinning.
+     *
+     * @param spinning <b>true</b> to spin the cube.
+     */
+    public void setSpinning(boolean spinning)
+    { m_spinning = spinning; }
+
+    /**
+     * Determine whether the cube is spinning.
+     *
+     * @return <b>true</b> is returned if the cube is spinning.
+     */
+    public boolean isSpinning()
+    { return m_spinning; }
+
+    /* (non-Javadoc)
+     * @see com.wizzer.mle.title.hellocube.sets.IPickable#onPicked(com.wizzer.mle.title.hellocube.sets.PickResult)
+     */
+    public void onPicked(PickResult result)
+    {
+        m_spinning = ! m_spinning;
     }
 
     /**
@@ -126,12 +227,14 @@ public class CubeActor extends MleActor
     {
         // Orientation must be defined in order to spin.
         if ((actor == null) || (actor.orientation == null)) return;
+        if (! actor.m_spinning) return;
 
         // Define spin parameters.
 
-        // Do a complete rotation every 10 seconds.
-        long time = SystemClock.uptimeMillis() % 10000L;
-        float angleInDegrees = (360.0f / 10000.0f) * ((int) time);
+        // Do a complete rotation every spin period, by default 10 seconds.
+        long period = actor.m_spinPeriod;
+        long time = SystemClock.uptimeMillis() % period;
+        float angleInDegrees = (360.0f / period) * ((int) time);
 
         // Update rotational behavior.
         float [] rotation = actor.orientation.getProperty();
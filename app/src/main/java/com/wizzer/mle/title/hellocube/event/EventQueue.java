@@ -0,0 +1,440 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.event;
+
+// Import standard Java classes.
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Import Android classes.
+import android.util.Log;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * A bounded, lock-free queue of events posted from any thread and delivered
+ * on the main loop.
+ * <p>
+ * The queue is a ring of preallocated slots, each with a sequence number that
+ * tells the producers when the slot is free and the consumer when it holds an
+ * event. A producer claims a slot by advancing the tail with a compare-and-set
+ * and publishes the event by advancing the slot's sequence, so posting neither
+ * locks nor allocates. The main loop is the only consumer; it calls
+ * <code>dispatch()</code> once per tick to deliver the posted events, oldest
+ * first, as immediate events of a dispatcher.
+ * </p>
+ * <p>
+ * When the ring is full, the event's policy decides what happens:
+ * <ul>
+ * <li><code>POLICY_DROP_OLDEST</code> drops the oldest waiting event to make room.</li>
+ * <li><code>POLICY_COALESCE</code> keeps at most one waiting event of the id; a
+ * later post replaces its call data, so the event never needs more than one
+ * slot. If that slot cannot be had, the oldest waiting event is dropped. A
+ * waiting coalesced event is moved to the back of the queue rather than dropped
+ * to make room, so its latest call data is delivered.</li>
+ * <li><code>POLICY_BLOCK</code> waits for the main loop to make room. Posting
+ * from the main loop itself drops the oldest event instead, since waiting there
+ * would never end.</li>
+ * </ul>
+ * Policies are set per event id with <code>setPolicy()</code>, before the
+ * events are posted; other events use the queue's default policy.
+ * </p>
+ *
+ * @see TitleEventDispatcher
+ */
+public class EventQueue
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** Drop the oldest waiting event when the queue is full. */
+    public static final int POLICY_DROP_OLDEST = 0;
+    /** Replace the waiting event of the same id, if there is one. */
+    public static final int POLICY_COALESCE = 1;
+    /** Wait for room when the queue is full. */
+    public static final int POLICY_BLOCK = 2;
+
+    /** The default number of slots. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The number of event ids that may be given a policy. */
+    public static final int MAX_POLICIES = 16;
+
+    // How long a blocked producer waits before trying again, in nanoseconds.
+    private static final long BLOCK_PARK_NANOS = 100000L;
+
+    // The positions of the tail and head in m_positions, a cache line apart so
+    // that the producers advancing the tail do not slow the consumer's head.
+    private static final int TAIL = 8;
+    private static final int HEAD = 16;
+    private static final int NUM_POSITIONS = 24;
+
+    // The call data of a coalesced event's slot; its data is kept in m_latest.
+    private static final Object COALESCED = new Object();
+
+    // Stands for null call data in m_latest, where null means no event is waiting.
+    private static final Object NULL_DATA = new Object();
+
+    // The names of the span and counter recorded for each dispatch.
+    private static final int TRACE_DISPATCH = FlightRecorder.register("EventQueue.dispatch");
+    private static final int TRACE_DEPTH = FlightRecorder.register("Event queue depth");
+
+    // The slots. A slot at position p is free for the producer of p while its
+    // sequence is p, and holds that producer's event while it is p + 1.
+    private final int m_capacity;
+    private final int m_mask;
+    private final AtomicLongArray m_sequences;
+    private final int[] m_ids;
+    private final Object[] m_data;
+
+    // The number of slots claimed by producers and by the consumer.
+    private final AtomicLongArray m_positions = new AtomicLongArray(NUM_POSITIONS);
+
+    // The policies, as pairs of event id and policy; replaced, never modified,
+    // so that producers can read them without locking.
+    private final int m_defaultPolicy;
+    private volatile int[] m_policies = new int[0];
+
+    // The latest call data of each coalesced event waiting in the queue, indexed
+    // like the pairs of m_policies; null while none is waiting.
+    private final AtomicReferenceArray<Object> m_latest = new AtomicReferenceArray<Object>(MAX_POLICIES);
+
+    // The thread that dispatches the events.
+    private volatile Thread m_consumer = null;
+
+    // The metrics.
+    private volatile int m_maxDepth = 0;
+    private final AtomicLong m_coalesced = new AtomicLong();
+    private final AtomicLong m_dropped = new AtomicLong();
+    private final AtomicLong m_blocked = new AtomicLong();
+
+    /**
+     * A constructor that allocates the slots.
+     *
+     * @param capacity The number of slots; it must be a power of two.
+     * @param defaultPolicy The policy of events not given one with <code>setPolicy()</code>.
+     */
+    public EventQueue(int capacity, int defaultPolicy)
+    {
+        super();
+        if ((capacity <= 0) || ((capacity & (capacity - 1)) != 0))
+            throw new IllegalArgumentException("EventQueue: Invalid capacity " + capacity + ".");
+        checkPolicy(defaultPolicy);
+
+        m_capacity = capacity;
+        m_mask = capacity - 1;
+        m_sequences = new AtomicLongArray(capacity);
+        m_ids = new int[capacity];
+        m_data = new Object[capacity];
+        for (int i = 0; i < capacity; i++)
+            m_sequences.set(i, i);
+        m_defaultPolicy = defaultPolicy;
+    }
+
+    // Validate a policy.
+    private static void checkPolicy(int policy)
+    {
+        if ((policy < POLICY_DROP_OLDEST) || (policy > POLICY_BLOCK))
+            throw new IllegalArgumentException("EventQueue: Invalid policy " + policy + ".");
+    }
+
+    /**
+     * Set the policy of an event. This should be done before the event is posted.
+     *
+     * @param id The event id.
+     * @param policy One of the <code>POLICY_</code> constants.
+     */
+    public synchronized void setPolicy(int id, int policy)
+    {
+        checkPolicy(policy);
+
+        int[] policies = m_policies;
+        for (int i = 0; i < policies.length; i += 2)
+        {
+            if (policies[i] == id)
+            {
+                int[] replaced = policies.clone();
+                replaced[i + 1] = policy;
+                m_policies = replaced;
+                return;
+            }
+        }
+        if (policies.length == MAX_POLICIES * 2)
+            throw new IllegalStateException("EventQueue: Too many event policies.");
+
+        int[] added = new int[policies.length + 2];
+        System.arraycopy(policies, 0, added, 0, policies.length);
+        added[policies.length] = id;
+        added[policies.length + 1] = policy;
+        m_policies = added;
+    }
+
+    // Find the index of an event's policy pair; -1 if it has none.
+    private int findPolicy(int[] policies, int id)
+    {
+        for (int i = 0; i < policies.length; i += 2)
+        {
+            if (policies[i] == id)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Post an event. This may be called from any thread.
+     *
+     * @param id The event id.
+     * @param callData The call data delivered with the event; it may be null.
+     *
+     * @return <b>true</b> is returned if the event was queued or coalesced;
+     * <b>false</b> is returned if a producer was interrupted while blocked.
+     * Events dropped to make room for later ones are counted by
+     * <code>getDropped()</code>.
+     */
+    public boolean post(int id, Object callData)
+    {
+        int[] policies = m_policies;
+        int pair = findPolicy(policies, id);
+        int policy = (pair < 0) ? m_defaultPolicy : policies[pair + 1];
+
+        Object data = callData;
+        if (policy == POLICY_COALESCE)
+        {
+            // Only the post that finds no event waiting needs a slot.
+            if (m_latest.getAndSet(pair / 2, (callData != null) ? callData : NULL_DATA) != null)
+            {
+                m_coalesced.incrementAndGet();
+                return true;
+            }
+            data = COALESCED;
+        }
+
+        boolean blocked = false;
+        while (! offer(id, data))
+        {
+            if ((policy == POLICY_BLOCK) && (Thread.currentThread() != m_consumer))
+            {
+                if (! blocked)
+                {
+                    blocked = true;
+                    m_blocked.incrementAndGet();
+                }
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (Thread.interrupted())
+                {
+                    m_dropped.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            } else if (! discardOldest())
+            {
+                // The oldest event's producer has claimed its slot but not yet
+                // published it; let it run.
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    // Claim the tail slot and publish an event in it; false if the queue is full.
+    private boolean offer(int id, Object data)
+    {
+        while (true)
+        {
+            long position = m_positions.get(TAIL);
+            int index = (int) position & m_mask;
+            long difference = m_sequences.get(index) - position;
+            if (difference == 0)
+            {
+                if (m_positions.compareAndSet(TAIL, position, position + 1))
+                {
+                    m_ids[index] = id;
+                    m_data[index] = data;
+                    m_sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0)
+                return false;
+            // Otherwise another producer claimed the slot first; try the next.
+        }
+    }
+
+    // Claim the head slot, if its event has been published. Returns the slot's
+    // position, or -1 if there is none. The slot must be released once read.
+    private long claim()
+    {
+        while (true)
+        {
+            long position = m_positions.get(HEAD);
+            int index = (int) position & m_mask;
+            long difference = m_sequences.get(index) - (position + 1);
+            if (difference == 0)
+            {
+                if (m_positions.compareAndSet(HEAD, position, position + 1))
+                    return position;
+            } else if (difference < 0)
+                return -1;
+            // Otherwise a producer dropped the event first; try the next.
+        }
+    }
+
+    // Free a claimed slot for the producers' next pass around the ring.
+    private void release(long position)
+    {
+        int index = (int) position & m_mask;
+        m_data[index] = null;
+        m_sequences.lazySet(index, position + m_capacity);
+    }
+
+    // Drop the oldest waiting event to make room; false if it is not yet published.
+    // A coalesced event may take newer call data at any time, so it is moved to the
+    // tail instead and the next oldest is dropped. It is only dropped itself when
+    // the queue holds nothing but coalesced events, or when a producer takes the slot it is moving to.
+    // Producers call this, so the head is advanced with a compare-and-set even
+    // though there is one consumer.
+    private boolean discardOldest()
+    {
+        for (int moved = 0; ; moved++)
+        {
+            long position = claim();
+            if (position < 0)
+                return false;
+            int index = (int) position & m_mask;
+            int id = m_ids[index];
+            boolean coalesced = (m_data[index] == COALESCED);
+            release(position);
+            if (! coalesced)
+                break;
+
+            // The slot just released is normally the one the event moves to. The
+            // consumer may have made room meanwhile, leaving nothing to drop.
+            if ((moved < m_capacity) && offer(id, COALESCED))
+            {
+                if (getDepth() < m_capacity)
+                    return true;
+                continue;
+            }
+            int pair = findPolicy(m_policies, id);
+            if (pair >= 0)
+                m_latest.set(pair / 2, null);
+            break;
+        }
+        m_dropped.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Deliver the waiting events to a dispatcher as immediate events, oldest
+     * first. Events posted by their callbacks wait for the next call. This is
+     * called by the main loop once per tick, and must always be called from
+     * the same thread.
+     *
+     * @param dispatcher The event dispatcher.
+     *
+     * @return The number of events delivered is returned.
+     */
+    public int dispatch(MleEventDispatcher dispatcher)
+    {
+        m_consumer = Thread.currentThread();
+        int depth = getDepth();
+        if (depth > m_maxDepth)
+            m_maxDepth = depth;
+        if (depth == 0)
+            return 0;
+
+        FlightRecorder.begin(TRACE_DISPATCH);
+        FlightRecorder.counter(TRACE_DEPTH, depth);
+        int count = 0;
+        for (int i = 0; i < depth; i++)
+        {
+            long position = claim();
+            if (position < 0)
+                break;
+            int index = (int) position & m_mask;
+            int id = m_ids[index];
+            Object data = m_data[index];
+            release(position);
+
+            if (data == COALESCED)
+            {
+                data = m_latest.getAndSet(findPolicy(m_policies, id) / 2, null);
+                if (data == null)
+                    continue;
+            }
+            if (data == NULL_DATA)
+                data = null;
+
+            try
+            {
+                dispatcher.processEvent(id, data, MleEventDispatcher.MLE_EVMGR_IMMEDIATE);
+            } catch (MleRuntimeException ex)
+            {
+                Log.w(TAG, "EventQueue: Unable to dispatch event " + id + ": " + ex.getMessage());
+            }
+            count++;
+        }
+        FlightRecorder.end();
+        return count;
+    }
+
+    /**
+     * Retrieve the number of slots.
+     *
+     * @return The capacity is returned.
+     */
+    public int getCapacity()
+    { return m_capacity; }
+
+    /**
+     * Retrieve the number of events waiting, including any being posted.
+     *
+     * @return The queue depth is returned.
+     */
+    public int getDepth()
+    {
+        long head = m_positions.get(HEAD);
+        long tail = m_positions.get(TAIL);
+        return (int) Math.min(Math.max(tail - head, 0), m_capacity);
+    }
+
+    /**
+     * Retrieve the largest depth seen by <code>dispatch()</code>, which is the
+     * deepest the queue has been at the start of a tick.
+     *
+     * @return The maximum queue depth is returned.
+     */
+    public int getMaxDepth()
+    { return m_maxDepth; }
+
+    /**
+     * Retrieve the number of posts merged into a waiting event.
+     *
+     * @return The coalesced event count is returned.
+     */
+    public long getCoalesced()
+    { return m_coalesced.get(); }
+
+    /**
+     * Retrieve the number of events dropped because the queue was full.
+     *
+     * @return The dropped event count is returned.
+     */
+    public long getDropped()
+    { return m_dropped.get(); }
+
+    /**
+     * Retrieve the number of posts that had to wait for room.
+     *
+     * @return The blocked post count is returned.
+     */
+    public long getBlocked()
+    { return m_blocked.get(); }
+}
@@ -0,0 +1,66 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.event;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+/**
+ * The title's event dispatcher. Delayed events are posted to a lock-free
+ * <code>EventQueue</code> instead of the runtime's queue, so that the UI
+ * thread, the rendering thread and the loader threads can post them without
+ * contending with each other or with the main loop. <code>dispatchEvents()</code>
+ * delivers them, in the order they were posted, before the runtime's own
+ * delayed events. Immediate events are dispatched as before.
+ *
+ * @see EventQueue
+ */
+public class TitleEventDispatcher extends MleEventDispatcher
+{
+    // The queue of delayed events.
+    private final EventQueue m_queue;
+
+    /**
+     * A constructor that posts delayed events to the specified queue.
+     *
+     * @param queue The queue of delayed events.
+     */
+    public TitleEventDispatcher(EventQueue queue)
+    {
+        super();
+        if (queue == null)
+            throw new IllegalArgumentException("TitleEventDispatcher: Queue is null.");
+        m_queue = queue;
+    }
+
+    /**
+     * Get the queue of delayed events, to set event policies or read its metrics.
+     *
+     * @return The queue is returned.
+     */
+    public EventQueue getQueue()
+    { return m_queue; }
+
+    /* (non-Javadoc)
+     * @see com.wizzer.mle.runtime.event.MleEventDispatcher#processEvent(int, java.lang.Object, int)
+     */
+    public boolean processEvent(int id, Object callData, int type)
+        throws MleRuntimeException
+    {
+        if (type == MLE_EVMGR_DELAYED)
+            return m_queue.post(id, callData);
+        return super.processEvent(id, callData, type);
+    }
+
+    /* (non-Javadoc)
+     * @see com.wizzer.mle.runtime.event.MleEventDispatcher#dispatchEvents()
+     */
+    public void dispatchEvents()
+    {
+        m_queue.dispatch(this);
+        super.dispatchEvents();
+    }
+}
@@ -0,0 +1,65 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import Android classes.
+import android.opengl.EGL14;
+
+/**
+ * Provides the GL backend used by the title's Roles.
+ * <p>
+ * By default this is <code>Gles20Gl</code>, which forwards to the device's
+ * OpenGL ES 2.0 driver. Headless tools and tests install another backend with
+ * <code>setInstance()</code> before any Role initializes its rendering.
+ * </p>
+ */
+public class Gl
+{
+    // The current backend.
+    private static IGl g_theGl = null;
+
+    // Hide default constructor.
+    private Gl() {}
+
+    /**
+     * Get the current GL backend.
+     *
+     * @return The backend is returned.
+     */
+    public static synchronized IGl getInstance()
+    {
+        if (g_theGl == null)
+            g_theGl = new Gles20Gl();
+        return g_theGl;
+    }
+
+    /**
+     * Set the GL backend.
+     *
+     * @param gl The backend Roles should use. If <b>null</b>, the
+     * <code>GLES20</code> backend is restored.
+     */
+    public static synchronized void setInstance(IGl gl)
+    {
+        g_theGl = gl;
+    }
+
+    /**
+     * Identify the GL context current on the calling thread. Two calls return
+     * equal objects only if the same context was current, so a change in the
+     * value means that the resources created in the previous context are gone.
+     *
+     * @return For the <code>GLES20</code> backend, the current EGL context is
+     * returned. Other backends have no context of their own, so the backend itself
+     * is returned.
+     */
+    public static Object getCurrentContext()
+    {
+        IGl gl = getInstance();
+        if (gl instanceof Gles20Gl)
+            return EGL14.eglGetCurrentContext();
+        return gl;
+    }
+}
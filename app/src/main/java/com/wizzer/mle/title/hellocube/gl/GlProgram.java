@@ -0,0 +1,164 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A shader program shared through the <code>GlResourceRegistry</code>.
+ * <p>
+ * The program is described by its shader sources and attribute bindings, which
+ * is all that is needed to create it again in a new GL context. The GL name and
+ * the uniform locations looked up through the program change when it is
+ * recreated, so Roles hold on to the <code>GlProgram</code> and ask it for them
+ * when they render, rather than keeping copies. Attribute locations are fixed by
+ * the bindings and never change.
+ * </p>
+ */
+public class GlProgram
+{
+    // The descriptor.
+    private final String m_vertexSource;
+    private final String m_fragmentSource;
+    private final String[] m_attributes;
+    private final String m_key;
+
+    // The GL name in the current context; 0 until created.
+    int m_glName = 0;
+
+    // The linked program retrieved from the driver, and its format; null if unavailable.
+    ByteBuffer m_binary = null;
+    int m_binaryFormat = 0;
+
+    // The uniform locations looked up in the current context.
+    private final HashMap<String, Integer> m_uniformLocations = new HashMap<String, Integer>();
+
+    /**
+     * A constructor that initializes the program's descriptor.
+     *
+     * @param vertexSource The vertex shader source.
+     * @param fragmentSource The fragment shader source.
+     * @param attributes The attributes, bound to locations in array order; may be <b>null</b>.
+     */
+    GlProgram(String vertexSource, String fragmentSource, String[] attributes)
+    {
+        super();
+        m_vertexSource = vertexSource;
+        m_fragmentSource = fragmentSource;
+        m_attributes = (attributes != null) ? attributes.clone() : new String[0];
+        m_key = getKey(vertexSource, fragmentSource, m_attributes);
+    }
+
+    // Build the key identifying a program's descriptor.
+    static String getKey(String vertexSource, String fragmentSource, String[] attributes)
+    {
+        return vertexSource + '\0' + fragmentSource + '\0'
+            + ((attributes != null) ? Arrays.toString(attributes) : "[]");
+    }
+
+    // Get the key identifying the program's descriptor.
+    String getKey()
+    {
+        return m_key;
+    }
+
+    // Forget the GL name and the looked up locations; called when the context is lost.
+    synchronized void invalidate()
+    {
+        m_glName = 0;
+        m_uniformLocations.clear();
+    }
+
+    /**
+     * Get the vertex shader source.
+     *
+     * @return The source is returned.
+     */
+    public String getVertexSource()
+    {
+        return m_vertexSource;
+    }
+
+    /**
+     * Get the fragment shader source.
+     *
+     * @return The source is returned.
+     */
+    public String getFragmentSource()
+    {
+        return m_fragmentSource;
+    }
+
+    /**
+     * Get the attribute bindings.
+     *
+     * @return A copy of the attribute names, in location order, is returned.
+     */
+    public String[] getAttributes()
+    {
+        return m_attributes.clone();
+    }
+
+    /**
+     * Get the GL name of the program in the current context.
+     *
+     * @return The name is returned, or 0 if the program has not been created.
+     */
+    public int getName()
+    {
+        return m_glName;
+    }
+
+    /**
+     * Determine whether the program has a binary that can recreate it without
+     * compiling.
+     *
+     * @return <b>true</b> is returned if a binary is cached.
+     */
+    public boolean hasBinary()
+    {
+        return m_binary != null;
+    }
+
+    /**
+     * Get the location of a uniform. The location is looked up once per context.
+     *
+     * @param gl The GL backend.
+     * @param name The name of the uniform.
+     *
+     * @return The location is returned, or -1 if the program has no such uniform.
+     */
+    public synchronized int getUniformLocation(IGl gl, String name)
+    {
+        Integer location = m_uniformLocations.get(name);
+        if (location == null)
+        {
+            location = gl.glGetUniformLocation(m_glName, name);
+            m_uniformLocations.put(name, location);
+        }
+        return location;
+    }
+
+    /**
+     * Get the location of an attribute.
+     *
+     * @param name The name of the attribute.
+     *
+     * @return The location bound to the attribute is returned, or -1 if the
+     * program has no binding for it.
+     */
+    public int getAttribLocation(String name)
+    {
+        for (int i = 0; i < m_attributes.length; i++)
+        {
+            if (m_attributes[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+}
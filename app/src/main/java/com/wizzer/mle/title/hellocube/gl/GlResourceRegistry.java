@@ -0,0 +1,600 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+// Import Android classes.
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.util.Log;
+
+/**
+ * Tracks the GL objects the title creates, with the descriptors needed to create
+ * them again.
+ * <p>
+ * An Android GL context may be destroyed while the title is paused, taking every
+ * program and texture with it. Rather than have each Role redo its full
+ * <code>initRender()</code>, the registry owns the shader programs, shared by
+ * every Role with the same sources, and is told which context is current once
+ * per frame through <code>ensureContext()</code>. When the context changes it
+ * recreates all the programs in one pass and then notifies its listeners, such
+ * as the <code>TextureManager</code>, so that they queue their own objects for
+ * recreation.
+ * </p>
+ * <p>
+ * On OpenGL ES 3.0 contexts the linked program is retrieved from the driver
+ * with <code>glGetProgramBinary()</code> and kept, so that programs are
+ * recreated with <code>glProgramBinary()</code> instead of being compiled and
+ * linked. When a cache directory is set the binaries are also stored there,
+ * keyed by the program's descriptor and the driver version, so that the next
+ * launch skips compiling too. A binary the driver rejects is discarded and the
+ * program is compiled from source. The Roles draw from client-side arrays in
+ * mapped mesh data, so there are no buffer objects to recreate.
+ * </p>
+ */
+public class GlResourceRegistry
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** The program binary cache file magic number, "MLPB". */
+    public static final int CACHE_MAGIC = 0x4D4C5042;
+
+    /** The program binary cache file format version. */
+    public static final int CACHE_VERSION = 1;
+
+    // The file name extension of cached program binaries.
+    private static final String CACHE_EXTENSION = ".mlb";
+
+    // The singleton instance.
+    private static GlResourceRegistry g_theRegistry = null;
+
+    // The programs, keyed by descriptor, in the order they were requested.
+    private final LinkedHashMap<String, GlProgram> m_programs = new LinkedHashMap<String, GlProgram>();
+
+    // The listeners notified when the context is lost.
+    private final ArrayList<IGlContextListener> m_listeners = new ArrayList<IGlContextListener>();
+
+    // The directory holding cached program binaries; null disables the cache.
+    private File m_cacheDir = null;
+
+    // The current context; GL thread only.
+    private Object m_context = null;
+
+    // Incremented each time the context changes.
+    private volatile int m_generation = 0;
+
+    // Whether the current context supports program binaries, and a checksum identifying its driver.
+    private boolean m_binariesSupported = false;
+    private int m_driverChecksum = 0;
+
+    // The number of programs compiled and loaded from binaries.
+    private int m_numCompiled = 0;
+    private int m_numFromBinary = 0;
+
+    // The duration of the last recovery, in nanoseconds; -1 if the context has not been lost.
+    private volatile long m_lastRecoveryTime = -1;
+
+    /**
+     * The default constructor. Titles use the singleton returned by
+     * <code>getInstance()</code>.
+     */
+    GlResourceRegistry()
+    {
+        super();
+    }
+
+    /**
+     * Get the registry.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized GlResourceRegistry getInstance()
+    {
+        if (g_theRegistry == null)
+            g_theRegistry = new GlResourceRegistry();
+        return g_theRegistry;
+    }
+
+    /**
+     * Set the directory used to cache program binaries.
+     *
+     * @param dir The directory, typically a subdirectory of the application's
+     * cache directory, or <b>null</b> to disable caching.
+     */
+    public synchronized void setCacheDirectory(File dir)
+    {
+        m_cacheDir = dir;
+    }
+
+    /**
+     * Add a listener to be notified when the context is lost.
+     *
+     * @param listener The listener.
+     */
+    public synchronized void addContextListener(IGlContextListener listener)
+    {
+        if (! m_listeners.contains(listener))
+            m_listeners.add(listener);
+    }
+
+    /**
+     * Remove a context listener.
+     *
+     * @param listener The listener.
+     */
+    public synchronized void removeContextListener(IGlContextListener listener)
+    {
+        m_listeners.remove(listener);
+    }
+
+    /**
+     * Make sure the registry's objects exist in the current context. This must be
+     * called on the GL thread before the objects are used, typically at the start
+     * of every frame; it is cheap when the context has not changed. When it has,
+     * every program is recreated and the listeners are notified.
+     *
+     * @param gl The GL backend.
+     * @param context The current context, as returned by <code>Gl.getCurrentContext()</code>.
+     *
+     * @return <b>true</b> is returned if a lost context was recovered.
+     */
+    public boolean ensureContext(IGl gl, Object context)
+    {
+        if (context.equals(m_context))
+            return false;
+
+        final boolean lost = (m_context != null);
+        m_context = context;
+        m_generation++;
+        checkDriver(gl);
+        if (! lost)
+            return false;
+
+        final long start = System.nanoTime();
+        GlProgram[] programs;
+        IGlContextListener[] listeners;
+        synchronized (this)
+        {
+            programs = m_programs.values().toArray(new GlProgram[m_programs.size()]);
+            listeners = m_listeners.toArray(new IGlContextListener[m_listeners.size()]);
+        }
+
+        int numFromBinary = 0;
+        for (GlProgram program : programs)
+            program.invalidate();
+        for (GlProgram program : programs)
+        {
+            if (create(gl, program))
+                numFromBinary++;
+        }
+        final long recreated = System.nanoTime();
+
+        for (IGlContextListener listener : listeners)
+            listener.onContextLost(gl);
+        final long end = System.nanoTime();
+        m_lastRecoveryTime = end - start;
+
+        Log.i(TAG, "Recovered lost GL context: recreated " + programs.length + " programs ("
+            + numFromBinary + " from binaries) in " + ((recreated - start) / 1000L) + " us, notified "
+            + listeners.length + " listeners in " + ((end - recreated) / 1000L) + " us.");
+        return true;
+    }
+
+    // Check the capabilities of a new context.
+    private void checkDriver(IGl gl)
+    {
+        final String version = gl.glGetString(GLES20.GL_VERSION);
+        final String renderer = gl.glGetString(GLES20.GL_RENDERER);
+        m_binariesSupported = (getMajorVersion(version) >= 3);
+
+        CRC32 crc = new CRC32();
+        crc.update(getBytes(version + '\n' + renderer));
+        m_driverChecksum = (int) crc.getValue();
+    }
+
+    /**
+     * Parse the major version from an OpenGL ES version string, such as
+     * "OpenGL ES 3.2 V@415.0".
+     *
+     * @param version The value of <code>glGetString(GL_VERSION)</code>.
+     *
+     * @return The major version is returned, or 0 if it cannot be parsed.
+     */
+    static int getMajorVersion(String version)
+    {
+        final String prefix = "OpenGL ES ";
+        if ((version == null) || ! version.startsWith(prefix))
+            return 0;
+        int major = 0;
+        for (int i = prefix.length(); i < version.length(); i++)
+        {
+            char c = version.charAt(i);
+            if ((c < '0') || (c > '9'))
+                break;
+            major = (major * 10) + (c - '0');
+        }
+        return major;
+    }
+
+    /**
+     * Get a program, creating it if necessary. Roles with the same shader sources
+     * and attribute bindings share one program. This must be called on the GL
+     * thread, after <code>ensureContext()</code>.
+     *
+     * @param gl The GL backend.
+     * @param vertexSource The vertex shader source.
+     * @param fragmentSource The fragment shader source.
+     * @param attributes The attributes, bound to locations in array order; may be <b>null</b>.
+     *
+     * @return The program is returned.
+     *
+     * @throws RuntimeException This exception is thrown if the program cannot be
+     * compiled or linked.
+     */
+    public GlProgram getProgram(IGl gl, String vertexSource, String fragmentSource, String[] attributes)
+    {
+        if (m_context == null)
+            throw new IllegalStateException("GlResourceRegistry: No current context.");
+
+        final String key = GlProgram.getKey(vertexSource, fragmentSource, attributes);
+        GlProgram program;
+        synchronized (this)
+        {
+            program = m_programs.get(key);
+            if (program == null)
+            {
+                program = new GlProgram(vertexSource, fragmentSource, attributes);
+                m_programs.put(key, program);
+            }
+        }
+
+        if (program.m_glName == 0)
+            create(gl, program);
+        return program;
+    }
+
+    /*
+     * Create a program in the current context, from its binary if possible.
+     *
+     * @return <b>true</b> is returned if the program was created from a binary.
+     */
+    private boolean create(IGl gl, GlProgram program)
+    {
+        if (m_binariesSupported)
+        {
+            if (program.m_binary == null)
+                readBinary(program);
+
+            if (program.m_binary != null)
+            {
+                final int handle = gl.glCreateProgram();
+                ByteBuffer binary = program.m_binary.duplicate();
+                binary.position(0);
+                gl.glProgramBinary(handle, program.m_binaryFormat, binary, binary.remaining());
+
+                final int[] linkStatus = new int[1];
+                gl.glGetProgramiv(handle, GLES20.GL_LINK_STATUS, linkStatus, 0);
+                if (linkStatus[0] != 0)
+                {
+                    program.m_glName = handle;
+                    m_numFromBinary++;
+                    return true;
+                }
+
+                // The driver has changed or the binary is corrupt.
+                Log.w(TAG, "Discarding rejected program binary; compiling the program.");
+                gl.glDeleteProgram(handle);
+                program.m_binary = null;
+                File file = getCacheFile(program);
+                if (file != null)
+                    file.delete();
+            }
+        }
+
+        final int vertexShaderHandle = compileShader(gl, GLES20.GL_VERTEX_SHADER, program.getVertexSource());
+        final int fragmentShaderHandle = compileShader(gl, GLES20.GL_FRAGMENT_SHADER, program.getFragmentSource());
+        program.m_glName = createAndLinkProgram(gl, vertexShaderHandle, fragmentShaderHandle, program.getAttributes());
+
+        // The shaders are freed with the program; they are not needed to recreate it.
+        gl.glDeleteShader(vertexShaderHandle);
+        gl.glDeleteShader(fragmentShaderHandle);
+        m_numCompiled++;
+
+        if (m_binariesSupported)
+            retrieveBinary(gl, program);
+        return false;
+    }
+
+    /*
+     * Helper function to compile a shader.
+     *
+     * @param gl The GL backend.
+     * @param shaderType The shader type.
+     * @param shaderSource The shader source code.
+     *
+     * @return An OpenGL handle to the shader.
+     */
+    private static int compileShader(IGl gl, final int shaderType, final String shaderSource)
+    {
+        int shaderHandle = gl.glCreateShader(shaderType);
+
+        if (shaderHandle != 0)
+        {
+            // Pass in the shader source.
+            gl.glShaderSource(shaderHandle, shaderSource);
+
+            // Compile the shader.
+            gl.glCompileShader(shaderHandle);
+
+            // Get the compilation status.
+            final int[] compileStatus = new int[1];
+            gl.glGetShaderiv(shaderHandle, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+
+            // If the compilation failed, delete the shader.
+            if (compileStatus[0] == 0)
+            {
+                Log.e(TAG, "Error compiling shader: " + gl.glGetShaderInfoLog(shaderHandle));
+                gl.glDeleteShader(shaderHandle);
+                shaderHandle = 0;
+            }
+        }
+
+        if (shaderHandle == 0)
+        {
+            throw new RuntimeException("Error creating shader.");
+        }
+
+        return shaderHandle;
+    }
+
+    /*
+     * Helper function to compile and link a program.
+     *
+     * @param gl The GL backend.
+     * @param vertexShaderHandle An OpenGL handle to an already-compiled vertex shader.
+     * @param fragmentShaderHandle An OpenGL handle to an already-compiled fragment shader.
+     * @param attributes Attributes that need to be bound to the program.
+     *
+     * @return An OpenGL handle to the program.
+     */
+    private static int createAndLinkProgram(IGl gl, final int vertexShaderHandle, final int fragmentShaderHandle,
+        final String[] attributes)
+    {
+        int programHandle = gl.glCreateProgram();
+
+        if (programHandle != 0)
+        {
+            // Bind the vertex shader to the program.
+            gl.glAttachShader(programHandle, vertexShaderHandle);
+
+            // Bind the fragment shader to the program.
+            gl.glAttachShader(programHandle, fragmentShaderHandle);
+
+            // Bind attributes
+            if (attributes != null)
+            {
+                final int size = attributes.length;
+                for (int i = 0; i < size; i++)
+                {
+                    gl.glBindAttribLocation(programHandle, i, attributes[i]);
+                }
+            }
+
+            // Link the two shaders together into a program.
+            gl.glLinkProgram(programHandle);
+
+            // Get the link status.
+            final int[] linkStatus = new int[1];
+            gl.glGetProgramiv(programHandle, GLES20.GL_LINK_STATUS, linkStatus, 0);
+
+            // If the link failed, delete the program.
+            if (linkStatus[0] == 0)
+            {
+                Log.e(TAG, "Error compiling program: " + gl.glGetProgramInfoLog(programHandle));
+                gl.glDeleteProgram(programHandle);
+                programHandle = 0;
+            }
+        }
+
+        if (programHandle == 0)
+        {
+            throw new RuntimeException("Error creating program.");
+        }
+
+        return programHandle;
+    }
+
+    // Retrieve a linked program's binary from the driver, and cache it.
+    private void retrieveBinary(IGl gl, GlProgram program)
+    {
+        final int[] length = new int[1];
+        gl.glGetProgramiv(program.m_glName, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        if (length[0] <= 0)
+            return;
+
+        ByteBuffer binary = ByteBuffer.allocateDirect(length[0]).order(ByteOrder.nativeOrder());
+        final int[] format = new int[1];
+        gl.glGetProgramBinary(program.m_glName, length[0], length, 0, format, 0, binary);
+        if (length[0] <= 0)
+            return;
+
+        binary.limit(length[0]);
+        program.m_binary = binary;
+        program.m_binaryFormat = format[0];
+        writeBinary(program);
+    }
+
+    // Get the file caching a program's binary; null if caching is disabled.
+    private synchronized File getCacheFile(GlProgram program)
+    {
+        if (m_cacheDir == null)
+            return null;
+        CRC32 crc = new CRC32();
+        crc.update(getBytes(program.getKey()));
+        return new File(m_cacheDir, Long.toHexString(crc.getValue()) + CACHE_EXTENSION);
+    }
+
+    /*
+     * Write a program's binary to the cache. The file is big endian:
+     *
+     *   0  int  magic ('MLPB')
+     *   4  int  format version
+     *   8  int  driver checksum
+     *  12  int  descriptor hash
+     *  16  int  binary format
+     *  20  int  binary length
+     *  24       binary
+     */
+    private void writeBinary(GlProgram program)
+    {
+        File file = getCacheFile(program);
+        if (file == null)
+            return;
+
+        File dir = file.getParentFile();
+        File temp = new File(file.getPath() + ".tmp");
+        try
+        {
+            if (! dir.isDirectory() && ! dir.mkdirs())
+                throw new IOException("GlResourceRegistry: Unable to create " + dir + ".");
+
+            byte[] bytes = new byte[program.m_binary.limit()];
+            program.m_binary.duplicate().get(bytes);
+
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+            try
+            {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(m_driverChecksum);
+                out.writeInt(program.getKey().hashCode());
+                out.writeInt(program.m_binaryFormat);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } finally
+            {
+                out.close();
+            }
+            if (! temp.renameTo(file))
+                throw new IOException("GlResourceRegistry: Unable to replace " + file + ".");
+        } catch (IOException ex)
+        {
+            temp.delete();
+            Log.w(TAG, "Unable to cache program binary: " + ex.getMessage());
+        }
+    }
+
+    // Read a program's binary from the cache, ignoring stale and unreadable files.
+    private void readBinary(GlProgram program)
+    {
+        File file = getCacheFile(program);
+        if ((file == null) || ! file.isFile())
+            return;
+
+        try
+        {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try
+            {
+                if ((in.readInt() != CACHE_MAGIC) || (in.readInt() != CACHE_VERSION)
+                    || (in.readInt() != m_driverChecksum) || (in.readInt() != program.getKey().hashCode()))
+                    return;
+                final int format = in.readInt();
+                final int length = in.readInt();
+                if ((length <= 0) || (length > file.length()))
+                    return;
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+
+                ByteBuffer binary = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+                binary.put(bytes).flip();
+                program.m_binary = binary;
+                program.m_binaryFormat = format;
+            } finally
+            {
+                in.close();
+            }
+        } catch (IOException ex)
+        {
+            Log.w(TAG, "Ignoring unreadable program binary " + file + ": " + ex.getMessage());
+        }
+    }
+
+    // Encode a string as UTF-8.
+    private static byte[] getBytes(String value)
+    {
+        try
+        {
+            return value.getBytes("UTF-8");
+        } catch (java.io.UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Get the number of times the context has changed, including the first
+     * context.
+     *
+     * @return The generation is returned.
+     */
+    public int getGeneration()
+    {
+        return m_generation;
+    }
+
+    /**
+     * Get the number of distinct programs registered.
+     *
+     * @return The number of programs is returned.
+     */
+    public synchronized int getNumPrograms()
+    {
+        return m_programs.size();
+    }
+
+    /**
+     * Get the number of times a program was compiled from source.
+     *
+     * @return The count is returned.
+     */
+    public int getNumCompiled()
+    {
+        return m_numCompiled;
+    }
+
+    /**
+     * Get the number of times a program was created from a binary.
+     *
+     * @return The count is returned.
+     */
+    public int getNumLoadedFromBinary()
+    {
+        return m_numFromBinary;
+    }
+
+    /**
+     * Get the time spent recovering the last lost context, recreating the programs
+     * and notifying the listeners.
+     *
+     * @return The time in nanoseconds is returned, or -1 if no context has been lost.
+     */
+    public long getLastRecoveryTime()
+    {
+        return m_lastRecoveryTime;
+    }
+}
@@ -0,0 +1,126 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.nio.Buffer;
+
+// Import Android classes.
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+/**
+ * A GL backend that forwards every call to the <code>GLES20</code> statics, and
+ * the program binary calls to the <code>GLES30</code> statics.
+ */
+public class Gles20Gl implements IGl
+{
+    /**
+     * The default constructor.
+     */
+    public Gles20Gl()
+    {
+        super();
+    }
+
+    public int glCreateShader(int type)
+    { return GLES20.glCreateShader(type); }
+
+    public void glShaderSource(int shader, String source)
+    { GLES20.glShaderSource(shader, source); }
+
+    public void glCompileShader(int shader)
+    { GLES20.glCompileShader(shader); }
+
+    public void glGetShaderiv(int shader, int name, int[] params, int offset)
+    { GLES20.glGetShaderiv(shader, name, params, offset); }
+
+    public String glGetShaderInfoLog(int shader)
+    { return GLES20.glGetShaderInfoLog(shader); }
+
+    public void glDeleteShader(int shader)
+    { GLES20.glDeleteShader(shader); }
+
+    public int glCreateProgram()
+    { return GLES20.glCreateProgram(); }
+
+    public void glAttachShader(int program, int shader)
+    { GLES20.glAttachShader(program, shader); }
+
+    public void glBindAttribLocation(int program, int index, String name)
+    { GLES20.glBindAttribLocation(program, index, name); }
+
+    public void glLinkProgram(int program)
+    { GLES20.glLinkProgram(program); }
+
+    public void glGetProgramiv(int program, int name, int[] params, int offset)
+    { GLES20.glGetProgramiv(program, name, params, offset); }
+
+    public String glGetProgramInfoLog(int program)
+    { return GLES20.glGetProgramInfoLog(program); }
+
+    public void glDeleteProgram(int program)
+    { GLES20.glDeleteProgram(program); }
+
+    public void glUseProgram(int program)
+    { GLES20.glUseProgram(program); }
+
+    public int glGetUniformLocation(int program, String name)
+    { return GLES20.glGetUniformLocation(program, name); }
+
+    public int glGetAttribLocation(int program, String name)
+    { return GLES20.glGetAttribLocation(program, name); }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer data)
+    { GLES20.glVertexAttribPointer(index, size, type, normalized, stride, data); }
+
+    public void glEnableVertexAttribArray(int index)
+    { GLES20.glEnableVertexAttribArray(index); }
+
+    public void glDisableVertexAttribArray(int index)
+    { GLES20.glDisableVertexAttribArray(index); }
+
+    public void glVertexAttrib4f(int index, float x, float y, float z, float w)
+    { GLES20.glVertexAttrib4f(index, x, y, z, w); }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset)
+    { GLES20.glUniformMatrix4fv(location, count, transpose, value, offset); }
+
+    public void glDrawArrays(int mode, int first, int count)
+    { GLES20.glDrawArrays(mode, first, count); }
+
+    public void glDrawElements(int mode, int count, int type, Buffer indices)
+    { GLES20.glDrawElements(mode, count, type, indices); }
+
+    public void glGenTextures(int n, int[] textures, int offset)
+    { GLES20.glGenTextures(n, textures, offset); }
+
+    public void glBindTexture(int target, int texture)
+    { GLES20.glBindTexture(target, texture); }
+
+    public void glTexParameteri(int target, int name, int param)
+    { GLES20.glTexParameteri(target, name, param); }
+
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border,
+        int format, int type, Buffer pixels)
+    { GLES20.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels); }
+
+    public void glCompressedTexImage2D(int target, int level, int internalFormat, int width, int height,
+        int border, int imageSize, Buffer data)
+    { GLES20.glCompressedTexImage2D(target, level, internalFormat, width, height, border, imageSize, data); }
+
+    public void glDeleteTextures(int n, int[] textures, int offset)
+    { GLES20.glDeleteTextures(n, textures, offset); }
+
+    public String glGetString(int name)
+    { return GLES20.glGetString(name); }
+
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+        int[] binaryFormat, int binaryFormatOffset, Buffer binary)
+    { GLES30.glGetProgramBinary(program, bufSize, length, lengthOffset, binaryFormat, binaryFormatOffset, binary); }
+
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length)
+    { GLES30.glProgramBinary(program, binaryFormat, binary, length); }
+}
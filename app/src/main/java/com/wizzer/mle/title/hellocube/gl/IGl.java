@@ -0,0 +1,95 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.nio.Buffer;
+
+/**
+ * The subset of OpenGL ES 2.0 used by the title's Roles.
+ * <p>
+ * Roles issue their GL calls through this interface, rather than the
+ * <code>GLES20</code> statics, so that the render path can run against a
+ * backend other than the device's driver. The methods have the same names,
+ * arguments and semantics as their <code>GLES20</code> counterparts, and the
+ * <code>GLES20</code> constants are used for enumerated values.
+ * </p>
+ *
+ * @see Gl
+ */
+public interface IGl
+{
+    public int glCreateShader(int type);
+
+    public void glShaderSource(int shader, String source);
+
+    public void glCompileShader(int shader);
+
+    public void glGetShaderiv(int shader, int name, int[] params, int offset);
+
+    public String glGetShaderInfoLog(int shader);
+
+    public void glDeleteShader(int shader);
+
+    public int glCreateProgram();
+
+    public void glAttachShader(int program, int shader);
+
+    public void glBindAttribLocation(int program, int index, String name);
+
+    public void glLinkProgram(int program);
+
+    public void glGetProgramiv(int program, int name, int[] params, int offset);
+
+    public String glGetProgramInfoLog(int program);
+
+    public void glDeleteProgram(int program);
+
+    public void glUseProgram(int program);
+
+    public int glGetUniformLocation(int program, String name);
+
+    public int glGetAttribLocation(int program, String name);
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer data);
+
+    public void glEnableVertexAttribArray(int index);
+
+    public void glDisableVertexAttribArray(int index);
+
+    public void glVertexAttrib4f(int index, float x, float y, float z, float w);
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    public void glDrawArrays(int mode, int first, int count);
+
+    public void glDrawElements(int mode, int count, int type, Buffer indices);
+
+    public void glGenTextures(int n, int[] textures, int offset);
+
+    public void glBindTexture(int target, int texture);
+
+    public void glTexParameteri(int target, int name, int param);
+
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border,
+        int format, int type, Buffer pixels);
+
+    public void glCompressedTexImage2D(int target, int level, int internalFormat, int width, int height,
+        int border, int imageSize, Buffer data);
+
+    public void glDeleteTextures(int n, int[] textures, int offset);
+
+    public String glGetString(int name);
+
+    /*
+     * The program binary calls are OpenGL ES 3.0; they must only be used when
+     * glGetString(GL_VERSION) reports a 3.0 or later context.
+     */
+
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+        int[] binaryFormat, int binaryFormatOffset, Buffer binary);
+
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length);
+}
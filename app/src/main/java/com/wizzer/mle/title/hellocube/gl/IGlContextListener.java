@@ -0,0 +1,22 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+/**
+ * Notified by the <code>GlResourceRegistry</code> when the GL context is lost.
+ *
+ * @see GlResourceRegistry#addContextListener(IGlContextListener)
+ */
+public interface IGlContextListener
+{
+    /**
+     * Called on the GL thread after a new context has been made current. The
+     * names of objects created in the previous context are no longer valid and
+     * must not be deleted; the objects must be created again.
+     *
+     * @param gl The GL backend.
+     */
+    public void onContextLost(IGl gl);
+}
@@ -0,0 +1,97 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes 8-bit RGBA images as PNG files.
+ * <p>
+ * This is a minimal, dependency-free encoder for dumping frames rendered
+ * off-device; it does not depend on <code>android.graphics</code> or
+ * <code>javax.imageio</code>. Rows are written without filtering.
+ * </p>
+ */
+public class PngEncoder
+{
+    // The PNG file signature.
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    // Hide default constructor.
+    private PngEncoder() {}
+
+    /**
+     * Encode an image.
+     *
+     * @param out The stream to write to. It is not closed.
+     * @param pixels The pixels, four bytes (R, G, B, A) per pixel, row by row.
+     * @param width The image width.
+     * @param height The image height.
+     * @param bottomUp <b>true</b> if the first row of <code>pixels</code> is the
+     * bottom of the image, as it is for an OpenGL framebuffer.
+     *
+     * @throws IOException This exception is thrown if the image cannot be written.
+     */
+    public static void encode(OutputStream out, ByteBuffer pixels, int width, int height, boolean bottomUp)
+        throws IOException
+    {
+        if ((width <= 0) || (height <= 0) || (pixels.capacity() < (width * height * 4)))
+            throw new IllegalArgumentException("PngEncoder: Invalid image dimensions.");
+
+        DataOutputStream stream = new DataOutputStream(out);
+        stream.write(SIGNATURE);
+
+        // Header - dimensions, 8 bits per channel, RGBA, no interlacing.
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream fields = new DataOutputStream(header);
+        fields.writeInt(width);
+        fields.writeInt(height);
+        fields.writeByte(8);
+        fields.writeByte(6);
+        fields.writeByte(0);
+        fields.writeByte(0);
+        fields.writeByte(0);
+        writeChunk(stream, "IHDR", header.toByteArray());
+
+        // Image data - each row is preceded by filter type 0.
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflaterOutputStream deflater = new DeflaterOutputStream(compressed);
+        byte[] row = new byte[(width * 4) + 1];
+        for (int y = 0; y < height; y++)
+        {
+            int source = bottomUp ? (height - 1 - y) : y;
+            for (int i = 0; i < (width * 4); i++)
+                row[i + 1] = pixels.get((source * width * 4) + i);
+            deflater.write(row);
+        }
+        deflater.finish();
+        writeChunk(stream, "IDAT", compressed.toByteArray());
+
+        writeChunk(stream, "IEND", new byte[0]);
+        stream.flush();
+    }
+
+    // Write a chunk - length, type, data and the CRC of type and data.
+    private static void writeChunk(DataOutputStream stream, String type, byte[] data)
+        throws IOException
+    {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        stream.writeInt(data.length);
+        stream.write(typeBytes);
+        stream.write(data);
+        stream.writeInt((int) crc.getValue());
+    }
+}
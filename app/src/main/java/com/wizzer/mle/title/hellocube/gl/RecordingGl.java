@@ -0,0 +1,794 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+// Import Android classes.
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+/**
+ * A headless GL backend that records the calls made to it.
+ * <p>
+ * Each call is appended to a compact binary command stream - an opcode followed
+ * by its arguments, one 32-bit word each - and counted. Strings are recorded as
+ * indices into a string table and client-side buffers by their size. The backend
+ * also tracks the state the calls would change on a real driver, so that it can
+ * report the number of state changes, the redundant calls that changed nothing,
+ * and the bytes that draws would transfer from client memory.
+ * </p>
+ * <p>
+ * Object names are allocated sequentially, compiles and links always succeed,
+ * and attribute and uniform locations are assigned in order of first use unless
+ * bound with <code>glBindAttribLocation()</code>. The backend reports an OpenGL
+ * ES 3.0 context; a program binary holds the program's attribute bindings, so
+ * binaries can be loaded into another instance, as into a new context, unless
+ * <code>setRejectProgramBinaries()</code> emulates a driver that no longer
+ * accepts them. No rendering is performed.
+ * Like a GL context, the backend must only be used from one thread at a time.
+ * </p>
+ */
+public class RecordingGl implements IGl
+{
+    // The opcodes of the command stream, one per IGl method.
+    public static final int OP_CREATE_SHADER = 0;
+    public static final int OP_SHADER_SOURCE = 1;
+    public static final int OP_COMPILE_SHADER = 2;
+    public static final int OP_GET_SHADERIV = 3;
+    public static final int OP_GET_SHADER_INFO_LOG = 4;
+    public static final int OP_DELETE_SHADER = 5;
+    public static final int OP_CREATE_PROGRAM = 6;
+    public static final int OP_ATTACH_SHADER = 7;
+    public static final int OP_BIND_ATTRIB_LOCATION = 8;
+    public static final int OP_LINK_PROGRAM = 9;
+    public static final int OP_GET_PROGRAMIV = 10;
+    public static final int OP_GET_PROGRAM_INFO_LOG = 11;
+    public static final int OP_DELETE_PROGRAM = 12;
+    public static final int OP_USE_PROGRAM = 13;
+    public static final int OP_GET_UNIFORM_LOCATION = 14;
+    public static final int OP_GET_ATTRIB_LOCATION = 15;
+    public static final int OP_VERTEX_ATTRIB_POINTER = 16;
+    public static final int OP_ENABLE_VERTEX_ATTRIB_ARRAY = 17;
+    public static final int OP_DISABLE_VERTEX_ATTRIB_ARRAY = 18;
+    public static final int OP_VERTEX_ATTRIB_4F = 19;
+    public static final int OP_UNIFORM_MATRIX_4FV = 20;
+    public static final int OP_DRAW_ARRAYS = 21;
+    public static final int OP_DRAW_ELEMENTS = 22;
+    public static final int OP_GEN_TEXTURES = 23;
+    public static final int OP_BIND_TEXTURE = 24;
+    public static final int OP_TEX_PARAMETERI = 25;
+    public static final int OP_TEX_IMAGE_2D = 26;
+    public static final int OP_COMPRESSED_TEX_IMAGE_2D = 27;
+    public static final int OP_DELETE_TEXTURES = 28;
+    public static final int OP_GET_STRING = 29;
+    public static final int OP_GET_PROGRAM_BINARY = 30;
+    public static final int OP_PROGRAM_BINARY = 31;
+
+    /** The number of opcodes. */
+    public static final int NUM_OPS = 32;
+
+    /** The format of the program binaries returned by the backend. */
+    public static final int PROGRAM_BINARY_FORMAT = 0x52474C42;
+
+    /** The number of vertex attributes tracked. */
+    public static final int MAX_VERTEX_ATTRIBS = 16;
+
+    // The name of each opcode.
+    private static final String[] OP_NAMES = {
+        "glCreateShader", "glShaderSource", "glCompileShader", "glGetShaderiv",
+        "glGetShaderInfoLog", "glDeleteShader", "glCreateProgram", "glAttachShader",
+        "glBindAttribLocation", "glLinkProgram", "glGetProgramiv", "glGetProgramInfoLog",
+        "glDeleteProgram", "glUseProgram", "glGetUniformLocation", "glGetAttribLocation",
+        "glVertexAttribPointer", "glEnableVertexAttribArray", "glDisableVertexAttribArray",
+        "glVertexAttrib4f", "glUniformMatrix4fv", "glDrawArrays", "glDrawElements",
+        "glGenTextures", "glBindTexture", "glTexParameteri", "glTexImage2D",
+        "glCompressedTexImage2D", "glDeleteTextures", "glGetString", "glGetProgramBinary",
+        "glProgramBinary"
+    };
+
+    // The arguments of each opcode: i - int, f - float, s - string table index,
+    // m - a count followed by count * 16 floats.
+    private static final String[] OP_SIGNATURES = {
+        "ii", "is", "i", "ii", "i", "i", "i", "ii",
+        "iis", "i", "ii", "i", "i", "i", "iis", "iis",
+        "iiiiii", "i", "i", "iffff", "iim", "iii", "iiii",
+        "i", "ii", "iii", "iiiiiiiii", "iiiiiiii", "i", "i", "iii",
+        "iii"
+    };
+
+    // The initial size of the command stream.
+    private static final int INITIAL_CAPACITY = 4096;
+
+    // The command stream.
+    private ByteBuffer m_commands;
+
+    // The strings referenced by the command stream.
+    private final ArrayList<String> m_strings = new ArrayList<String>();
+    private final HashMap<String, Integer> m_stringIndices = new HashMap<String, Integer>();
+
+    // Whether commands are appended to the stream; calls are counted regardless.
+    private boolean m_recording = true;
+
+    // Whether program binaries fail to link.
+    private boolean m_rejectBinaries = false;
+
+    // The call statistics.
+    private final long[] m_callCounts = new long[NUM_OPS];
+    private long m_numCalls = 0;
+    private long m_numDraws = 0;
+    private long m_bytesUploaded = 0;
+    private long m_stateChanges = 0;
+    private long m_redundantCalls = 0;
+
+    // The emulated state.
+    private int m_nextName = 1;
+    private int m_currentProgram = 0;
+    private int m_currentTexture = 0;
+    private final boolean[] m_arrayEnabled = new boolean[MAX_VERTEX_ATTRIBS];
+    private final int[] m_arrayBytesPerVertex = new int[MAX_VERTEX_ATTRIBS];
+    private final HashMap<Integer, HashMap<String, Integer>> m_attribLocations =
+        new HashMap<Integer, HashMap<String, Integer>>();
+    private final HashMap<Integer, HashMap<String, Integer>> m_uniformLocations =
+        new HashMap<Integer, HashMap<String, Integer>>();
+    private final HashMap<Integer, Boolean> m_linkStatus = new HashMap<Integer, Boolean>();
+
+    /**
+     * The default constructor.
+     */
+    public RecordingGl()
+    {
+        super();
+        m_commands = ByteBuffer.allocate(INITIAL_CAPACITY).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Enable or disable recording of the command stream. While disabled, calls are
+     * still counted and state is still tracked; this measures submission cost
+     * without the cost of the stream.
+     *
+     * @param recording <b>true</b> to record commands.
+     */
+    public void setRecording(boolean recording)
+    { m_recording = recording; }
+
+    /**
+     * Make program binaries fail to link, as a driver does after it is updated.
+     *
+     * @param reject <b>true</b> to reject program binaries.
+     */
+    public void setRejectProgramBinaries(boolean reject)
+    { m_rejectBinaries = reject; }
+
+    /**
+     * Discard the recorded commands and reset the statistics. Object names and
+     * GL state are preserved.
+     */
+    public void reset()
+    {
+        m_commands.clear();
+        m_strings.clear();
+        m_stringIndices.clear();
+        for (int i = 0; i < NUM_OPS; i++)
+            m_callCounts[i] = 0;
+        m_numCalls = 0;
+        m_numDraws = 0;
+        m_bytesUploaded = 0;
+        m_stateChanges = 0;
+        m_redundantCalls = 0;
+    }
+
+    // Begin a command.
+    private void begin(int op)
+    {
+        m_callCounts[op]++;
+        m_numCalls++;
+        if (m_recording) putInt(op);
+    }
+
+    // Append a word to the command stream.
+    private void putInt(int value)
+    {
+        if (! m_recording) return;
+        if (m_commands.remaining() < 4)
+        {
+            ByteBuffer commands = ByteBuffer.allocate(m_commands.capacity() * 2).order(ByteOrder.nativeOrder());
+            m_commands.flip();
+            commands.put(m_commands);
+            m_commands = commands;
+        }
+        m_commands.putInt(value);
+    }
+
+    // Append a float to the command stream.
+    private void putFloat(float value)
+    {
+        putInt(Float.floatToRawIntBits(value));
+    }
+
+    // Append a string table index to the command stream.
+    private void putString(String value)
+    {
+        if (! m_recording) return;
+        Integer index = m_stringIndices.get(value);
+        if (index == null)
+        {
+            index = m_strings.size();
+            m_strings.add(value);
+            m_stringIndices.put(value, index);
+        }
+        putInt(index);
+    }
+
+    // Count a call that would change GL state.
+    private void stateChange(boolean changed)
+    {
+        if (changed)
+            m_stateChanges++;
+        else
+            m_redundantCalls++;
+    }
+
+    // Find or assign a location.
+    private static int locate(HashMap<Integer, HashMap<String, Integer>> locations, int program, String name)
+    {
+        HashMap<String, Integer> names = locations.get(program);
+        if (names == null)
+        {
+            names = new HashMap<String, Integer>();
+            locations.put(program, names);
+        }
+        Integer location = names.get(name);
+        if (location == null)
+        {
+            location = names.size();
+            while (names.containsValue(location))
+                location++;
+            names.put(name, location);
+        }
+        return location;
+    }
+
+    // The size in bytes of a client-side buffer.
+    private static int sizeInBytes(Buffer data)
+    {
+        if (data == null) return 0;
+        if (data instanceof FloatBuffer) return data.remaining() * 4;
+        if (data instanceof ShortBuffer) return data.remaining() * 2;
+        if (data instanceof ByteBuffer) return data.remaining();
+        return data.remaining() * 4;
+    }
+
+    // The size in bytes of a vertex component type.
+    private static int sizeOfType(int type)
+    {
+        switch (type)
+        {
+            case GLES20.GL_BYTE:
+            case GLES20.GL_UNSIGNED_BYTE:  return 1;
+            case GLES20.GL_SHORT:
+            case GLES20.GL_UNSIGNED_SHORT: return 2;
+            default:                       return 4;
+        }
+    }
+
+    // Count the bytes a draw would read from the enabled client-side arrays.
+    private void countVertexBytes(int numVertices)
+    {
+        int bytesPerVertex = 0;
+        for (int i = 0; i < MAX_VERTEX_ATTRIBS; i++)
+            if (m_arrayEnabled[i]) bytesPerVertex += m_arrayBytesPerVertex[i];
+        m_bytesUploaded += (long) numVertices * bytesPerVertex;
+    }
+
+    public int glCreateShader(int type)
+    {
+        int shader = m_nextName++;
+        begin(OP_CREATE_SHADER);
+        putInt(type);
+        putInt(shader);
+        return shader;
+    }
+
+    public void glShaderSource(int shader, String source)
+    {
+        begin(OP_SHADER_SOURCE);
+        putInt(shader);
+        putString(source);
+    }
+
+    public void glCompileShader(int shader)
+    {
+        begin(OP_COMPILE_SHADER);
+        putInt(shader);
+    }
+
+    public void glGetShaderiv(int shader, int name, int[] params, int offset)
+    {
+        begin(OP_GET_SHADERIV);
+        putInt(shader);
+        putInt(name);
+        params[offset] = (name == GLES20.GL_COMPILE_STATUS) ? GLES20.GL_TRUE : 0;
+    }
+
+    public String glGetShaderInfoLog(int shader)
+    {
+        begin(OP_GET_SHADER_INFO_LOG);
+        putInt(shader);
+        return "";
+    }
+
+    public void glDeleteShader(int shader)
+    {
+        begin(OP_DELETE_SHADER);
+        putInt(shader);
+    }
+
+    public int glCreateProgram()
+    {
+        int program = m_nextName++;
+        begin(OP_CREATE_PROGRAM);
+        putInt(program);
+        return program;
+    }
+
+    public void glAttachShader(int program, int shader)
+    {
+        begin(OP_ATTACH_SHADER);
+        putInt(program);
+        putInt(shader);
+    }
+
+    public void glBindAttribLocation(int program, int index, String name)
+    {
+        begin(OP_BIND_ATTRIB_LOCATION);
+        putInt(program);
+        putInt(index);
+        putString(name);
+
+        HashMap<String, Integer> names = m_attribLocations.get(program);
+        if (names == null)
+        {
+            names = new HashMap<String, Integer>();
+            m_attribLocations.put(program, names);
+        }
+        names.put(name, index);
+    }
+
+    public void glLinkProgram(int program)
+    {
+        begin(OP_LINK_PROGRAM);
+        putInt(program);
+        m_linkStatus.put(program, Boolean.TRUE);
+    }
+
+    public void glGetProgramiv(int program, int name, int[] params, int offset)
+    {
+        begin(OP_GET_PROGRAMIV);
+        putInt(program);
+        putInt(name);
+        if (name == GLES20.GL_LINK_STATUS)
+            params[offset] = Boolean.TRUE.equals(m_linkStatus.get(program)) ? GLES20.GL_TRUE : GLES20.GL_FALSE;
+        else if (name == GLES30.GL_PROGRAM_BINARY_LENGTH)
+            params[offset] = encodeBinary(program).length;
+        else
+            params[offset] = 0;
+    }
+
+    public String glGetProgramInfoLog(int program)
+    {
+        begin(OP_GET_PROGRAM_INFO_LOG);
+        putInt(program);
+        return "";
+    }
+
+    public void glDeleteProgram(int program)
+    {
+        begin(OP_DELETE_PROGRAM);
+        putInt(program);
+        m_attribLocations.remove(program);
+        m_uniformLocations.remove(program);
+        m_linkStatus.remove(program);
+        if (m_currentProgram == program)
+            m_currentProgram = 0;
+    }
+
+    public void glUseProgram(int program)
+    {
+        begin(OP_USE_PROGRAM);
+        putInt(program);
+        stateChange(program != m_currentProgram);
+        m_currentProgram = program;
+    }
+
+    public int glGetUniformLocation(int program, String name)
+    {
+        int location = locate(m_uniformLocations, program, name);
+        begin(OP_GET_UNIFORM_LOCATION);
+        putInt(program);
+        putInt(location);
+        putString(name);
+        return location;
+    }
+
+    public int glGetAttribLocation(int program, String name)
+    {
+        int location = locate(m_attribLocations, program, name);
+        begin(OP_GET_ATTRIB_LOCATION);
+        putInt(program);
+        putInt(location);
+        putString(name);
+        return location;
+    }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer data)
+    {
+        begin(OP_VERTEX_ATTRIB_POINTER);
+        putInt(index);
+        putInt(size);
+        putInt(type);
+        putInt(normalized ? 1 : 0);
+        putInt(stride);
+        putInt(sizeInBytes(data));
+        stateChange(true);
+
+        if ((index >= 0) && (index < MAX_VERTEX_ATTRIBS))
+            m_arrayBytesPerVertex[index] = size * sizeOfType(type);
+    }
+
+    public void glEnableVertexAttribArray(int index)
+    {
+        begin(OP_ENABLE_VERTEX_ATTRIB_ARRAY);
+        putInt(index);
+        if ((index >= 0) && (index < MAX_VERTEX_ATTRIBS))
+        {
+            stateChange(! m_arrayEnabled[index]);
+            m_arrayEnabled[index] = true;
+        }
+    }
+
+    public void glDisableVertexAttribArray(int index)
+    {
+        begin(OP_DISABLE_VERTEX_ATTRIB_ARRAY);
+        putInt(index);
+        if ((index >= 0) && (index < MAX_VERTEX_ATTRIBS))
+        {
+            stateChange(m_arrayEnabled[index]);
+            m_arrayEnabled[index] = false;
+        }
+    }
+
+    public void glVertexAttrib4f(int index, float x, float y, float z, float w)
+    {
+        begin(OP_VERTEX_ATTRIB_4F);
+        putInt(index);
+        putFloat(x);
+        putFloat(y);
+        putFloat(z);
+        putFloat(w);
+        stateChange(true);
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset)
+    {
+        begin(OP_UNIFORM_MATRIX_4FV);
+        putInt(location);
+        putInt(transpose ? 1 : 0);
+        putInt(count);
+        for (int i = 0; i < (count * 16); i++)
+            putFloat(value[offset + i]);
+        stateChange(true);
+        m_bytesUploaded += count * 64;
+    }
+
+    public void glDrawArrays(int mode, int first, int count)
+    {
+        begin(OP_DRAW_ARRAYS);
+        putInt(mode);
+        putInt(first);
+        putInt(count);
+        m_numDraws++;
+        countVertexBytes(count);
+    }
+
+    public void glDrawElements(int mode, int count, int type, Buffer indices)
+    {
+        begin(OP_DRAW_ELEMENTS);
+        putInt(mode);
+        putInt(count);
+        putInt(type);
+        putInt(sizeInBytes(indices));
+        m_numDraws++;
+
+        // The vertices read are those up to the largest index.
+        int maxIndex = -1;
+        if (indices instanceof ShortBuffer)
+        {
+            ShortBuffer shorts = (ShortBuffer) indices;
+            int start = shorts.position();
+            for (int i = 0; i < count; i++)
+                maxIndex = Math.max(maxIndex, shorts.get(start + i) & 0xFFFF);
+        } else if (indices instanceof ByteBuffer)
+        {
+            ByteBuffer bytes = (ByteBuffer) indices;
+            int start = bytes.position();
+            for (int i = 0; i < count; i++)
+            {
+                int index = (type == GLES20.GL_UNSIGNED_SHORT)
+                    ? (bytes.getShort(start + (i * 2)) & 0xFFFF) : (bytes.get(start + i) & 0xFF);
+                maxIndex = Math.max(maxIndex, index);
+            }
+        }
+        countVertexBytes(maxIndex + 1);
+        m_bytesUploaded += count * sizeOfType(type);
+    }
+
+    public void glGenTextures(int n, int[] textures, int offset)
+    {
+        begin(OP_GEN_TEXTURES);
+        putInt(n);
+        for (int i = 0; i < n; i++)
+            textures[offset + i] = m_nextName++;
+    }
+
+    public void glBindTexture(int target, int texture)
+    {
+        begin(OP_BIND_TEXTURE);
+        putInt(target);
+        putInt(texture);
+        stateChange(texture != m_currentTexture);
+        m_currentTexture = texture;
+    }
+
+    public void glTexParameteri(int target, int name, int param)
+    {
+        begin(OP_TEX_PARAMETERI);
+        putInt(target);
+        putInt(name);
+        putInt(param);
+        stateChange(true);
+    }
+
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border,
+        int format, int type, Buffer pixels)
+    {
+        int size = sizeInBytes(pixels);
+        begin(OP_TEX_IMAGE_2D);
+        putInt(target);
+        putInt(level);
+        putInt(internalFormat);
+        putInt(width);
+        putInt(height);
+        putInt(border);
+        putInt(format);
+        putInt(type);
+        putInt(size);
+        m_bytesUploaded += size;
+    }
+
+    public void glCompressedTexImage2D(int target, int level, int internalFormat, int width, int height,
+        int border, int imageSize, Buffer data)
+    {
+        begin(OP_COMPRESSED_TEX_IMAGE_2D);
+        putInt(target);
+        putInt(level);
+        putInt(internalFormat);
+        putInt(width);
+        putInt(height);
+        putInt(border);
+        putInt(imageSize);
+        putInt(sizeInBytes(data));
+        m_bytesUploaded += imageSize;
+    }
+
+    public void glDeleteTextures(int n, int[] textures, int offset)
+    {
+        begin(OP_DELETE_TEXTURES);
+        putInt(n);
+        for (int i = 0; i < n; i++)
+            if (textures[offset + i] == m_currentTexture) m_currentTexture = 0;
+    }
+
+    public String glGetString(int name)
+    {
+        begin(OP_GET_STRING);
+        putInt(name);
+        return (name == GLES20.GL_VERSION) ? "OpenGL ES 3.0 RecordingGl" : "";
+    }
+
+    // Encode a program's attribute bindings as its binary.
+    private byte[] encodeBinary(int program)
+    {
+        StringBuilder binary = new StringBuilder();
+        HashMap<String, Integer> names = m_attribLocations.get(program);
+        if (names != null)
+        {
+            for (Map.Entry<String, Integer> entry : names.entrySet())
+                binary.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        try
+        {
+            return binary.toString().getBytes("UTF-8");
+        } catch (java.io.UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+        int[] binaryFormat, int binaryFormatOffset, Buffer binary)
+    {
+        begin(OP_GET_PROGRAM_BINARY);
+        putInt(program);
+        putInt(bufSize);
+        putInt(sizeInBytes(binary));
+
+        byte[] bytes = encodeBinary(program);
+        int size = Math.min(bytes.length, bufSize);
+        ByteBuffer out = ((ByteBuffer) binary).duplicate();
+        out.put(bytes, 0, size);
+        length[lengthOffset] = size;
+        binaryFormat[binaryFormatOffset] = PROGRAM_BINARY_FORMAT;
+    }
+
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length)
+    {
+        begin(OP_PROGRAM_BINARY);
+        putInt(program);
+        putInt(binaryFormat);
+        putInt(length);
+
+        boolean linked = (binaryFormat == PROGRAM_BINARY_FORMAT) && ! m_rejectBinaries;
+        if (linked)
+        {
+            byte[] bytes = new byte[length];
+            ((ByteBuffer) binary).duplicate().get(bytes);
+            HashMap<String, Integer> names = new HashMap<String, Integer>();
+            try
+            {
+                for (String line : new String(bytes, "UTF-8").split("\n"))
+                {
+                    int separator = line.indexOf('=');
+                    if (separator > 0)
+                        names.put(line.substring(0, separator), Integer.valueOf(line.substring(separator + 1)));
+                }
+            } catch (java.io.UnsupportedEncodingException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+            m_attribLocations.put(program, names);
+        }
+        m_linkStatus.put(program, linked);
+    }
+
+    /**
+     * Retrieve the recorded command stream.
+     *
+     * @return A read-only buffer positioned at the first command is returned.
+     */
+    public ByteBuffer getCommands()
+    {
+        ByteBuffer commands = m_commands.duplicate();
+        commands.flip();
+        return commands.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Retrieve a string referenced by the command stream.
+     *
+     * @param index The string table index.
+     *
+     * @return The string is returned.
+     */
+    public String getString(int index)
+    { return m_strings.get(index); }
+
+    /**
+     * Decode the recorded command stream, one call per line, for example
+     * <code>glDrawArrays(4, 0, 36)</code>. Strings are quoted and matrices are
+     * written as bracketed lists.
+     *
+     * @return The decoded calls are returned.
+     */
+    public String describe()
+    {
+        StringBuilder out = new StringBuilder();
+        ByteBuffer commands = getCommands();
+        while (commands.hasRemaining())
+        {
+            int op = commands.getInt();
+            out.append(OP_NAMES[op]).append('(');
+            String signature = OP_SIGNATURES[op];
+            for (int i = 0; i < signature.length(); i++)
+            {
+                if (i > 0) out.append(", ");
+                switch (signature.charAt(i))
+                {
+                    case 'f':
+                        out.append(Float.intBitsToFloat(commands.getInt()));
+                        break;
+                    case 's':
+                        out.append('"').append(m_strings.get(commands.getInt())).append('"');
+                        break;
+                    case 'm':
+                        int count = commands.getInt() * 16;
+                        out.append('[');
+                        for (int j = 0; j < count; j++)
+                        {
+                            if (j > 0) out.append(", ");
+                            out.append(Float.intBitsToFloat(commands.getInt()));
+                        }
+                        out.append(']');
+                        break;
+                    default:
+                        out.append(commands.getInt());
+                        break;
+                }
+            }
+            out.append(")\n");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Retrieve the number of calls made with an opcode.
+     *
+     * @param op One of the <code>OP_</code> constants.
+     *
+     * @return The call count is returned.
+     */
+    public long getCallCount(int op)
+    { return m_callCounts[op]; }
+
+    /**
+     * Retrieve the total number of calls.
+     *
+     * @return The call count is returned.
+     */
+    public long getNumCalls()
+    { return m_numCalls; }
+
+    /**
+     * Retrieve the number of draw calls.
+     *
+     * @return The draw count is returned.
+     */
+    public long getNumDraws()
+    { return m_numDraws; }
+
+    /**
+     * Retrieve the number of bytes that the recorded calls would transfer to the
+     * GPU - uniform values, and the client-side vertex and index data read by draws.
+     *
+     * @return The byte count is returned.
+     */
+    public long getBytesUploaded()
+    { return m_bytesUploaded; }
+
+    /**
+     * Retrieve the number of calls that changed GL state.
+     *
+     * @return The state change count is returned.
+     */
+    public long getStateChanges()
+    { return m_stateChanges; }
+
+    /**
+     * Retrieve the number of state setting calls that left the state unchanged,
+     * such as binding the program that is already current.
+     *
+     * @return The redundant call count is returned.
+     */
+    public long getRedundantCalls()
+    { return m_redundantCalls; }
+}
@@ -0,0 +1,888 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.gl;
+
+// Import standard Java classes.
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Import Android classes.
+import android.opengl.GLES20;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.mesh.VertexLayout;
+
+/**
+ * A reference software rasterizer behind the <code>IGl</code> facade.
+ * <p>
+ * The rasterizer implements the fixed function equivalent of the Roles' shader
+ * program: <code>gl_Position = u_MVPMatrix * a_Position</code>, with
+ * <code>a_Color</code> interpolated across each triangle. Shader source is
+ * accepted but not interpreted, so programs are expected to use those names.
+ * Triangles are clipped against the near plane, depth tested (<code>GL_LESS</code>)
+ * and filled with perspective-correct color, with no blending or face culling.
+ * </p>
+ * <p>
+ * Draw calls transform and clip their vertices immediately and queue the
+ * resulting triangles. <code>flush()</code>, which is also called before the
+ * framebuffer is cleared or read, bins the queued triangles into tiles and
+ * rasterizes the tiles in parallel. Triangles within a tile are processed in
+ * submission order, so the result does not depend on the number of threads.
+ * The color buffer is RGBA, 8 bits per channel, and with the depth buffer is
+ * allocated off-heap. Row 0 is the bottom of the image, as in OpenGL.
+ * </p>
+ * <p>
+ * Texture objects are allocated but their contents are ignored, since the
+ * Roles' shader does not sample textures. The backend reports an OpenGL ES 2.0
+ * context, so program binaries are not supported. Like a GL context, the
+ * backend must only be called from one thread at a time.
+ * </p>
+ */
+public class SoftwareGl implements IGl
+{
+    /** The width and height of a tile, in pixels. */
+    public static final int TILE_SIZE = 64;
+
+    /** The number of vertex attributes supported. */
+    public static final int MAX_VERTEX_ATTRIBS = 8;
+
+    // Floats per queued vertex - x, y, depth, 1/w and color/w.
+    private static final int VERTEX_STRIDE = 8;
+
+    // Floats per queued triangle.
+    private static final int TRIANGLE_STRIDE = VERTEX_STRIDE * 3;
+
+    // Floats per clip-space vertex - x, y, z, w and color.
+    private static final int CLIP_STRIDE = 8;
+
+    // The smallest w accepted after clipping.
+    private static final float MIN_W = 1.0e-6f;
+
+    // The state of a program object.
+    private static class Program
+    {
+        // The attribute and uniform locations by name.
+        final HashMap<String, Integer> m_attributes = new HashMap<String, Integer>();
+        final HashMap<String, Integer> m_uniforms = new HashMap<String, Integer>();
+
+        // The value of the u_MVPMatrix uniform.
+        final float[] m_mvp = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1 };
+    }
+
+    // The framebuffer.
+    private final int m_width;
+    private final int m_height;
+    private final ByteBuffer m_color;
+    private final FloatBuffer m_depth;
+
+    // The tiles.
+    private final int m_tilesX;
+    private final int m_tilesY;
+    private final int[][] m_tileTriangles;
+    private final int[] m_tileCounts;
+
+    // The queued triangles.
+    private float[] m_triangles = new float[TRIANGLE_STRIDE * 256];
+    private int m_numTriangles = 0;
+
+    // The worker threads.
+    private final int m_numThreads;
+    private final ExecutorService m_workers;
+
+    // The objects and state.
+    private int m_nextName = 1;
+    private final HashMap<Integer, Program> m_programs = new HashMap<Integer, Program>();
+    private Program m_currentProgram = null;
+    private final boolean[] m_arrayEnabled = new boolean[MAX_VERTEX_ATTRIBS];
+    private final Buffer[] m_arrayData = new Buffer[MAX_VERTEX_ATTRIBS];
+    private final int[] m_arrayBase = new int[MAX_VERTEX_ATTRIBS];
+    private final int[] m_arraySize = new int[MAX_VERTEX_ATTRIBS];
+    private final int[] m_arrayType = new int[MAX_VERTEX_ATTRIBS];
+    private final boolean[] m_arrayNormalized = new boolean[MAX_VERTEX_ATTRIBS];
+    private final int[] m_arrayStride = new int[MAX_VERTEX_ATTRIBS];
+    private final float[][] m_currentAttribs = new float[MAX_VERTEX_ATTRIBS][];
+
+    // Scratch storage for vertex processing.
+    private float[] m_clipVertices = new float[CLIP_STRIDE * 64];
+    private final float[] m_polygon = new float[CLIP_STRIDE * 4];
+    private final float[] m_attrib = new float[4];
+    private final int[] m_clipInputs = new int[3];
+    private final float[] m_clipDistances = new float[3];
+    private int[] m_elements = new int[256];
+
+    // The statistics.
+    private long m_trianglesDrawn = 0;
+    private long m_trianglesRasterized = 0;
+    private final AtomicLong m_fragments = new AtomicLong();
+    private long m_lastFlushTime = 0;
+
+    /**
+     * Create a rasterizer using one thread per available processor.
+     *
+     * @param width The framebuffer width.
+     * @param height The framebuffer height.
+     */
+    public SoftwareGl(int width, int height)
+    {
+        this(width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a rasterizer.
+     *
+     * @param width The framebuffer width.
+     * @param height The framebuffer height.
+     * @param numThreads The number of threads used to rasterize tiles. With one
+     * thread, tiles are rasterized on the calling thread.
+     */
+    public SoftwareGl(int width, int height, int numThreads)
+    {
+        super();
+
+        if ((width <= 0) || (height <= 0) || (numThreads < 1))
+            throw new IllegalArgumentException("SoftwareGl: Invalid input arguments.");
+
+        m_width = width;
+        m_height = height;
+        m_color = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.BIG_ENDIAN);
+        m_depth = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+        m_tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        m_tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        m_tileTriangles = new int[m_tilesX * m_tilesY][16];
+        m_tileCounts = new int[m_tilesX * m_tilesY];
+
+        for (int i = 0; i < MAX_VERTEX_ATTRIBS; i++)
+            m_currentAttribs[i] = new float[] { 0.0f, 0.0f, 0.0f, 1.0f };
+
+        m_numThreads = numThreads;
+        m_workers = (numThreads > 1) ? Executors.newFixedThreadPool(numThreads, new ThreadFactory()
+        {
+            private final AtomicInteger m_count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "SoftwareGl Tile " + m_count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+
+        clear(0.0f, 0.0f, 0.0f, 1.0f);
+    }
+
+    /**
+     * Stop the worker threads. The rasterizer must not be used afterwards.
+     */
+    public void shutdown()
+    {
+        if (m_workers != null)
+            m_workers.shutdown();
+    }
+
+    /**
+     * Clear the color buffer to a color and the depth buffer to 1.0. Queued
+     * triangles are rasterized first.
+     *
+     * @param r The red component, 0 to 1.
+     * @param g The green component, 0 to 1.
+     * @param b The blue component, 0 to 1.
+     * @param a The alpha component, 0 to 1.
+     */
+    public void clear(float r, float g, float b, float a)
+    {
+        flush();
+
+        int color = pack(r, g, b, a);
+        final int size = m_width * m_height;
+        for (int i = 0; i < size; i++)
+        {
+            m_color.putInt(i * 4, color);
+            m_depth.put(i, 1.0f);
+        }
+    }
+
+    /**
+     * Rasterize the queued triangles.
+     */
+    public void flush()
+    {
+        if (m_numTriangles == 0) return;
+        long start = System.nanoTime();
+
+        // Bin the triangles into the tiles their bounds overlap.
+        for (int t = 0; t < m_numTriangles; t++)
+        {
+            int base = t * TRIANGLE_STRIDE;
+            float minX = Math.min(m_triangles[base], Math.min(m_triangles[base + VERTEX_STRIDE], m_triangles[base + (2 * VERTEX_STRIDE)]));
+            float maxX = Math.max(m_triangles[base], Math.max(m_triangles[base + VERTEX_STRIDE], m_triangles[base + (2 * VERTEX_STRIDE)]));
+            float minY = Math.min(m_triangles[base + 1], Math.min(m_triangles[base + VERTEX_STRIDE + 1], m_triangles[base + (2 * VERTEX_STRIDE) + 1]));
+            float maxY = Math.max(m_triangles[base + 1], Math.max(m_triangles[base + VERTEX_STRIDE + 1], m_triangles[base + (2 * VERTEX_STRIDE) + 1]));
+
+            int tx0 = clamp((int) Math.floor(minX) / TILE_SIZE, 0, m_tilesX - 1);
+            int tx1 = clamp((int) Math.floor(maxX) / TILE_SIZE, 0, m_tilesX - 1);
+            int ty0 = clamp((int) Math.floor(minY) / TILE_SIZE, 0, m_tilesY - 1);
+            int ty1 = clamp((int) Math.floor(maxY) / TILE_SIZE, 0, m_tilesY - 1);
+            if ((maxX < 0.0f) || (maxY < 0.0f) || (minX >= m_width) || (minY >= m_height))
+                continue;
+
+            for (int ty = ty0; ty <= ty1; ty++)
+            {
+                for (int tx = tx0; tx <= tx1; tx++)
+                {
+                    int tile = (ty * m_tilesX) + tx;
+                    if (m_tileCounts[tile] == m_tileTriangles[tile].length)
+                    {
+                        int[] triangles = new int[m_tileTriangles[tile].length * 2];
+                        System.arraycopy(m_tileTriangles[tile], 0, triangles, 0, m_tileCounts[tile]);
+                        m_tileTriangles[tile] = triangles;
+                    }
+                    m_tileTriangles[tile][m_tileCounts[tile]++] = t;
+                }
+            }
+        }
+
+        // Rasterize the tiles.
+        final int numTiles = m_tilesX * m_tilesY;
+        if (m_workers == null)
+        {
+            for (int tile = 0; tile < numTiles; tile++)
+                rasterizeTile(tile);
+        } else
+        {
+            final AtomicInteger nextTile = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(m_numThreads);
+            for (int i = 0; i < m_numThreads; i++)
+            {
+                m_workers.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            int tile;
+                            while ((tile = nextTile.getAndIncrement()) < numTiles)
+                                rasterizeTile(tile);
+                        } finally
+                        {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+
+            // The workers read the bins and write the framebuffer until they count
+            // down, so wait for them even if interrupted, and only then restore
+            // the interrupt.
+            boolean interrupted = false;
+            while (true)
+            {
+                try
+                {
+                    done.await();
+                    break;
+                } catch (InterruptedException ex)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        for (int tile = 0; tile < numTiles; tile++)
+            m_tileCounts[tile] = 0;
+        m_trianglesRasterized += m_numTriangles;
+        m_numTriangles = 0;
+        m_lastFlushTime = System.nanoTime() - start;
+    }
+
+    // Rasterize the triangles binned to a tile, in submission order.
+    private void rasterizeTile(int tile)
+    {
+        final int count = m_tileCounts[tile];
+        if (count == 0) return;
+
+        final int[] triangles = m_tileTriangles[tile];
+        final int left = (tile % m_tilesX) * TILE_SIZE;
+        final int bottom = (tile / m_tilesX) * TILE_SIZE;
+        final int right = Math.min(left + TILE_SIZE, m_width) - 1;
+        final int top = Math.min(bottom + TILE_SIZE, m_height) - 1;
+        final float[] v = m_triangles;
+        long fragments = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            final int base = triangles[i] * TRIANGLE_STRIDE;
+            int a = base, b = base + VERTEX_STRIDE, c = base + (2 * VERTEX_STRIDE);
+
+            float area = edge(v[a], v[a + 1], v[b], v[b + 1], v[c], v[c + 1]);
+            if ((area == 0.0f) || Float.isNaN(area)) continue;
+            if (area < 0.0f)
+            {
+                // Make the winding counter-clockwise.
+                int swap = b;
+                b = c;
+                c = swap;
+                area = -area;
+            }
+            final float inverseArea = 1.0f / area;
+
+            final float ax = v[a], ay = v[a + 1], bx = v[b], by = v[b + 1], cx = v[c], cy = v[c + 1];
+            int x0 = Math.max(left, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+            int x1 = Math.min(right, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+            int y0 = Math.max(bottom, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+            int y1 = Math.min(top, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+
+            // Pixels exactly on an edge belong to it only if it is a top or left edge.
+            final boolean topLeftA = isTopLeft(bx, by, cx, cy);
+            final boolean topLeftB = isTopLeft(cx, cy, ax, ay);
+            final boolean topLeftC = isTopLeft(ax, ay, bx, by);
+
+            for (int y = y0; y <= y1; y++)
+            {
+                final float py = y + 0.5f;
+                for (int x = x0; x <= x1; x++)
+                {
+                    final float px = x + 0.5f;
+                    float wa = edge(bx, by, cx, cy, px, py);
+                    float wb = edge(cx, cy, ax, ay, px, py);
+                    float wc = edge(ax, ay, bx, by, px, py);
+                    if ((wa < 0.0f) || (wb < 0.0f) || (wc < 0.0f)) continue;
+                    if (((wa == 0.0f) && ! topLeftA) || ((wb == 0.0f) && ! topLeftB) || ((wc == 0.0f) && ! topLeftC))
+                        continue;
+                    wa *= inverseArea;
+                    wb *= inverseArea;
+                    wc *= inverseArea;
+
+                    // Depth is linear in screen space.
+                    float depth = (wa * v[a + 2]) + (wb * v[b + 2]) + (wc * v[c + 2]);
+                    int pixel = (y * m_width) + x;
+                    if ((depth < 0.0f) || (depth > 1.0f) || ! (depth < m_depth.get(pixel)))
+                        continue;
+                    m_depth.put(pixel, depth);
+
+                    // Color is interpolated as color/w and 1/w, for perspective correction.
+                    float w = 1.0f / ((wa * v[a + 3]) + (wb * v[b + 3]) + (wc * v[c + 3]));
+                    float r = ((wa * v[a + 4]) + (wb * v[b + 4]) + (wc * v[c + 4])) * w;
+                    float g = ((wa * v[a + 5]) + (wb * v[b + 5]) + (wc * v[c + 5])) * w;
+                    float bl = ((wa * v[a + 6]) + (wb * v[b + 6]) + (wc * v[c + 6])) * w;
+                    float al = ((wa * v[a + 7]) + (wb * v[b + 7]) + (wc * v[c + 7])) * w;
+                    m_color.putInt(pixel * 4, pack(r, g, bl, al));
+                    fragments++;
+                }
+            }
+        }
+        m_fragments.addAndGet(fragments);
+    }
+
+    // Twice the signed area of the triangle (a, b, p).
+    private static float edge(float ax, float ay, float bx, float by, float px, float py)
+    {
+        return ((bx - ax) * (py - ay)) - ((by - ay) * (px - ax));
+    }
+
+    // Determine whether the edge from a to b of a counter-clockwise triangle is a top or left edge.
+    private static boolean isTopLeft(float ax, float ay, float bx, float by)
+    {
+        float dy = by - ay;
+        return (dy < 0.0f) || ((dy == 0.0f) && (bx < ax));
+    }
+
+    // Pack a color as RGBA bytes.
+    private static int pack(float r, float g, float b, float a)
+    {
+        return (toByte(r) << 24) | (toByte(g) << 16) | (toByte(b) << 8) | toByte(a);
+    }
+
+    // Convert a color component to a byte.
+    private static int toByte(float value)
+    {
+        return clamp(Math.round(value * 255.0f), 0, 255);
+    }
+
+    // Clamp a value to a range.
+    private static int clamp(int value, int min, int max)
+    {
+        return (value < min) ? min : ((value > max) ? max : value);
+    }
+
+    // Read one component of a vertex attribute from the client-side array.
+    private float fetch(int index, int vertex, int component)
+    {
+        final Buffer data = m_arrayData[index];
+        final int type = m_arrayType[index];
+
+        if (data instanceof FloatBuffer)
+        {
+            int stride = (m_arrayStride[index] != 0) ? (m_arrayStride[index] / 4) : m_arraySize[index];
+            return ((FloatBuffer) data).get(m_arrayBase[index] + (vertex * stride) + component);
+        }
+        if (data instanceof ShortBuffer)
+        {
+            int stride = (m_arrayStride[index] != 0) ? (m_arrayStride[index] / 2) : m_arraySize[index];
+            return decode(type, ((ShortBuffer) data).get(m_arrayBase[index] + (vertex * stride) + component), index);
+        }
+
+        final ByteBuffer bytes = (ByteBuffer) data;
+        final int componentSize = ((type == GLES20.GL_BYTE) || (type == GLES20.GL_UNSIGNED_BYTE)) ? 1
+            : ((type == GLES20.GL_FLOAT) ? 4 : 2);
+        final int stride = (m_arrayStride[index] != 0) ? m_arrayStride[index] : (m_arraySize[index] * componentSize);
+        final int offset = m_arrayBase[index] + (vertex * stride) + (component * componentSize);
+        switch (componentSize)
+        {
+            case 1:  return decode(type, bytes.get(offset), index);
+            case 4:  return bytes.getFloat(offset);
+            default: return decode(type, bytes.getShort(offset), index);
+        }
+    }
+
+    // Convert an integer component to a float.
+    private float decode(int type, int value, int index)
+    {
+        final boolean normalized = m_arrayNormalized[index];
+        switch (type)
+        {
+            case GLES20.GL_UNSIGNED_BYTE:
+                return normalized ? ((value & 0xFF) / 255.0f) : (value & 0xFF);
+            case GLES20.GL_BYTE:
+                return normalized ? Math.max(value / 127.0f, -1.0f) : value;
+            case GLES20.GL_UNSIGNED_SHORT:
+                return normalized ? ((value & 0xFFFF) / 65535.0f) : (value & 0xFFFF);
+            case VertexLayout.GL_HALF_FLOAT_OES:
+                return VertexLayout.halfToFloat((short) value);
+            default:
+                return normalized ? Math.max(value / 32767.0f, -1.0f) : value;
+        }
+    }
+
+    // Read a vertex attribute, filling missing components from (0, 0, 0, 1).
+    private float[] readAttribute(int index, int vertex)
+    {
+        if ((index < 0) || (index >= MAX_VERTEX_ATTRIBS)) return m_currentAttribs[0];
+        if (! m_arrayEnabled[index] || (m_arrayData[index] == null)) return m_currentAttribs[index];
+
+        m_attrib[0] = 0.0f;
+        m_attrib[1] = 0.0f;
+        m_attrib[2] = 0.0f;
+        m_attrib[3] = 1.0f;
+        for (int c = 0; c < m_arraySize[index]; c++)
+            m_attrib[c] = fetch(index, vertex, c);
+        return m_attrib;
+    }
+
+    // Transform the vertices first..first+count-1 into clip space.
+    private void transformVertices(int first, int count)
+    {
+        if (m_clipVertices.length < (count * CLIP_STRIDE))
+            m_clipVertices = new float[count * CLIP_STRIDE * 2];
+
+        final Program program = m_currentProgram;
+        final float[] m = program.m_mvp;
+        final Integer position = program.m_attributes.get("a_Position");
+        final Integer color = program.m_attributes.get("a_Color");
+        final int positionIndex = (position != null) ? position : -1;
+        final int colorIndex = (color != null) ? color : -1;
+
+        for (int i = 0; i < count; i++)
+        {
+            int out = i * CLIP_STRIDE;
+            float[] p = readAttribute(positionIndex, first + i);
+            float x = p[0], y = p[1], z = p[2], w = p[3];
+            m_clipVertices[out]     = (m[0] * x) + (m[4] * y) + (m[8] * z)  + (m[12] * w);
+            m_clipVertices[out + 1] = (m[1] * x) + (m[5] * y) + (m[9] * z)  + (m[13] * w);
+            m_clipVertices[out + 2] = (m[2] * x) + (m[6] * y) + (m[10] * z) + (m[14] * w);
+            m_clipVertices[out + 3] = (m[3] * x) + (m[7] * y) + (m[11] * z) + (m[15] * w);
+
+            float[] c = readAttribute(colorIndex, first + i);
+            m_clipVertices[out + 4] = c[0];
+            m_clipVertices[out + 5] = c[1];
+            m_clipVertices[out + 6] = c[2];
+            m_clipVertices[out + 7] = c[3];
+        }
+    }
+
+    // Clip a triangle of transformed vertices against the near plane and queue the result.
+    private void assembleTriangle(int i0, int i1, int i2)
+    {
+        m_trianglesDrawn++;
+        final float[] v = m_clipVertices;
+        final int a = i0 * CLIP_STRIDE, b = i1 * CLIP_STRIDE, c = i2 * CLIP_STRIDE;
+
+        // The signed distance from the near plane, z = -w.
+        float da = v[a + 2] + v[a + 3];
+        float db = v[b + 2] + v[b + 3];
+        float dc = v[c + 2] + v[c + 3];
+        if ((da >= 0.0f) && (db >= 0.0f) && (dc >= 0.0f))
+        {
+            queueTriangle(v, a, v, b, v, c);
+            return;
+        }
+        if ((da < 0.0f) && (db < 0.0f) && (dc < 0.0f))
+            return;
+
+        // Sutherland-Hodgman against the one plane; the result has three or four vertices.
+        final int[] in = m_clipInputs;
+        final float[] d = m_clipDistances;
+        in[0] = a;
+        in[1] = b;
+        in[2] = c;
+        d[0] = da;
+        d[1] = db;
+        d[2] = dc;
+        int n = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            int j = (i + 1) % 3;
+            if (d[i] >= 0.0f)
+            {
+                System.arraycopy(v, in[i], m_polygon, n * CLIP_STRIDE, CLIP_STRIDE);
+                n++;
+            }
+            if ((d[i] >= 0.0f) != (d[j] >= 0.0f))
+            {
+                float t = d[i] / (d[i] - d[j]);
+                for (int k = 0; k < CLIP_STRIDE; k++)
+                    m_polygon[(n * CLIP_STRIDE) + k] = v[in[i] + k] + (t * (v[in[j] + k] - v[in[i] + k]));
+                n++;
+            }
+        }
+
+        for (int i = 1; i < (n - 1); i++)
+            queueTriangle(m_polygon, 0, m_polygon, i * CLIP_STRIDE, m_polygon, (i + 1) * CLIP_STRIDE);
+    }
+
+    // Project a clipped triangle to the screen and queue it for rasterization.
+    private void queueTriangle(float[] va, int a, float[] vb, int b, float[] vc, int c)
+    {
+        if ((va[a + 3] < MIN_W) || (vb[b + 3] < MIN_W) || (vc[c + 3] < MIN_W))
+            return;
+
+        if (m_triangles.length < ((m_numTriangles + 1) * TRIANGLE_STRIDE))
+        {
+            float[] triangles = new float[m_triangles.length * 2];
+            System.arraycopy(m_triangles, 0, triangles, 0, m_numTriangles * TRIANGLE_STRIDE);
+            m_triangles = triangles;
+        }
+
+        int out = m_numTriangles * TRIANGLE_STRIDE;
+        projectVertex(va, a, out);
+        projectVertex(vb, b, out + VERTEX_STRIDE);
+        projectVertex(vc, c, out + (2 * VERTEX_STRIDE));
+        m_numTriangles++;
+    }
+
+    // Divide by w and map to window coordinates.
+    private void projectVertex(float[] v, int in, int out)
+    {
+        float inverseW = 1.0f / v[in + 3];
+        m_triangles[out]     = ((v[in] * inverseW * 0.5f) + 0.5f) * m_width;
+        m_triangles[out + 1] = ((v[in + 1] * inverseW * 0.5f) + 0.5f) * m_height;
+        m_triangles[out + 2] = (v[in + 2] * inverseW * 0.5f) + 0.5f;
+        m_triangles[out + 3] = inverseW;
+        m_triangles[out + 4] = v[in + 4] * inverseW;
+        m_triangles[out + 5] = v[in + 5] * inverseW;
+        m_triangles[out + 6] = v[in + 6] * inverseW;
+        m_triangles[out + 7] = v[in + 7] * inverseW;
+    }
+
+    // Find or assign a location.
+    private static int locate(HashMap<String, Integer> locations, String name)
+    {
+        Integer location = locations.get(name);
+        if (location == null)
+        {
+            location = locations.size();
+            while (locations.containsValue(location))
+                location++;
+            locations.put(name, location);
+        }
+        return location;
+    }
+
+    // Find a program object, creating it if necessary.
+    private Program getProgram(int program)
+    {
+        Program object = m_programs.get(program);
+        if (object == null)
+        {
+            object = new Program();
+            m_programs.put(program, object);
+        }
+        return object;
+    }
+
+    public int glCreateShader(int type)
+    { return m_nextName++; }
+
+    public void glShaderSource(int shader, String source)
+    {}
+
+    public void glCompileShader(int shader)
+    {}
+
+    public void glGetShaderiv(int shader, int name, int[] params, int offset)
+    { params[offset] = (name == GLES20.GL_COMPILE_STATUS) ? GLES20.GL_TRUE : 0; }
+
+    public String glGetShaderInfoLog(int shader)
+    { return ""; }
+
+    public void glDeleteShader(int shader)
+    {}
+
+    public int glCreateProgram()
+    {
+        int program = m_nextName++;
+        m_programs.put(program, new Program());
+        return program;
+    }
+
+    public void glAttachShader(int program, int shader)
+    {}
+
+    public void glBindAttribLocation(int program, int index, String name)
+    { getProgram(program).m_attributes.put(name, index); }
+
+    public void glLinkProgram(int program)
+    {}
+
+    public void glGetProgramiv(int program, int name, int[] params, int offset)
+    { params[offset] = (name == GLES20.GL_LINK_STATUS) ? GLES20.GL_TRUE : 0; }
+
+    public String glGetProgramInfoLog(int program)
+    { return ""; }
+
+    public void glDeleteProgram(int program)
+    {
+        Program object = m_programs.remove(program);
+        if ((object != null) && (object == m_currentProgram))
+            m_currentProgram = null;
+    }
+
+    public void glUseProgram(int program)
+    { m_currentProgram = (program != 0) ? getProgram(program) : null; }
+
+    public int glGetUniformLocation(int program, String name)
+    { return locate(getProgram(program).m_uniforms, name); }
+
+    public int glGetAttribLocation(int program, String name)
+    { return locate(getProgram(program).m_attributes, name); }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer data)
+    {
+        if ((index < 0) || (index >= MAX_VERTEX_ATTRIBS)) return;
+        m_arrayData[index] = data;
+        m_arrayBase[index] = (data != null) ? data.position() : 0;
+        m_arraySize[index] = size;
+        m_arrayType[index] = type;
+        m_arrayNormalized[index] = normalized;
+        m_arrayStride[index] = stride;
+    }
+
+    public void glEnableVertexAttribArray(int index)
+    {
+        if ((index >= 0) && (index < MAX_VERTEX_ATTRIBS))
+            m_arrayEnabled[index] = true;
+    }
+
+    public void glDisableVertexAttribArray(int index)
+    {
+        if ((index >= 0) && (index < MAX_VERTEX_ATTRIBS))
+            m_arrayEnabled[index] = false;
+    }
+
+    public void glVertexAttrib4f(int index, float x, float y, float z, float w)
+    {
+        if ((index < 0) || (index >= MAX_VERTEX_ATTRIBS)) return;
+        float[] value = m_currentAttribs[index];
+        value[0] = x;
+        value[1] = y;
+        value[2] = z;
+        value[3] = w;
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset)
+    {
+        if (m_currentProgram == null) return;
+        Integer mvp = m_currentProgram.m_uniforms.get("u_MVPMatrix");
+        if ((mvp == null) || (mvp != location)) return;
+        System.arraycopy(value, offset, m_currentProgram.m_mvp, 0, 16);
+    }
+
+    public void glDrawArrays(int mode, int first, int count)
+    {
+        if (m_currentProgram == null) return;
+        if (mode != GLES20.GL_TRIANGLES)
+            throw new IllegalArgumentException("SoftwareGl: Unsupported primitive mode " + mode + ".");
+
+        transformVertices(first, count);
+        for (int i = 0; (i + 2) < count; i += 3)
+            assembleTriangle(i, i + 1, i + 2);
+    }
+
+    public void glDrawElements(int mode, int count, int type, Buffer indices)
+    {
+        if (m_currentProgram == null) return;
+        if (mode != GLES20.GL_TRIANGLES)
+            throw new IllegalArgumentException("SoftwareGl: Unsupported primitive mode " + mode + ".");
+
+        // Read the indices, then transform the vertices they reference once each.
+        if (m_elements.length < count)
+            m_elements = new int[count * 2];
+        final int[] elements = m_elements;
+        int maxIndex = -1;
+        int start = indices.position();
+        for (int i = 0; i < count; i++)
+        {
+            int index;
+            if (indices instanceof ShortBuffer)
+                index = ((ShortBuffer) indices).get(start + i) & 0xFFFF;
+            else if (type == GLES20.GL_UNSIGNED_SHORT)
+                index = ((ByteBuffer) indices).getShort(start + (i * 2)) & 0xFFFF;
+            else
+                index = ((ByteBuffer) indices).get(start + i) & 0xFF;
+            elements[i] = index;
+            maxIndex = Math.max(maxIndex, index);
+        }
+
+        transformVertices(0, maxIndex + 1);
+        for (int i = 0; (i + 2) < count; i += 3)
+            assembleTriangle(elements[i], elements[i + 1], elements[i + 2]);
+    }
+
+    public void glGenTextures(int n, int[] textures, int offset)
+    {
+        for (int i = 0; i < n; i++)
+            textures[offset + i] = m_nextName++;
+    }
+
+    public void glBindTexture(int target, int texture)
+    {}
+
+    public void glTexParameteri(int target, int name, int param)
+    {}
+
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border,
+        int format, int type, Buffer pixels)
+    {}
+
+    public void glCompressedTexImage2D(int target, int level, int internalFormat, int width, int height,
+        int border, int imageSize, Buffer data)
+    {}
+
+    public void glDeleteTextures(int n, int[] textures, int offset)
+    {}
+
+    public String glGetString(int name)
+    { return (name == GLES20.GL_VERSION) ? "OpenGL ES 2.0 SoftwareGl" : ""; }
+
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+        int[] binaryFormat, int binaryFormatOffset, Buffer binary)
+    {
+        // An OpenGL ES 2.0 context has no program binary formats.
+        length[lengthOffset] = 0;
+    }
+
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length)
+    {}
+
+    /**
+     * Retrieve the color buffer. Queued triangles are rasterized first.
+     *
+     * @return A direct buffer of RGBA pixels, bottom row first, is returned.
+     */
+    public ByteBuffer getColorBuffer()
+    {
+        flush();
+        return m_color;
+    }
+
+    /**
+     * Read a pixel. Queued triangles are rasterized first.
+     *
+     * @param x The column.
+     * @param y The row, counted from the bottom.
+     *
+     * @return The pixel is returned as RGBA, red in the most significant byte.
+     */
+    public int getPixel(int x, int y)
+    {
+        flush();
+        return m_color.getInt(((y * m_width) + x) * 4);
+    }
+
+    /**
+     * Write the color buffer as a PNG image. Queued triangles are rasterized first.
+     *
+     * @param out The stream to write to. It is not closed.
+     *
+     * @throws IOException This exception is thrown if the image cannot be written.
+     */
+    public void writePng(OutputStream out)
+        throws IOException
+    {
+        PngEncoder.encode(out, getColorBuffer(), m_width, m_height, true);
+    }
+
+    /**
+     * Retrieve the framebuffer width.
+     *
+     * @return The width in pixels is returned.
+     */
+    public int getWidth()
+    { return m_width; }
+
+    /**
+     * Retrieve the framebuffer height.
+     *
+     * @return The height in pixels is returned.
+     */
+    public int getHeight()
+    { return m_height; }
+
+    /**
+     * Retrieve the number of triangles submitted by draw calls.
+     *
+     * @return The triangle count is returned.
+     */
+    public long getTrianglesDrawn()
+    { return m_trianglesDrawn; }
+
+    /**
+     * Retrieve the number of triangles rasterized, after near plane clipping.
+     *
+     * @return The triangle count is returned.
+     */
+    public long getTrianglesRasterized()
+    { return m_trianglesRasterized; }
+
+    /**
+     * Retrieve the number of fragments that passed the depth test.
+     *
+     * @return The fragment count is returned.
+     */
+    public long getFragments()
+    { return m_fragments.get(); }
+
+    /**
+     * Retrieve the time taken by the last <code>flush()</code>.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getLastFlushTime()
+    { return m_lastFlushTime; }
+}
@@ -0,0 +1,197 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.input;
+
+/**
+ * A touch or sensor event delivered through the title's event dispatcher.
+ * <p>
+ * Events are owned by the <code>InputQueue</code> that delivers them and are
+ * reused once their callbacks return, so a callback must copy anything it wants
+ * to keep rather than holding on to the event.
+ * </p>
+ * <p>
+ * An event may stand for several samples. A touch move carries the latest
+ * position of its pointer, and a sensor event the latest values of its sensor;
+ * <code>getSamples()</code> returns how many samples were merged into it.
+ * </p>
+ *
+ * @see InputQueue
+ */
+public class InputEvent
+{
+    /** A touch event. */
+    public static final int TYPE_TOUCH = 0;
+    /** A sensor event. */
+    public static final int TYPE_SENSOR = 1;
+
+    /** A pointer went down. */
+    public static final int ACTION_DOWN = 0;
+    /** A pointer went up. */
+    public static final int ACTION_UP = 1;
+    /** A pointer moved. */
+    public static final int ACTION_MOVE = 2;
+    /** The gesture was cancelled; the pointer is up. */
+    public static final int ACTION_CANCEL = 3;
+
+    /** The maximum number of values kept for a sensor sample. */
+    public static final int MAX_VALUES = 6;
+
+    // The event type.
+    int m_type;
+
+    // The touch action and pointer.
+    int m_action;
+    int m_pointerId;
+
+    // The pointer position, in pixels, and the size of the view it is relative to.
+    float m_x;
+    float m_y;
+    int m_viewWidth;
+    int m_viewHeight;
+
+    // The sensor type, its latest values and their time integral over the merged samples.
+    int m_sensorType;
+    int m_numValues;
+    final float[] m_values = new float[MAX_VALUES];
+    final float[] m_integral = new float[MAX_VALUES];
+
+    // The times of the first and latest samples, in nanoseconds.
+    long m_firstTime;
+    long m_time;
+
+    // The number of samples merged into the event.
+    int m_samples;
+
+    // The next event in the pool or the queue.
+    InputEvent m_next;
+
+    // Events are created by their InputQueue.
+    InputEvent()
+    {
+        super();
+    }
+
+    /**
+     * Retrieve the event type.
+     *
+     * @return <code>TYPE_TOUCH</code> or <code>TYPE_SENSOR</code> is returned.
+     */
+    public int getType()
+    { return m_type; }
+
+    /**
+     * Retrieve the touch action.
+     *
+     * @return One of the <code>ACTION_</code> constants is returned.
+     */
+    public int getAction()
+    { return m_action; }
+
+    /**
+     * Retrieve the id of the touch pointer.
+     *
+     * @return The id, as reported by <code>MotionEvent.getPointerId()</code>, is returned.
+     */
+    public int getPointerId()
+    { return m_pointerId; }
+
+    /**
+     * Retrieve the x coordinate of the pointer.
+     *
+     * @return The coordinate, in pixels from the left of the view, is returned.
+     */
+    public float getX()
+    { return m_x; }
+
+    /**
+     * Retrieve the y coordinate of the pointer.
+     *
+     * @return The coordinate, in pixels from the top of the view, is returned.
+     */
+    public float getY()
+    { return m_y; }
+
+    /**
+     * Retrieve the width of the view the pointer coordinates are relative to.
+     *
+     * @return The width in pixels is returned.
+     */
+    public int getViewWidth()
+    { return m_viewWidth; }
+
+    /**
+     * Retrieve the height of the view the pointer coordinates are relative to.
+     *
+     * @return The height in pixels is returned.
+     */
+    public int getViewHeight()
+    { return m_viewHeight; }
+
+    /**
+     * Retrieve the sensor type.
+     *
+     * @return The type, as reported by <code>Sensor.getType()</code>, is returned.
+     */
+    public int getSensorType()
+    { return m_sensorType; }
+
+    /**
+     * Retrieve the number of sensor values.
+     *
+     * @return The count, at most <code>MAX_VALUES</code>, is returned.
+     */
+    public int getNumValues()
+    { return m_numValues; }
+
+    /**
+     * Retrieve a value of the latest sensor sample.
+     *
+     * @param index The index of the value.
+     *
+     * @return The value is returned.
+     */
+    public float getValue(int index)
+    { return m_values[index]; }
+
+    /**
+     * Retrieve the integral of a sensor value over time, since the sample before
+     * the first one merged into this event. For a gyroscope this is the angle,
+     * in radians, turned about an axis, so no rotation is lost when samples are
+     * merged.
+     *
+     * @param index The index of the value.
+     *
+     * @return The integral, in value units times seconds, is returned.
+     */
+    public float getIntegral(int index)
+    { return m_integral[index]; }
+
+    /**
+     * Retrieve the time of the latest sample.
+     *
+     * @return The time in nanoseconds is returned. Touch times are based on
+     * <code>SystemClock.uptimeMillis()</code>; sensor times on the sensor's
+     * timestamp.
+     */
+    public long getTime()
+    { return m_time; }
+
+    /**
+     * Retrieve the time of the first sample merged into the event.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getFirstTime()
+    { return m_firstTime; }
+
+    /**
+     * Retrieve the number of samples merged into the event, including the
+     * historical samples of batched touch moves.
+     *
+     * @return The sample count is returned.
+     */
+    public int getSamples()
+    { return m_samples; }
+}
@@ -0,0 +1,334 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.input;
+
+// Import Android classes.
+import android.util.Log;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.render.RedrawTracker;
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * Collects touch and sensor samples from the threads that receive them and
+ * delivers them to the title's event dispatcher once per tick.
+ * <p>
+ * Touch input arrives at up to 240 Hz and sensor input at 200 Hz or more, far
+ * faster than the main loop ticks. Rather than posting an event per sample, the
+ * queue coalesces them: while a pointer's move is waiting to be delivered,
+ * later moves of that pointer update it in place, and while a sensor's event is
+ * waiting, later samples update its values and add to its integral. Downs, ups
+ * and cancels are never merged, and a move that follows one of them starts a new
+ * event, so each pointer's events keep their order. A tick therefore delivers at
+ * most one move per pointer between its downs and ups, and one event per sensor.
+ * </p>
+ * <p>
+ * The events come from a pool allocated with the queue, so adding a sample
+ * does not allocate. If the pool runs out, because the main loop has stalled,
+ * the sample is dropped and counted.
+ * </p>
+ * <p>
+ * The main loop calls <code>dispatch()</code> at the start of each tick. The
+ * pending events are taken from the queue and posted to the dispatcher as
+ * immediate <code>MLE_TOUCH_EVENT</code> and <code>MLE_SENSOR_EVENT</code>
+ * events, so their callbacks run before <code>dispatch()</code> returns the
+ * events to the pool.
+ * </p>
+ *
+ * @see InputEvent
+ */
+public class InputQueue
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** The event posted for a touch. The call data is the <code>InputEvent</code>. */
+    public static final int MLE_TOUCH_EVENT = 0x1010;
+
+    /** The event posted for a sensor. The call data is the <code>InputEvent</code>. */
+    public static final int MLE_SENSOR_EVENT = 0x1011;
+
+    /** The default number of pooled events. */
+    public static final int DEFAULT_POOL_SIZE = 64;
+
+    /** The number of pointers whose moves are coalesced; moves of higher ids are queued as they come. */
+    public static final int MAX_POINTERS = 16;
+
+    /** The number of sensors whose samples are coalesced; samples of others are dropped. */
+    public static final int MAX_SENSORS = 8;
+
+    // Converts sensor timestamps to seconds.
+    private static final float NANOS_TO_SECONDS = 1.0e-9f;
+
+    // The names of the span and counters recorded for each dispatch.
+    private static final int TRACE_DISPATCH = FlightRecorder.register("InputQueue.dispatch");
+    private static final int TRACE_EVENTS = FlightRecorder.register("Input events");
+    private static final int TRACE_SAMPLES = FlightRecorder.register("Input samples");
+
+    // The free events.
+    private InputEvent m_free = null;
+
+    // The events waiting for the next dispatch, oldest first.
+    private InputEvent m_head = null;
+    private InputEvent m_tail = null;
+
+    // The waiting move of each pointer, if any.
+    private final InputEvent[] m_pendingMoves = new InputEvent[MAX_POINTERS];
+
+    // The sensors seen so far, the waiting event and the latest sample time of each;
+    // Long.MIN_VALUE before a sensor's first sample.
+    private final int[] m_sensorTypes = new int[MAX_SENSORS];
+    private final InputEvent[] m_pendingSensors = new InputEvent[MAX_SENSORS];
+    private final long[] m_sensorTimes = new long[MAX_SENSORS];
+    private int m_numSensors = 0;
+
+    // The samples added and the events dispatched since the queue was created,
+    // the samples added since the last dispatch, and the samples dropped.
+    private long m_samples = 0;
+    private long m_events = 0;
+    private int m_tickSamples = 0;
+    private long m_dropped = 0;
+
+    /**
+     * A constructor that allocates the event pool.
+     *
+     * @param poolSize The number of events; it must be positive.
+     */
+    public InputQueue(int poolSize)
+    {
+        super();
+        if (poolSize <= 0)
+            throw new IllegalArgumentException("InputQueue: Invalid pool size " + poolSize + ".");
+
+        for (int i = 0; i < poolSize; i++)
+        {
+            InputEvent event = new InputEvent();
+            event.m_next = m_free;
+            m_free = event;
+        }
+    }
+
+    // Take an event from the pool and append it to the queue. The caller holds the lock.
+    private InputEvent obtain(int type, long time, int samples)
+    {
+        InputEvent event = m_free;
+        if (event == null)
+        {
+            m_dropped += samples;
+            return null;
+        }
+        m_free = event.m_next;
+
+        event.m_type = type;
+        event.m_firstTime = time;
+        event.m_time = time;
+        event.m_samples = samples;
+        event.m_next = null;
+        if (m_tail == null)
+            m_head = event;
+        else
+            m_tail.m_next = event;
+        m_tail = event;
+        return event;
+    }
+
+    /**
+     * Add touch samples for one pointer. A move is merged into the pointer's
+     * waiting move, if it has one.
+     *
+     * @param action One of the <code>InputEvent.ACTION_</code> constants.
+     * @param pointerId The id of the pointer.
+     * @param x The x coordinate of the latest sample, in pixels from the left of the view.
+     * @param y The y coordinate of the latest sample, in pixels from the top of the view.
+     * @param time The time of the latest sample, in nanoseconds.
+     * @param viewWidth The width of the view, in pixels.
+     * @param viewHeight The height of the view, in pixels.
+     * @param samples The number of samples, including historical samples batched
+     * into a move.
+     *
+     * @return <b>true</b> is returned if the samples were queued or merged;
+     * <b>false</b> is returned if they were dropped because the pool is empty.
+     */
+    public synchronized boolean addTouch(int action, int pointerId, float x, float y, long time,
+        int viewWidth, int viewHeight, int samples)
+    {
+        // The main loop cannot dispatch before this returns, as it needs the lock.
+        RedrawTracker.getInstance().wakeTick();
+        m_samples += samples;
+        m_tickSamples += samples;
+
+        boolean coalesced = (pointerId >= 0) && (pointerId < MAX_POINTERS);
+        InputEvent event = null;
+        if ((action == InputEvent.ACTION_MOVE) && coalesced)
+            event = m_pendingMoves[pointerId];
+
+        if (event != null)
+            event.m_samples += samples;
+        else
+        {
+            event = obtain(InputEvent.TYPE_TOUCH, time, samples);
+            if (event == null)
+                return false;
+            event.m_action = action;
+            event.m_pointerId = pointerId;
+            if (coalesced)
+                m_pendingMoves[pointerId] = (action == InputEvent.ACTION_MOVE) ? event : null;
+        }
+
+        event.m_x = x;
+        event.m_y = y;
+        event.m_time = time;
+        event.m_viewWidth = viewWidth;
+        event.m_viewHeight = viewHeight;
+        return true;
+    }
+
+    /**
+     * Add a sensor sample. It is merged into the sensor's waiting event, if it
+     * has one.
+     *
+     * @param sensorType The sensor type.
+     * @param values The sample's values.
+     * @param numValues The number of values; at most <code>InputEvent.MAX_VALUES</code> are kept.
+     * @param time The time of the sample, in nanoseconds.
+     *
+     * @return <b>true</b> is returned if the sample was queued or merged;
+     * <b>false</b> is returned if it was dropped.
+     */
+    public synchronized boolean addSensor(int sensorType, float[] values, int numValues, long time)
+    {
+        RedrawTracker.getInstance().wakeTick();
+        m_samples++;
+        m_tickSamples++;
+
+        int slot = 0;
+        while ((slot < m_numSensors) && (m_sensorTypes[slot] != sensorType))
+            slot++;
+        if (slot == m_numSensors)
+        {
+            if (slot == MAX_SENSORS)
+            {
+                m_dropped++;
+                return false;
+            }
+            m_sensorTypes[slot] = sensorType;
+            m_sensorTimes[slot] = Long.MIN_VALUE;
+            m_numSensors++;
+        }
+
+        // Integrate the value over the time since the sensor's previous sample.
+        float dt = (m_sensorTimes[slot] != Long.MIN_VALUE) ? ((time - m_sensorTimes[slot]) * NANOS_TO_SECONDS) : 0.0f;
+        m_sensorTimes[slot] = time;
+
+        InputEvent event = m_pendingSensors[slot];
+        int count = Math.min(numValues, InputEvent.MAX_VALUES);
+        if (event == null)
+        {
+            event = obtain(InputEvent.TYPE_SENSOR, time, 1);
+            if (event == null)
+                return false;
+            event.m_sensorType = sensorType;
+            for (int i = 0; i < InputEvent.MAX_VALUES; i++)
+                event.m_integral[i] = 0.0f;
+            m_pendingSensors[slot] = event;
+        } else
+            event.m_samples++;
+
+        event.m_numValues = count;
+        event.m_time = time;
+        for (int i = 0; i < count; i++)
+        {
+            event.m_values[i] = values[i];
+            event.m_integral[i] += values[i] * dt;
+        }
+        return true;
+    }
+
+    /**
+     * Deliver the waiting events to a dispatcher, in the order they were queued,
+     * and return them to the pool. This is called by the main loop once per tick.
+     *
+     * @param dispatcher The event dispatcher.
+     *
+     * @return The number of events delivered is returned.
+     */
+    public int dispatch(MleEventDispatcher dispatcher)
+    {
+        InputEvent head;
+        int samples;
+        synchronized (this)
+        {
+            head = m_head;
+            m_head = null;
+            m_tail = null;
+            for (int i = 0; i < MAX_POINTERS; i++)
+                m_pendingMoves[i] = null;
+            for (int i = 0; i < m_numSensors; i++)
+                m_pendingSensors[i] = null;
+            samples = m_tickSamples;
+            m_tickSamples = 0;
+        }
+        if (head == null)
+            return 0;
+
+        FlightRecorder.begin(TRACE_DISPATCH);
+        int count = 0;
+        InputEvent last = head;
+        for (InputEvent event = head; event != null; event = event.m_next)
+        {
+            try
+            {
+                dispatcher.processEvent(
+                    (event.m_type == InputEvent.TYPE_TOUCH) ? MLE_TOUCH_EVENT : MLE_SENSOR_EVENT,
+                    event, MleEventDispatcher.MLE_EVMGR_IMMEDIATE);
+            } catch (MleRuntimeException ex)
+            {
+                Log.w(TAG, "InputQueue: Unable to dispatch input event: " + ex.getMessage());
+            }
+            last = event;
+            count++;
+        }
+
+        synchronized (this)
+        {
+            last.m_next = m_free;
+            m_free = head;
+            m_events += count;
+        }
+        FlightRecorder.counter(TRACE_EVENTS, count);
+        FlightRecorder.counter(TRACE_SAMPLES, samples);
+        FlightRecorder.end();
+        return count;
+    }
+
+    /**
+     * Retrieve the number of samples added since the queue was created.
+     *
+     * @return The sample count is returned.
+     */
+    public synchronized long getSamples()
+    { return m_samples; }
+
+    /**
+     * Retrieve the number of events delivered since the queue was created. The
+     * difference from <code>getSamples()</code> is the number of samples merged.
+     *
+     * @return The event count is returned.
+     */
+    public synchronized long getEvents()
+    { return m_events; }
+
+    /**
+     * Retrieve the number of samples dropped because the pool was empty or too
+     * many sensors were used.
+     *
+     * @return The dropped sample count is returned.
+     */
+    public synchronized long getDropped()
+    { return m_dropped; }
+}
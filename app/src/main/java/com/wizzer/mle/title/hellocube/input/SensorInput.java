@@ -0,0 +1,95 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.input;
+
+// Import Android classes.
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.util.Log;
+
+/**
+ * Feeds sensor samples to an <code>InputQueue</code>.
+ * <p>
+ * The listener is registered for a set of sensor types by <code>start()</code>
+ * and unregistered by <code>stop()</code>, which the title calls when it is
+ * resumed and paused. Samples are delivered on the sensor manager's thread and
+ * are added to the queue without allocating.
+ * </p>
+ */
+public class SensorInput implements SensorEventListener
+{
+    private static final String TAG = "titles-hellocube";
+
+    // The queue fed by the listener.
+    private final InputQueue m_queue;
+
+    // The sensor manager the listener is registered with, while started.
+    private SensorManager m_manager = null;
+
+    /**
+     * A constructor that initializes the queue fed by the listener.
+     *
+     * @param queue The input queue.
+     */
+    public SensorInput(InputQueue queue)
+    {
+        super();
+        m_queue = queue;
+    }
+
+    /**
+     * Register the listener for the default sensor of each type. Types the
+     * device lacks are skipped.
+     *
+     * @param manager The sensor manager.
+     * @param types The sensor types, for example <code>Sensor.TYPE_GYROSCOPE</code>.
+     * @param samplingPeriod The sampling period in microseconds, or one of the
+     * <code>SensorManager.SENSOR_DELAY_</code> constants.
+     *
+     * @return The number of sensors registered is returned.
+     */
+    public synchronized int start(SensorManager manager, int[] types, int samplingPeriod)
+    {
+        stop();
+
+        int registered = 0;
+        for (int type : types)
+        {
+            Sensor sensor = manager.getDefaultSensor(type);
+            if ((sensor != null) && manager.registerListener(this, sensor, samplingPeriod))
+                registered++;
+            else
+                Log.w(TAG, "SensorInput: No sensor of type " + type + ".");
+        }
+        m_manager = manager;
+        return registered;
+    }
+
+    /**
+     * Unregister the listener from every sensor.
+     */
+    public synchronized void stop()
+    {
+        if (m_manager == null) return;
+
+        m_manager.unregisterListener(this);
+        m_manager = null;
+    }
+
+    /* (non-Javadoc)
+     * @see android.hardware.SensorEventListener#onSensorChanged(android.hardware.SensorEvent)
+     */
+    public void onSensorChanged(SensorEvent event)
+    {
+        m_queue.addSensor(event.sensor.getType(), event.values, event.values.length, event.timestamp);
+    }
+
+    /* (non-Javadoc)
+     * @see android.hardware.SensorEventListener#onAccuracyChanged(android.hardware.Sensor, int)
+     */
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+}
@@ -0,0 +1,95 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.input;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleSet;
+import com.wizzer.mle.runtime.event.IMleEventCallback;
+import com.wizzer.mle.runtime.event.MleEvent;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.sets.CubeSet;
+
+/**
+ * Picks the cube Role under a tap.
+ * <p>
+ * Installed as the callback of <code>InputQueue.MLE_TOUCH_EVENT</code>, so it
+ * runs on the main loop. A pointer that goes up within the touch slop of where
+ * it went down is a tap; the current Set, if it is a <code>CubeSet</code>, is
+ * picked at that point and the picked Actor is told through the dispatcher.
+ * </p>
+ */
+public class TapPicker implements IMleEventCallback
+{
+    // The distance a pointer may move and still tap, squared, in pixels.
+    private final float m_touchSlopSquared;
+
+    // Where each pointer went down; NaN while a pointer has moved too far to tap.
+    private final float[] m_downX = new float[InputQueue.MAX_POINTERS];
+    private final float[] m_downY = new float[InputQueue.MAX_POINTERS];
+
+    /**
+     * A constructor that initializes the touch slop.
+     *
+     * @param touchSlop The distance a pointer may move and still tap, in pixels.
+     */
+    public TapPicker(int touchSlop)
+    {
+        super();
+        m_touchSlopSquared = (float) touchSlop * touchSlop;
+        for (int i = 0; i < InputQueue.MAX_POINTERS; i++)
+            m_downX[i] = Float.NaN;
+    }
+
+    /* (non-Javadoc)
+     * @see com.wizzer.mle.runtime.event.IMleEventCallback#dispatch(com.wizzer.mle.runtime.event.MleEvent, java.lang.Object)
+     */
+    public boolean dispatch(MleEvent event, Object clientData)
+    {
+        InputEvent input = (InputEvent) event.getCallData();
+        int pointer = input.getPointerId();
+        if ((pointer < 0) || (pointer >= InputQueue.MAX_POINTERS))
+            return true;
+
+        switch (input.getAction())
+        {
+            case InputEvent.ACTION_DOWN:
+                m_downX[pointer] = input.getX();
+                m_downY[pointer] = input.getY();
+                break;
+
+            case InputEvent.ACTION_MOVE:
+                if (! isTap(pointer, input))
+                    m_downX[pointer] = Float.NaN;
+                break;
+
+            case InputEvent.ACTION_UP:
+                if (isTap(pointer, input))
+                {
+                    MleSet set = MleSet.getCurrentSet();
+                    if (set instanceof CubeSet)
+                        ((CubeSet) set).postPick(input.getX(), input.getY(),
+                            input.getViewWidth(), input.getViewHeight());
+                }
+                m_downX[pointer] = Float.NaN;
+                break;
+
+            default:
+                m_downX[pointer] = Float.NaN;
+                break;
+        }
+        return true;
+    }
+
+    // Determine whether a pointer is still within the touch slop of where it went down.
+    private boolean isTap(int pointer, InputEvent input)
+    {
+        if (Float.isNaN(m_downX[pointer]))
+            return false;
+        float dx = input.getX() - m_downX[pointer];
+        float dy = input.getY() - m_downY[pointer];
+        return ((dx * dx) + (dy * dy)) <= m_touchSlopSquared;
+    }
+}
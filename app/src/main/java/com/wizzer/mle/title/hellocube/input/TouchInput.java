@@ -0,0 +1,85 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.input;
+
+// Import Android classes.
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Feeds a view's touch events to an <code>InputQueue</code>.
+ * <p>
+ * A <code>MotionEvent</code> move carries every pointer, each with the
+ * historical samples batched since the last event. Each pointer's samples are
+ * added to the queue in one call, with its latest position and the number of
+ * samples, so the queue's lock is taken once per pointer rather than once per
+ * sample.
+ * </p>
+ */
+public class TouchInput implements View.OnTouchListener
+{
+    // Converts MotionEvent times to nanoseconds.
+    private static final long MILLIS_TO_NANOS = 1000000L;
+
+    // The queue fed by the listener.
+    private final InputQueue m_queue;
+
+    /**
+     * A constructor that initializes the queue fed by the listener.
+     *
+     * @param queue The input queue.
+     */
+    public TouchInput(InputQueue queue)
+    {
+        super();
+        m_queue = queue;
+    }
+
+    /* (non-Javadoc)
+     * @see android.view.View.OnTouchListener#onTouch(android.view.View, android.view.MotionEvent)
+     */
+    public boolean onTouch(View view, MotionEvent event)
+    {
+        final int width = view.getWidth();
+        final int height = view.getHeight();
+        final long time = event.getEventTime() * MILLIS_TO_NANOS;
+
+        switch (event.getActionMasked())
+        {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                add(InputEvent.ACTION_DOWN, event, event.getActionIndex(), time, width, height, 1);
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+                add(InputEvent.ACTION_UP, event, event.getActionIndex(), time, width, height, 1);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                // The historical samples precede the current one; only the latest position is kept.
+                final int samples = event.getHistorySize() + 1;
+                for (int i = 0; i < event.getPointerCount(); i++)
+                    add(InputEvent.ACTION_MOVE, event, i, time, width, height, samples);
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                for (int i = 0; i < event.getPointerCount(); i++)
+                    add(InputEvent.ACTION_CANCEL, event, i, time, width, height, 1);
+                break;
+
+            default:
+                break;
+        }
+        return true;
+    }
+
+    // Add the samples of one pointer.
+    private void add(int action, MotionEvent event, int index, long time, int width, int height, int samples)
+    {
+        m_queue.addTouch(action, event.getPointerId(index), event.getX(index), event.getY(index), time,
+            width, height, samples);
+    }
+}
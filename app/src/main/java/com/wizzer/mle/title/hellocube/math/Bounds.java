@@ -0,0 +1,88 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.math;
+
+/**
+ * A world-space bounding volume.
+ * <p>
+ * The volume is kept both as a bounding sphere and as the axis-aligned box
+ * enclosing that sphere. The sphere is used for frustum tests; the box is
+ * provided for spatial structures that partition along the world axes.
+ * </p>
+ */
+public class Bounds
+{
+    /** The center of the bounding sphere - (x, y, z). */
+    public final float[] m_center = new float[3];
+
+    /** The radius of the bounding sphere. */
+    public float m_radius;
+
+    /** The minimum corner of the axis-aligned box - (x, y, z). */
+    public final float[] m_min = new float[3];
+
+    /** The maximum corner of the axis-aligned box - (x, y, z). */
+    public final float[] m_max = new float[3];
+
+    /**
+     * Default constructor. The bounds are initialized to an empty
+     * sphere at the origin.
+     */
+    public Bounds()
+    {
+        super();
+    }
+
+    /**
+     * Set the bounds from a sphere.
+     *
+     * @param x The x coordinate of the sphere's center.
+     * @param y The y coordinate of the sphere's center.
+     * @param z The z coordinate of the sphere's center.
+     * @param radius The radius of the sphere.
+     */
+    public void setSphere(float x, float y, float z, float radius)
+    {
+        m_center[0] = x;
+        m_center[1] = y;
+        m_center[2] = z;
+        m_radius = radius;
+
+        m_min[0] = x - radius;
+        m_min[1] = y - radius;
+        m_min[2] = z - radius;
+        m_max[0] = x + radius;
+        m_max[1] = y + radius;
+        m_max[2] = z + radius;
+    }
+
+    /**
+     * Set the bounds to those of a scaled box centered at the specified
+     * position. The box is allowed to have an arbitrary rotation; since
+     * rotation preserves the distance of each corner from the center, the
+     * enclosing sphere does not depend on it.
+     *
+     * @param x The x coordinate of the box center.
+     * @param y The y coordinate of the box center.
+     * @param z The z coordinate of the box center.
+     * @param hx The half extent of the box along its local x axis.
+     * @param hy The half extent of the box along its local y axis.
+     * @param hz The half extent of the box along its local z axis.
+     */
+    public void setBox(float x, float y, float z, float hx, float hy, float hz)
+    {
+        setSphere(x, y, z, (float) Math.sqrt((hx * hx) + (hy * hy) + (hz * hz)));
+    }
+
+    /**
+     * Copy the specified bounds.
+     *
+     * @param bounds The bounds to copy.
+     */
+    public void set(Bounds bounds)
+    {
+        setSphere(bounds.m_center[0], bounds.m_center[1], bounds.m_center[2], bounds.m_radius);
+    }
+}
@@ -0,0 +1,480 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.math;
+
+/**
+ * A bounding volume hierarchy over a set of bounding spheres, used to find the
+ * nearest sphere hit by a ray without testing every one.
+ * <p>
+ * The tree is built top down by splitting each node's items at the median
+ * of their centers along the longest axis, until a node holds at most
+ * <code>MAX_LEAF_SIZE</code> items. Nodes are axis-aligned boxes stored in flat
+ * arrays in depth-first order, so that a node's children always follow it.
+ * </p>
+ * <p>
+ * When items move, <code>update()</code> copies their new bounds and marks the
+ * path from their leaf to the root; <code>refit()</code> then recomputes only
+ * the marked boxes, children before parents, without changing the topology.
+ * Refitting is cheap but lets the boxes grow and overlap as items wander from
+ * the neighbors they were grouped with. <code>getDegradation()</code> compares
+ * the tree's surface area cost with its cost when built; once it exceeds a
+ * threshold, the caller should build the tree again.
+ * </p>
+ * <p>
+ * The hierarchy is not synchronized.
+ * </p>
+ */
+public class Bvh
+{
+    /** The maximum number of items in a leaf. */
+    public static final int MAX_LEAF_SIZE = 4;
+
+    // The maximum depth of the tree. Median splits halve the items at each
+    // level, so this is never reached.
+    private static final int MAX_DEPTH = 64;
+
+    // The items' bounding spheres - (x, y, z, radius) per item.
+    private float[] m_spheres = new float[0];
+
+    // The items, grouped by leaf.
+    private int[] m_order = new int[0];
+
+    // The split keys of the items in m_order while building. Selecting the median
+    // on this copy avoids gathering each item's center on every comparison.
+    private float[] m_keys = new float[0];
+
+    // The number of items.
+    private int m_numItems = 0;
+
+    // The node boxes - (min x, min y, min z, max x, max y, max z) per node.
+    private float[] m_nodeBounds = new float[0];
+
+    // The index of each internal node's second child; its first child follows
+    // it directly. -1 for a leaf.
+    private int[] m_nodeRight = new int[0];
+
+    // The axis each internal node was split along.
+    private byte[] m_nodeAxis = new byte[0];
+
+    // The range of m_order holding each leaf's items.
+    private int[] m_nodeStart = new int[0];
+    private int[] m_nodeCount = new int[0];
+
+    // The parent of each node; -1 for the root.
+    private int[] m_nodeParent = new int[0];
+
+    // Set for nodes whose boxes must be recomputed by refit().
+    private boolean[] m_nodeDirty = new boolean[0];
+
+    // The leaf holding each item.
+    private int[] m_itemLeaf = new int[0];
+
+    // The number of nodes.
+    private int m_numNodes = 0;
+
+    // Set once any node has been marked dirty.
+    private boolean m_dirty = false;
+
+    // The sum of the internal node surface areas, relative to the root's, when built.
+    private double m_buildCost = 0.0;
+
+    /**
+     * Default constructor. The hierarchy is empty.
+     */
+    public Bvh()
+    {
+        super();
+    }
+
+    /**
+     * Build the hierarchy over the specified bounds. The bounds are copied;
+     * item <i>i</i> is <code>bounds[i]</code>.
+     *
+     * @param bounds The items' bounds.
+     * @param count The number of items.
+     */
+    public void build(Bounds[] bounds, int count)
+    {
+        if (m_spheres.length < count * 4)
+        {
+            m_spheres = new float[count * 4];
+            m_order = new int[count];
+            m_keys = new float[count];
+            m_itemLeaf = new int[count];
+
+            int capacity = Math.max(1, (2 * count) - 1);
+            m_nodeBounds = new float[capacity * 6];
+            m_nodeRight = new int[capacity];
+            m_nodeAxis = new byte[capacity];
+            m_nodeStart = new int[capacity];
+            m_nodeCount = new int[capacity];
+            m_nodeParent = new int[capacity];
+            m_nodeDirty = new boolean[capacity];
+        }
+
+        m_numItems = count;
+        for (int i = 0; i < count; i++)
+        {
+            setSphere(i, bounds[i]);
+            m_order[i] = i;
+        }
+        rebuild();
+    }
+
+    /**
+     * Build the hierarchy again over the items' current bounds. This undoes any
+     * degradation caused by refitting.
+     */
+    public void rebuild()
+    {
+        m_numNodes = 0;
+        m_dirty = false;
+        if (m_numItems > 0)
+        {
+            buildNode(-1, 0, m_numItems, 0);
+            m_buildCost = computeCost();
+        } else
+            m_buildCost = 0.0;
+    }
+
+    // Copy an item's bounding sphere.
+    private void setSphere(int item, Bounds bounds)
+    {
+        final int s = item * 4;
+        m_spheres[s] = bounds.m_center[0];
+        m_spheres[s + 1] = bounds.m_center[1];
+        m_spheres[s + 2] = bounds.m_center[2];
+        m_spheres[s + 3] = bounds.m_radius;
+    }
+
+    // Build the subtree over m_order[start, end) and return its root.
+    private int buildNode(int parent, int start, int end, int depth)
+    {
+        final int node = m_numNodes++;
+        m_nodeParent[node] = parent;
+        m_nodeDirty[node] = false;
+        setItemBox(node, start, end);
+
+        if (((end - start) <= MAX_LEAF_SIZE) || (depth >= MAX_DEPTH))
+        {
+            m_nodeRight[node] = -1;
+            m_nodeStart[node] = start;
+            m_nodeCount[node] = end - start;
+            for (int i = start; i < end; i++)
+                m_itemLeaf[m_order[i]] = node;
+            return node;
+        }
+
+        // Split at the median center along the axis the centers spread furthest.
+        int axis = getSplitAxis(start, end);
+        int middle = (start + end) >>> 1;
+        for (int i = start; i < end; i++)
+            m_keys[i] = m_spheres[(m_order[i] * 4) + axis];
+        select(start, end, middle);
+
+        m_nodeAxis[node] = (byte) axis;
+        m_nodeStart[node] = start;
+        m_nodeCount[node] = 0;
+        buildNode(node, start, middle, depth + 1);
+        m_nodeRight[node] = buildNode(node, middle, end, depth + 1);
+        return node;
+    }
+
+    // Set a node's box to enclose the items in m_order[start, end).
+    private void setItemBox(int node, int start, int end)
+    {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        final float[] spheres = m_spheres;
+        for (int i = start; i < end; i++)
+        {
+            final int s = m_order[i] * 4;
+            final float r = spheres[s + 3];
+            minX = Math.min(minX, spheres[s] - r);
+            minY = Math.min(minY, spheres[s + 1] - r);
+            minZ = Math.min(minZ, spheres[s + 2] - r);
+            maxX = Math.max(maxX, spheres[s] + r);
+            maxY = Math.max(maxY, spheres[s + 1] + r);
+            maxZ = Math.max(maxZ, spheres[s + 2] + r);
+        }
+        final int b = node * 6;
+        m_nodeBounds[b] = minX;
+        m_nodeBounds[b + 1] = minY;
+        m_nodeBounds[b + 2] = minZ;
+        m_nodeBounds[b + 3] = maxX;
+        m_nodeBounds[b + 4] = maxY;
+        m_nodeBounds[b + 5] = maxZ;
+    }
+
+    // Find the axis along which the centers of m_order[start, end) spread furthest.
+    private int getSplitAxis(int start, int end)
+    {
+        float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+        float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for (int i = start; i < end; i++)
+        {
+            final int s = m_order[i] * 4;
+            for (int axis = 0; axis < 3; axis++)
+            {
+                min[axis] = Math.min(min[axis], m_spheres[s + axis]);
+                max[axis] = Math.max(max[axis], m_spheres[s + axis]);
+            }
+        }
+
+        int axis = 0;
+        if ((max[1] - min[1]) > (max[axis] - min[axis])) axis = 1;
+        if ((max[2] - min[2]) > (max[axis] - min[axis])) axis = 2;
+        return axis;
+    }
+
+    // Partially sort m_order[start, end), by the keys in m_keys, so that the item
+    // at k has the k-th smallest key, with smaller ones before it and larger after.
+    private void select(int start, int end, int k)
+    {
+        final int[] order = m_order;
+        final float[] keys = m_keys;
+        int lo = start;
+        int hi = end - 1;
+        while (hi > lo)
+        {
+            final float pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j)
+            {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j)
+                {
+                    final float key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    final int item = order[i];
+                    order[i] = order[j];
+                    order[j] = item;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                break;
+        }
+    }
+
+    /**
+     * Change an item's bounds. The item's leaf and its ancestors are marked to
+     * be recomputed by the next <code>refit()</code>.
+     *
+     * @param item The item.
+     * @param bounds The item's new bounds.
+     */
+    public void update(int item, Bounds bounds)
+    {
+        if ((item < 0) || (item >= m_numItems))
+            throw new IndexOutOfBoundsException("Bvh: Invalid item " + item + ".");
+
+        setSphere(item, bounds);
+        for (int node = m_itemLeaf[item]; (node >= 0) && ! m_nodeDirty[node]; node = m_nodeParent[node])
+            m_nodeDirty[node] = true;
+        m_dirty = true;
+    }
+
+    /**
+     * Recompute the boxes of the nodes marked by <code>update()</code>. Since
+     * children follow their parents, a single pass from the last node to the
+     * first sees every child before its parent.
+     */
+    public void refit()
+    {
+        if (! m_dirty) return;
+
+        final float[] bounds = m_nodeBounds;
+        for (int node = m_numNodes - 1; node >= 0; node--)
+        {
+            if (! m_nodeDirty[node]) continue;
+            m_nodeDirty[node] = false;
+
+            final int right = m_nodeRight[node];
+            if (right < 0)
+            {
+                setItemBox(node, m_nodeStart[node], m_nodeStart[node] + m_nodeCount[node]);
+                continue;
+            }
+
+            final int b = node * 6;
+            final int l = (node + 1) * 6;
+            final int r = right * 6;
+            bounds[b] = Math.min(bounds[l], bounds[r]);
+            bounds[b + 1] = Math.min(bounds[l + 1], bounds[r + 1]);
+            bounds[b + 2] = Math.min(bounds[l + 2], bounds[r + 2]);
+            bounds[b + 3] = Math.max(bounds[l + 3], bounds[r + 3]);
+            bounds[b + 4] = Math.max(bounds[l + 4], bounds[r + 4]);
+            bounds[b + 5] = Math.max(bounds[l + 5], bounds[r + 5]);
+        }
+        m_dirty = false;
+    }
+
+    // Compute the sum of the internal node surface areas, relative to the root's.
+    // This is proportional to the expected number of nodes a random ray visits.
+    private double computeCost()
+    {
+        double rootArea = getArea(0);
+        if (rootArea <= 0.0)
+            return 0.0;
+
+        double sum = 0.0;
+        for (int node = 0; node < m_numNodes; node++)
+        {
+            if (m_nodeRight[node] >= 0)
+                sum += getArea(node);
+        }
+        return sum / rootArea;
+    }
+
+    // Compute half the surface area of a node's box.
+    private double getArea(int node)
+    {
+        final int b = node * 6;
+        double dx = m_nodeBounds[b + 3] - m_nodeBounds[b];
+        double dy = m_nodeBounds[b + 4] - m_nodeBounds[b + 1];
+        double dz = m_nodeBounds[b + 5] - m_nodeBounds[b + 2];
+        return (dx * dy) + (dy * dz) + (dz * dx);
+    }
+
+    /**
+     * Measure how far refitting has degraded the tree. The surface area cost of
+     * the tree is computed and compared with its cost when it was built; this
+     * visits every node, so it is meant to be called after a <code>refit()</code>
+     * rather than per query.
+     *
+     * @return The ratio of the current cost to the cost when built is returned;
+     * 1 means no degradation.
+     */
+    public float getDegradation()
+    {
+        if (m_buildCost <= 0.0)
+            return 1.0f;
+        return (float) (computeCost() / m_buildCost);
+    }
+
+    /**
+     * Find the nearest item whose bounding sphere a ray hits. A ray that starts
+     * inside a sphere hits it at distance 0. <code>refit()</code> must have been
+     * called since the last <code>update()</code>.
+     *
+     * @param origin The origin of the ray - (x, y, z).
+     * @param direction The direction of the ray - (x, y, z), of unit length.
+     * @param distance On input, the distance beyond which hits are ignored; on
+     * output, the distance to the nearest hit, if any. The first element is used.
+     *
+     * @return The nearest item hit is returned, or -1 if the ray hits nothing.
+     */
+    public int intersectRay(float[] origin, float[] direction, float[] distance)
+    {
+        if (m_numNodes == 0)
+            return -1;
+
+        final float ox = origin[0], oy = origin[1], oz = origin[2];
+        final float dx = direction[0], dy = direction[1], dz = direction[2];
+        final float ix = 1.0f / dx, iy = 1.0f / dy, iz = 1.0f / dz;
+        final float[] bounds = m_nodeBounds;
+        final float[] spheres = m_spheres;
+
+        float best = distance[0];
+        int hit = -1;
+
+        int[] stack = new int[MAX_DEPTH + 2];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0)
+        {
+            final int node = stack[--top];
+
+            // Slab test against the node's box.
+            final int b = node * 6;
+            float t0 = (bounds[b] - ox) * ix, t1 = (bounds[b + 3] - ox) * ix;
+            float near = Math.min(t0, t1), far = Math.max(t0, t1);
+            t0 = (bounds[b + 1] - oy) * iy;
+            t1 = (bounds[b + 4] - oy) * iy;
+            near = Math.max(near, Math.min(t0, t1));
+            far = Math.min(far, Math.max(t0, t1));
+            t0 = (bounds[b + 2] - oz) * iz;
+            t1 = (bounds[b + 5] - oz) * iz;
+            near = Math.max(near, Math.min(t0, t1));
+            far = Math.min(far, Math.max(t0, t1));
+            if ((far < 0.0f) || (near > far) || (near > best))
+                continue;
+
+            final int right = m_nodeRight[node];
+            if (right >= 0)
+            {
+                // Visit the child nearer the ray's origin first, so that it can
+                // shorten the search through the other.
+                final int axis = m_nodeAxis[node];
+                final float d = (axis == 0) ? dx : ((axis == 1) ? dy : dz);
+                if (d < 0.0f)
+                {
+                    stack[top++] = node + 1;
+                    stack[top++] = right;
+                } else
+                {
+                    stack[top++] = right;
+                    stack[top++] = node + 1;
+                }
+                continue;
+            }
+
+            final int end = m_nodeStart[node] + m_nodeCount[node];
+            for (int i = m_nodeStart[node]; i < end; i++)
+            {
+                final int item = m_order[i];
+                final int s = item * 4;
+                final float cx = ox - spheres[s], cy = oy - spheres[s + 1], cz = oz - spheres[s + 2];
+                final float r = spheres[s + 3];
+                final float c = (cx * cx) + (cy * cy) + (cz * cz) - (r * r);
+                float t;
+                if (c <= 0.0f)
+                    t = 0.0f;
+                else
+                {
+                    final float bDot = (cx * dx) + (cy * dy) + (cz * dz);
+                    final float discriminant = (bDot * bDot) - c;
+                    if ((bDot > 0.0f) || (discriminant < 0.0f))
+                        continue;
+                    t = -bDot - (float) Math.sqrt(discriminant);
+                }
+                if (t < best)
+                {
+                    best = t;
+                    hit = item;
+                }
+            }
+        }
+
+        if (hit >= 0)
+            distance[0] = best;
+        return hit;
+    }
+
+    /**
+     * Retrieve the number of items.
+     *
+     * @return The item count is returned.
+     */
+    public int getNumItems()
+    { return m_numItems; }
+
+    /**
+     * Retrieve the number of nodes.
+     *
+     * @return The node count is returned.
+     */
+    public int getNumNodes()
+    { return m_numNodes; }
+}
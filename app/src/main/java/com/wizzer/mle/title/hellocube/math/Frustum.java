@@ -0,0 +1,106 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.math;
+
+/**
+ * A view frustum represented by its six clipping planes.
+ * <p>
+ * The planes are extracted from a combined view-projection matrix stored in
+ * column-major order (the layout used by <code>android.opengl.Matrix</code>).
+ * Each plane is stored as (a, b, c, d) with a unit length normal pointing
+ * into the frustum, so that <code>a*x + b*y + c*z + d</code> is the signed
+ * distance of a point from the plane.
+ * </p>
+ */
+public class Frustum
+{
+    /** The number of clipping planes. */
+    public static final int NUM_PLANES = 6;
+
+    // The plane equations - [left, right, bottom, top, near, far] x (a, b, c, d).
+    private final float[] m_planes = new float[NUM_PLANES * 4];
+
+    /**
+     * Default constructor.
+     */
+    public Frustum()
+    {
+        super();
+    }
+
+    /**
+     * Extract the clipping planes from the specified view-projection matrix.
+     *
+     * @param m An array of sixteen floating-point values representing the
+     * combined projection * view matrix in column-major order.
+     */
+    public void set(float[] m)
+    {
+        // Row i of the matrix is (m[i], m[4 + i], m[8 + i], m[12 + i]).
+        setPlane(0, m[3] + m[0], m[7] + m[4], m[11] + m[8],  m[15] + m[12]);  // left
+        setPlane(1, m[3] - m[0], m[7] - m[4], m[11] - m[8],  m[15] - m[12]);  // right
+        setPlane(2, m[3] + m[1], m[7] + m[5], m[11] + m[9],  m[15] + m[13]);  // bottom
+        setPlane(3, m[3] - m[1], m[7] - m[5], m[11] - m[9],  m[15] - m[13]);  // top
+        setPlane(4, m[3] + m[2], m[7] + m[6], m[11] + m[10], m[15] + m[14]);  // near
+        setPlane(5, m[3] - m[2], m[7] - m[6], m[11] - m[10], m[15] - m[14]);  // far
+    }
+
+    // Normalize and store a plane equation.
+    private void setPlane(int plane, float a, float b, float c, float d)
+    {
+        float length = (float) Math.sqrt((a * a) + (b * b) + (c * c));
+        float scale = (length > 0.0f) ? (1.0f / length) : 0.0f;
+
+        int i = plane * 4;
+        m_planes[i] = a * scale;
+        m_planes[i + 1] = b * scale;
+        m_planes[i + 2] = c * scale;
+        m_planes[i + 3] = d * scale;
+    }
+
+    /**
+     * Determine whether a sphere is at least partially inside the frustum.
+     *
+     * @param x The x coordinate of the sphere's center.
+     * @param y The y coordinate of the sphere's center.
+     * @param z The z coordinate of the sphere's center.
+     * @param radius The radius of the sphere.
+     *
+     * @return <b>true</b> will be returned if the sphere intersects or is
+     * contained by the frustum. Otherwise, <b>false</b> will be returned.
+     */
+    public boolean intersectsSphere(float x, float y, float z, float radius)
+    {
+        final float[] p = m_planes;
+        for (int i = 0; i < NUM_PLANES * 4; i += 4)
+        {
+            if (((p[i] * x) + (p[i + 1] * y) + (p[i + 2] * z) + p[i + 3]) < -radius)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether the specified bounds are at least partially inside the frustum.
+     *
+     * @param bounds The world-space bounds to test.
+     *
+     * @return <b>true</b> will be returned if the bounds are potentially
+     * visible. Otherwise, <b>false</b> will be returned.
+     */
+    public boolean intersects(Bounds bounds)
+    {
+        return intersectsSphere(bounds.m_center[0], bounds.m_center[1], bounds.m_center[2], bounds.m_radius);
+    }
+
+    /**
+     * Retrieve a reference to the plane equations.
+     *
+     * @return An array of 24 <code>float</code> values is returned, four for each
+     * of the left, right, bottom, top, near and far planes.
+     */
+    public float[] getPlanes()
+    { return m_planes; }
+}
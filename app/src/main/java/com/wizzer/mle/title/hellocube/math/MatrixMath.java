@@ -0,0 +1,351 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.math;
+
+/**
+ * Lock-free, allocation-free 4x4 matrix routines for the render path.
+ * <p>
+ * Matrices are stored in column-major order at an offset within a
+ * <code>float[]</code>, the layout used by <code>android.opengl.Matrix</code>
+ * and by <code>glUniformMatrix4fv</code>. Unlike <code>android.opengl.Matrix</code>,
+ * no routine uses shared scratch storage, so they may be called from any thread
+ * without synchronization, and they run off-device.
+ * </p>
+ * <p>
+ * Model matrices built by <code>setTrs()</code> are affine (their bottom row is
+ * 0, 0, 0, 1). The affine variants of the multiply routines skip the work that
+ * row implies.
+ * </p>
+ */
+public class MatrixMath
+{
+    /** The number of floats in a matrix. */
+    public static final int SIZE = 16;
+
+    /** The number of floats per transform passed to <code>setTrsBatch()</code>. */
+    public static final int TRS_STRIDE = 12;
+
+    // Converts degrees to radians.
+    private static final float DEGREES_TO_RADIANS = (float) (Math.PI / 180.0);
+
+    // Hide default constructor.
+    private MatrixMath() {}
+
+    /**
+     * Set a matrix to the identity.
+     *
+     * @param m The destination array.
+     * @param offset The offset of the matrix within the array.
+     */
+    public static void setIdentity(float[] m, int offset)
+    {
+        for (int i = 0; i < SIZE; i++)
+            m[offset + i] = 0.0f;
+        m[offset] = 1.0f;
+        m[offset + 5] = 1.0f;
+        m[offset + 10] = 1.0f;
+        m[offset + 15] = 1.0f;
+    }
+
+    /**
+     * Set a matrix to a perspective projection. The result is the same as
+     * <code>android.opengl.Matrix.perspectiveM</code>.
+     *
+     * @param m The destination array.
+     * @param offset The offset of the matrix within the array.
+     * @param fovy The vertical field of view, in degrees.
+     * @param aspect The aspect ratio, width over height.
+     * @param near The distance to the near clipping plane.
+     * @param far The distance to the far clipping plane.
+     */
+    public static void setPerspective(float[] m, int offset, float fovy, float aspect, float near, float far)
+    {
+        final float f = 1.0f / (float) Math.tan(fovy * DEGREES_TO_RADIANS * 0.5f);
+        final float rangeReciprocal = 1.0f / (near - far);
+
+        for (int i = 0; i < SIZE; i++)
+            m[offset + i] = 0.0f;
+        m[offset] = f / aspect;
+        m[offset + 5] = f;
+        m[offset + 10] = (far + near) * rangeReciprocal;
+        m[offset + 11] = -1.0f;
+        m[offset + 14] = 2.0f * far * near * rangeReciprocal;
+    }
+
+    /**
+     * Compose translate * rotate * scale directly into a matrix. The result is
+     * the same as <code>setIdentityM</code>, <code>translateM</code>,
+     * <code>rotateM</code> and <code>scaleM</code> applied in that order.
+     *
+     * @param m The destination array.
+     * @param offset The offset of the matrix within the array.
+     * @param tx The translation along x.
+     * @param ty The translation along y.
+     * @param tz The translation along z.
+     * @param angle The rotation angle, in degrees.
+     * @param ax The x component of the rotation axis.
+     * @param ay The y component of the rotation axis.
+     * @param az The z component of the rotation axis. An axis of zero length
+     * means no rotation.
+     * @param sx The scale along x.
+     * @param sy The scale along y.
+     * @param sz The scale along z.
+     */
+    public static void setTrs(float[] m, int offset,
+        float tx, float ty, float tz,
+        float angle, float ax, float ay, float az,
+        float sx, float sy, float sz)
+    {
+        float r00 = 1.0f, r01 = 0.0f, r02 = 0.0f;
+        float r10 = 0.0f, r11 = 1.0f, r12 = 0.0f;
+        float r20 = 0.0f, r21 = 0.0f, r22 = 1.0f;
+
+        float lengthSquared = (ax * ax) + (ay * ay) + (az * az);
+        if ((angle != 0.0f) && (lengthSquared > 0.0f))
+        {
+            if (lengthSquared != 1.0f)
+            {
+                float scale = 1.0f / (float) Math.sqrt(lengthSquared);
+                ax *= scale;
+                ay *= scale;
+                az *= scale;
+            }
+
+            float radians = angle * DEGREES_TO_RADIANS;
+            float s = (float) Math.sin(radians);
+            float c = (float) Math.cos(radians);
+            float nc = 1.0f - c;
+            float xy = ax * ay * nc, yz = ay * az * nc, zx = az * ax * nc;
+            float xs = ax * s, ys = ay * s, zs = az * s;
+
+            r00 = (ax * ax * nc) + c;  r01 = xy - zs;               r02 = zx + ys;
+            r10 = xy + zs;             r11 = (ay * ay * nc) + c;    r12 = yz - xs;
+            r20 = zx - ys;             r21 = yz + xs;               r22 = (az * az * nc) + c;
+        }
+
+        // Columns of R scaled by S, then T in the last column.
+        m[offset]      = r00 * sx;
+        m[offset + 1]  = r10 * sx;
+        m[offset + 2]  = r20 * sx;
+        m[offset + 3]  = 0.0f;
+        m[offset + 4]  = r01 * sy;
+        m[offset + 5]  = r11 * sy;
+        m[offset + 6]  = r21 * sy;
+        m[offset + 7]  = 0.0f;
+        m[offset + 8]  = r02 * sz;
+        m[offset + 9]  = r12 * sz;
+        m[offset + 10] = r22 * sz;
+        m[offset + 11] = 0.0f;
+        m[offset + 12] = tx;
+        m[offset + 13] = ty;
+        m[offset + 14] = tz;
+        m[offset + 15] = 1.0f;
+    }
+
+    /**
+     * Multiply two general matrices, result = lhs * rhs. The destination may be
+     * the same storage as either operand.
+     *
+     * @param result The destination array.
+     * @param resultOffset The offset of the result within its array.
+     * @param lhs The left hand side array.
+     * @param lhsOffset The offset of the left hand side within its array.
+     * @param rhs The right hand side array.
+     * @param rhsOffset The offset of the right hand side within its array.
+     */
+    public static void multiply(float[] result, int resultOffset,
+        float[] lhs, int lhsOffset, float[] rhs, int rhsOffset)
+    {
+        final float l00 = lhs[lhsOffset],      l10 = lhs[lhsOffset + 1],  l20 = lhs[lhsOffset + 2],  l30 = lhs[lhsOffset + 3];
+        final float l01 = lhs[lhsOffset + 4],  l11 = lhs[lhsOffset + 5],  l21 = lhs[lhsOffset + 6],  l31 = lhs[lhsOffset + 7];
+        final float l02 = lhs[lhsOffset + 8],  l12 = lhs[lhsOffset + 9],  l22 = lhs[lhsOffset + 10], l32 = lhs[lhsOffset + 11];
+        final float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14], l33 = lhs[lhsOffset + 15];
+
+        for (int j = 0; j < 4; j++)
+        {
+            final int r = rhsOffset + (j * 4);
+            final float b0 = rhs[r], b1 = rhs[r + 1], b2 = rhs[r + 2], b3 = rhs[r + 3];
+            final int d = resultOffset + (j * 4);
+            result[d]     = (l00 * b0) + (l01 * b1) + (l02 * b2) + (l03 * b3);
+            result[d + 1] = (l10 * b0) + (l11 * b1) + (l12 * b2) + (l13 * b3);
+            result[d + 2] = (l20 * b0) + (l21 * b1) + (l22 * b2) + (l23 * b3);
+            result[d + 3] = (l30 * b0) + (l31 * b1) + (l32 * b2) + (l33 * b3);
+        }
+    }
+
+    /**
+     * Multiply a general matrix by an affine matrix, result = lhs * rhs. This is
+     * the shape of projection * view * model, where the right hand side is a
+     * model matrix. The destination may be the same storage as either operand.
+     *
+     * @param result The destination array.
+     * @param resultOffset The offset of the result within its array.
+     * @param lhs The left hand side array.
+     * @param lhsOffset The offset of the left hand side within its array.
+     * @param rhs The right hand side array; its bottom row is assumed to be 0, 0, 0, 1.
+     * @param rhsOffset The offset of the right hand side within its array.
+     */
+    public static void multiplyAffine(float[] result, int resultOffset,
+        float[] lhs, int lhsOffset, float[] rhs, int rhsOffset)
+    {
+        final float l00 = lhs[lhsOffset],      l10 = lhs[lhsOffset + 1],  l20 = lhs[lhsOffset + 2],  l30 = lhs[lhsOffset + 3];
+        final float l01 = lhs[lhsOffset + 4],  l11 = lhs[lhsOffset + 5],  l21 = lhs[lhsOffset + 6],  l31 = lhs[lhsOffset + 7];
+        final float l02 = lhs[lhsOffset + 8],  l12 = lhs[lhsOffset + 9],  l22 = lhs[lhsOffset + 10], l32 = lhs[lhsOffset + 11];
+        final float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14], l33 = lhs[lhsOffset + 15];
+
+        // The first three columns of the right hand side have w = 0.
+        for (int j = 0; j < 3; j++)
+        {
+            final int r = rhsOffset + (j * 4);
+            final float b0 = rhs[r], b1 = rhs[r + 1], b2 = rhs[r + 2];
+            final int d = resultOffset + (j * 4);
+            result[d]     = (l00 * b0) + (l01 * b1) + (l02 * b2);
+            result[d + 1] = (l10 * b0) + (l11 * b1) + (l12 * b2);
+            result[d + 2] = (l20 * b0) + (l21 * b1) + (l22 * b2);
+            result[d + 3] = (l30 * b0) + (l31 * b1) + (l32 * b2);
+        }
+
+        // The translation column has w = 1.
+        final int r = rhsOffset + 12;
+        final float b0 = rhs[r], b1 = rhs[r + 1], b2 = rhs[r + 2];
+        final int d = resultOffset + 12;
+        result[d]     = (l00 * b0) + (l01 * b1) + (l02 * b2) + l03;
+        result[d + 1] = (l10 * b0) + (l11 * b1) + (l12 * b2) + l13;
+        result[d + 2] = (l20 * b0) + (l21 * b1) + (l22 * b2) + l23;
+        result[d + 3] = (l30 * b0) + (l31 * b1) + (l32 * b2) + l33;
+    }
+
+    /**
+     * Multiply a matrix by a scale followed by a translation,
+     * result = m * translate(offset) * scale(scale). This folds the transform
+     * that restores quantized positions into a model matrix. The destination may
+     * be the same storage as <code>m</code>.
+     *
+     * @param result The destination array.
+     * @param resultOffset The offset of the result within its array.
+     * @param m The matrix array.
+     * @param offset The offset of the matrix within its array.
+     * @param scale The per-axis scale.
+     * @param translation The per-axis translation.
+     */
+    public static void multiplyScaleOffset(float[] result, int resultOffset,
+        float[] m, int offset, float[] scale, float[] translation)
+    {
+        // The translation column picks up the first three columns before they are scaled.
+        for (int i = 0; i < 4; i++)
+        {
+            result[resultOffset + 12 + i] = (m[offset + i] * translation[0]) + (m[offset + 4 + i] * translation[1])
+                + (m[offset + 8 + i] * translation[2]) + m[offset + 12 + i];
+        }
+        for (int j = 0; j < 3; j++)
+        {
+            for (int i = 0; i < 4; i++)
+                result[resultOffset + (j * 4) + i] = m[offset + (j * 4) + i] * scale[j];
+        }
+    }
+
+    /**
+     * Multiply one general matrix by many affine matrices stored back to back,
+     * result[i] = lhs * rhs[i]. This computes the model-view-projection matrices
+     * of a batch of Roles in a single pass over flat arrays.
+     *
+     * @param result The destination array, <code>count * SIZE</code> floats from
+     * <code>resultOffset</code>. It may be the same storage as <code>rhs</code>
+     * when the offsets are equal.
+     * @param resultOffset The offset of the first result.
+     * @param lhs The left hand side array.
+     * @param lhsOffset The offset of the left hand side within its array.
+     * @param rhs The array of affine right hand sides.
+     * @param rhsOffset The offset of the first right hand side.
+     * @param count The number of matrices.
+     */
+    public static void multiplyAffineBatch(float[] result, int resultOffset,
+        float[] lhs, int lhsOffset, float[] rhs, int rhsOffset, int count)
+    {
+        for (int i = 0; i < count; i++)
+            multiplyAffine(result, resultOffset + (i * SIZE), lhs, lhsOffset, rhs, rhsOffset + (i * SIZE));
+    }
+
+    /**
+     * Invert a general matrix. The destination may be the same storage as the
+     * source.
+     *
+     * @param result The destination array.
+     * @param resultOffset The offset of the result within its array.
+     * @param m The source array.
+     * @param offset The offset of the source within its array.
+     *
+     * @return <b>true</b> is returned if the matrix was inverted; <b>false</b> is
+     * returned, and the destination left unchanged, if it is singular.
+     */
+    public static boolean invert(float[] result, int resultOffset, float[] m, int offset)
+    {
+        final float m00 = m[offset],      m10 = m[offset + 1],  m20 = m[offset + 2],  m30 = m[offset + 3];
+        final float m01 = m[offset + 4],  m11 = m[offset + 5],  m21 = m[offset + 6],  m31 = m[offset + 7];
+        final float m02 = m[offset + 8],  m12 = m[offset + 9],  m22 = m[offset + 10], m32 = m[offset + 11];
+        final float m03 = m[offset + 12], m13 = m[offset + 13], m23 = m[offset + 14], m33 = m[offset + 15];
+
+        // The 2x2 minors of the top two rows and of the bottom two rows.
+        final float s0 = (m00 * m11) - (m10 * m01);
+        final float s1 = (m00 * m12) - (m10 * m02);
+        final float s2 = (m00 * m13) - (m10 * m03);
+        final float s3 = (m01 * m12) - (m11 * m02);
+        final float s4 = (m01 * m13) - (m11 * m03);
+        final float s5 = (m02 * m13) - (m12 * m03);
+        final float c0 = (m20 * m31) - (m30 * m21);
+        final float c1 = (m20 * m32) - (m30 * m22);
+        final float c2 = (m20 * m33) - (m30 * m23);
+        final float c3 = (m21 * m32) - (m31 * m22);
+        final float c4 = (m21 * m33) - (m31 * m23);
+        final float c5 = (m22 * m33) - (m32 * m23);
+
+        final float det = (s0 * c5) - (s1 * c4) + (s2 * c3) + (s3 * c2) - (s4 * c1) + (s5 * c0);
+        if (det == 0.0f)
+            return false;
+        final float r = 1.0f / det;
+
+        final int d = resultOffset;
+        result[d]      = ((m11 * c5) - (m12 * c4) + (m13 * c3)) * r;
+        result[d + 1]  = ((-m10 * c5) + (m12 * c2) - (m13 * c1)) * r;
+        result[d + 2]  = ((m10 * c4) - (m11 * c2) + (m13 * c0)) * r;
+        result[d + 3]  = ((-m10 * c3) + (m11 * c1) - (m12 * c0)) * r;
+        result[d + 4]  = ((-m01 * c5) + (m02 * c4) - (m03 * c3)) * r;
+        result[d + 5]  = ((m00 * c5) - (m02 * c2) + (m03 * c1)) * r;
+        result[d + 6]  = ((-m00 * c4) + (m01 * c2) - (m03 * c0)) * r;
+        result[d + 7]  = ((m00 * c3) - (m01 * c1) + (m02 * c0)) * r;
+        result[d + 8]  = ((m31 * s5) - (m32 * s4) + (m33 * s3)) * r;
+        result[d + 9]  = ((-m30 * s5) + (m32 * s2) - (m33 * s1)) * r;
+        result[d + 10] = ((m30 * s4) - (m31 * s2) + (m33 * s0)) * r;
+        result[d + 11] = ((-m30 * s3) + (m31 * s1) - (m32 * s0)) * r;
+        result[d + 12] = ((-m21 * s5) + (m22 * s4) - (m23 * s3)) * r;
+        result[d + 13] = ((m20 * s5) - (m22 * s2) + (m23 * s1)) * r;
+        result[d + 14] = ((-m20 * s4) + (m21 * s2) - (m23 * s0)) * r;
+        result[d + 15] = ((m20 * s3) - (m21 * s1) + (m22 * s0)) * r;
+        return true;
+    }
+
+    /**
+     * Compose many translate * rotate * scale matrices stored back to back.
+     *
+     * @param result The destination array, <code>count * SIZE</code> floats from
+     * <code>resultOffset</code>.
+     * @param resultOffset The offset of the first result.
+     * @param trs The transforms, <code>TRS_STRIDE</code> floats each - translation (3),
+     * angle in degrees (1), axis (3) and scale (3), followed by two floats of padding.
+     * @param trsOffset The offset of the first transform.
+     * @param count The number of matrices.
+     */
+    public static void setTrsBatch(float[] result, int resultOffset, float[] trs, int trsOffset, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            final int t = trsOffset + (i * TRS_STRIDE);
+            setTrs(result, resultOffset + (i * SIZE),
+                trs[t], trs[t + 1], trs[t + 2],
+                trs[t + 3], trs[t + 4], trs[t + 5], trs[t + 6],
+                trs[t + 7], trs[t + 8], trs[t + 9]);
+        }
+    }
+}
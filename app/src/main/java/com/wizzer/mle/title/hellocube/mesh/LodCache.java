@@ -0,0 +1,202 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Import Android classes.
+import android.util.Log;
+
+/**
+ * Builds and caches level of detail chains.
+ * <p>
+ * Chains are keyed by the name of their source mesh, so every Role sharing a
+ * mesh also shares its simplified levels. Simplification runs on a single,
+ * low priority background thread; a chain is usable immediately and gains its
+ * coarser levels as they are completed.
+ * </p>
+ */
+public class LodCache
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** The default fraction of the original triangles kept by each level. */
+    public static final float[] DEFAULT_RATIOS = { 1.0f, 0.5f, 0.25f, 0.125f };
+
+    /** The default screen size thresholds for each level. */
+    public static final float[] DEFAULT_THRESHOLDS = { Float.MAX_VALUE, 0.25f, 0.12f, 0.06f };
+
+    // A level must remove at least this fraction of its predecessor's triangles to be kept.
+    private static final float MIN_REDUCTION = 0.1f;
+
+    /**
+     * The largest deviation a collapse may introduce, as a fraction of the size of
+     * the mesh. A mesh that cannot be simplified within it keeps only level 0.
+     */
+    public static final float MAX_ERROR = 0.01f;
+
+    /**
+     * Meshes with fewer triangles than this get a chain with only level 0. They
+     * cost little to draw, and a few collapses would visibly change their shape.
+     */
+    public static final int MIN_TRIANGLES = 64;
+
+    // The thresholds of a single level chain.
+    private static final float[] SINGLE_LEVEL = { Float.MAX_VALUE };
+
+    // The singleton instance.
+    private static LodCache g_theCache = null;
+
+    // The cached chains, keyed by mesh name.
+    private final HashMap<String, LodChain> m_chains = new HashMap<String, LodChain>();
+
+    // The background simplification thread.
+    private final ExecutorService m_executor;
+
+    // Hide default constructor.
+    private LodCache()
+    {
+        m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "LOD Simplifier");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the cache.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized LodCache getInstance()
+    {
+        if (g_theCache == null)
+            g_theCache = new LodCache();
+        return g_theCache;
+    }
+
+    /**
+     * Get the level of detail chain for a mesh using the default ratios and thresholds.
+     *
+     * @param name The name identifying the mesh, typically its resource name.
+     * @param mesh The full detail mesh.
+     *
+     * @return The cached chain is returned.
+     */
+    public LodChain getChain(String name, Mesh mesh)
+    {
+        return getChain(name, mesh, DEFAULT_RATIOS, DEFAULT_THRESHOLDS);
+    }
+
+    /**
+     * Get the level of detail chain for a mesh. If the chain is not cached, it is
+     * created with only the full detail level, and simplification of the remaining
+     * levels is scheduled in the background. A mesh with fewer than
+     * <code>MIN_TRIANGLES</code> triangles is never simplified.
+     *
+     * @param name The name identifying the mesh, typically its resource name.
+     * @param mesh The full detail mesh.
+     * @param ratios The fraction of the original triangles to keep at each level;
+     * element 0 is ignored.
+     * @param thresholds The screen size thresholds for each level; see <code>LodChain</code>.
+     *
+     * @return The cached chain is returned.
+     */
+    public LodChain getChain(String name, final Mesh mesh, final float[] ratios, float[] thresholds)
+    {
+        if ((name == null) || (mesh == null) || (ratios.length != thresholds.length))
+            throw new IllegalArgumentException("LodCache: Invalid input arguments.");
+
+        final LodChain chain;
+        synchronized (m_chains)
+        {
+            LodChain cached = m_chains.get(name);
+            if (cached != null) return cached;
+
+            if (mesh.getNumTriangles() < MIN_TRIANGLES)
+            {
+                cached = new LodChain(mesh, SINGLE_LEVEL, LodChain.DEFAULT_HYSTERESIS);
+                m_chains.put(name, cached);
+                return cached;
+            }
+
+            chain = new LodChain(mesh, thresholds, LodChain.DEFAULT_HYSTERESIS);
+            m_chains.put(name, chain);
+        }
+
+        m_executor.execute(new Runnable() {
+            public void run()
+            {
+                buildLevels(chain, mesh, ratios);
+            }
+        });
+
+        return chain;
+    }
+
+    // Simplify each level from its predecessor.
+    private static void buildLevels(LodChain chain, Mesh mesh, float[] ratios)
+    {
+        final int original = mesh.getNumTriangles();
+        final double maxError = getMaxError(mesh);
+        Mesh previous = mesh;
+
+        for (int i = 1; i < ratios.length; i++)
+        {
+            int target = (int) (original * ratios[i]);
+            Mesh level = MeshSimplifier.simplify(previous, target, maxError);
+
+            // Stop once the simplifier is no longer able to make progress.
+            if (level.getNumTriangles() > (previous.getNumTriangles() * (1.0f - MIN_REDUCTION)))
+                break;
+
+            chain.addLevel(level);
+            previous = level;
+        }
+
+        Log.i(TAG, "LOD chain built with " + chain.getNumLevels() + " levels from "
+            + original + " triangles.");
+    }
+
+    /**
+     * Get the collapse error limit for a mesh. The simplifier's error is a sum of
+     * squared distances weighted by triangle area, so a deviation of
+     * <code>MAX_ERROR</code> times the size of the mesh, over a surface as large as
+     * the mesh, is the limit.
+     *
+     * @param mesh The mesh to simplify.
+     *
+     * @return The error limit for <code>MeshSimplifier.simplify()</code> is returned.
+     */
+    public static double getMaxError(Mesh mesh)
+    {
+        float[] extents = mesh.getExtents();
+        double dx = extents[3] - extents[0];
+        double dy = extents[4] - extents[1];
+        double dz = extents[5] - extents[2];
+        double size = Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+        double deviation = MAX_ERROR * size;
+        return (deviation * deviation) * (size * size);
+    }
+
+    /**
+     * Remove all cached chains.
+     */
+    public void clear()
+    {
+        synchronized (m_chains)
+        {
+            m_chains.clear();
+        }
+    }
+}
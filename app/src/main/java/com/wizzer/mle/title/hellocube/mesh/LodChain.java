@@ -0,0 +1,130 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+/**
+ * A chain of progressively simplified versions of a mesh.
+ * <p>
+ * Level 0 is the original mesh. Each following level is a coarser
+ * approximation, selected once the projected size of the object on the
+ * screen falls below that level's threshold. Levels are filled in
+ * asynchronously by <code>LodCache</code>; until a level has been built,
+ * selection is clamped to the finest level available.
+ * </p>
+ */
+public class LodChain
+{
+    /** The default fraction by which a threshold must be crossed before switching levels. */
+    public static final float DEFAULT_HYSTERESIS = 0.15f;
+
+    // The mesh for each level of detail.
+    private final Mesh[] m_levels;
+
+    // The number of levels that have been built; written after the level is stored.
+    private volatile int m_numLevels;
+
+    // The screen size below which each level is used; element 0 is unused.
+    private final float[] m_thresholds;
+
+    // The relative band around each threshold in which the current level is kept.
+    private final float m_hysteresis;
+
+    /**
+     * Construct a chain with the original mesh as its only built level.
+     *
+     * @param base The full detail mesh.
+     * @param thresholds The screen size, as a fraction of the viewport height, below which
+     * each level is selected. The length determines the maximum number of levels; element 0
+     * is ignored and thresholds must be decreasing.
+     * @param hysteresis The fraction by which the screen size must pass a threshold
+     * before the selected level changes.
+     */
+    public LodChain(Mesh base, float[] thresholds, float hysteresis)
+    {
+        super();
+
+        if ((base == null) || (thresholds == null) || (thresholds.length == 0))
+            throw new IllegalArgumentException("LodChain: Invalid input arguments.");
+
+        m_levels = new Mesh[thresholds.length];
+        m_levels[0] = base;
+        m_thresholds = thresholds.clone();
+        m_hysteresis = hysteresis;
+        m_numLevels = 1;
+    }
+
+    /**
+     * Append the next simplified level.
+     *
+     * @param mesh The simplified mesh.
+     *
+     * @return <b>true</b> will be returned if the level was added, or <b>false</b>
+     * if the chain is already full.
+     */
+    synchronized boolean addLevel(Mesh mesh)
+    {
+        int n = m_numLevels;
+        if (n >= m_levels.length) return false;
+        m_levels[n] = mesh;
+        m_numLevels = n + 1;
+        return true;
+    }
+
+    /**
+     * Retrieve a level of detail.
+     *
+     * @param level The level, where 0 is the full detail mesh.
+     *
+     * @return The mesh for the level is returned.
+     */
+    public Mesh getLevel(int level)
+    {
+        int n = m_numLevels;
+        return m_levels[(level < n) ? level : (n - 1)];
+    }
+
+    /**
+     * Retrieve the number of levels built so far.
+     *
+     * @return The number of available levels is returned.
+     */
+    public int getNumLevels()
+    { return m_numLevels; }
+
+    /**
+     * Retrieve the maximum number of levels in this chain.
+     *
+     * @return The capacity of the chain is returned.
+     */
+    public int getMaxLevels()
+    { return m_levels.length; }
+
+    /**
+     * Select the level of detail for an object of the specified projected size.
+     * <p>
+     * A coarser level is only chosen once the size drops below its threshold by the
+     * hysteresis fraction, and a finer level only once the size rises above the current
+     * level's threshold by the same fraction. This prevents an object hovering around
+     * a threshold from switching every frame.
+     * </p>
+     *
+     * @param current The currently selected level.
+     * @param screenSize The projected size of the object as a fraction of the viewport height.
+     *
+     * @return The level to use is returned.
+     */
+    public int selectLevel(int current, float screenSize)
+    {
+        final int n = m_numLevels;
+        int level = (current < n) ? current : (n - 1);
+
+        while (((level + 1) < n) && (screenSize < (m_thresholds[level + 1] * (1.0f - m_hysteresis))))
+            level++;
+        while ((level > 0) && (screenSize > (m_thresholds[level] * (1.0f + m_hysteresis))))
+            level--;
+
+        return level;
+    }
+}
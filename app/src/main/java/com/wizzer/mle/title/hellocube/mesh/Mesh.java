@@ -0,0 +1,248 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * An indexed triangle mesh stored in direct buffers, ready to be handed to OpenGL ES.
+ * <p>
+ * Positions are always present. Normals and texture coordinates are optional and,
+ * when present, have one entry per vertex. Triangles are described by 16-bit indices,
+ * so a mesh may contain at most 65536 vertices.
+ * </p>
+ */
+public class Mesh
+{
+    /** Size of the position data in elements. */
+    public static final int POSITION_SIZE = 3;
+
+    /** Size of the normal data in elements. */
+    public static final int NORMAL_SIZE = 3;
+
+    /** Size of the texture coordinate data in elements. */
+    public static final int TEXCOORD_SIZE = 2;
+
+    /** The maximum number of vertices addressable by 16-bit indices. */
+    public static final int MAX_VERTICES = 65536;
+
+    // How many bytes per float.
+    private static final int BYTES_PER_FLOAT = 4;
+
+    // How many bytes per short.
+    private static final int BYTES_PER_SHORT = 2;
+
+    // The per-vertex positions - (x, y, z).
+    private FloatBuffer m_positions;
+
+    // The per-vertex normals - (x, y, z); may be null.
+    private FloatBuffer m_normals;
+
+    // The per-vertex texture coordinates - (s, t); may be null.
+    private FloatBuffer m_texCoords;
+
+    // The triangle indices.
+    private ShortBuffer m_indices;
+
+    // The number of vertices in the mesh.
+    private int m_numVertices;
+
+    // The number of indices in the mesh.
+    private int m_numIndices;
+
+    // The object-space bounds - (minx, miny, minz, maxx, maxy, maxz).
+    private final float[] m_extents = new float[6];
+
+    /**
+     * Construct a mesh from existing buffers.
+     *
+     * @param positions The vertex positions; must not be <b>null</b>.
+     * @param normals The vertex normals; may be <b>null</b>.
+     * @param texCoords The vertex texture coordinates; may be <b>null</b>.
+     * @param indices The triangle indices; must not be <b>null</b>.
+     * @param numVertices The number of vertices.
+     * @param numIndices The number of indices.
+     */
+    public Mesh(FloatBuffer positions, FloatBuffer normals, FloatBuffer texCoords,
+                ShortBuffer indices, int numVertices, int numIndices)
+    {
+        super();
+
+        if ((positions == null) || (indices == null))
+            throw new IllegalArgumentException("Mesh: positions and indices are required.");
+        if (numVertices > MAX_VERTICES)
+            throw new IllegalArgumentException("Mesh: too many vertices (" + numVertices + ").");
+
+        m_positions = positions;
+        m_normals = normals;
+        m_texCoords = texCoords;
+        m_indices = indices;
+        m_numVertices = numVertices;
+        m_numIndices = numIndices;
+
+        computeExtents();
+    }
+
+    /**
+     * Construct a mesh from existing buffers with known bounds, avoiding a
+     * pass over the positions.
+     *
+     * @param positions The vertex positions; must not be <b>null</b>.
+     * @param normals The vertex normals; may be <b>null</b>.
+     * @param texCoords The vertex texture coordinates; may be <b>null</b>.
+     * @param indices The triangle indices; must not be <b>null</b>.
+     * @param numVertices The number of vertices.
+     * @param numIndices The number of indices.
+     * @param extents The object-space bounds - (minx, miny, minz, maxx, maxy, maxz).
+     */
+    public Mesh(FloatBuffer positions, FloatBuffer normals, FloatBuffer texCoords,
+                ShortBuffer indices, int numVertices, int numIndices, float[] extents)
+    {
+        super();
+
+        if ((positions == null) || (indices == null) || (extents == null) || (extents.length != 6))
+            throw new IllegalArgumentException("Mesh: positions, indices and extents are required.");
+        if (numVertices > MAX_VERTICES)
+            throw new IllegalArgumentException("Mesh: too many vertices (" + numVertices + ").");
+
+        m_positions = positions;
+        m_normals = normals;
+        m_texCoords = texCoords;
+        m_indices = indices;
+        m_numVertices = numVertices;
+        m_numIndices = numIndices;
+        System.arraycopy(extents, 0, m_extents, 0, 6);
+    }
+
+    /**
+     * Allocate a native-order direct float buffer.
+     *
+     * @param count The number of floats.
+     *
+     * @return A new buffer positioned at zero is returned.
+     */
+    public static FloatBuffer allocateFloats(int count)
+    {
+        return ByteBuffer.allocateDirect(count * BYTES_PER_FLOAT).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * Allocate a native-order direct short buffer.
+     *
+     * @param count The number of shorts.
+     *
+     * @return A new buffer positioned at zero is returned.
+     */
+    public static ShortBuffer allocateShorts(int count)
+    {
+        return ByteBuffer.allocateDirect(count * BYTES_PER_SHORT).order(ByteOrder.nativeOrder()).asShortBuffer();
+    }
+
+    // Compute the object-space bounds from the positions.
+    private void computeExtents()
+    {
+        if (m_numVertices == 0)
+        {
+            for (int i = 0; i < 6; i++) m_extents[i] = 0.0f;
+            return;
+        }
+
+        m_extents[0] = m_extents[1] = m_extents[2] = Float.MAX_VALUE;
+        m_extents[3] = m_extents[4] = m_extents[5] = -Float.MAX_VALUE;
+        for (int v = 0; v < m_numVertices; v++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                float value = m_positions.get((v * POSITION_SIZE) + c);
+                if (value < m_extents[c]) m_extents[c] = value;
+                if (value > m_extents[c + 3]) m_extents[c + 3] = value;
+            }
+        }
+    }
+
+    /**
+     * Retrieve the vertex positions.
+     *
+     * @return A buffer of <code>getNumVertices() * 3</code> floats is returned.
+     */
+    public FloatBuffer getPositions()
+    { return m_positions; }
+
+    /**
+     * Retrieve the vertex normals.
+     *
+     * @return A buffer of <code>getNumVertices() * 3</code> floats is returned,
+     * or <b>null</b> if the mesh has no normals.
+     */
+    public FloatBuffer getNormals()
+    { return m_normals; }
+
+    /**
+     * Retrieve the vertex texture coordinates.
+     *
+     * @return A buffer of <code>getNumVertices() * 2</code> floats is returned,
+     * or <b>null</b> if the mesh has no texture coordinates.
+     */
+    public FloatBuffer getTexCoords()
+    { return m_texCoords; }
+
+    /**
+     * Retrieve the triangle indices.
+     *
+     * @return A buffer of <code>getNumIndices()</code> shorts is returned.
+     */
+    public ShortBuffer getIndices()
+    { return m_indices; }
+
+    /**
+     * Retrieve the number of vertices.
+     *
+     * @return The vertex count is returned.
+     */
+    public int getNumVertices()
+    { return m_numVertices; }
+
+    /**
+     * Retrieve the number of indices.
+     *
+     * @return The index count is returned.
+     */
+    public int getNumIndices()
+    { return m_numIndices; }
+
+    /**
+     * Retrieve the number of triangles.
+     *
+     * @return The triangle count is returned.
+     */
+    public int getNumTriangles()
+    { return m_numIndices / 3; }
+
+    /**
+     * Retrieve the object-space bounds.
+     *
+     * @return An array of six values, (minx, miny, minz, maxx, maxy, maxz), is returned.
+     */
+    public float[] getExtents()
+    { return m_extents; }
+
+    /**
+     * Retrieve the radius of the object-space sphere centered at the origin
+     * that encloses the mesh.
+     *
+     * @return The radius is returned.
+     */
+    public float getRadius()
+    {
+        float x = Math.max(Math.abs(m_extents[0]), Math.abs(m_extents[3]));
+        float y = Math.max(Math.abs(m_extents[1]), Math.abs(m_extents[4]));
+        float z = Math.max(Math.abs(m_extents[2]), Math.abs(m_extents[5]));
+        return (float) Math.sqrt((x * x) + (y * y) + (z * z));
+    }
+}
@@ -0,0 +1,316 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes meshes in a compact, versioned binary format that can be
+ * memory mapped.
+ * <p>
+ * The file starts with a fixed size header, followed by one blob per vertex
+ * attribute and an index blob, each aligned to 16 bytes:
+ * </p>
+ * <pre>
+ *   0  int    magic ('MLEM')
+ *   4  int    format version
+ *   8  int    flags (bit 0: little endian)
+ *  12  int    number of vertices
+ *  16  int    number of indices
+ *  20  int    number of attributes
+ *  24  long   length of the source the mesh was built from
+ *  32  long   CRC-32 of the source
+ *  40  float  bounds (minx, miny, minz, maxx, maxy, maxz)
+ *  64  int[4] attribute table, per attribute: semantic, size, encoding, offset
+ * 112  int    index blob offset
+ * 116  int    CRC-32 of the attribute and index blobs
+ * 128         attribute and index blobs
+ * </pre>
+ * <p>
+ * Data is written in native byte order, so a mapped file can be handed to the
+ * GL upload path without any conversion or copying. A file whose version,
+ * byte order or source checksum does not match is treated as stale. A file
+ * whose blobs fail their checksum, as when it was truncated, or whose indices
+ * address vertices it does not have, is treated as stale too, so that a bad
+ * file is parsed again rather than reaching <code>glDrawElements</code>.
+ * </p>
+ */
+public class MeshCache
+{
+    /** The file format magic number, "MLEM". */
+    public static final int MAGIC = 0x4D4C454D;
+
+    /** The current file format version. */
+    public static final int VERSION = 2;
+
+    /** The attribute semantic for positions. */
+    public static final int SEMANTIC_POSITION = 0;
+
+    /** The attribute semantic for normals. */
+    public static final int SEMANTIC_NORMAL = 1;
+
+    /** The attribute semantic for texture coordinates. */
+    public static final int SEMANTIC_TEXCOORD = 2;
+
+    // The size of the header.
+    private static final int HEADER_SIZE = 128;
+
+    // The offset of the attribute table.
+    private static final int ATTRIBUTE_TABLE = 64;
+
+    // The offset of the index blob descriptor.
+    private static final int INDEX_OFFSET = 112;
+
+    // The offset of the blob checksum.
+    private static final int BLOB_CHECKSUM = 116;
+
+    // The maximum number of attributes.
+    private static final int MAX_ATTRIBUTES = 3;
+
+    // The flag marking little endian data.
+    private static final int FLAG_LITTLE_ENDIAN = 0x1;
+
+    // Hide default constructor.
+    private MeshCache() {}
+
+    // Round an offset up to a multiple of 16 bytes.
+    private static int align(int offset)
+    {
+        return (offset + 15) & ~15;
+    }
+
+    /**
+     * Write a mesh to a file. The file is written under a temporary name and
+     * renamed into place, so readers never observe a partial file.
+     *
+     * @param file The file to write.
+     * @param mesh The mesh.
+     * @param sourceLength The length of the source the mesh was built from.
+     * @param sourceChecksum The CRC-32 of the source.
+     *
+     * @throws IOException This exception is thrown if the file cannot be written.
+     */
+    public static void write(File file, Mesh mesh, long sourceLength, long sourceChecksum)
+        throws IOException
+    {
+        final int numVertices = mesh.getNumVertices();
+        final int numIndices = mesh.getNumIndices();
+
+        FloatBuffer[] streams = { mesh.getPositions(), mesh.getNormals(), mesh.getTexCoords() };
+        int[] sizes = { Mesh.POSITION_SIZE, Mesh.NORMAL_SIZE, Mesh.TEXCOORD_SIZE };
+        int[] semantics = { SEMANTIC_POSITION, SEMANTIC_NORMAL, SEMANTIC_TEXCOORD };
+
+        // Lay out the blobs.
+        int[] offsets = new int[MAX_ATTRIBUTES];
+        int offset = HEADER_SIZE;
+        int numAttributes = 0;
+        for (int i = 0; i < MAX_ATTRIBUTES; i++)
+        {
+            if (streams[i] == null) continue;
+            offsets[i] = offset;
+            offset = align(offset + (numVertices * sizes[i] * 4));
+            numAttributes++;
+        }
+        int indexOffset = offset;
+        int fileSize = indexOffset + (numIndices * 2);
+
+        ByteBuffer data = ByteBuffer.allocateDirect(fileSize).order(ByteOrder.nativeOrder());
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) ? FLAG_LITTLE_ENDIAN : 0);
+        data.putInt(12, numVertices);
+        data.putInt(16, numIndices);
+        data.putInt(20, numAttributes);
+        data.putLong(24, sourceLength);
+        data.putLong(32, sourceChecksum);
+        float[] extents = mesh.getExtents();
+        for (int i = 0; i < 6; i++)
+            data.putFloat(40 + (i * 4), extents[i]);
+
+        int entry = ATTRIBUTE_TABLE;
+        for (int i = 0; i < MAX_ATTRIBUTES; i++)
+        {
+            if (streams[i] == null) continue;
+            data.putInt(entry, semantics[i]);
+            data.putInt(entry + 4, sizes[i]);
+            data.putInt(entry + 8, VertexLayout.ENCODING_FLOAT);
+            data.putInt(entry + 12, offsets[i]);
+            entry += 16;
+
+            int count = numVertices * sizes[i];
+            for (int j = 0; j < count; j++)
+                data.putFloat(offsets[i] + (j * 4), streams[i].get(j));
+        }
+        data.putInt(INDEX_OFFSET, indexOffset);
+
+        ShortBuffer indices = mesh.getIndices();
+        for (int j = 0; j < numIndices; j++)
+            data.putShort(indexOffset + (j * 2), indices.get(j));
+        data.putInt(BLOB_CHECKSUM, checksum(data, HEADER_SIZE, fileSize - HEADER_SIZE));
+
+        File parent = file.getParentFile();
+        if ((parent != null) && ! parent.isDirectory() && ! parent.mkdirs())
+            throw new IOException("MeshCache: Unable to create " + parent + ".");
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try
+        {
+            FileChannel channel = out.getChannel();
+            data.position(0);
+            while (data.hasRemaining())
+                channel.write(data);
+        } finally
+        {
+            out.close();
+        }
+
+        if (! temp.renameTo(file))
+        {
+            temp.delete();
+            throw new IOException("MeshCache: Unable to rename " + temp + ".");
+        }
+    }
+
+    /**
+     * Map a mesh file into memory.
+     *
+     * @param file The file to map.
+     * @param sourceLength The length of the current source.
+     * @param sourceChecksum The CRC-32 of the current source.
+     *
+     * @return A mesh whose buffers are views of the mapped file is returned, or
+     * <b>null</b> if the file does not exist or is stale.
+     *
+     * @throws IOException This exception is thrown if the file cannot be read.
+     */
+    public static Mesh read(File file, long sourceLength, long sourceChecksum)
+        throws IOException
+    {
+        if (! file.isFile() || (file.length() < HEADER_SIZE))
+            return null;
+
+        MappedByteBuffer map;
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = in.getChannel();
+            // The mapping remains valid after the channel is closed.
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally
+        {
+            in.close();
+        }
+        map.order(ByteOrder.nativeOrder());
+
+        // Validate the header.
+        int expectedFlags = (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) ? FLAG_LITTLE_ENDIAN : 0;
+        if ((map.getInt(0) != MAGIC) || (map.getInt(4) != VERSION) || (map.getInt(8) != expectedFlags))
+            return null;
+        if ((map.getLong(24) != sourceLength) || (map.getLong(32) != sourceChecksum))
+            return null;
+
+        final int numVertices = map.getInt(12);
+        final int numIndices = map.getInt(16);
+        final int numAttributes = map.getInt(20);
+        final int capacity = map.capacity();
+        if ((numVertices < 0) || (numVertices > Mesh.MAX_VERTICES) || (numIndices < 0) || (numIndices > (capacity / 2))
+            || (numAttributes < 1) || (numAttributes > MAX_ATTRIBUTES))
+            return null;
+
+        float[] extents = new float[6];
+        for (int i = 0; i < 6; i++)
+            extents[i] = map.getFloat(40 + (i * 4));
+
+        FloatBuffer positions = null, normals = null, texCoords = null;
+        for (int i = 0; i < numAttributes; i++)
+        {
+            int entry = ATTRIBUTE_TABLE + (i * 16);
+            int semantic = map.getInt(entry);
+            int size = map.getInt(entry + 4);
+            int encoding = map.getInt(entry + 8);
+            int offset = map.getInt(entry + 12);
+            // The header is not covered by the blob checksum, so the size is checked
+            // against the semantic before it is used to find the blob.
+            if ((encoding != VertexLayout.ENCODING_FLOAT) || (size != getSize(semantic)))
+                return null;
+            long bytes = (long) numVertices * size * 4;
+            if ((offset < HEADER_SIZE) || ((offset + bytes) > capacity))
+                return null;
+
+            FloatBuffer stream = slice(map, offset, (int) bytes).asFloatBuffer();
+            if (semantic == SEMANTIC_POSITION)
+                positions = stream;
+            else if (semantic == SEMANTIC_NORMAL)
+                normals = stream;
+            else
+                texCoords = stream;
+        }
+
+        int indexOffset = map.getInt(INDEX_OFFSET);
+        if ((positions == null) || (indexOffset < HEADER_SIZE) || ((indexOffset + (numIndices * 2L)) > capacity))
+            return null;
+        int end = indexOffset + (numIndices * 2);
+        if (checksum(map, HEADER_SIZE, end - HEADER_SIZE) != map.getInt(BLOB_CHECKSUM))
+            return null;
+        ShortBuffer indices = slice(map, indexOffset, numIndices * 2).asShortBuffer();
+        for (int i = 0; i < numIndices; i++)
+        {
+            if ((indices.get(i) & 0xFFFF) >= numVertices)
+                return null;
+        }
+
+        return new Mesh(positions, normals, texCoords, indices, numVertices, numIndices, extents);
+    }
+
+    // Get the number of components of an attribute semantic; -1 if it is unknown.
+    private static int getSize(int semantic)
+    {
+        switch (semantic)
+        {
+            case SEMANTIC_POSITION: return Mesh.POSITION_SIZE;
+            case SEMANTIC_NORMAL:   return Mesh.NORMAL_SIZE;
+            case SEMANTIC_TEXCOORD: return Mesh.TEXCOORD_SIZE;
+            default:                return -1;
+        }
+    }
+
+    // Compute the CRC-32 of a region of a buffer.
+    private static int checksum(ByteBuffer data, int offset, int length)
+    {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = data.duplicate();
+        view.position(offset);
+        byte[] chunk = new byte[Math.min(length, 8192)];
+        while (length > 0)
+        {
+            int n = Math.min(length, chunk.length);
+            view.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+            length -= n;
+        }
+        return (int) crc.getValue();
+    }
+
+    // Create a native order view of a region of the mapped file.
+    private static ByteBuffer slice(ByteBuffer map, int offset, int length)
+    {
+        ByteBuffer view = map.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,216 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+// Import Android classes.
+import android.content.res.Resources;
+import android.util.Log;
+
+/**
+ * The meshes loaded from the title resources, keyed by resource name.
+ * <p>
+ * Meshes are loaded once, typically while the title parses its resources,
+ * and then shared by every Role that renders them. When a cache directory is
+ * set, each parsed mesh is also stored in the binary <code>MeshCache</code>
+ * format; later loads map the cached file instead of parsing the source, as
+ * long as the source's checksum is unchanged.
+ * </p>
+ */
+public class MeshLibrary
+{
+    private static final String TAG = "titles-hellocube";
+
+    // The file name extension of cached meshes.
+    private static final String CACHE_EXTENSION = ".mlm";
+
+    // The singleton instance.
+    private static MeshLibrary g_theLibrary = null;
+
+    // The loaded meshes.
+    private final HashMap<String, Mesh> m_meshes = new HashMap<String, Mesh>();
+
+    // The directory holding cached meshes; null disables caching.
+    private File m_cacheDir = null;
+
+    // Hide default constructor.
+    private MeshLibrary()
+    {
+        super();
+    }
+
+    /**
+     * Get the library.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized MeshLibrary getInstance()
+    {
+        if (g_theLibrary == null)
+            g_theLibrary = new MeshLibrary();
+        return g_theLibrary;
+    }
+
+    /**
+     * Set the directory used to cache meshes in binary form.
+     *
+     * @param dir The directory, typically a subdirectory of the application's
+     * cache directory, or <b>null</b> to disable caching.
+     */
+    public synchronized void setCacheDirectory(File dir)
+    {
+        m_cacheDir = dir;
+    }
+
+    /**
+     * Load an OBJ mesh from a raw resource and register it under the
+     * resource's entry name (for example, "box" for <code>R.raw.box</code>).
+     *
+     * @param resources The title resources.
+     * @param id The raw resource identifier.
+     *
+     * @return The loaded mesh is returned.
+     *
+     * @throws IOException This exception is thrown if the mesh cannot be loaded.
+     */
+    public Mesh load(Resources resources, int id)
+        throws IOException
+    {
+        String name = resources.getResourceEntryName(id);
+        InputStream in = resources.openRawResource(id);
+        try
+        {
+            Mesh mesh = load(name, in);
+            put(name, mesh);
+            return mesh;
+        } finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Load an OBJ mesh from a stream, using the binary cache when it is valid.
+     *
+     * @param name The name of the mesh, used to name the cache file.
+     * @param in The OBJ source; it is not closed.
+     *
+     * @return The loaded mesh is returned.
+     *
+     * @throws IOException This exception is thrown if the mesh cannot be loaded.
+     */
+    public Mesh load(String name, InputStream in)
+        throws IOException
+    {
+        long start = System.nanoTime();
+
+        // Read the source once; it is needed for the checksum and, on a miss, for parsing.
+        SourceBuffer source = new SourceBuffer(Math.max(in.available(), 1024));
+        byte[] buffer = new byte[16 * 1024];
+        CRC32 crc = new CRC32();
+        int n;
+        while ((n = in.read(buffer)) > 0)
+        {
+            crc.update(buffer, 0, n);
+            source.write(buffer, 0, n);
+        }
+        long length = source.size();
+        long checksum = crc.getValue();
+
+        File cacheDir;
+        synchronized (this)
+        {
+            cacheDir = m_cacheDir;
+        }
+        File cacheFile = (cacheDir != null) ? new File(cacheDir, name + CACHE_EXTENSION) : null;
+
+        if (cacheFile != null)
+        {
+            try
+            {
+                Mesh cached = MeshCache.read(cacheFile, length, checksum);
+                if (cached != null)
+                {
+                    Log.i(TAG, "Mapped mesh " + name + " from cache in " + elapsedMicros(start) + " us.");
+                    return cached;
+                }
+            } catch (IOException ex)
+            {
+                Log.w(TAG, "Ignoring unreadable mesh cache " + cacheFile + ": " + ex.getMessage());
+            }
+        }
+
+        Mesh mesh = ObjLoader.load(source.open(), (int) length);
+        Log.i(TAG, "Parsed mesh " + name + " in " + elapsedMicros(start) + " us.");
+
+        if (cacheFile != null)
+        {
+            try
+            {
+                MeshCache.write(cacheFile, mesh, length, checksum);
+            } catch (IOException ex)
+            {
+                Log.w(TAG, "Unable to cache mesh " + name + ": " + ex.getMessage());
+            }
+        }
+
+        return mesh;
+    }
+
+    /*
+     * Buffers the source so that it can be parsed in place, without the copy
+     * that toByteArray() would make.
+     */
+    private static class SourceBuffer extends ByteArrayOutputStream
+    {
+        SourceBuffer(int size)
+        {
+            super(size);
+        }
+
+        // Open a stream over the buffered bytes.
+        InputStream open()
+        {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    // Compute the time elapsed since the specified System.nanoTime() value.
+    private static long elapsedMicros(long start)
+    {
+        return (System.nanoTime() - start) / 1000L;
+    }
+
+    /**
+     * Register a mesh.
+     *
+     * @param name The name of the mesh.
+     * @param mesh The mesh.
+     */
+    public synchronized void put(String name, Mesh mesh)
+    {
+        m_meshes.put(name, mesh);
+    }
+
+    /**
+     * Retrieve a mesh.
+     *
+     * @param name The name of the mesh.
+     *
+     * @return The mesh is returned, or <b>null</b> if it has not been loaded.
+     */
+    public synchronized Mesh get(String name)
+    {
+        return m_meshes.get(name);
+    }
+}
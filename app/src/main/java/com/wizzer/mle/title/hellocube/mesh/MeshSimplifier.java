@@ -0,0 +1,765 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Reduces the triangle count of a <code>Mesh</code> using quadric error metrics.
+ * <p>
+ * The simplifier repeatedly collapses the edge whose removal introduces the least
+ * geometric error, as measured by the sum of squared distances to the planes of the
+ * triangles originally adjacent to each vertex (Garland and Heckbert). Each collapse
+ * moves one endpoint onto the other, so the surviving vertices keep their original
+ * normals and texture coordinates.
+ * <p>
+ * The topology is built over welded positions, so that vertices duplicated to
+ * carry different normals or texture coordinates still share their edges. A
+ * position with more than one vertex lies on an attribute seam and is never
+ * moved, so seams are preserved; a mesh made entirely of seams, such as a box
+ * with a normal per face, is returned unchanged. Open edges are protected by
+ * additional perpendicular planes so that the mesh silhouette is preserved, and
+ * a collapse is only made if it keeps the surface manifold, so a closed mesh
+ * stays closed.
+ * </p>
+ * <p>
+ * Simplification is CPU intensive and intended to run off of the GL thread; see
+ * <code>LodCache</code>.
+ * </p>
+ */
+public class MeshSimplifier
+{
+    // Weight applied to the planes protecting open edges.
+    private static final double BOUNDARY_WEIGHT = 1000.0;
+
+    // Minimum cosine between a triangle's normal before and after a collapse.
+    private static final double MIN_NORMAL_COSINE = 0.2;
+
+    // The number of coefficients in a symmetric 4x4 quadric.
+    private static final int QUADRIC_SIZE = 10;
+
+    // The smallest closed surface; a closed mesh is not collapsed below it.
+    private static final int MIN_CLOSED_TRIANGLES = 4;
+
+    // Welded positions - (x, y, z).
+    private final double[] m_positions;
+
+    // The welded position of each vertex.
+    private final int[] m_vertexPositions;
+
+    // Triangle corner positions; -1 marks a removed triangle.
+    private final int[] m_triangles;
+
+    // Triangle corner vertices, carrying the attributes of each corner.
+    private final int[] m_corners;
+
+    // Per-position error quadrics.
+    private final double[] m_quadrics;
+
+    // Per-position adjacent triangles.
+    private final int[][] m_vertexTriangles;
+    private final int[] m_vertexTriangleCount;
+
+    // Per-position collapse state.
+    private final boolean[] m_removed;
+    private final int[] m_version;
+
+    // Set for positions shared by more than one vertex, and for those on an open edge.
+    private final boolean[] m_seam;
+    private final boolean[] m_boundary;
+
+    // Stamps marking the neighbours of a collapse's endpoints.
+    private final int[] m_marks;
+    private int m_stamp = 0;
+
+    // The vertex of 'to' given to the corners moved by the collapse being made.
+    private int m_collapseVertex;
+
+    // Collapse candidate heap, ordered by cost.
+    private double[] m_heapCost;
+    private int[] m_heapFrom;
+    private int[] m_heapTo;
+    private int[] m_heapFromVersion;
+    private int[] m_heapToVersion;
+    private int m_heapSize;
+
+    // The number of triangles still present.
+    private int m_numTriangles;
+
+    // Hide default constructor.
+    private MeshSimplifier()
+    {
+        m_positions = null;
+        m_vertexPositions = null;
+        m_triangles = null;
+        m_corners = null;
+        m_quadrics = null;
+        m_vertexTriangles = null;
+        m_vertexTriangleCount = null;
+        m_removed = null;
+        m_version = null;
+        m_seam = null;
+        m_boundary = null;
+        m_marks = null;
+    }
+
+    // Construct a simplifier over a copy of the mesh topology.
+    private MeshSimplifier(Mesh mesh)
+    {
+        final int numVertices = mesh.getNumVertices();
+        final int numIndices = mesh.getNumIndices() - (mesh.getNumIndices() % 3);
+
+        FloatBuffer positions = mesh.getPositions();
+        m_vertexPositions = new int[numVertices];
+        final int numPositions = weld(positions, numVertices, m_vertexPositions);
+        m_positions = new double[numPositions * 3];
+        m_seam = new boolean[numPositions];
+        final boolean[] used = new boolean[numPositions];
+        for (int v = 0; v < numVertices; v++)
+        {
+            int p = m_vertexPositions[v];
+            if (used[p])
+                m_seam[p] = true;
+            used[p] = true;
+            for (int c = 0; c < 3; c++)
+                m_positions[(p * 3) + c] = positions.get((v * 3) + c);
+        }
+
+        ShortBuffer indices = mesh.getIndices();
+        m_triangles = new int[numIndices];
+        m_corners = new int[numIndices];
+        for (int i = 0; i < numIndices; i++)
+        {
+            m_corners[i] = indices.get(i) & 0xFFFF;
+            m_triangles[i] = m_vertexPositions[m_corners[i]];
+        }
+        m_numTriangles = numIndices / 3;
+
+        m_quadrics = new double[numPositions * QUADRIC_SIZE];
+        m_vertexTriangles = new int[numPositions][];
+        m_vertexTriangleCount = new int[numPositions];
+        m_removed = new boolean[numPositions];
+        m_version = new int[numPositions];
+        m_boundary = new boolean[numPositions];
+        m_marks = new int[numPositions];
+
+        int capacity = Math.max(16, numIndices * 2);
+        m_heapCost = new double[capacity];
+        m_heapFrom = new int[capacity];
+        m_heapTo = new int[capacity];
+        m_heapFromVersion = new int[capacity];
+        m_heapToVersion = new int[capacity];
+        m_heapSize = 0;
+    }
+
+    /**
+     * Simplify a mesh.
+     *
+     * @param mesh The mesh to simplify. It is not modified.
+     * @param targetTriangles The desired number of triangles.
+     * @param maxError The largest collapse error that will be accepted;
+     * use <code>Double.MAX_VALUE</code> to be limited only by the target count.
+     *
+     * @return A new, compacted mesh is returned. It may contain more triangles than
+     * requested if no further collapse was possible within the error limit.
+     */
+    public static Mesh simplify(Mesh mesh, int targetTriangles, double maxError)
+    {
+        if (mesh == null)
+            throw new IllegalArgumentException("MeshSimplifier: mesh is null.");
+
+        MeshSimplifier simplifier = new MeshSimplifier(mesh);
+        simplifier.buildAdjacency();
+        simplifier.computeQuadrics();
+        simplifier.collapse(Math.max(targetTriangles, 1), maxError);
+        return simplifier.compact(mesh);
+    }
+
+    // Map each vertex to a welded position, returning the number of positions.
+    // Vertices are welded only if their coordinates are identical.
+    private static int weld(FloatBuffer positions, int numVertices, int[] vertexPositions)
+    {
+        int capacity = 16;
+        while (capacity < (numVertices * 2)) capacity <<= 1;
+        final int mask = capacity - 1;
+        final int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+
+        int numPositions = 0;
+        for (int v = 0; v < numVertices; v++)
+        {
+            int x = coordinateBits(positions.get(v * 3));
+            int y = coordinateBits(positions.get((v * 3) + 1));
+            int z = coordinateBits(positions.get((v * 3) + 2));
+            int i = (((x * 73856093) ^ (y * 19349663) ^ (z * 83492791)) * 0x9E3779B9 >>> 8) & mask;
+            while (true)
+            {
+                int other = table[i];
+                if (other < 0)
+                {
+                    table[i] = v;
+                    vertexPositions[v] = numPositions++;
+                    break;
+                }
+                if ((coordinateBits(positions.get(other * 3)) == x)
+                    && (coordinateBits(positions.get((other * 3) + 1)) == y)
+                    && (coordinateBits(positions.get((other * 3) + 2)) == z))
+                {
+                    vertexPositions[v] = vertexPositions[other];
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+        return numPositions;
+    }
+
+    // Get the bits of a coordinate, treating -0 as 0.
+    private static int coordinateBits(float value)
+    {
+        return Float.floatToIntBits(value + 0.0f);
+    }
+
+    // Build the position to triangle adjacency lists.
+    private void buildAdjacency()
+    {
+        final int numVertices = m_vertexTriangleCount.length;
+        for (int i = 0; i < m_triangles.length; i++)
+            m_vertexTriangleCount[m_triangles[i]]++;
+        for (int v = 0; v < numVertices; v++)
+        {
+            m_vertexTriangles[v] = new int[Math.max(m_vertexTriangleCount[v], 4)];
+            m_vertexTriangleCount[v] = 0;
+        }
+        for (int i = 0; i < m_triangles.length; i++)
+        {
+            int v = m_triangles[i];
+            m_vertexTriangles[v][m_vertexTriangleCount[v]++] = i / 3;
+        }
+    }
+
+    // Accumulate the face and boundary quadrics for every vertex.
+    private void computeQuadrics()
+    {
+        final double[] plane = new double[4];
+        final int numTriangles = m_triangles.length / 3;
+
+        for (int t = 0; t < numTriangles; t++)
+        {
+            double area = trianglePlane(t, plane);
+            if (area <= 0.0) continue;
+            for (int k = 0; k < 3; k++)
+                addPlane(m_triangles[(t * 3) + k], plane, area);
+        }
+
+        // An edge that belongs to exactly one triangle is open.
+        EdgeCounter edges = countEdges();
+
+        final double[] normal = new double[4];
+        for (int t = 0; t < numTriangles; t++)
+        {
+            if (trianglePlane(t, normal) <= 0.0) continue;
+            for (int k = 0; k < 3; k++)
+            {
+                int a = m_triangles[(t * 3) + k];
+                int b = m_triangles[(t * 3) + ((k + 1) % 3)];
+                if (edges.count(a, b) != 1) continue;
+                m_boundary[a] = true;
+                m_boundary[b] = true;
+
+                // The plane contains the edge and is perpendicular to the triangle.
+                double ex = m_positions[(b * 3)] - m_positions[(a * 3)];
+                double ey = m_positions[(b * 3) + 1] - m_positions[(a * 3) + 1];
+                double ez = m_positions[(b * 3) + 2] - m_positions[(a * 3) + 2];
+                double nx = (ey * normal[2]) - (ez * normal[1]);
+                double ny = (ez * normal[0]) - (ex * normal[2]);
+                double nz = (ex * normal[1]) - (ey * normal[0]);
+                double length = Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+                if (length <= 0.0) continue;
+                plane[0] = nx / length;
+                plane[1] = ny / length;
+                plane[2] = nz / length;
+                plane[3] = -((plane[0] * m_positions[a * 3]) + (plane[1] * m_positions[(a * 3) + 1])
+                    + (plane[2] * m_positions[(a * 3) + 2]));
+                double weight = BOUNDARY_WEIGHT * ((ex * ex) + (ey * ey) + (ez * ez));
+                addPlane(a, plane, weight);
+                addPlane(b, plane, weight);
+            }
+        }
+    }
+
+    // Count the triangles using each edge.
+    private EdgeCounter countEdges()
+    {
+        EdgeCounter edges = new EdgeCounter(m_triangles.length);
+        for (int i = 0; i < m_triangles.length; i += 3)
+        {
+            for (int k = 0; k < 3; k++)
+                edges.add(m_triangles[i + k], m_triangles[i + ((k + 1) % 3)]);
+        }
+        return edges;
+    }
+
+    // Compute the unit plane of a triangle; returns its area, or zero if degenerate.
+    private double trianglePlane(int t, double[] plane)
+    {
+        int a = m_triangles[t * 3] * 3;
+        int b = m_triangles[(t * 3) + 1] * 3;
+        int c = m_triangles[(t * 3) + 2] * 3;
+        return planeThrough(m_positions, a, b, c, plane);
+    }
+
+    // Compute the unit plane through three points; returns the triangle area.
+    private static double planeThrough(double[] p, int a, int b, int c, double[] plane)
+    {
+        double ux = p[b] - p[a], uy = p[b + 1] - p[a + 1], uz = p[b + 2] - p[a + 2];
+        double vx = p[c] - p[a], vy = p[c + 1] - p[a + 1], vz = p[c + 2] - p[a + 2];
+        double nx = (uy * vz) - (uz * vy);
+        double ny = (uz * vx) - (ux * vz);
+        double nz = (ux * vy) - (uy * vx);
+        double length = Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+        if (length <= 0.0) return 0.0;
+        plane[0] = nx / length;
+        plane[1] = ny / length;
+        plane[2] = nz / length;
+        plane[3] = -((plane[0] * p[a]) + (plane[1] * p[a + 1]) + (plane[2] * p[a + 2]));
+        return length * 0.5;
+    }
+
+    // Add a weighted plane to a vertex quadric.
+    private void addPlane(int v, double[] p, double weight)
+    {
+        int q = v * QUADRIC_SIZE;
+        m_quadrics[q]     += weight * p[0] * p[0];
+        m_quadrics[q + 1] += weight * p[0] * p[1];
+        m_quadrics[q + 2] += weight * p[0] * p[2];
+        m_quadrics[q + 3] += weight * p[0] * p[3];
+        m_quadrics[q + 4] += weight * p[1] * p[1];
+        m_quadrics[q + 5] += weight * p[1] * p[2];
+        m_quadrics[q + 6] += weight * p[1] * p[3];
+        m_quadrics[q + 7] += weight * p[2] * p[2];
+        m_quadrics[q + 8] += weight * p[2] * p[3];
+        m_quadrics[q + 9] += weight * p[3] * p[3];
+    }
+
+    // Evaluate the combined quadric of two vertices at the position of the second.
+    private double collapseCost(int from, int to)
+    {
+        final double[] q = m_quadrics;
+        int i = from * QUADRIC_SIZE;
+        int j = to * QUADRIC_SIZE;
+        double x = m_positions[to * 3];
+        double y = m_positions[(to * 3) + 1];
+        double z = m_positions[(to * 3) + 2];
+
+        double error = ((q[i] + q[j]) * x * x)
+            + (2.0 * (q[i + 1] + q[j + 1]) * x * y)
+            + (2.0 * (q[i + 2] + q[j + 2]) * x * z)
+            + (2.0 * (q[i + 3] + q[j + 3]) * x)
+            + ((q[i + 4] + q[j + 4]) * y * y)
+            + (2.0 * (q[i + 5] + q[j + 5]) * y * z)
+            + (2.0 * (q[i + 6] + q[j + 6]) * y)
+            + ((q[i + 7] + q[j + 7]) * z * z)
+            + (2.0 * (q[i + 8] + q[j + 8]) * z)
+            + (q[i + 9] + q[j + 9]);
+        return Math.max(error, 0.0);
+    }
+
+    // Queue the cheaper direction of collapsing the edge (a, b). Seams do not move.
+    private void pushEdge(int a, int b)
+    {
+        if (m_seam[a] || m_seam[b])
+        {
+            if (! m_seam[a])
+                heapPush(collapseCost(a, b), a, b);
+            else if (! m_seam[b])
+                heapPush(collapseCost(b, a), b, a);
+            return;
+        }
+
+        double ab = collapseCost(a, b);
+        double ba = collapseCost(b, a);
+        if (ab <= ba)
+            heapPush(ab, a, b);
+        else
+            heapPush(ba, b, a);
+    }
+
+    // Perform collapses until the target is reached.
+    private void collapse(int targetTriangles, double maxError)
+    {
+        final int numTriangles = m_triangles.length / 3;
+        EdgeCounter edges = countEdges();
+        for (int t = 0; t < numTriangles; t++)
+        {
+            for (int k = 0; k < 3; k++)
+            {
+                int a = m_triangles[(t * 3) + k];
+                int b = m_triangles[(t * 3) + ((k + 1) % 3)];
+                // Each interior edge is seen twice, once in each direction, and an
+                // open edge only once; queue the first sighting of each.
+                if ((a < b) || (edges.count(a, b) == 1)) pushEdge(a, b);
+            }
+        }
+
+        while ((m_numTriangles > targetTriangles) && (m_heapSize > 0))
+        {
+            double cost = m_heapCost[0];
+            int from = m_heapFrom[0];
+            int to = m_heapTo[0];
+            int fromVersion = m_heapFromVersion[0];
+            int toVersion = m_heapToVersion[0];
+            heapPop();
+
+            if (m_removed[from] || m_removed[to]) continue;
+            if ((m_version[from] != fromVersion) || (m_version[to] != toVersion)) continue;
+            if (cost > maxError) break;
+            if (! isCollapseValid(from, to)) continue;
+
+            collapseEdge(from, to);
+        }
+    }
+
+    // Reject collapses that would move a seam, change the topology of the surface
+    // or flip the orientation of a surviving triangle. Chooses the vertex of 'to'
+    // that the moved corners take.
+    private boolean isCollapseValid(int from, int to)
+    {
+        if (m_seam[from])
+            return false;
+
+        // The triangles sharing the edge are removed; they must agree on the
+        // attributes at 'to', which the moved corners take.
+        final int[] triangles = m_vertexTriangles[from];
+        final int count = m_vertexTriangleCount[from];
+        int shared = 0;
+        m_collapseVertex = -1;
+        for (int i = 0; i < count; i++)
+        {
+            int base = triangles[i] * 3;
+            if (m_triangles[base] < 0) continue;
+            for (int k = 0; k < 3; k++)
+            {
+                if (m_triangles[base + k] != to) continue;
+                if ((m_collapseVertex >= 0) && (m_corners[base + k] != m_collapseVertex))
+                    return false;
+                m_collapseVertex = m_corners[base + k];
+                shared++;
+            }
+        }
+        if (shared == 0)
+            return false;
+
+        // An interior edge between two open edges would pinch the surface.
+        if (m_boundary[from] && m_boundary[to] && (shared != 1))
+            return false;
+        if ((shared > 1) && ((m_numTriangles - shared) < MIN_CLOSED_TRIANGLES))
+            return false;
+
+        // The link condition: the endpoints may only share the neighbours of the
+        // triangles being removed, or the collapse folds the surface onto itself.
+        m_stamp += 2;
+        markNeighbours(from, to, m_stamp);
+        int common = 0;
+        final int[] around = m_vertexTriangles[to];
+        final int aroundCount = m_vertexTriangleCount[to];
+        for (int i = 0; i < aroundCount; i++)
+        {
+            int base = around[i] * 3;
+            if (m_triangles[base] < 0) continue;
+            for (int k = 0; k < 3; k++)
+            {
+                int v = m_triangles[base + k];
+                if (m_marks[v] == m_stamp)
+                {
+                    m_marks[v] = m_stamp + 1;
+                    common++;
+                }
+            }
+        }
+        if (common != shared)
+            return false;
+
+        final double[] before = new double[4];
+        final double[] after = new double[4];
+        final double[] moved = new double[9];
+        for (int i = 0; i < count; i++)
+        {
+            int t = triangles[i];
+            int base = t * 3;
+            if (m_triangles[base] < 0) continue;
+
+            int a = m_triangles[base], b = m_triangles[base + 1], c = m_triangles[base + 2];
+            if ((a == to) || (b == to) || (c == to)) continue;   // This triangle disappears.
+
+            if (trianglePlane(t, before) <= 0.0) continue;
+            copyCorner(moved, 0, (a == from) ? to : a);
+            copyCorner(moved, 3, (b == from) ? to : b);
+            copyCorner(moved, 6, (c == from) ? to : c);
+            if (planeThrough(moved, 0, 3, 6, after) <= 0.0) return false;
+            double cosine = (before[0] * after[0]) + (before[1] * after[1]) + (before[2] * after[2]);
+            if (cosine < MIN_NORMAL_COSINE) return false;
+        }
+        return true;
+    }
+
+    // Stamp the neighbours of a position, other than itself and 'other'.
+    private void markNeighbours(int v, int other, int stamp)
+    {
+        final int[] triangles = m_vertexTriangles[v];
+        final int count = m_vertexTriangleCount[v];
+        for (int i = 0; i < count; i++)
+        {
+            int base = triangles[i] * 3;
+            if (m_triangles[base] < 0) continue;
+            for (int k = 0; k < 3; k++)
+            {
+                int n = m_triangles[base + k];
+                if ((n != v) && (n != other))
+                    m_marks[n] = stamp;
+            }
+        }
+    }
+
+    // Copy a vertex position into a scratch array.
+    private void copyCorner(double[] dst, int offset, int v)
+    {
+        dst[offset] = m_positions[v * 3];
+        dst[offset + 1] = m_positions[(v * 3) + 1];
+        dst[offset + 2] = m_positions[(v * 3) + 2];
+    }
+
+    // Collapse vertex 'from' onto vertex 'to'.
+    private void collapseEdge(int from, int to)
+    {
+        // Merge the error quadrics.
+        for (int i = 0; i < QUADRIC_SIZE; i++)
+            m_quadrics[(to * QUADRIC_SIZE) + i] += m_quadrics[(from * QUADRIC_SIZE) + i];
+
+        // Re-point the triangles of 'from'; those that contained the edge are removed.
+        final int[] triangles = m_vertexTriangles[from];
+        final int count = m_vertexTriangleCount[from];
+        for (int i = 0; i < count; i++)
+        {
+            int base = triangles[i] * 3;
+            if (m_triangles[base] < 0) continue;
+
+            boolean hasTo = (m_triangles[base] == to) || (m_triangles[base + 1] == to) || (m_triangles[base + 2] == to);
+            if (hasTo)
+            {
+                m_triangles[base] = m_triangles[base + 1] = m_triangles[base + 2] = -1;
+                m_numTriangles--;
+            } else
+            {
+                for (int k = 0; k < 3; k++)
+                {
+                    if (m_triangles[base + k] == from)
+                    {
+                        m_triangles[base + k] = to;
+                        m_corners[base + k] = m_collapseVertex;
+                    }
+                }
+                addVertexTriangle(to, triangles[i]);
+            }
+        }
+
+        m_removed[from] = true;
+        m_boundary[to] |= m_boundary[from];
+        m_vertexTriangleCount[from] = 0;
+        m_version[to]++;
+
+        // Re-queue the edges around the surviving vertex with their new cost.
+        final int[] around = m_vertexTriangles[to];
+        final int aroundCount = m_vertexTriangleCount[to];
+        int live = 0;
+        for (int i = 0; i < aroundCount; i++)
+        {
+            int base = around[i] * 3;
+            if (m_triangles[base] < 0) continue;
+            around[live++] = around[i];
+            for (int k = 0; k < 3; k++)
+            {
+                int v = m_triangles[base + k];
+                if (v != to) pushEdge(v, to);
+            }
+        }
+        m_vertexTriangleCount[to] = live;
+    }
+
+    // Append a triangle to a vertex's adjacency list.
+    private void addVertexTriangle(int v, int t)
+    {
+        int[] list = m_vertexTriangles[v];
+        if (m_vertexTriangleCount[v] == list.length)
+        {
+            int[] grown = new int[list.length * 2];
+            System.arraycopy(list, 0, grown, 0, list.length);
+            m_vertexTriangles[v] = list = grown;
+        }
+        list[m_vertexTriangleCount[v]++] = t;
+    }
+
+    // Build the output mesh from the surviving triangles.
+    private Mesh compact(Mesh source)
+    {
+        final int numVertices = m_vertexPositions.length;
+        final int[] remap = new int[numVertices];
+        for (int v = 0; v < numVertices; v++) remap[v] = -1;
+
+        int outVertices = 0;
+        for (int i = 0; i < m_triangles.length; i++)
+        {
+            int v = m_corners[i];
+            if ((m_triangles[i] >= 0) && (remap[v] < 0)) remap[v] = outVertices++;
+        }
+
+        FloatBuffer srcNormals = source.getNormals();
+        FloatBuffer srcTexCoords = source.getTexCoords();
+        FloatBuffer positions = Mesh.allocateFloats(outVertices * Mesh.POSITION_SIZE);
+        FloatBuffer normals = (srcNormals != null) ? Mesh.allocateFloats(outVertices * Mesh.NORMAL_SIZE) : null;
+        FloatBuffer texCoords = (srcTexCoords != null) ? Mesh.allocateFloats(outVertices * Mesh.TEXCOORD_SIZE) : null;
+        FloatBuffer srcPositions = source.getPositions();
+        for (int v = 0; v < numVertices; v++)
+        {
+            int r = remap[v];
+            if (r < 0) continue;
+            for (int c = 0; c < Mesh.POSITION_SIZE; c++)
+                positions.put((r * Mesh.POSITION_SIZE) + c, srcPositions.get((v * Mesh.POSITION_SIZE) + c));
+            if (normals != null)
+                for (int c = 0; c < Mesh.NORMAL_SIZE; c++)
+                    normals.put((r * Mesh.NORMAL_SIZE) + c, srcNormals.get((v * Mesh.NORMAL_SIZE) + c));
+            if (texCoords != null)
+                for (int c = 0; c < Mesh.TEXCOORD_SIZE; c++)
+                    texCoords.put((r * Mesh.TEXCOORD_SIZE) + c, srcTexCoords.get((v * Mesh.TEXCOORD_SIZE) + c));
+        }
+
+        ShortBuffer indices = Mesh.allocateShorts(m_numTriangles * 3);
+        int outIndices = 0;
+        for (int i = 0; i < m_triangles.length; i++)
+        {
+            if (m_triangles[i] >= 0) indices.put(outIndices++, (short) remap[m_corners[i]]);
+        }
+
+        return new Mesh(positions, normals, texCoords, indices, outVertices, outIndices);
+    }
+
+    // Add a collapse candidate to the heap.
+    private void heapPush(double cost, int from, int to)
+    {
+        if (m_heapSize == m_heapCost.length)
+        {
+            int capacity = m_heapSize * 2;
+            m_heapCost = Arrays.copyOf(m_heapCost, capacity);
+            m_heapFrom = Arrays.copyOf(m_heapFrom, capacity);
+            m_heapTo = Arrays.copyOf(m_heapTo, capacity);
+            m_heapFromVersion = Arrays.copyOf(m_heapFromVersion, capacity);
+            m_heapToVersion = Arrays.copyOf(m_heapToVersion, capacity);
+        }
+
+        int i = m_heapSize++;
+        while (i > 0)
+        {
+            int parent = (i - 1) >> 1;
+            if (m_heapCost[parent] <= cost) break;
+            heapMove(parent, i);
+            i = parent;
+        }
+        m_heapCost[i] = cost;
+        m_heapFrom[i] = from;
+        m_heapTo[i] = to;
+        m_heapFromVersion[i] = m_version[from];
+        m_heapToVersion[i] = m_version[to];
+    }
+
+    // Remove the cheapest collapse candidate from the heap.
+    private void heapPop()
+    {
+        int last = --m_heapSize;
+        if (last == 0) return;
+
+        double cost = m_heapCost[last];
+        int from = m_heapFrom[last];
+        int to = m_heapTo[last];
+        int fromVersion = m_heapFromVersion[last];
+        int toVersion = m_heapToVersion[last];
+
+        int i = 0;
+        while (true)
+        {
+            int child = (i * 2) + 1;
+            if (child >= last) break;
+            if (((child + 1) < last) && (m_heapCost[child + 1] < m_heapCost[child])) child++;
+            if (m_heapCost[child] >= cost) break;
+            heapMove(child, i);
+            i = child;
+        }
+        m_heapCost[i] = cost;
+        m_heapFrom[i] = from;
+        m_heapTo[i] = to;
+        m_heapFromVersion[i] = fromVersion;
+        m_heapToVersion[i] = toVersion;
+    }
+
+    // Move a heap entry from one slot to another.
+    private void heapMove(int src, int dst)
+    {
+        m_heapCost[dst] = m_heapCost[src];
+        m_heapFrom[dst] = m_heapFrom[src];
+        m_heapTo[dst] = m_heapTo[src];
+        m_heapFromVersion[dst] = m_heapFromVersion[src];
+        m_heapToVersion[dst] = m_heapToVersion[src];
+    }
+
+    /*
+     * Counts undirected edges using open addressing over packed vertex pairs.
+     */
+    private static class EdgeCounter
+    {
+        private final long[] m_keys;
+        private final int[] m_counts;
+        private final int m_mask;
+
+        EdgeCounter(int expected)
+        {
+            int capacity = 16;
+            while (capacity < (expected * 2)) capacity <<= 1;
+            m_keys = new long[capacity];
+            m_counts = new int[capacity];
+            m_mask = capacity - 1;
+        }
+
+        // Pack an undirected edge into a non-zero key.
+        private static long key(int a, int b)
+        {
+            int lo = Math.min(a, b), hi = Math.max(a, b);
+            return (((long) lo + 1) << 32) | (hi & 0xFFFFFFFFL);
+        }
+
+        // Locate the slot for a key.
+        private int slot(long key)
+        {
+            int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & m_mask;
+            while ((m_keys[i] != 0) && (m_keys[i] != key))
+                i = (i + 1) & m_mask;
+            return i;
+        }
+
+        void add(int a, int b)
+        {
+            long key = key(a, b);
+            int i = slot(key);
+            m_keys[i] = key;
+            m_counts[i]++;
+        }
+
+        int count(int a, int b)
+        {
+            return m_counts[slot(key(a, b))];
+        }
+    }
+}
@@ -0,0 +1,559 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+// Import Android classes.
+import android.content.res.Resources;
+
+/**
+ * A streaming Wavefront OBJ parser.
+ * <p>
+ * The parser reads <code>v</code>, <code>vt</code>, <code>vn</code> and <code>f</code>
+ * records directly from the bytes of the input stream; no <code>String</code> is created
+ * per line or per number and no regular expressions are used. Each distinct combination
+ * of position, texture coordinate and normal referenced by a face becomes one output
+ * vertex, found through a primitive open addressing hash table, and is written straight
+ * into the direct buffers of the resulting <code>Mesh</code>. Polygons are triangulated
+ * as fans. All other record types (groups, materials, smoothing) are skipped.
+ * </p>
+ */
+public class ObjLoader
+{
+    // The size of the read buffer.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Powers of ten that are exactly representable as doubles.
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // The maximum number of significant digits accumulated in a mantissa.
+    private static final int MAX_DIGITS = 18;
+
+    // The stream being parsed.
+    private final InputStream m_in;
+
+    // The read buffer.
+    private final byte[] m_buffer = new byte[BUFFER_SIZE];
+    private int m_pos = 0;
+    private int m_limit = 0;
+
+    // The current line, for error reporting.
+    private int m_line = 1;
+
+    // The raw attribute records.
+    private float[] m_v = new float[3 * 1024];
+    private float[] m_vt = new float[2 * 1024];
+    private float[] m_vn = new float[3 * 1024];
+    private int m_numV = 0;
+    private int m_numVt = 0;
+    private int m_numVn = 0;
+
+    // Maps (v, vt, vn) to an output vertex; a key of -1 in m_keyV marks an empty slot.
+    private int[] m_keyV;
+    private int[] m_keyVt;
+    private int[] m_keyVn;
+    private int[] m_value;
+    private int m_mask;
+
+    // The output buffers.
+    private FloatBuffer m_positions;
+    private FloatBuffer m_normals = null;
+    private FloatBuffer m_texCoords = null;
+    private ShortBuffer m_indices;
+    private int m_numVertices = 0;
+    private int m_numIndices = 0;
+
+    // The output vertices of the face being parsed.
+    private int[] m_face = new int[16];
+
+    // Construct a parser.
+    private ObjLoader(InputStream in, int sizeHint)
+    {
+        m_in = in;
+
+        // Rough estimate: about 30 bytes per record, one output vertex per face corner.
+        int estimate = Math.max(sizeHint / 30, 64);
+        int vertices = Math.min(estimate, Mesh.MAX_VERTICES);
+        m_positions = Mesh.allocateFloats(vertices * Mesh.POSITION_SIZE);
+        m_indices = Mesh.allocateShorts(estimate * 3);
+
+        int capacity = 256;
+        while (capacity < (vertices * 2)) capacity <<= 1;
+        allocateTable(capacity);
+    }
+
+    /**
+     * Parse an OBJ file.
+     *
+     * @param in The stream to read; it is not closed.
+     * @param sizeHint The approximate size of the stream in bytes, used to size the
+     * output buffers, or 0 if unknown.
+     *
+     * @return The parsed mesh is returned.
+     *
+     * @throws IOException This exception is thrown if the stream cannot be read, is
+     * malformed, or contains more vertices than 16-bit indices can address.
+     */
+    public static Mesh load(InputStream in, int sizeHint)
+        throws IOException
+    {
+        if (in == null)
+            throw new IOException("ObjLoader: Input stream is null.");
+
+        ObjLoader loader = new ObjLoader(in, sizeHint);
+        loader.parse();
+        return loader.createMesh();
+    }
+
+    /**
+     * Parse an OBJ file stored as a raw resource.
+     *
+     * @param resources The title resources.
+     * @param id The raw resource identifier, such as <code>R.raw.box</code>.
+     *
+     * @return The parsed mesh is returned.
+     *
+     * @throws IOException This exception is thrown if the resource cannot be read or parsed.
+     */
+    public static Mesh load(Resources resources, int id)
+        throws IOException
+    {
+        InputStream in = resources.openRawResource(id);
+        try
+        {
+            return load(in, in.available());
+        } finally
+        {
+            in.close();
+        }
+    }
+
+    // Parse every record in the stream.
+    private void parse()
+        throws IOException
+    {
+        int c;
+        while ((c = peek()) >= 0)
+        {
+            if (c == 'v')
+            {
+                m_pos++;
+                int kind = peek();
+                if ((kind == ' ') || (kind == '\t'))
+                    parsePosition();
+                else if (kind == 'n')
+                {
+                    m_pos++;
+                    parseNormal();
+                } else if (kind == 't')
+                {
+                    m_pos++;
+                    parseTexCoord();
+                }
+            } else if (c == 'f')
+            {
+                m_pos++;
+                int next = peek();
+                if ((next == ' ') || (next == '\t'))
+                    parseFace();
+            }
+            skipLine();
+        }
+    }
+
+    // Parse "v x y z".
+    private void parsePosition()
+        throws IOException
+    {
+        if ((m_numV * 3) + 3 > m_v.length) m_v = grow(m_v);
+        int i = m_numV * 3;
+        m_v[i] = parseFloat();
+        m_v[i + 1] = parseFloat();
+        m_v[i + 2] = parseFloat();
+        m_numV++;
+    }
+
+    // Parse "vn x y z".
+    private void parseNormal()
+        throws IOException
+    {
+        if ((m_numVn * 3) + 3 > m_vn.length) m_vn = grow(m_vn);
+        int i = m_numVn * 3;
+        m_vn[i] = parseFloat();
+        m_vn[i + 1] = parseFloat();
+        m_vn[i + 2] = parseFloat();
+        m_numVn++;
+    }
+
+    // Parse "vt s t [w]"; the optional third coordinate is ignored.
+    private void parseTexCoord()
+        throws IOException
+    {
+        if ((m_numVt * 2) + 2 > m_vt.length) m_vt = grow(m_vt);
+        int i = m_numVt * 2;
+        m_vt[i] = parseFloat();
+        m_vt[i + 1] = parseFloat();
+        m_numVt++;
+    }
+
+    // Parse "f v[/vt][/vn] ..." and emit a triangle fan.
+    private void parseFace()
+        throws IOException
+    {
+        int corners = 0;
+        while (true)
+        {
+            skipSpaces();
+            int c = peek();
+            if ((c < 0) || (c == '\n') || (c == '\r') || (c == '#')) break;
+
+            int v = resolve(parseInt(), m_numV);
+            int vt = -1;
+            int vn = -1;
+            if (peek() == '/')
+            {
+                m_pos++;
+                if (peek() != '/')
+                    vt = resolve(parseInt(), m_numVt);
+                if (peek() == '/')
+                {
+                    m_pos++;
+                    vn = resolve(parseInt(), m_numVn);
+                }
+            }
+
+            if (corners == m_face.length)
+            {
+                int[] grown = new int[corners * 2];
+                System.arraycopy(m_face, 0, grown, 0, corners);
+                m_face = grown;
+            }
+            m_face[corners++] = findOrAddVertex(v, vt, vn);
+        }
+
+        if (corners < 3)
+            throw new IOException("ObjLoader: Face with fewer than three vertices on line " + m_line + ".");
+
+        ensureIndices((corners - 2) * 3);
+        for (int i = 1; i < (corners - 1); i++)
+        {
+            m_indices.put(m_numIndices++, (short) m_face[0]);
+            m_indices.put(m_numIndices++, (short) m_face[i]);
+            m_indices.put(m_numIndices++, (short) m_face[i + 1]);
+        }
+    }
+
+    // Convert a one-based or negative (relative) OBJ index to a zero-based index.
+    private int resolve(int index, int count)
+        throws IOException
+    {
+        int resolved = (index < 0) ? (count + index) : (index - 1);
+        if ((resolved < 0) || (resolved >= count))
+            throw new IOException("ObjLoader: Index " + index + " out of range on line " + m_line + ".");
+        return resolved;
+    }
+
+    // Look up the output vertex for an attribute combination, creating it if needed.
+    private int findOrAddVertex(int v, int vt, int vn)
+        throws IOException
+    {
+        int slot = hash(v, vt, vn) & m_mask;
+        while (m_keyV[slot] >= 0)
+        {
+            if ((m_keyV[slot] == v) && (m_keyVt[slot] == vt) && (m_keyVn[slot] == vn))
+                return m_value[slot];
+            slot = (slot + 1) & m_mask;
+        }
+
+        if (m_numVertices == Mesh.MAX_VERTICES)
+            throw new IOException("ObjLoader: More than " + Mesh.MAX_VERTICES + " vertices on line " + m_line + ".");
+
+        int vertex = m_numVertices++;
+        m_keyV[slot] = v;
+        m_keyVt[slot] = vt;
+        m_keyVn[slot] = vn;
+        m_value[slot] = vertex;
+
+        // Write the vertex attributes straight into the output buffers.
+        if ((vertex * Mesh.POSITION_SIZE) + Mesh.POSITION_SIZE > m_positions.capacity())
+            m_positions = grow(m_positions);
+        m_positions.put(vertex * 3, m_v[v * 3]);
+        m_positions.put((vertex * 3) + 1, m_v[(v * 3) + 1]);
+        m_positions.put((vertex * 3) + 2, m_v[(v * 3) + 2]);
+
+        if (vn >= 0)
+        {
+            if (m_normals == null)
+                m_normals = Mesh.allocateFloats(m_positions.capacity());
+            else if (m_normals.capacity() < m_positions.capacity())
+                m_normals = grow(m_normals, m_positions.capacity());
+            m_normals.put(vertex * 3, m_vn[vn * 3]);
+            m_normals.put((vertex * 3) + 1, m_vn[(vn * 3) + 1]);
+            m_normals.put((vertex * 3) + 2, m_vn[(vn * 3) + 2]);
+        }
+
+        if (vt >= 0)
+        {
+            int needed = (m_positions.capacity() / Mesh.POSITION_SIZE) * Mesh.TEXCOORD_SIZE;
+            if (m_texCoords == null)
+                m_texCoords = Mesh.allocateFloats(needed);
+            else if (m_texCoords.capacity() < needed)
+                m_texCoords = grow(m_texCoords, needed);
+            m_texCoords.put(vertex * 2, m_vt[vt * 2]);
+            m_texCoords.put((vertex * 2) + 1, m_vt[(vt * 2) + 1]);
+        }
+
+        if ((m_numVertices * 2) > m_value.length) rehash();
+        return vertex;
+    }
+
+    // Hash an attribute combination.
+    private static int hash(int v, int vt, int vn)
+    {
+        int h = (v * 0x9E3779B1) ^ (vt * 0x85EBCA77) ^ (vn * 0xC2B2AE3D);
+        return h ^ (h >>> 16);
+    }
+
+    // Allocate an empty hash table.
+    private void allocateTable(int capacity)
+    {
+        m_keyV = new int[capacity];
+        m_keyVt = new int[capacity];
+        m_keyVn = new int[capacity];
+        m_value = new int[capacity];
+        m_mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) m_keyV[i] = -1;
+    }
+
+    // Double the size of the hash table.
+    private void rehash()
+    {
+        int[] keyV = m_keyV, keyVt = m_keyVt, keyVn = m_keyVn, value = m_value;
+        allocateTable(keyV.length * 2);
+        for (int i = 0; i < keyV.length; i++)
+        {
+            if (keyV[i] < 0) continue;
+            int slot = hash(keyV[i], keyVt[i], keyVn[i]) & m_mask;
+            while (m_keyV[slot] >= 0) slot = (slot + 1) & m_mask;
+            m_keyV[slot] = keyV[i];
+            m_keyVt[slot] = keyVt[i];
+            m_keyVn[slot] = keyVn[i];
+            m_value[slot] = value[i];
+        }
+    }
+
+    // Make room for additional indices.
+    private void ensureIndices(int count)
+    {
+        if ((m_numIndices + count) <= m_indices.capacity()) return;
+
+        ShortBuffer grown = Mesh.allocateShorts(Math.max(m_indices.capacity() * 2, m_numIndices + count));
+        m_indices.position(0).limit(m_numIndices);
+        grown.put(m_indices);
+        m_indices.clear();
+        grown.clear();
+        m_indices = grown;
+    }
+
+    // Double a float array.
+    private static float[] grow(float[] array)
+    {
+        float[] grown = new float[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    // Double a direct float buffer.
+    private static FloatBuffer grow(FloatBuffer buffer)
+    {
+        return grow(buffer, buffer.capacity() * 2);
+    }
+
+    // Grow a direct float buffer to at least the specified capacity.
+    private static FloatBuffer grow(FloatBuffer buffer, int capacity)
+    {
+        FloatBuffer grown = Mesh.allocateFloats(Math.max(capacity, buffer.capacity()));
+        buffer.clear();
+        grown.put(buffer);
+        grown.clear();
+        return grown;
+    }
+
+    // Build the mesh from the output buffers.
+    private Mesh createMesh()
+    {
+        // Attribute buffers grown during parsing may lag behind the positions.
+        if ((m_normals != null) && (m_normals.capacity() < (m_numVertices * Mesh.NORMAL_SIZE)))
+            m_normals = grow(m_normals, m_numVertices * Mesh.NORMAL_SIZE);
+        if ((m_texCoords != null) && (m_texCoords.capacity() < (m_numVertices * Mesh.TEXCOORD_SIZE)))
+            m_texCoords = grow(m_texCoords, m_numVertices * Mesh.TEXCOORD_SIZE);
+
+        return new Mesh(m_positions, m_normals, m_texCoords, m_indices, m_numVertices, m_numIndices);
+    }
+
+    // Refill the read buffer; returns false at the end of the stream.
+    private boolean fill()
+        throws IOException
+    {
+        int n = m_in.read(m_buffer, 0, BUFFER_SIZE);
+        if (n <= 0)
+        {
+            m_pos = m_limit = 0;
+            return false;
+        }
+        m_pos = 0;
+        m_limit = n;
+        return true;
+    }
+
+    // Look at the next byte without consuming it; returns -1 at the end of the stream.
+    private int peek()
+        throws IOException
+    {
+        if ((m_pos == m_limit) && ! fill()) return -1;
+        return m_buffer[m_pos] & 0xFF;
+    }
+
+    // Skip spaces and tabs.
+    private void skipSpaces()
+        throws IOException
+    {
+        int c;
+        while (((c = peek()) == ' ') || (c == '\t'))
+            m_pos++;
+    }
+
+    // Skip to the start of the next line.
+    private void skipLine()
+        throws IOException
+    {
+        int c;
+        while ((c = peek()) >= 0)
+        {
+            m_pos++;
+            if (c == '\n')
+            {
+                m_line++;
+                return;
+            }
+        }
+    }
+
+    // Parse a signed decimal integer.
+    private int parseInt()
+        throws IOException
+    {
+        boolean negative = false;
+        int c = peek();
+        if (c == '-')
+        {
+            negative = true;
+            m_pos++;
+        } else if (c == '+')
+            m_pos++;
+
+        int value = 0;
+        int digits = 0;
+        while (((c = peek()) >= '0') && (c <= '9'))
+        {
+            value = (value * 10) + (c - '0');
+            digits++;
+            m_pos++;
+        }
+
+        if (digits == 0)
+            throw new IOException("ObjLoader: Expected an index on line " + m_line + ".");
+        return negative ? -value : value;
+    }
+
+    // Parse a decimal floating-point number with an optional exponent.
+    private float parseFloat()
+        throws IOException
+    {
+        skipSpaces();
+
+        boolean negative = false;
+        int c = peek();
+        if (c == '-')
+        {
+            negative = true;
+            m_pos++;
+        } else if (c == '+')
+            m_pos++;
+
+        long mantissa = 0L;
+        int exponent = 0;
+        int digits = 0;
+        int significant = 0;
+
+        while (((c = peek()) >= '0') && (c <= '9'))
+        {
+            if (significant < MAX_DIGITS)
+            {
+                mantissa = (mantissa * 10L) + (c - '0');
+                if (mantissa != 0L) significant++;
+            } else
+                exponent++;
+            digits++;
+            m_pos++;
+        }
+
+        if (c == '.')
+        {
+            m_pos++;
+            while (((c = peek()) >= '0') && (c <= '9'))
+            {
+                if (significant < MAX_DIGITS)
+                {
+                    mantissa = (mantissa * 10L) + (c - '0');
+                    if (mantissa != 0L) significant++;
+                    exponent--;
+                }
+                digits++;
+                m_pos++;
+            }
+        }
+
+        if (digits == 0)
+            throw new IOException("ObjLoader: Expected a number on line " + m_line + ".");
+
+        if ((c == 'e') || (c == 'E'))
+        {
+            m_pos++;
+            boolean negativeExponent = false;
+            c = peek();
+            if (c == '-')
+            {
+                negativeExponent = true;
+                m_pos++;
+            } else if (c == '+')
+                m_pos++;
+
+            int value = 0;
+            while (((c = peek()) >= '0') && (c <= '9'))
+            {
+                if (value < 10000) value = (value * 10) + (c - '0');
+                m_pos++;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        double result = mantissa;
+        if (exponent < 0)
+            result = (exponent >= -22) ? (result / POWERS_OF_TEN[-exponent]) : (result / Math.pow(10.0, -exponent));
+        else if (exponent > 0)
+            result = (exponent <= 22) ? (result * POWERS_OF_TEN[exponent]) : (result * Math.pow(10.0, exponent));
+
+        return (float) (negative ? -result : result);
+    }
+}
@@ -0,0 +1,292 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Interleaved vertex data packed according to a <code>VertexLayout</code>.
+ * <p>
+ * Attribute values are supplied as floats and encoded on the way in. Positions
+ * stored with a normalized integer encoding are quantized relative to their
+ * bounding box; the scale and offset needed to restore object-space positions
+ * are available from <code>getDequantizeScale()</code> and
+ * <code>getDequantizeOffset()</code>. Whoever draws the data must apply them;
+ * <code>CubeRole</code> folds them into its model matrix with
+ * <code>MatrixMath.multiplyScaleOffset()</code> when <code>needsDequantize()</code>.
+ * </p>
+ */
+public class VertexData
+{
+    // The layout of each vertex.
+    private final VertexLayout m_layout;
+
+    // The number of vertices.
+    private final int m_numVertices;
+
+    // The packed vertices.
+    private final ByteBuffer m_data;
+
+    // Restores quantized positions - object = quantized * scale + offset.
+    private final float[] m_dequantizeScale = { 1.0f, 1.0f, 1.0f };
+    private final float[] m_dequantizeOffset = { 0.0f, 0.0f, 0.0f };
+
+    /**
+     * Allocate storage for interleaved vertices.
+     *
+     * @param layout The vertex layout.
+     * @param numVertices The number of vertices.
+     */
+    public VertexData(VertexLayout layout, int numVertices)
+    {
+        super();
+
+        if ((layout == null) || (numVertices < 0))
+            throw new IllegalArgumentException("VertexData: Invalid input arguments.");
+
+        m_layout = layout;
+        m_numVertices = numVertices;
+        m_data = ByteBuffer.allocateDirect(layout.getStride() * numVertices).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Copy existing vertices.
+     *
+     * @param source The vertices to copy.
+     */
+    public VertexData(VertexData source)
+    {
+        this(source.m_layout, source.m_numVertices);
+
+        ByteBuffer data = source.m_data.duplicate();
+        data.clear();
+        m_data.put(data);
+        m_data.clear();
+        for (int c = 0; c < 3; c++)
+        {
+            m_dequantizeScale[c] = source.m_dequantizeScale[c];
+            m_dequantizeOffset[c] = source.m_dequantizeOffset[c];
+        }
+    }
+
+    /**
+     * Set every vertex's value for an attribute.
+     *
+     * @param name The attribute name.
+     * @param values The values, <code>size</code> floats per vertex. Values destined for
+     * normalized encodings must already be within the encoding's range.
+     */
+    public void setAttribute(String name, FloatBuffer values)
+    {
+        int index = requireAttribute(name);
+        VertexLayout.Attribute attribute = m_layout.getAttribute(index);
+        for (int v = 0; v < m_numVertices; v++)
+            for (int c = 0; c < attribute.m_size; c++)
+                put(attribute, v, c, values.get((v * attribute.m_size) + c));
+    }
+
+    /**
+     * Set the value of an attribute for a range of vertices.
+     *
+     * @param name The attribute name.
+     * @param first The first vertex to update.
+     * @param count The number of vertices to update.
+     * @param value The value, <code>size</code> floats, stored in every vertex of the range.
+     */
+    public void fillAttribute(String name, int first, int count, float[] value)
+    {
+        int index = requireAttribute(name);
+        VertexLayout.Attribute attribute = m_layout.getAttribute(index);
+        for (int v = first; v < (first + count); v++)
+            for (int c = 0; c < attribute.m_size; c++)
+                put(attribute, v, c, value[c]);
+    }
+
+    /**
+     * Set every vertex's position. When the attribute uses a normalized integer
+     * encoding, the positions are quantized to the full range of the encoding over
+     * their bounding box and the dequantization transform is recorded.
+     *
+     * @param name The position attribute name.
+     * @param positions The positions, three floats per vertex.
+     */
+    public void setPositions(String name, FloatBuffer positions)
+    {
+        int index = requireAttribute(name);
+        VertexLayout.Attribute attribute = m_layout.getAttribute(index);
+        if (! attribute.isNormalized())
+        {
+            setAttribute(name, positions);
+            return;
+        }
+
+        // Find the bounding box.
+        float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+        float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for (int v = 0; v < m_numVertices; v++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                float value = positions.get((v * 3) + c);
+                if (value < min[c]) min[c] = value;
+                if (value > max[c]) max[c] = value;
+            }
+        }
+
+        // Map the box onto the normalized range of the encoding.
+        boolean unsigned = (attribute.m_encoding == VertexLayout.ENCODING_UBYTE_NORM);
+        for (int c = 0; c < 3; c++)
+        {
+            float extent = (m_numVertices > 0) ? (max[c] - min[c]) : 0.0f;
+            if (unsigned)
+            {
+                m_dequantizeScale[c] = (extent > 0.0f) ? extent : 1.0f;
+                m_dequantizeOffset[c] = (m_numVertices > 0) ? min[c] : 0.0f;
+            } else
+            {
+                m_dequantizeScale[c] = (extent > 0.0f) ? (extent * 0.5f) : 1.0f;
+                m_dequantizeOffset[c] = (m_numVertices > 0) ? ((min[c] + max[c]) * 0.5f) : 0.0f;
+            }
+        }
+
+        for (int v = 0; v < m_numVertices; v++)
+            for (int c = 0; c < Math.min(3, attribute.m_size); c++)
+                put(attribute, v, c, (positions.get((v * 3) + c) - m_dequantizeOffset[c]) / m_dequantizeScale[c]);
+    }
+
+    // Locate an attribute or fail.
+    private int requireAttribute(String name)
+    {
+        int index = m_layout.indexOf(name);
+        if (index < 0)
+            throw new IllegalArgumentException("VertexData: Unknown attribute " + name + ".");
+        return index;
+    }
+
+    // Encode a single component.
+    private void put(VertexLayout.Attribute attribute, int vertex, int component, float value)
+    {
+        int offset = (vertex * m_layout.getStride()) + attribute.m_offset
+            + (component * VertexLayout.bytesPerComponent(attribute.m_encoding));
+
+        switch (attribute.m_encoding)
+        {
+            case VertexLayout.ENCODING_HALF_FLOAT:
+                m_data.putShort(offset, VertexLayout.floatToHalf(value));
+                break;
+            case VertexLayout.ENCODING_SHORT_NORM:
+                m_data.putShort(offset, (short) Math.round(clamp(value, -1.0f, 1.0f) * 32767.0f));
+                break;
+            case VertexLayout.ENCODING_UBYTE_NORM:
+                m_data.put(offset, (byte) Math.round(clamp(value, 0.0f, 1.0f) * 255.0f));
+                break;
+            case VertexLayout.ENCODING_BYTE_NORM:
+                m_data.put(offset, (byte) Math.round(clamp(value, -1.0f, 1.0f) * 127.0f));
+                break;
+            default:
+                m_data.putFloat(offset, value);
+                break;
+        }
+    }
+
+    /**
+     * Decode a single component; intended for verification and tools.
+     *
+     * @param name The attribute name.
+     * @param vertex The vertex index.
+     * @param component The component index.
+     *
+     * @return The decoded value is returned, before any position dequantization.
+     */
+    public float get(String name, int vertex, int component)
+    {
+        VertexLayout.Attribute attribute = m_layout.getAttribute(requireAttribute(name));
+        int offset = (vertex * m_layout.getStride()) + attribute.m_offset
+            + (component * VertexLayout.bytesPerComponent(attribute.m_encoding));
+
+        switch (attribute.m_encoding)
+        {
+            case VertexLayout.ENCODING_HALF_FLOAT:
+                return VertexLayout.halfToFloat(m_data.getShort(offset));
+            case VertexLayout.ENCODING_SHORT_NORM:
+                return Math.max(m_data.getShort(offset) / 32767.0f, -1.0f);
+            case VertexLayout.ENCODING_UBYTE_NORM:
+                return (m_data.get(offset) & 0xFF) / 255.0f;
+            case VertexLayout.ENCODING_BYTE_NORM:
+                return Math.max(m_data.get(offset) / 127.0f, -1.0f);
+            default:
+                return m_data.getFloat(offset);
+        }
+    }
+
+    // Clamp a value to a range.
+    private static float clamp(float value, float min, float max)
+    {
+        return (value < min) ? min : ((value > max) ? max : value);
+    }
+
+    /**
+     * Retrieve the vertex layout.
+     *
+     * @return The layout is returned.
+     */
+    public VertexLayout getLayout()
+    { return m_layout; }
+
+    /**
+     * Retrieve the number of vertices.
+     *
+     * @return The vertex count is returned.
+     */
+    public int getNumVertices()
+    { return m_numVertices; }
+
+    /**
+     * Retrieve the packed vertex data.
+     *
+     * @return A direct buffer is returned.
+     */
+    public ByteBuffer getData()
+    { return m_data; }
+
+    /**
+     * Retrieve the size of the packed data.
+     *
+     * @return The size in bytes is returned.
+     */
+    public int getSizeInBytes()
+    { return m_layout.getStride() * m_numVertices; }
+
+    /**
+     * Retrieve the per-axis scale that restores quantized positions.
+     *
+     * @return An array of three values is returned.
+     */
+    public float[] getDequantizeScale()
+    { return m_dequantizeScale; }
+
+    /**
+     * Retrieve the per-axis offset that restores quantized positions.
+     *
+     * @return An array of three values is returned.
+     */
+    public float[] getDequantizeOffset()
+    { return m_dequantizeOffset; }
+
+    /**
+     * Determine whether positions need a dequantization transform.
+     *
+     * @return <b>true</b> will be returned if the scale or offset is not the identity.
+     */
+    public boolean needsDequantize()
+    {
+        for (int c = 0; c < 3; c++)
+            if ((m_dequantizeScale[c] != 1.0f) || (m_dequantizeOffset[c] != 0.0f)) return true;
+        return false;
+    }
+}
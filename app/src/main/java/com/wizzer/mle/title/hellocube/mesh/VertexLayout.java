@@ -0,0 +1,392 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.mesh;
+
+// Import standard Java classes.
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+// Import Android classes.
+import android.opengl.GLES20;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.gl.IGl;
+
+/**
+ * Describes the attributes of an interleaved vertex and how each is encoded.
+ * <p>
+ * A layout is created with a <code>VertexLayout.Builder</code>. Every attribute
+ * starts on a four byte boundary and the stride is padded to a multiple of four,
+ * as recommended for OpenGL ES vertex fetch. The layout also generates the GLSL
+ * attribute declarations and the <code>glVertexAttribPointer</code> setup for a
+ * program, so the shader inputs always agree with the packed data.
+ * </p>
+ */
+public class VertexLayout
+{
+    /** 32-bit floating-point components. */
+    public static final int ENCODING_FLOAT = 0;
+
+    /**
+     * 16-bit floating-point components. Requires the <code>OES_vertex_half_float</code>
+     * extension on OpenGL ES 2.0.
+     */
+    public static final int ENCODING_HALF_FLOAT = 1;
+
+    /** 16-bit signed components normalized to [-1, 1]. */
+    public static final int ENCODING_SHORT_NORM = 2;
+
+    /** 8-bit unsigned components normalized to [0, 1]; suited to colors. */
+    public static final int ENCODING_UBYTE_NORM = 3;
+
+    /** 8-bit signed components normalized to [-1, 1]; suited to packed unit normals. */
+    public static final int ENCODING_BYTE_NORM = 4;
+
+    /** The vertex attribute type for half floats defined by <code>OES_vertex_half_float</code>. */
+    public static final int GL_HALF_FLOAT_OES = 0x8D61;
+
+    /**
+     * A single attribute within the layout.
+     */
+    public static class Attribute
+    {
+        /** The name of the attribute in the vertex shader. */
+        public final String m_name;
+
+        /** The number of components. */
+        public final int m_size;
+
+        /** The component encoding. */
+        public final int m_encoding;
+
+        /** The byte offset of the attribute within a vertex. */
+        public final int m_offset;
+
+        // Construct an attribute.
+        Attribute(String name, int size, int encoding, int offset)
+        {
+            m_name = name;
+            m_size = size;
+            m_encoding = encoding;
+            m_offset = offset;
+        }
+
+        /**
+         * Retrieve the OpenGL component type of the attribute.
+         *
+         * @return The type passed to <code>glVertexAttribPointer</code> is returned.
+         */
+        public int getGlType()
+        {
+            switch (m_encoding)
+            {
+                case ENCODING_HALF_FLOAT: return GL_HALF_FLOAT_OES;
+                case ENCODING_SHORT_NORM: return GLES20.GL_SHORT;
+                case ENCODING_UBYTE_NORM: return GLES20.GL_UNSIGNED_BYTE;
+                case ENCODING_BYTE_NORM:  return GLES20.GL_BYTE;
+                default:                  return GLES20.GL_FLOAT;
+            }
+        }
+
+        /**
+         * Determine whether the attribute is normalized on fetch.
+         *
+         * @return <b>true</b> will be returned for the normalized integer encodings.
+         */
+        public boolean isNormalized()
+        {
+            return (m_encoding == ENCODING_SHORT_NORM) || (m_encoding == ENCODING_UBYTE_NORM)
+                || (m_encoding == ENCODING_BYTE_NORM);
+        }
+
+        /**
+         * Retrieve the number of bytes occupied by the attribute, excluding padding.
+         *
+         * @return The size in bytes is returned.
+         */
+        public int getSizeInBytes()
+        {
+            return m_size * bytesPerComponent(m_encoding);
+        }
+    }
+
+    /**
+     * Accumulates attributes and produces an immutable <code>VertexLayout</code>.
+     */
+    public static class Builder
+    {
+        // The attributes added so far.
+        private final ArrayList<Attribute> m_attributes = new ArrayList<Attribute>();
+
+        // The offset of the next attribute.
+        private int m_offset = 0;
+
+        /**
+         * Default constructor.
+         */
+        public Builder()
+        {
+            super();
+        }
+
+        /**
+         * Append an attribute to the layout.
+         *
+         * @param name The name of the attribute in the vertex shader.
+         * @param size The number of components, 1 through 4.
+         * @param encoding One of the <code>ENCODING_</code> constants.
+         *
+         * @return This builder is returned.
+         */
+        public Builder add(String name, int size, int encoding)
+        {
+            if ((name == null) || (size < 1) || (size > 4)
+                || (encoding < ENCODING_FLOAT) || (encoding > ENCODING_BYTE_NORM))
+                throw new IllegalArgumentException("VertexLayout: Invalid attribute " + name + ".");
+
+            Attribute attribute = new Attribute(name, size, encoding, m_offset);
+            m_attributes.add(attribute);
+            m_offset += align(attribute.getSizeInBytes());
+            return this;
+        }
+
+        /**
+         * Create the layout.
+         *
+         * @return A new layout is returned.
+         */
+        public VertexLayout build()
+        {
+            if (m_attributes.isEmpty())
+                throw new IllegalStateException("VertexLayout: No attributes specified.");
+            return new VertexLayout(m_attributes.toArray(new Attribute[m_attributes.size()]), m_offset);
+        }
+    }
+
+    // The attributes, in vertex order.
+    private final Attribute[] m_attributes;
+
+    // The number of bytes between consecutive vertices.
+    private final int m_stride;
+
+    // Construct a layout; use the Builder.
+    private VertexLayout(Attribute[] attributes, int stride)
+    {
+        m_attributes = attributes;
+        m_stride = stride;
+    }
+
+    // Round a size up to a multiple of four bytes.
+    private static int align(int size)
+    {
+        return (size + 3) & ~3;
+    }
+
+    /**
+     * Retrieve the number of bytes used by each component of an encoding.
+     *
+     * @param encoding One of the <code>ENCODING_</code> constants.
+     *
+     * @return The component size in bytes is returned.
+     */
+    public static int bytesPerComponent(int encoding)
+    {
+        switch (encoding)
+        {
+            case ENCODING_HALF_FLOAT:
+            case ENCODING_SHORT_NORM: return 2;
+            case ENCODING_UBYTE_NORM:
+            case ENCODING_BYTE_NORM:  return 1;
+            default:                  return 4;
+        }
+    }
+
+    /**
+     * Retrieve the number of bytes between consecutive vertices.
+     *
+     * @return The stride is returned.
+     */
+    public int getStride()
+    { return m_stride; }
+
+    /**
+     * Retrieve the number of attributes.
+     *
+     * @return The attribute count is returned.
+     */
+    public int getNumAttributes()
+    { return m_attributes.length; }
+
+    /**
+     * Retrieve an attribute.
+     *
+     * @param index The attribute index, which is also its bound attribute location.
+     *
+     * @return The attribute is returned.
+     */
+    public Attribute getAttribute(int index)
+    { return m_attributes[index]; }
+
+    /**
+     * Find an attribute by name.
+     *
+     * @param name The shader attribute name.
+     *
+     * @return The attribute index is returned, or -1 if it is not part of the layout.
+     */
+    public int indexOf(String name)
+    {
+        for (int i = 0; i < m_attributes.length; i++)
+            if (m_attributes[i].m_name.equals(name)) return i;
+        return -1;
+    }
+
+    /**
+     * Retrieve the attribute names in location order, suitable for binding
+     * with <code>glBindAttribLocation</code>.
+     *
+     * @return An array of names is returned.
+     */
+    public String[] getAttributeNames()
+    {
+        String[] names = new String[m_attributes.length];
+        for (int i = 0; i < m_attributes.length; i++)
+            names[i] = m_attributes[i].m_name;
+        return names;
+    }
+
+    /**
+     * Generate the vertex shader attribute declarations for this layout.
+     *
+     * @return GLSL source declaring one attribute per line is returned.
+     */
+    public String getShaderDeclarations()
+    {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < m_attributes.length; i++)
+        {
+            int size = m_attributes[i].m_size;
+            source.append("attribute ")
+                  .append((size == 1) ? "float" : ("vec" + ((size == 3) ? 4 : size)))
+                  .append(' ')
+                  .append(m_attributes[i].m_name)
+                  .append(";\n");
+        }
+        return source.toString();
+    }
+
+    /**
+     * Point each attribute of the layout at interleaved vertex data and enable it.
+     *
+     * @param gl The GL backend.
+     * @param locations The attribute location of each layout attribute in the current program.
+     * @param data The interleaved vertex data. Its position is modified.
+     */
+    public void enableAttributes(IGl gl, int[] locations, ByteBuffer data)
+    {
+        for (int i = 0; i < m_attributes.length; i++)
+        {
+            if (locations[i] < 0) continue;
+            Attribute attribute = m_attributes[i];
+            data.position(attribute.m_offset);
+            gl.glVertexAttribPointer(locations[i], attribute.m_size, attribute.getGlType(),
+                attribute.isNormalized(), m_stride, data);
+            gl.glEnableVertexAttribArray(locations[i]);
+        }
+        data.position(0);
+    }
+
+    /**
+     * Disable each attribute of the layout.
+     *
+     * @param gl The GL backend.
+     * @param locations The attribute location of each layout attribute in the current program.
+     */
+    public void disableAttributes(IGl gl, int[] locations)
+    {
+        for (int i = 0; i < m_attributes.length; i++)
+            if (locations[i] >= 0) gl.glDisableVertexAttribArray(locations[i]);
+    }
+
+    /**
+     * Describe the memory saved by this layout relative to another.
+     *
+     * @param baseline The layout being replaced.
+     * @param numVertices The number of vertices in the mesh.
+     *
+     * @return A human readable summary is returned.
+     */
+    public String describeSavings(VertexLayout baseline, int numVertices)
+    {
+        long before = (long) baseline.getStride() * numVertices;
+        long after = (long) m_stride * numVertices;
+        long percent = (before > 0) ? ((100L * (before - after)) / before) : 0L;
+        return numVertices + " vertices: " + after + " bytes (" + m_stride + " per vertex), was "
+            + before + " bytes (" + baseline.getStride() + " per vertex); "
+            + percent + "% less memory and vertex fetch bandwidth per draw.";
+    }
+
+    /**
+     * Convert a 32-bit float to the bits of the nearest 16-bit half float.
+     *
+     * @param value The value to convert.
+     *
+     * @return The half float bits are returned in the low 16 bits.
+     */
+    public static short floatToHalf(float value)
+    {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x007FFFFF;
+
+        if (exponent >= 0x1F)
+        {
+            // Overflow, infinity or NaN.
+            boolean nan = (((bits >>> 23) & 0xFF) == 0xFF) && (mantissa != 0);
+            return (short) (sign | 0x7C00 | (nan ? 0x200 : 0));
+        }
+        if (exponent <= 0)
+        {
+            // Subnormal or zero.
+            if (exponent < -10) return (short) sign;
+            mantissa |= 0x00800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            if (((mantissa >> (shift - 1)) & 1) != 0) half++;
+            return (short) (sign | half);
+        }
+
+        int half = sign | (exponent << 10) | (mantissa >> 13);
+        // Round to nearest; a carry into the exponent is the correct result.
+        if ((mantissa & 0x00001000) != 0) half++;
+        return (short) half;
+    }
+
+    /**
+     * Convert the bits of a 16-bit half float to a 32-bit float.
+     *
+     * @param half The half float bits.
+     *
+     * @return The value is returned.
+     */
+    public static float halfToFloat(short half)
+    {
+        int h = half & 0xFFFF;
+        int sign = (h & 0x8000) << 16;
+        int exponent = (h >>> 10) & 0x1F;
+        int mantissa = h & 0x3FF;
+
+        if (exponent == 0)
+        {
+            if (mantissa == 0) return Float.intBitsToFloat(sign);
+            float value = mantissa / 16777216.0f;   // 2^-24
+            return (sign != 0) ? -value : value;
+        }
+        if (exponent == 0x1F)
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,382 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.playprint;
+
+// Import standard Java classes.
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+// Import Android classes.
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+
+/**
+ * A binary Digital Playprint holding groups of Actors.
+ * <p>
+ * A group is a run of Actors of the same type, bound to Roles of the same
+ * type, that share a set of properties. Their property values are packed into
+ * a single block of floats, one fixed size record per Actor, so a group can be
+ * turned into Actors in one pass over the block. The file is big endian:
+ * </p>
+ * <pre>
+ *   0  int    magic ('MLPP')
+ *   4  int    format version
+ *   8  int    number of groups
+ *  12  int    string table offset
+ *  16  int    string table size
+ *  20  int[3] reserved
+ *  32         group table, 32 bytes per group:
+ *               0  int  name offset in the string table
+ *               4  int  name length, in bytes (UTF-8)
+ *               8  int  Actor type
+ *              12  int  Role type
+ *              16  int  property mask
+ *              20  int  number of Actors
+ *              24  int  property block offset (aligned to 16 bytes)
+ *              28  int  reserved
+ *             property blocks and the string table
+ * </pre>
+ * <p>
+ * Each record holds the properties selected by the group's mask, in
+ * <code>PROPERTY_</code> bit order, as big endian floats.
+ * </p>
+ *
+ * @see PlayprintWriter
+ * @see PlayprintLoader
+ */
+public class Playprint
+{
+    /** The file format magic number, "MLPP". */
+    public static final int MAGIC = 0x4D4C5050;
+
+    /** The current file format version. */
+    public static final int VERSION = 1;
+
+    /** The Actor or Role type of a <code>CubeActor</code> and its <code>CubeRole</code>. */
+    public static final int TYPE_CUBE = 1;
+
+    /** The "position" property: x, y, z. */
+    public static final int PROPERTY_POSITION = 0x1;
+    /** The "orientation" property: angle, x, y, z. */
+    public static final int PROPERTY_ORIENTATION = 0x2;
+    /** The "scale" property: x, y, z. */
+    public static final int PROPERTY_SCALE = 0x4;
+    /** The "color" property: r, g, b, a. */
+    public static final int PROPERTY_COLOR = 0x8;
+
+    /** Every property of a <code>CubeActor</code>. */
+    public static final int PROPERTIES_CUBE =
+        PROPERTY_POSITION | PROPERTY_ORIENTATION | PROPERTY_SCALE | PROPERTY_COLOR;
+
+    // The number of floats in each property, in bit order.
+    private static final int[] PROPERTY_SIZES = { 3, 4, 3, 4 };
+
+    // The size of the header.
+    static final int HEADER_SIZE = 32;
+
+    // The size of a group table entry.
+    static final int GROUP_SIZE = 32;
+
+    // The playprint.
+    private final ByteBuffer m_data;
+
+    // The number of groups.
+    private final int m_numGroups;
+
+    /**
+     * Construct a playprint from its contents.
+     *
+     * @param data The contents of a playprint file, from position 0 to its limit.
+     *
+     * @throws IOException This exception is thrown if the contents are not a valid playprint.
+     */
+    public Playprint(ByteBuffer data)
+        throws IOException
+    {
+        super();
+
+        m_data = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        m_data.position(0);
+        final int size = m_data.limit();
+        if ((size < HEADER_SIZE) || (m_data.getInt(0) != MAGIC))
+            throw new IOException("Playprint: Not a playprint.");
+        if (m_data.getInt(4) != VERSION)
+            throw new IOException("Playprint: Unsupported version " + m_data.getInt(4) + ".");
+
+        m_numGroups = m_data.getInt(8);
+        final int stringOffset = m_data.getInt(12);
+        final int stringSize = m_data.getInt(16);
+        if ((m_numGroups < 0) || (HEADER_SIZE + ((long) m_numGroups * GROUP_SIZE) > size)
+            || (stringOffset < 0) || (stringSize < 0) || ((long) stringOffset + stringSize > size))
+            throw new IOException("Playprint: Corrupt header.");
+
+        // Validate the group table, so that the accessors need no checks.
+        for (int group = 0; group < m_numGroups; group++)
+        {
+            final int entry = HEADER_SIZE + (group * GROUP_SIZE);
+            final int nameOffset = m_data.getInt(entry);
+            final int nameLength = m_data.getInt(entry + 4);
+            final int properties = m_data.getInt(entry + 16);
+            final int numActors = m_data.getInt(entry + 20);
+            final int offset = m_data.getInt(entry + 24);
+            if ((nameOffset < 0) || (nameLength < 0) || ((long) nameOffset + nameLength > stringSize)
+                || ((properties & ~PROPERTIES_CUBE) != 0) || (numActors < 0) || (offset < 0)
+                || ((offset & 3) != 0)
+                || ((long) offset + ((long) numActors * getRecordSize(properties) * 4) > size))
+                throw new IOException("Playprint: Corrupt group " + group + ".");
+        }
+    }
+
+    /**
+     * Map a playprint file into memory.
+     *
+     * @param file The file to map.
+     *
+     * @return The playprint is returned.
+     *
+     * @throws IOException This exception is thrown if the file cannot be read or
+     * is not a valid playprint.
+     */
+    public static Playprint map(File file)
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = in.getChannel();
+            // The mapping remains valid after the channel is closed.
+            return new Playprint(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Map a playprint stored within a larger file, such as an uncompressed
+     * resource within an application package.
+     *
+     * @param fd The file holding the playprint. It is not closed.
+     * @param offset The offset of the playprint within the file.
+     * @param length The length of the playprint.
+     *
+     * @return The playprint is returned.
+     *
+     * @throws IOException This exception is thrown if the file cannot be read or
+     * is not a valid playprint.
+     */
+    public static Playprint map(FileDescriptor fd, long offset, long length)
+        throws IOException
+    {
+        // Closing the stream would close the caller's descriptor, so it is left open.
+        FileChannel channel = new FileInputStream(fd).getChannel();
+        return new Playprint(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    /**
+     * Open a playprint stored as a raw resource. The resource is mapped in place
+     * when it is stored uncompressed in the application package; otherwise it
+     * is read into memory.
+     *
+     * @param resources The title resources.
+     * @param id The raw resource identifier.
+     *
+     * @return The playprint is returned.
+     *
+     * @throws IOException This exception is thrown if the resource cannot be read
+     * or is not a valid playprint.
+     */
+    public static Playprint open(Resources resources, int id)
+        throws IOException
+    {
+        AssetFileDescriptor afd = null;
+        try
+        {
+            afd = resources.openRawResourceFd(id);
+        } catch (RuntimeException ex)
+        {
+            // The resource is compressed and has no file descriptor.
+        }
+
+        if (afd != null)
+        {
+            try
+            {
+                return map(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            } finally
+            {
+                afd.close();
+            }
+        }
+
+        InputStream in = resources.openRawResource(id);
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+            byte[] buffer = new byte[16 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                out.write(buffer, 0, n);
+            byte[] bytes = out.toByteArray();
+            ByteBuffer data = ByteBuffer.allocateDirect(bytes.length);
+            data.put(bytes).flip();
+            return new Playprint(data);
+        } finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Compute the number of floats in each record of a group.
+     *
+     * @param properties The group's property mask.
+     *
+     * @return The number of floats is returned.
+     */
+    public static int getRecordSize(int properties)
+    {
+        int size = 0;
+        for (int bit = 0; bit < PROPERTY_SIZES.length; bit++)
+        {
+            if ((properties & (1 << bit)) != 0)
+                size += PROPERTY_SIZES[bit];
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of groups.
+     *
+     * @return The number of groups is returned.
+     */
+    public int getNumGroups()
+    {
+        return m_numGroups;
+    }
+
+    // Get a field of a group table entry.
+    private int getGroupField(int group, int field)
+    {
+        if ((group < 0) || (group >= m_numGroups))
+            throw new IndexOutOfBoundsException("Playprint: Invalid group " + group + ".");
+        return m_data.getInt(HEADER_SIZE + (group * GROUP_SIZE) + field);
+    }
+
+    /**
+     * Get the name of a group.
+     *
+     * @param group The index of the group.
+     *
+     * @return The name is returned.
+     */
+    public String getGroupName(int group)
+    {
+        final int offset = m_data.getInt(12) + getGroupField(group, 0);
+        final int length = getGroupField(group, 4);
+        byte[] name = new byte[length];
+        ByteBuffer view = m_data.duplicate();
+        view.position(offset);
+        view.get(name);
+        try
+        {
+            return new String(name, "UTF-8");
+        } catch (java.io.UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Find a group by name.
+     *
+     * @param name The name of the group.
+     *
+     * @return The index of the group is returned, or -1 if there is no such group.
+     */
+    public int findGroup(String name)
+    {
+        for (int group = 0; group < m_numGroups; group++)
+        {
+            if (getGroupName(group).equals(name))
+                return group;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the type of a group's Actors.
+     *
+     * @param group The index of the group.
+     *
+     * @return One of the <code>TYPE_</code> constants is returned.
+     */
+    public int getActorType(int group)
+    {
+        return getGroupField(group, 8);
+    }
+
+    /**
+     * Get the type of a group's Roles.
+     *
+     * @param group The index of the group.
+     *
+     * @return One of the <code>TYPE_</code> constants is returned.
+     */
+    public int getRoleType(int group)
+    {
+        return getGroupField(group, 12);
+    }
+
+    /**
+     * Get the properties stored for a group's Actors.
+     *
+     * @param group The index of the group.
+     *
+     * @return A mask of <code>PROPERTY_</code> bits is returned.
+     */
+    public int getProperties(int group)
+    {
+        return getGroupField(group, 16);
+    }
+
+    /**
+     * Get the number of Actors in a group.
+     *
+     * @param group The index of the group.
+     *
+     * @return The number of Actors is returned.
+     */
+    public int getNumActors(int group)
+    {
+        return getGroupField(group, 20);
+    }
+
+    /**
+     * Get the property block of a group.
+     *
+     * @param group The index of the group.
+     *
+     * @return A view of the group's records is returned, <code>getNumActors()</code>
+     * records of <code>getRecordSize(getProperties())</code> floats each.
+     */
+    public FloatBuffer getPropertyBlock(int group)
+    {
+        final int offset = getGroupField(group, 24);
+        final int length = getNumActors(group) * getRecordSize(getProperties(group)) * 4;
+        ByteBuffer view = m_data.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice().order(ByteOrder.BIG_ENDIAN).asFloatBuffer();
+    }
+}
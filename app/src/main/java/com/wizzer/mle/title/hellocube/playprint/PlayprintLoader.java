@@ -0,0 +1,223 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.playprint;
+
+// Import standard Java classes.
+import java.nio.FloatBuffer;
+
+// Import Android classes.
+import android.util.Log;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+
+import com.wizzer.mle.parts.sets.Mle3dSet;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+import com.wizzer.mle.title.hellocube.props.ColorProperty;
+import com.wizzer.mle.title.hellocube.props.PositionProperty;
+import com.wizzer.mle.title.hellocube.props.RotationProperty;
+import com.wizzer.mle.title.hellocube.props.ScaleProperty;
+import com.wizzer.mle.title.hellocube.roles.CubeRole;
+
+/**
+ * Creates the Actors and Roles of playprint groups.
+ * <p>
+ * A group's property block is read with one bulk copy and each Actor's
+ * properties are set directly from its record, instead of being serialized
+ * into a <code>MleProp</code> stream per property and parsed back by
+ * <code>setProperty()</code>.
+ * </p>
+ *
+ * @see Playprint
+ */
+public class PlayprintLoader
+{
+    private static final String TAG = "titles-hellocube";
+
+    // Hide default constructor.
+    private PlayprintLoader() {}
+
+    /**
+     * Create the Actors of a group and set their properties. The Actors are
+     * not bound to Roles or initialized.
+     *
+     * @param playprint The playprint.
+     * @param group The index of the group.
+     *
+     * @return The Actors are returned, in record order.
+     *
+     * @throws MleRuntimeException This exception is thrown if the group's Actor
+     * type is not supported.
+     */
+    public static CubeActor[] createActors(Playprint playprint, int group)
+        throws MleRuntimeException
+    {
+        if (playprint.getActorType(group) != Playprint.TYPE_CUBE)
+            throw new MleRuntimeException("PlayprintLoader: Unsupported Actor type "
+                + playprint.getActorType(group) + ".");
+
+        final int properties = playprint.getProperties(group);
+        final int numActors = playprint.getNumActors(group);
+        final int recordSize = Playprint.getRecordSize(properties);
+
+        float[] records = new float[numActors * recordSize];
+        FloatBuffer block = playprint.getPropertyBlock(group);
+        block.get(records);
+
+        // The properties copy their values, so the scratch arrays are reused.
+        float[] vec3 = new float[3];
+        float[] vec4 = new float[4];
+
+        CubeActor[] actors = new CubeActor[numActors];
+        int offset = 0;
+        for (int i = 0; i < numActors; i++)
+        {
+            CubeActor actor = new CubeActor();
+            if ((properties & Playprint.PROPERTY_POSITION) != 0)
+            {
+                System.arraycopy(records, offset, vec3, 0, 3);
+                offset += 3;
+                actor.position = new PositionProperty();
+                actor.position.setProperty(vec3);
+            }
+            if ((properties & Playprint.PROPERTY_ORIENTATION) != 0)
+            {
+                System.arraycopy(records, offset, vec4, 0, 4);
+                offset += 4;
+                actor.orientation = new RotationProperty();
+                actor.orientation.setProperty(vec4);
+            }
+            if ((properties & Playprint.PROPERTY_SCALE) != 0)
+            {
+                System.arraycopy(records, offset, vec3, 0, 3);
+                offset += 3;
+                actor.scale = new ScaleProperty();
+                actor.scale.setProperty(vec3);
+            }
+            if ((properties & Playprint.PROPERTY_COLOR) != 0)
+            {
+                System.arraycopy(records, offset, vec4, 0, 4);
+                offset += 4;
+                actor.color = new ColorProperty();
+                actor.color.setProperty(vec4);
+            }
+            actors[i] = actor;
+        }
+        return actors;
+    }
+
+    /**
+     * Create the Actors of every group and set their properties. The Actors are
+     * not bound to Roles or initialized.
+     *
+     * @param playprint The playprint.
+     *
+     * @return The Actors are returned, group by group in record order.
+     *
+     * @throws MleRuntimeException This exception is thrown if a group's types
+     * are not supported.
+     */
+    public static CubeActor[] createActors(Playprint playprint)
+        throws MleRuntimeException
+    {
+        int numActors = 0;
+        for (int group = 0; group < playprint.getNumGroups(); group++)
+        {
+            if (playprint.getRoleType(group) != Playprint.TYPE_CUBE)
+                throw new MleRuntimeException("PlayprintLoader: Unsupported Role type "
+                    + playprint.getRoleType(group) + ".");
+            numActors += playprint.getNumActors(group);
+        }
+
+        CubeActor[] actors = new CubeActor[numActors];
+        int offset = 0;
+        for (int group = 0; group < playprint.getNumGroups(); group++)
+        {
+            CubeActor[] groupActors = createActors(playprint, group);
+            System.arraycopy(groupActors, 0, actors, offset, groupActors.length);
+            offset += groupActors.length;
+        }
+        return actors;
+    }
+
+    /**
+     * Create the Actors of a group together with their Roles, attach the Roles
+     * to a Set and initialize the Actors.
+     *
+     * @param playprint The playprint.
+     * @param group The index of the group.
+     * @param set The Set to attach the Roles to.
+     *
+     * @return The Actors are returned, in record order.
+     *
+     * @throws MleRuntimeException This exception is thrown if the group's types
+     * are not supported or an Actor or Role cannot be initialized.
+     */
+    public static CubeActor[] load(Playprint playprint, int group, Mle3dSet set)
+        throws MleRuntimeException
+    {
+        if (playprint.getRoleType(group) != Playprint.TYPE_CUBE)
+            throw new MleRuntimeException("PlayprintLoader: Unsupported Role type "
+                + playprint.getRoleType(group) + ".");
+
+        long start = System.nanoTime();
+        CubeActor[] actors = createActors(playprint, group);
+        long created = System.nanoTime();
+        bind(actors, set);
+
+        Log.i(TAG, "Loaded " + actors.length + " Actors from playprint group "
+            + playprint.getGroupName(group) + ": created in " + ((created - start) / 1000L)
+            + " us, bound in " + ((System.nanoTime() - created) / 1000L) + " us.");
+        return actors;
+    }
+
+    /**
+     * Create a Role for each Actor created by <code>createActors()</code>,
+     * attach the Roles to a Set and initialize the Actors. Creating the Actors
+     * does not depend on the Set, so it may be done ahead of time on another
+     * thread; binding must be done on the thread that owns the Set.
+     *
+     * @param actors The Actors.
+     * @param set The Set to attach the Roles to.
+     *
+     * @throws MleRuntimeException This exception is thrown if an Actor or Role
+     * cannot be initialized.
+     */
+    public static void bind(CubeActor[] actors, Mle3dSet set)
+        throws MleRuntimeException
+    {
+        for (CubeActor actor : actors)
+        {
+            // The Role constructor binds the Role to its Actor.
+            CubeRole role = new CubeRole(actor);
+            role.init();
+            set.attachRoles(null, role);
+
+            // Initialize the Actor after it has been bound to the Role.
+            actor.init();
+        }
+    }
+
+    /**
+     * Load every group of a playprint.
+     *
+     * @param playprint The playprint.
+     * @param set The Set to attach the Roles to.
+     *
+     * @return The number of Actors loaded is returned.
+     *
+     * @throws MleRuntimeException This exception is thrown if a group cannot be loaded.
+     */
+    public static int loadAll(Playprint playprint, Mle3dSet set)
+        throws MleRuntimeException
+    {
+        int numActors = 0;
+        for (int group = 0; group < playprint.getNumGroups(); group++)
+            numActors += load(playprint, group, set).length;
+        return numActors;
+    }
+}
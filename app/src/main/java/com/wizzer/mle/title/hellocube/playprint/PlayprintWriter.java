@@ -0,0 +1,175 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.playprint;
+
+// Import standard Java classes.
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/**
+ * Builds binary Digital Playprints.
+ * <p>
+ * Groups are added with their property values packed in record order; the
+ * writer lays out the group table, the 16-byte aligned property blocks and the
+ * string table described by <code>Playprint</code>.
+ * </p>
+ *
+ * @see Playprint
+ */
+public class PlayprintWriter
+{
+    // A group waiting to be written.
+    private static class Group
+    {
+        byte[] m_name;
+        int m_actorType;
+        int m_roleType;
+        int m_properties;
+        int m_numActors;
+        float[] m_values;
+    }
+
+    // The groups, in the order they were added.
+    private final ArrayList<Group> m_groups = new ArrayList<Group>();
+
+    /**
+     * The default constructor.
+     */
+    public PlayprintWriter()
+    {
+        super();
+    }
+
+    /**
+     * Add a group of Actors.
+     *
+     * @param name The name of the group.
+     * @param actorType The type of the Actors, one of the <code>Playprint.TYPE_</code> constants.
+     * @param roleType The type of the Roles, one of the <code>Playprint.TYPE_</code> constants.
+     * @param properties The properties stored for each Actor, a mask of
+     * <code>Playprint.PROPERTY_</code> bits.
+     * @param values The property values, <code>Playprint.getRecordSize(properties)</code>
+     * floats per Actor. The array is referenced, not copied.
+     * @param numActors The number of Actors.
+     */
+    public void addGroup(String name, int actorType, int roleType, int properties, float[] values, int numActors)
+    {
+        if ((name == null) || (values == null) || (numActors < 0)
+            || ((properties & ~Playprint.PROPERTIES_CUBE) != 0)
+            || (values.length < (numActors * Playprint.getRecordSize(properties))))
+            throw new IllegalArgumentException("PlayprintWriter: Invalid input arguments.");
+
+        Group group = new Group();
+        try
+        {
+            group.m_name = name.getBytes("UTF-8");
+        } catch (java.io.UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        group.m_actorType = actorType;
+        group.m_roleType = roleType;
+        group.m_properties = properties;
+        group.m_numActors = numActors;
+        group.m_values = values;
+        m_groups.add(group);
+    }
+
+    // Round up to a multiple of 16.
+    private static int align(int offset)
+    {
+        return (offset + 15) & ~15;
+    }
+
+    /**
+     * Lay out the playprint in memory.
+     *
+     * @return A buffer holding the playprint, from position 0 to its limit, is returned.
+     */
+    public ByteBuffer toByteBuffer()
+    {
+        final int numGroups = m_groups.size();
+        int offset = align(Playprint.HEADER_SIZE + (numGroups * Playprint.GROUP_SIZE));
+        int[] blockOffsets = new int[numGroups];
+        int[] nameOffsets = new int[numGroups];
+        int stringSize = 0;
+        for (int i = 0; i < numGroups; i++)
+        {
+            Group group = m_groups.get(i);
+            blockOffsets[i] = offset;
+            offset = align(offset + (group.m_numActors * Playprint.getRecordSize(group.m_properties) * 4));
+            nameOffsets[i] = stringSize;
+            stringSize += group.m_name.length;
+        }
+        final int stringOffset = offset;
+
+        ByteBuffer data = ByteBuffer.allocate(stringOffset + stringSize).order(ByteOrder.BIG_ENDIAN);
+        data.putInt(0, Playprint.MAGIC);
+        data.putInt(4, Playprint.VERSION);
+        data.putInt(8, numGroups);
+        data.putInt(12, stringOffset);
+        data.putInt(16, stringSize);
+
+        for (int i = 0; i < numGroups; i++)
+        {
+            Group group = m_groups.get(i);
+            final int entry = Playprint.HEADER_SIZE + (i * Playprint.GROUP_SIZE);
+            data.putInt(entry, nameOffsets[i]);
+            data.putInt(entry + 4, group.m_name.length);
+            data.putInt(entry + 8, group.m_actorType);
+            data.putInt(entry + 12, group.m_roleType);
+            data.putInt(entry + 16, group.m_properties);
+            data.putInt(entry + 20, group.m_numActors);
+            data.putInt(entry + 24, blockOffsets[i]);
+
+            data.position(blockOffsets[i]);
+            data.asFloatBuffer().put(group.m_values, 0,
+                group.m_numActors * Playprint.getRecordSize(group.m_properties));
+
+            data.position(stringOffset + nameOffsets[i]);
+            data.put(group.m_name);
+        }
+
+        data.position(0);
+        return data;
+    }
+
+    /**
+     * Write the playprint to a file. The playprint is written to a temporary
+     * file that then replaces the target, so that a reader never maps a partly
+     * written file.
+     *
+     * @param file The file to write.
+     *
+     * @throws IOException This exception is thrown if the file cannot be written.
+     */
+    public void write(File file)
+        throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if ((dir != null) && ! dir.isDirectory() && ! dir.mkdirs())
+            throw new IOException("PlayprintWriter: Unable to create " + dir + ".");
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try
+        {
+            out.getChannel().write(toByteBuffer());
+        } finally
+        {
+            out.close();
+        }
+
+        if (! temp.renameTo(file))
+        {
+            temp.delete();
+            throw new IOException("PlayprintWriter: Unable to replace " + file + ".");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.quality;
+
+/**
+ * Notified when a <code>QualityGovernor</code> changes the quality level.
+ */
+public interface IQualityListener
+{
+    /**
+     * Called on the thread that reports the frames, usually the rendering
+     * thread, after the level has changed.
+     *
+     * @param governor The governor.
+     * @param decision The decision that changed the level.
+     */
+    public void onQualityChanged(QualityGovernor governor, QualityGovernor.Decision decision);
+}
@@ -0,0 +1,494 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.quality;
+
+// Import standard Java classes.
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * Trades rendering quality for frame rate.
+ * <p>
+ * The Set reports each frame to <code>onFrame()</code>. The governor averages
+ * the frame interval and the time spent rendering over windows of
+ * <code>WINDOW_FRAMES</code> frames and moves between quality levels, each a
+ * render scale and a shader tier: level 0 renders at full resolution with the
+ * full shaders, and each higher level is cheaper.
+ * </p>
+ * <p>
+ * The levels change with hysteresis, so that they do not flicker around a
+ * threshold. A window whose average interval misses the target frame time by
+ * more than <code>DOWNGRADE_RATIO</code> lowers the quality at once. Raising
+ * it takes <code>UPGRADE_WINDOWS</code> windows in a row whose rendering used
+ * less than <code>UPGRADE_RATIO</code> of the target, since the frame interval
+ * cannot show headroom once frames are paced by the display. An upgrade that
+ * is followed by a downgrade within <code>UPGRADE_WINDOWS</code> windows has
+ * failed, and doubles the windows the next upgrade waits for, up to
+ * <code>MAX_UPGRADE_WINDOWS</code>. After each change, the frames already
+ * averaged are discarded.
+ * </p>
+ * <p>
+ * Each change is kept as a <code>Decision</code>, the latest
+ * <code>MAX_DECISIONS</code> of which can be retrieved, and the level and
+ * averages are recorded as <code>FlightRecorder</code> counters.
+ * </p>
+ */
+public class QualityGovernor
+{
+    /** The full shaders. */
+    public static final int TIER_FULL = 0;
+    /** The cheap shaders. */
+    public static final int TIER_CHEAP = 1;
+    /** The number of shader tiers. */
+    public static final int NUM_TIERS = 2;
+
+    /** The render scale of each level, as a fraction of the view's width and height. */
+    public static final float[] RENDER_SCALES = { 1.0f, 0.85f, 0.7f, 0.5f };
+    /** The shader tier of each level. */
+    public static final int[] SHADER_TIERS = { TIER_FULL, TIER_FULL, TIER_CHEAP, TIER_CHEAP };
+    /** The number of levels. */
+    public static final int NUM_LEVELS = RENDER_SCALES.length;
+
+    /** The default target frame time, in nanoseconds (60 Hz). */
+    public static final long DEFAULT_TARGET = 16666667L;
+
+    /** The number of frames averaged for each decision. */
+    public static final int WINDOW_FRAMES = 30;
+    /** The fraction of the target an average interval must exceed to lower the quality. */
+    public static final float DOWNGRADE_RATIO = 1.15f;
+    /** The fraction of the target the average render time must be below to raise the quality. */
+    public static final float UPGRADE_RATIO = 0.5f;
+    /** The number of windows in a row with headroom needed to raise the quality. */
+    public static final int UPGRADE_WINDOWS = 4;
+    /** The most windows an upgrade waits for after failed upgrades. */
+    public static final int MAX_UPGRADE_WINDOWS = 64;
+    /** The number of decisions kept. */
+    public static final int MAX_DECISIONS = 32;
+
+    // An interval longer than this is a pause, not a slow frame.
+    private static final long PAUSE_INTERVAL = 250000000L;
+
+    // The names of the counters recorded for each decision.
+    private static final int TRACE_LEVEL = FlightRecorder.register("Quality level");
+    private static final int TRACE_INTERVAL = FlightRecorder.register("Quality frame interval (us)");
+    private static final int TRACE_RENDER = FlightRecorder.register("Quality render time (us)");
+
+    /**
+     * A change of quality level.
+     */
+    public static class Decision
+    {
+        private final long m_frame;
+        private final int m_from;
+        private final int m_to;
+        private final long m_averageInterval;
+        private final long m_averageRenderTime;
+
+        Decision(long frame, int from, int to, long averageInterval, long averageRenderTime)
+        {
+            m_frame = frame;
+            m_from = from;
+            m_to = to;
+            m_averageInterval = averageInterval;
+            m_averageRenderTime = averageRenderTime;
+        }
+
+        /**
+         * Get the number of the frame that completed the window.
+         *
+         * @return The frame number, counted from the governor's creation, is returned.
+         */
+        public long getFrame()
+        { return m_frame; }
+
+        /**
+         * Get the level before the change.
+         *
+         * @return The level is returned.
+         */
+        public int getFrom()
+        { return m_from; }
+
+        /**
+         * Get the level after the change.
+         *
+         * @return The level is returned.
+         */
+        public int getTo()
+        { return m_to; }
+
+        /**
+         * Get the average frame interval of the window that led to the change.
+         *
+         * @return The interval in nanoseconds is returned.
+         */
+        public long getAverageInterval()
+        { return m_averageInterval; }
+
+        /**
+         * Get the average render time of the window that led to the change.
+         *
+         * @return The time in nanoseconds is returned.
+         */
+        public long getAverageRenderTime()
+        { return m_averageRenderTime; }
+
+        @Override
+        public String toString()
+        {
+            return "frame " + m_frame + ": level " + m_from + " -> " + m_to + " (interval "
+                + (m_averageInterval / 1000L) + " us, render " + (m_averageRenderTime / 1000L) + " us)";
+        }
+    }
+
+    // The singleton instance.
+    private static QualityGovernor g_theGovernor = null;
+
+    // The target frame time, in nanoseconds.
+    private final long m_target;
+
+    // Cleared to hold the current level.
+    private volatile boolean m_enabled = true;
+
+    // The current level.
+    private volatile int m_level = 0;
+
+    // The start of the last frame; Long.MIN_VALUE before the first.
+    private long m_lastStart = Long.MIN_VALUE;
+
+    // The current window.
+    private long m_intervalTotal = 0;
+    private int m_numIntervals = 0;
+    private long m_renderTimeTotal = 0;
+    private int m_numFrames = 0;
+
+    // The windows with headroom in a row, the windows an upgrade waits for, and
+    // the windows since the last upgrade; -1 once that upgrade has held.
+    private int m_goodWindows = 0;
+    private int m_upgradeWindows = UPGRADE_WINDOWS;
+    private int m_windowsSinceUpgrade = -1;
+
+    // The metrics.
+    private long m_frames = 0;
+    private long m_upgrades = 0;
+    private long m_downgrades = 0;
+    private long m_failedUpgrades = 0;
+    private final long[] m_framesAtLevel = new long[NUM_LEVELS];
+    private long m_lastAverageInterval = 0;
+    private long m_lastAverageRenderTime = 0;
+
+    // The latest decisions, in a ring.
+    private final Decision[] m_decisions = new Decision[MAX_DECISIONS];
+    private int m_numDecisions = 0;
+
+    // The listeners.
+    private final CopyOnWriteArrayList<IQualityListener> m_listeners = new CopyOnWriteArrayList<IQualityListener>();
+
+    /**
+     * A constructor that initializes the target frame time.
+     *
+     * @param target The target frame time, in nanoseconds; it must be positive.
+     */
+    public QualityGovernor(long target)
+    {
+        super();
+        if (target <= 0)
+            throw new IllegalArgumentException("QualityGovernor: Invalid target " + target + ".");
+        m_target = target;
+    }
+
+    /**
+     * Get the title's governor, which targets <code>DEFAULT_TARGET</code>.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized QualityGovernor getInstance()
+    {
+        if (g_theGovernor == null)
+            g_theGovernor = new QualityGovernor(DEFAULT_TARGET);
+        return g_theGovernor;
+    }
+
+    /**
+     * Enable or disable the governor. While it is disabled, frames are ignored
+     * and the level does not change.
+     *
+     * @param enabled <b>true</b> to enable the governor.
+     */
+    public void setEnabled(boolean enabled)
+    { m_enabled = enabled; }
+
+    /**
+     * Determine whether the governor is enabled.
+     *
+     * @return <b>true</b> is returned if it is enabled, which is the default.
+     */
+    public boolean isEnabled()
+    { return m_enabled; }
+
+    /**
+     * Add a listener to be told of each change of level.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(IQualityListener listener)
+    { m_listeners.add(listener); }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener The listener.
+     */
+    public void removeListener(IQualityListener listener)
+    { m_listeners.remove(listener); }
+
+    /**
+     * Forget the start of the last frame, so that the time since it is not
+     * counted as a frame interval. Called when rendering resumes after an idle
+     * period, however short.
+     */
+    public synchronized void skipInterval()
+    {
+        m_lastStart = Long.MIN_VALUE;
+    }
+
+    /**
+     * Called by the Set after each frame.
+     *
+     * @param start The System.nanoTime() value at which the frame started.
+     * @param renderTime The time spent rendering the frame, in nanoseconds.
+     */
+    public void onFrame(long start, long renderTime)
+    {
+        if (! m_enabled)
+            return;
+
+        Decision decision;
+        synchronized (this)
+        {
+            m_frames++;
+            m_framesAtLevel[m_level]++;
+            if (m_lastStart != Long.MIN_VALUE)
+            {
+                long interval = start - m_lastStart;
+                if (interval < PAUSE_INTERVAL)
+                {
+                    m_intervalTotal += interval;
+                    m_numIntervals++;
+                }
+            }
+            m_lastStart = start;
+            m_renderTimeTotal += renderTime;
+            m_numFrames++;
+            if (m_numFrames < WINDOW_FRAMES)
+                return;
+
+            decision = decide();
+        }
+
+        if (decision != null)
+        {
+            for (IQualityListener listener : m_listeners)
+                listener.onQualityChanged(this, decision);
+        }
+    }
+
+    // Close the current window, and change the level if it calls for it. The
+    // caller holds the lock.
+    private Decision decide()
+    {
+        long averageInterval = (m_numIntervals > 0) ? (m_intervalTotal / m_numIntervals) : 0;
+        long averageRenderTime = m_renderTimeTotal / m_numFrames;
+        m_lastAverageInterval = averageInterval;
+        m_lastAverageRenderTime = averageRenderTime;
+        m_intervalTotal = 0;
+        m_numIntervals = 0;
+        m_renderTimeTotal = 0;
+        m_numFrames = 0;
+        FlightRecorder.counter(TRACE_INTERVAL, averageInterval / 1000L);
+        FlightRecorder.counter(TRACE_RENDER, averageRenderTime / 1000L);
+
+        if (m_windowsSinceUpgrade >= 0)
+        {
+            m_windowsSinceUpgrade++;
+            if (m_windowsSinceUpgrade > UPGRADE_WINDOWS)
+            {
+                // The upgrade has held.
+                m_windowsSinceUpgrade = -1;
+                m_upgradeWindows = UPGRADE_WINDOWS;
+            }
+        }
+
+        int level = m_level;
+        if (averageInterval > (long) (m_target * DOWNGRADE_RATIO))
+        {
+            m_goodWindows = 0;
+            if (level == NUM_LEVELS - 1)
+                return null;
+            if (m_windowsSinceUpgrade >= 0)
+            {
+                m_failedUpgrades++;
+                m_upgradeWindows = Math.min(m_upgradeWindows * 2, MAX_UPGRADE_WINDOWS);
+                m_windowsSinceUpgrade = -1;
+            }
+            m_downgrades++;
+            return change(level + 1, averageInterval, averageRenderTime);
+        }
+
+        if ((level > 0) && (averageRenderTime < (long) (m_target * UPGRADE_RATIO)))
+        {
+            m_goodWindows++;
+            if (m_goodWindows < m_upgradeWindows)
+                return null;
+            m_goodWindows = 0;
+            m_windowsSinceUpgrade = 0;
+            m_upgrades++;
+            return change(level - 1, averageInterval, averageRenderTime);
+        }
+
+        m_goodWindows = 0;
+        return null;
+    }
+
+    // Change the level and record the decision. The caller holds the lock.
+    private Decision change(int level, long averageInterval, long averageRenderTime)
+    {
+        Decision decision = new Decision(m_frames, m_level, level, averageInterval, averageRenderTime);
+        m_decisions[m_numDecisions % MAX_DECISIONS] = decision;
+        m_numDecisions++;
+        m_level = level;
+        FlightRecorder.counter(TRACE_LEVEL, level);
+        return decision;
+    }
+
+    /**
+     * Get the current quality level.
+     *
+     * @return The level, from 0 for the best quality to <code>NUM_LEVELS - 1</code>, is returned.
+     */
+    public int getLevel()
+    { return m_level; }
+
+    /**
+     * Get the render scale of the current level.
+     *
+     * @return The fraction of the view's width and height to render is returned.
+     */
+    public float getRenderScale()
+    { return RENDER_SCALES[m_level]; }
+
+    /**
+     * Get the shader tier of the current level.
+     *
+     * @return <code>TIER_FULL</code> or <code>TIER_CHEAP</code> is returned.
+     */
+    public int getShaderTier()
+    { return SHADER_TIERS[m_level]; }
+
+    /**
+     * Get the target frame time.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getTarget()
+    { return m_target; }
+
+    /**
+     * Get the number of frames reported while enabled.
+     *
+     * @return The frame count is returned.
+     */
+    public synchronized long getFrames()
+    { return m_frames; }
+
+    /**
+     * Get the number of frames reported at a level.
+     *
+     * @param level The level.
+     *
+     * @return The frame count is returned.
+     */
+    public synchronized long getFramesAtLevel(int level)
+    { return m_framesAtLevel[level]; }
+
+    /**
+     * Get the number of times the quality was raised.
+     *
+     * @return The upgrade count is returned.
+     */
+    public synchronized long getUpgrades()
+    { return m_upgrades; }
+
+    /**
+     * Get the number of times the quality was lowered.
+     *
+     * @return The downgrade count is returned.
+     */
+    public synchronized long getDowngrades()
+    { return m_downgrades; }
+
+    /**
+     * Get the number of upgrades reversed before they held.
+     *
+     * @return The failed upgrade count is returned.
+     */
+    public synchronized long getFailedUpgrades()
+    { return m_failedUpgrades; }
+
+    /**
+     * Get the number of windows with headroom the next upgrade waits for.
+     *
+     * @return The window count is returned.
+     */
+    public synchronized int getUpgradeWindows()
+    { return m_upgradeWindows; }
+
+    /**
+     * Get the average frame interval of the last window.
+     *
+     * @return The interval in nanoseconds is returned, or 0 before the first window.
+     */
+    public synchronized long getAverageInterval()
+    { return m_lastAverageInterval; }
+
+    /**
+     * Get the average render time of the last window.
+     *
+     * @return The time in nanoseconds is returned, or 0 before the first window.
+     */
+    public synchronized long getAverageRenderTime()
+    { return m_lastAverageRenderTime; }
+
+    /**
+     * Get the latest decisions.
+     *
+     * @return The decisions, oldest first, are returned; at most <code>MAX_DECISIONS</code>.
+     */
+    public synchronized Decision[] getDecisions()
+    {
+        int count = Math.min(m_numDecisions, MAX_DECISIONS);
+        Decision[] decisions = new Decision[count];
+        for (int i = 0; i < count; i++)
+            decisions[i] = m_decisions[(m_numDecisions - count + i) % MAX_DECISIONS];
+        return decisions;
+    }
+
+    /**
+     * Summarize the governor's metrics.
+     *
+     * @return The summary is returned.
+     */
+    public synchronized String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        summary.append("level ").append(m_level).append(", ").append(m_downgrades).append(" down, ")
+            .append(m_upgrades).append(" up (").append(m_failedUpgrades).append(" failed); frames per level");
+        for (int i = 0; i < NUM_LEVELS; i++)
+            summary.append(' ').append(m_framesAtLevel[i]);
+        return summary.toString();
+    }
+}
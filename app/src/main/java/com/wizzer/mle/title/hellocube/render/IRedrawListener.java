@@ -0,0 +1,22 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.render;
+
+/**
+ * Notified when a <code>RedrawTracker</code> enters or leaves the idle state.
+ */
+public interface IRedrawListener
+{
+    /**
+     * Called with the tracker's lock held, on the rendering thread when the
+     * scene goes idle and on the thread that changed the scene when it wakes.
+     * The listener must not block.
+     *
+     * @param idle <b>true</b> when nothing has changed for
+     * <code>RedrawTracker.IDLE_FRAMES</code> frames; <b>false</b> when the scene
+     * changes again.
+     */
+    public void onIdleChanged(boolean idle);
+}
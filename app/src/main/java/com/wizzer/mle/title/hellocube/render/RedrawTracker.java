@@ -0,0 +1,256 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.render;
+
+// Import standard Java classes.
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks whether the scene has changed since it was last drawn, so that the
+ * title only redraws when it must.
+ * <p>
+ * Anything that changes what is drawn calls <code>markDirty()</code>: Roles
+ * when an Actor pushes a property, the Set when Roles are attached and
+ * detached or its camera moves, and the texture manager when a texture is ready
+ * to upload. The Set compares the camera on each frame; since no frame is
+ * drawn while idle, the main loop also has it compare on each tick, so a
+ * camera moved while idle is noticed within one idle tick period. Marking costs
+ * an atomic increment while the scene is awake. Input
+ * only wakes the main loop, through <code>wakeTick()</code>; a sensor streaming
+ * samples that nothing acts on does not keep the surface drawing.
+ * </p>
+ * <p>
+ * The Set reports each frame to <code>onFrame()</code>. Once
+ * <code>IDLE_FRAMES</code> frames in a row have been drawn without a change,
+ * the tracker goes idle and tells its listener, which switches the surface to
+ * render only on request; the main loop calls <code>awaitTick()</code>, which
+ * then waits up to the idle tick period instead of returning at once. The
+ * next <code>markDirty()</code> wakes both immediately.
+ * </p>
+ * <p>
+ * The frames that continuous rendering would have drawn while idle, at
+ * <code>FRAME_PERIOD</code>, are counted as skipped.
+ * </p>
+ */
+public class RedrawTracker
+{
+    /** The number of unchanged frames drawn before the tracker goes idle. */
+    public static final int IDLE_FRAMES = 2;
+
+    /** The period of the display, used to count the frames skipped while idle, in nanoseconds (60 Hz). */
+    public static final long FRAME_PERIOD = 16666667L;
+
+    // The singleton instance, created up front since Roles mark it on every push.
+    private static final RedrawTracker g_theTracker = new RedrawTracker();
+
+    // Incremented by each change to the scene.
+    private final AtomicInteger m_version = new AtomicInteger();
+
+    // Set while idle. Written with the lock held; read without it by markDirty().
+    private volatile boolean m_idle = false;
+
+    // The listener; null if none.
+    private IRedrawListener m_listener = null;
+
+    // The version drawn by the last frame, and the frames in a row drawn at it.
+    // Only the rendering thread uses these.
+    private int m_lastFrameVersion = -1;
+    private int m_quietFrames = 0;
+
+    // Set when the tracker goes idle, and cleared by the next frame.
+    private boolean m_resumed = false;
+
+    // The metrics.
+    private long m_redrawn = 0;
+    private long m_idlePeriods = 0;
+    private long m_idleTime = 0;
+    private long m_idleStart = 0;
+
+    // Hide default constructor; tests may subclass.
+    RedrawTracker()
+    {
+        super();
+    }
+
+    /**
+     * Get the tracker.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static RedrawTracker getInstance()
+    {
+        return g_theTracker;
+    }
+
+    // Get the current time, in nanoseconds.
+    long now()
+    { return System.nanoTime(); }
+
+    /**
+     * Set the listener told when the tracker goes idle and wakes.
+     *
+     * @param listener The listener, or <b>null</b> for none.
+     */
+    public synchronized void setListener(IRedrawListener listener)
+    {
+        m_listener = listener;
+    }
+
+    /**
+     * Note a change to the scene, waking the surface and the main loop if the
+     * tracker is idle. This may be called from any thread.
+     */
+    public void markDirty()
+    {
+        m_version.incrementAndGet();
+        if (m_idle)
+            wake();
+    }
+
+    /**
+     * Wake the main loop if it is waiting in <code>awaitTick()</code>, without
+     * marking the scene dirty. This is used when input arrives, so that it is
+     * dispatched at once; Actors that change the scene in response mark it
+     * through their Roles.
+     */
+    public void wakeTick()
+    {
+        if (m_idle)
+        {
+            synchronized (this)
+            {
+                notifyAll();
+            }
+        }
+    }
+
+    // Leave the idle state.
+    private synchronized void wake()
+    {
+        if (! m_idle)
+            return;
+        m_idle = false;
+        m_idleTime += now() - m_idleStart;
+        if (m_listener != null)
+            m_listener.onIdleChanged(false);
+        notifyAll();
+    }
+
+    /**
+     * Called by the Set at the start of each frame, from the rendering thread.
+     *
+     * @param start The System.nanoTime() value at which the frame started.
+     *
+     * @return <b>true</b> is returned if this is the first frame since the
+     * tracker went idle, so that the time since the previous frame is not
+     * taken for a slow frame.
+     */
+    public boolean onFrame(long start)
+    {
+        boolean resumed;
+        int version = m_version.get();
+        synchronized (this)
+        {
+            m_redrawn++;
+            resumed = m_resumed;
+            m_resumed = false;
+        }
+
+        if (version != m_lastFrameVersion)
+        {
+            m_lastFrameVersion = version;
+            m_quietFrames = 0;
+        } else if (++m_quietFrames >= IDLE_FRAMES)
+            enterIdle(version);
+        return resumed;
+    }
+
+    // Go idle, unless the scene has changed since the frame read its version.
+    private synchronized void enterIdle(int version)
+    {
+        if (m_idle)
+            return;
+        m_idle = true;
+        if (m_version.get() != version)
+        {
+            // A change raced with the frame; markDirty() may have seen m_idle clear.
+            m_idle = false;
+            return;
+        }
+        m_idleStart = now();
+        m_idlePeriods++;
+        m_resumed = true;
+        if (m_listener != null)
+            m_listener.onIdleChanged(true);
+    }
+
+    /**
+     * Called by the main loop after each tick. While the tracker is idle, this
+     * waits until the scene changes or the timeout elapses; otherwise it
+     * returns at once.
+     *
+     * @param timeout The idle tick period, in milliseconds.
+     *
+     * @throws InterruptedException This exception is thrown if the thread is interrupted.
+     */
+    public synchronized void awaitTick(long timeout) throws InterruptedException
+    {
+        if (m_idle)
+            wait(timeout);
+    }
+
+    /**
+     * Determine whether the tracker is idle.
+     *
+     * @return <b>true</b> is returned if nothing has changed since the last frames drawn.
+     */
+    public boolean isIdle()
+    { return m_idle; }
+
+    /**
+     * Get the number of frames drawn.
+     *
+     * @return The frame count is returned.
+     */
+    public synchronized long getRedrawn()
+    { return m_redrawn; }
+
+    /**
+     * Get the time spent idle, including the current idle period.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public synchronized long getIdleTime()
+    {
+        return m_idle ? (m_idleTime + (now() - m_idleStart)) : m_idleTime;
+    }
+
+    /**
+     * Get the number of frames that continuous rendering would have drawn while idle.
+     *
+     * @return The skipped frame count is returned.
+     */
+    public long getSkipped()
+    { return getIdleTime() / FRAME_PERIOD; }
+
+    /**
+     * Get the number of times the tracker has gone idle.
+     *
+     * @return The idle period count is returned.
+     */
+    public synchronized long getIdlePeriods()
+    { return m_idlePeriods; }
+
+    /**
+     * Summarize the tracker's metrics.
+     *
+     * @return The summary is returned.
+     */
+    public String getSummary()
+    {
+        return getRedrawn() + " frames redrawn, " + getSkipped() + " skipped over "
+            + (getIdleTime() / 1000000L) + " ms idle in " + getIdlePeriods() + " periods";
+    }
+}
@@ -0,0 +1,28 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.resource;
+
+/**
+ * The work that loads one title resource.
+ * <p>
+ * Tasks are added to a <code>ResourceGraph</code>, which runs each one on a
+ * loader thread once every resource it depends on has loaded. A task should
+ * publish its result where the title will find it, for example in the
+ * <code>MeshLibrary</code>.
+ * </p>
+ *
+ * @see ResourceGraph
+ */
+public interface IResourceTask
+{
+    /**
+     * Load the resource.
+     *
+     * @throws Exception Any exception marks the resource, and every resource
+     * that depends on it, as failed.
+     */
+    public void load()
+        throws Exception;
+}
@@ -0,0 +1,519 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.resource;
+
+// Import standard Java classes.
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * Loads a set of title resources concurrently, respecting their dependencies.
+ * <p>
+ * Each resource is a named <code>IResourceTask</code> together with the names
+ * of the resources it depends on. Once started, every resource whose
+ * dependencies have loaded is run on a bounded pool of loader threads, so that
+ * independent resources load in parallel with each other and with the caller.
+ * If a resource fails, the resources that depend on it are not run and are
+ * marked as failed too. <code>join()</code> waits for the whole graph.
+ * </p>
+ * <p>
+ * The load time of each resource is recorded. The critical path - the chain
+ * of dependent resources with the largest total load time - bounds how quickly
+ * the graph can load regardless of the number of threads, and is reported
+ * alongside the elapsed time.
+ * </p>
+ */
+public class ResourceGraph
+{
+    // The states of a resource.
+    private static final int STATE_WAITING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_LOADED = 2;
+    private static final int STATE_FAILED = 3;
+
+    // A resource in the graph.
+    private static class Node
+    {
+        final String m_name;
+        final String[] m_dependencies;
+        final IResourceTask m_task;
+        final int m_traceName;
+        final ArrayList<Node> m_dependents = new ArrayList<Node>();
+        int m_remaining;
+        int m_state = STATE_WAITING;
+        long m_startTime = 0;
+        long m_endTime = 0;
+        Throwable m_failure = null;
+
+        Node(String name, String[] dependencies, IResourceTask task)
+        {
+            m_name = name;
+            m_dependencies = dependencies;
+            m_task = task;
+            m_traceName = FlightRecorder.register("load " + name);
+        }
+    }
+
+    // The resources, in the order they were added.
+    private final LinkedHashMap<String, Node> m_nodes = new LinkedHashMap<String, Node>();
+
+    // The maximum number of loader threads.
+    private final int m_maxThreads;
+
+    // The loader threads; null until started.
+    private ExecutorService m_executor = null;
+
+    // The number of resources not yet loaded or failed.
+    private int m_pending = 0;
+
+    // The System.nanoTime() values at which the graph was started and finished.
+    private long m_startTime = 0;
+    private long m_endTime = 0;
+
+    /**
+     * A constructor that specifies the size of the loader pool.
+     *
+     * @param maxThreads The maximum number of resources loaded at once.
+     */
+    public ResourceGraph(int maxThreads)
+    {
+        super();
+
+        if (maxThreads < 1)
+            throw new IllegalArgumentException("ResourceGraph: Invalid number of threads.");
+        m_maxThreads = maxThreads;
+    }
+
+    /**
+     * Add a resource.
+     *
+     * @param name The unique name of the resource.
+     * @param dependencies The names of the resources that must load first, or
+     * <b>null</b> if there are none. They may be added later, but before the
+     * graph is started.
+     * @param task The task that loads the resource.
+     */
+    public synchronized void add(String name, String[] dependencies, IResourceTask task)
+    {
+        if ((name == null) || (task == null) || m_nodes.containsKey(name))
+            throw new IllegalArgumentException("ResourceGraph: Invalid input arguments.");
+        if (m_executor != null)
+            throw new IllegalStateException("ResourceGraph: The graph has already been started.");
+
+        m_nodes.put(name, new Node(name, (dependencies != null) ? dependencies : new String[0], task));
+    }
+
+    /**
+     * Start loading. Resources without dependencies are submitted immediately
+     * and the call returns without waiting for them.
+     *
+     * @throws IllegalStateException This exception is thrown if a dependency was
+     * never added or the dependencies form a cycle.
+     */
+    public synchronized void start()
+    {
+        if (m_executor != null)
+            throw new IllegalStateException("ResourceGraph: The graph has already been started.");
+
+        // Link each resource to the resources that depend on it.
+        for (Node node : m_nodes.values())
+        {
+            node.m_remaining = node.m_dependencies.length;
+            for (String dependency : node.m_dependencies)
+            {
+                Node prerequisite = m_nodes.get(dependency);
+                if (prerequisite == null)
+                    throw new IllegalStateException("ResourceGraph: Unknown dependency " + dependency
+                        + " of " + node.m_name + ".");
+                prerequisite.m_dependents.add(node);
+            }
+        }
+        checkAcyclic();
+
+        final int numThreads = Math.max(1, Math.min(m_maxThreads, m_nodes.size()));
+        m_executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory()
+        {
+            private int m_count = 0;
+
+            public synchronized Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "Resource Loader " + (m_count++));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        m_pending = m_nodes.size();
+        m_startTime = System.nanoTime();
+        if (m_pending == 0)
+        {
+            finish();
+            return;
+        }
+        for (Node node : m_nodes.values())
+        {
+            if (node.m_remaining == 0)
+                submit(node);
+        }
+    }
+
+    // Verify that the dependencies do not form a cycle, by repeatedly removing
+    // resources that have no unresolved dependencies.
+    private void checkAcyclic()
+    {
+        ArrayList<Node> ready = new ArrayList<Node>();
+        LinkedHashMap<Node, Integer> remaining = new LinkedHashMap<Node, Integer>();
+        for (Node node : m_nodes.values())
+        {
+            remaining.put(node, node.m_remaining);
+            if (node.m_remaining == 0)
+                ready.add(node);
+        }
+
+        int resolved = 0;
+        while (! ready.isEmpty())
+        {
+            Node node = ready.remove(ready.size() - 1);
+            resolved++;
+            for (Node dependent : node.m_dependents)
+            {
+                int count = remaining.get(dependent) - 1;
+                remaining.put(dependent, count);
+                if (count == 0)
+                    ready.add(dependent);
+            }
+        }
+
+        if (resolved != m_nodes.size())
+            throw new IllegalStateException("ResourceGraph: The dependencies form a cycle.");
+    }
+
+    // Run a resource on the pool. Called with the graph locked.
+    private void submit(final Node node)
+    {
+        node.m_state = STATE_RUNNING;
+        m_executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                runTask(node);
+            }
+        });
+    }
+
+    // Load a resource, then release the resources waiting on it.
+    private void runTask(Node node)
+    {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        FlightRecorder.begin(node.m_traceName);
+        try
+        {
+            node.m_task.load();
+        } catch (Throwable ex)
+        {
+            failure = ex;
+        }
+        FlightRecorder.end();
+        long end = System.nanoTime();
+
+        synchronized (this)
+        {
+            node.m_startTime = start;
+            node.m_endTime = end;
+            if (failure == null)
+            {
+                node.m_state = STATE_LOADED;
+                m_pending--;
+                for (Node dependent : node.m_dependents)
+                {
+                    if ((--dependent.m_remaining == 0) && (dependent.m_state == STATE_WAITING))
+                        submit(dependent);
+                }
+            } else
+            {
+                fail(node, failure, end);
+            }
+
+            if (m_pending == 0)
+                finish();
+        }
+    }
+
+    // Mark a resource and everything that depends on it as failed. Called with the graph locked.
+    private void fail(Node node, Throwable failure, long time)
+    {
+        node.m_state = STATE_FAILED;
+        node.m_failure = failure;
+        m_pending--;
+        for (Node dependent : node.m_dependents)
+        {
+            if (dependent.m_state == STATE_WAITING)
+            {
+                dependent.m_startTime = time;
+                dependent.m_endTime = time;
+                fail(dependent, new IllegalStateException("ResourceGraph: Dependency "
+                    + node.m_name + " failed."), time);
+            }
+        }
+    }
+
+    // Record completion and release the pool. Called with the graph locked.
+    private void finish()
+    {
+        m_endTime = System.nanoTime();
+        m_executor.shutdown();
+        notifyAll();
+    }
+
+    /**
+     * Wait for every resource to load or fail.
+     *
+     * @param timeout The maximum time to wait, in milliseconds, or 0 to wait indefinitely.
+     *
+     * @return <b>true</b> is returned if the graph finished; <b>false</b> is
+     * returned if the timeout elapsed first.
+     *
+     * @throws InterruptedException This exception is thrown if the calling thread is interrupted.
+     */
+    public synchronized boolean join(long timeout)
+        throws InterruptedException
+    {
+        if (m_executor == null)
+            throw new IllegalStateException("ResourceGraph: The graph has not been started.");
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (m_pending > 0)
+        {
+            if (timeout == 0)
+            {
+                wait();
+            } else
+            {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0)
+                    return false;
+                wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether every resource has loaded or failed.
+     *
+     * @return <b>true</b> will be returned if the graph has finished.
+     */
+    public synchronized boolean isDone()
+    {
+        return (m_executor != null) && (m_pending == 0);
+    }
+
+    /**
+     * Get the names of the resources, in the order they were added.
+     *
+     * @return An array of names is returned.
+     */
+    public synchronized String[] getNames()
+    {
+        return m_nodes.keySet().toArray(new String[m_nodes.size()]);
+    }
+
+    // Find a resource.
+    private Node getNode(String name)
+    {
+        Node node = m_nodes.get(name);
+        if (node == null)
+            throw new IllegalArgumentException("ResourceGraph: Unknown resource " + name + ".");
+        return node;
+    }
+
+    /**
+     * Determine whether a resource has loaded.
+     *
+     * @param name The name of the resource.
+     *
+     * @return <b>true</b> will be returned if the resource loaded successfully.
+     */
+    public synchronized boolean isLoaded(String name)
+    {
+        return getNode(name).m_state == STATE_LOADED;
+    }
+
+    /**
+     * Get the reason a resource failed.
+     *
+     * @param name The name of the resource.
+     *
+     * @return The exception thrown by the resource's task, or by the task of a
+     * failed dependency, is returned; <b>null</b> is returned if the resource
+     * has not failed.
+     */
+    public synchronized Throwable getFailure(String name)
+    {
+        return getNode(name).m_failure;
+    }
+
+    /**
+     * Get the time a resource took to load.
+     *
+     * @param name The name of the resource.
+     *
+     * @return The load time in nanoseconds is returned, or -1 if the resource has not finished.
+     */
+    public synchronized long getLoadTime(String name)
+    {
+        Node node = getNode(name);
+        return (node.m_endTime != 0) ? (node.m_endTime - node.m_startTime) : -1;
+    }
+
+    /**
+     * Get the time from the start of the graph until a resource began loading,
+     * which includes waiting for its dependencies and for a free thread.
+     *
+     * @param name The name of the resource.
+     *
+     * @return The delay in nanoseconds is returned, or -1 if the resource has not finished.
+     */
+    public synchronized long getStartDelay(String name)
+    {
+        Node node = getNode(name);
+        return (node.m_endTime != 0) ? (node.m_startTime - m_startTime) : -1;
+    }
+
+    /**
+     * Get the time from the start of the graph until every resource finished.
+     *
+     * @return The elapsed time in nanoseconds is returned, or -1 if the graph has not finished.
+     */
+    public synchronized long getElapsedTime()
+    {
+        return (m_endTime != 0) ? (m_endTime - m_startTime) : -1;
+    }
+
+    /**
+     * Get the resources on the critical path - the chain of dependent resources
+     * with the largest total load time.
+     *
+     * @return The names are returned, first dependency first. The array is empty
+     * if the graph has not finished.
+     */
+    public synchronized String[] getCriticalPath()
+    {
+        if (! isDone())
+            return new String[0];
+
+        // Resources are relaxed in dependency order; the total of a resource is its
+        // load time plus the largest total among its dependencies.
+        LinkedHashMap<Node, Long> totals = new LinkedHashMap<Node, Long>();
+        LinkedHashMap<Node, Node> previous = new LinkedHashMap<Node, Node>();
+        Node last = null;
+        for (Node node : sortByDependencies())
+        {
+            long best = 0;
+            Node bestDependency = null;
+            for (String dependency : node.m_dependencies)
+            {
+                Node prerequisite = m_nodes.get(dependency);
+                long total = totals.get(prerequisite);
+                if ((bestDependency == null) || (total > best))
+                {
+                    best = total;
+                    bestDependency = prerequisite;
+                }
+            }
+            long total = best + (node.m_endTime - node.m_startTime);
+            totals.put(node, total);
+            previous.put(node, bestDependency);
+            if ((last == null) || (total > totals.get(last)))
+                last = node;
+        }
+
+        ArrayList<String> path = new ArrayList<String>();
+        for (Node node = last; node != null; node = previous.get(node))
+            path.add(0, node.m_name);
+        return path.toArray(new String[path.size()]);
+    }
+
+    /**
+     * Get the total load time of the resources on the critical path. This is
+     * the shortest time in which the graph could load with unlimited threads.
+     *
+     * @return The time in nanoseconds is returned, or -1 if the graph has not finished.
+     */
+    public synchronized long getCriticalPathTime()
+    {
+        if (! isDone())
+            return -1;
+
+        long total = 0;
+        for (String name : getCriticalPath())
+        {
+            Node node = m_nodes.get(name);
+            total += node.m_endTime - node.m_startTime;
+        }
+        return total;
+    }
+
+    // Order the resources so that each follows its dependencies.
+    private ArrayList<Node> sortByDependencies()
+    {
+        ArrayList<Node> sorted = new ArrayList<Node>(m_nodes.size());
+        LinkedHashMap<Node, Boolean> visited = new LinkedHashMap<Node, Boolean>();
+        for (Node node : m_nodes.values())
+            visit(node, visited, sorted);
+        return sorted;
+    }
+
+    // Add a resource after its dependencies; the graph is known to be acyclic.
+    private void visit(Node node, LinkedHashMap<Node, Boolean> visited, ArrayList<Node> sorted)
+    {
+        if (visited.containsKey(node))
+            return;
+        visited.put(node, Boolean.TRUE);
+        for (String dependency : node.m_dependencies)
+            visit(m_nodes.get(dependency), visited, sorted);
+        sorted.add(node);
+    }
+
+    /**
+     * Summarize the load times, one resource per line, followed by the elapsed
+     * and critical path times.
+     *
+     * @return The summary is returned.
+     */
+    public synchronized String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Node node : m_nodes.values())
+        {
+            summary.append(node.m_name).append(": ");
+            if (node.m_state == STATE_LOADED)
+                summary.append("loaded in ");
+            else if (node.m_state == STATE_FAILED)
+                summary.append("failed after ");
+            else
+                summary.append("pending, ");
+            summary.append((node.m_endTime != 0) ? ((node.m_endTime - node.m_startTime) / 1000L) : 0)
+                .append(" us, started at ")
+                .append((node.m_startTime != 0) ? ((node.m_startTime - m_startTime) / 1000L) : 0)
+                .append(" us\n");
+        }
+        summary.append("elapsed ").append(getElapsedTime() / 1000L)
+            .append(" us, critical path ").append(getCriticalPathTime() / 1000L).append(" us (");
+        String[] path = getCriticalPath();
+        for (int i = 0; i < path.length; i++)
+            summary.append((i > 0) ? " -> " : "").append(path[i]);
+        summary.append(")");
+        return summary.toString();
+    }
+}
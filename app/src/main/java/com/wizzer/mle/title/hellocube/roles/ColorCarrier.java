@@ -41,12 +41,18 @@ package com.wizzer.mle.title.hellocube.roles;
 import com.wizzer.mle.runtime.core.IMleRole;
 import com.wizzer.mle.runtime.core.MleRuntimeException;
 
+// Import title classes.
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
 /**
  * This class implements a carrier for propagating color properties
  * between Actors and Roles.
  */
 public class ColorCarrier
 {
+    // The name of the span recorded around each update of a Role.
+    private static final int TRACE_SET = FlightRecorder.register("ColorCarrier.set");
+
     /**
      * Set the color from the specified floating-point array and update
      * the specified Role.
@@ -68,7 +74,9 @@ public class ColorCarrier
     {
         if ((role != null) && (role instanceof CubeRole)) {
             if ((values != null) && (values.length == 4)) {
+                FlightRecorder.begin(TRACE_SET);
                 ((CubeRole) role).setColor(values);
+                FlightRecorder.end();
                 return true;
             }
         }
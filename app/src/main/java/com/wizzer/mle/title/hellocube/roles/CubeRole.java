@@ -4,13 +4,10 @@
 // Declare package.
 package com.wizzer.mle.title.hellocube.roles;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
 // Import Android classes.
 import android.opengl.GLES20;
-import android.opengl.Matrix;
 import android.util.Log;
 
 // Import Magic Lantern classes.
@@ -23,6 +20,24 @@ import com.wizzer.mle.runtime.core.MleRuntimeException;
 import com.wizzer.mle.parts.j3d.roles.I3dRole;
 import com.wizzer.mle.parts.j3d.sets.I3dSet;
 
+// Import title classes.
+import com.wizzer.mle.title.hellocube.gl.Gl;
+import com.wizzer.mle.title.hellocube.gl.GlProgram;
+import com.wizzer.mle.title.hellocube.gl.GlResourceRegistry;
+import com.wizzer.mle.title.hellocube.gl.IGl;
+import com.wizzer.mle.title.hellocube.math.Bounds;
+import com.wizzer.mle.title.hellocube.math.MatrixMath;
+import com.wizzer.mle.title.hellocube.mesh.LodCache;
+import com.wizzer.mle.title.hellocube.mesh.LodChain;
+import com.wizzer.mle.title.hellocube.mesh.Mesh;
+import com.wizzer.mle.title.hellocube.mesh.MeshLibrary;
+import com.wizzer.mle.title.hellocube.mesh.VertexData;
+import com.wizzer.mle.title.hellocube.mesh.VertexLayout;
+import com.wizzer.mle.title.hellocube.quality.QualityGovernor;
+import com.wizzer.mle.title.hellocube.render.RedrawTracker;
+import com.wizzer.mle.title.hellocube.sets.CubeSet;
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
 /**
  * A Magic Lantern Role that defines and renders a 3D cube.
  */
@@ -30,6 +45,36 @@ public class CubeRole extends MleRole implements I3dRole
 {
     private static final String TAG = "titles-hellocube";
 
+    /* The half extent of the cube geometry in object space. */
+    private static final float CUBE_EXTENT = 1.0f;
+
+    /*
+     * The interleaved layout of the built-in cube: normalized short positions and
+     * unsigned byte colors, 12 bytes per vertex in a single stream.
+     */
+    private static final VertexLayout CUBE_LAYOUT = new VertexLayout.Builder()
+        .add("a_Position", 3, VertexLayout.ENCODING_SHORT_NORM)
+        .add("a_Color", 4, VertexLayout.ENCODING_UBYTE_NORM)
+        .build();
+
+    /* The equivalent full precision layout, used to report the savings. */
+    private static final VertexLayout FLOAT_LAYOUT = new VertexLayout.Builder()
+        .add("a_Position", 3, VertexLayout.ENCODING_FLOAT)
+        .add("a_Color", 4, VertexLayout.ENCODING_FLOAT)
+        .build();
+
+    /* The number of vertices in the built-in cube. */
+    private static final int CUBE_VERTICES = 36;
+
+    // The name of the span recorded around drawing the cube.
+    private static final int TRACE_RENDER = FlightRecorder.register("CubeRole.render");
+
+    /* The name of the cube mesh in the title resources (res/raw/box.obj). */
+    public static final String MESH_NAME = "box";
+
+    /* The packed built-in cube geometry copied by every Role. */
+    private static VertexData g_cubeTemplate = null;
+
     /** The cube's translation property - (x, y, z). */
     protected float[] m_translation;
 
@@ -42,9 +87,27 @@ public class CubeRole extends MleRole implements I3dRole
     /** The cubes uniform color - (r, g, b, a). */
     protected float[] m_color;
 
-    /* Store our model data in a float buffer. */
-    private FloatBuffer m_vertices;
-    private FloatBuffer m_colorPerVertex;
+    /* The cube's world-space bounds, recomputed only when the transform changes. */
+    private Bounds m_bounds;
+    private boolean m_boundsDirty;
+
+    /* Incremented each time the bounds change, so that spatial structures can find moved cubes. */
+    private volatile int m_boundsVersion;
+
+    /* Set by the Set when the cube lies outside of the view frustum. */
+    private volatile boolean m_culled;
+
+    /* The optional mesh levels of detail used in place of the built-in cube geometry. */
+    private LodChain m_lodChain;
+
+    /* The level of detail selected for the current frame. */
+    private int m_lodLevel;
+
+    /* Store our model data in a compact interleaved buffer. */
+    private VertexData m_vertices;
+
+    /* The attribute location of each CUBE_LAYOUT attribute. */
+    private final int[] m_attributeLocations = new int[2];
 
     /* This will be used to pass in the transformation matrix. */
     private int mMVPMatrixHandle;
@@ -55,17 +118,11 @@ public class CubeRole extends MleRole implements I3dRole
     /* This will be used to pass in model color information. */
     private int mColorHandle;
 
-    /* How many bytes per float. */
-    private final int mBytesPerFloat = 4;
-
     /* Size of the position data in elements. */
     private final int mPositionDataSize = 3;
 
-    /* Size of the color data in elements. */
-    private final int mColorDataSize = 4;
-
-    /* This is a handle to our per-vertex cube shading program. */
-    private int mPerVertexProgramHandle;
+    /* Our per-vertex cube shading programs, one per shader tier, shared by every cube Role. */
+    private final GlProgram[] m_programs = new GlProgram[QualityGovernor.NUM_TIERS];
 
     /**
      * Constructor used to associate corresponding Actor.
@@ -77,15 +134,48 @@ public class CubeRole extends MleRole implements I3dRole
         super(actor);
 
         m_vertices = null;
-        m_colorPerVertex = null;
         m_translation = new float[3];
         m_rotation = new float[4];
         m_scale = new float[3];
         m_color = new float[4];
+        m_bounds = new Bounds();
+        m_boundsDirty = true;
+        m_culled = false;
+        m_lodChain = null;
+        m_lodLevel = 0;
     }
 
     @Override
     public void init()
+    {
+        // Prefer the cube mesh loaded from the title resources. The built-in
+        // geometry remains as a fallback when it is not available.
+        Mesh mesh = MeshLibrary.getInstance().get(MESH_NAME);
+        if (mesh != null)
+            setLodChain(LodCache.getInstance().getChain(MESH_NAME, mesh));
+
+        // Copy the packed built-in geometry. The template is normally built by
+        // prepareGeometry() on a background thread while the title starts.
+        m_vertices = new VertexData(prepareGeometry());
+    }
+
+    /**
+     * Build the packed geometry of the built-in cube, which every Role copies
+     * when it is initialized. The geometry is built once; this may be called
+     * from any thread, ahead of time, to take the work off the thread that
+     * initializes the Roles.
+     *
+     * @return The shared template is returned. It must not be modified.
+     */
+    public static synchronized VertexData prepareGeometry()
+    {
+        if (g_cubeTemplate == null)
+            g_cubeTemplate = createGeometry();
+        return g_cubeTemplate;
+    }
+
+    // Quantize the built-in cube into a packed vertex buffer.
+    private static VertexData createGeometry()
     {
         // Define points for a cube.
 
@@ -198,19 +288,23 @@ public class CubeRole extends MleRole implements I3dRole
                 1.0f, 0.0f, 1.0f, 1.0f
             };
 
-        // Initialize the buffers.
-        m_vertices = ByteBuffer.allocateDirect(cubePositionData.length * mBytesPerFloat).order(ByteOrder.nativeOrder()).asFloatBuffer();
-        m_vertices.put(cubePositionData).position(0);
+        // Initialize the buffer. The positions are packed relative to the cube's
+        // bounds; render() folds the transform restoring them into the model matrix.
+        VertexData template = new VertexData(CUBE_LAYOUT, CUBE_VERTICES);
+        template.setPositions("a_Position", FloatBuffer.wrap(cubePositionData));
+        template.setAttribute("a_Color", FloatBuffer.wrap(cubeColorData));
 
-        m_colorPerVertex = ByteBuffer.allocateDirect(cubeColorData.length * mBytesPerFloat).order(ByteOrder.nativeOrder()).asFloatBuffer();
-        m_colorPerVertex.put(cubeColorData).position(0);
+        Log.i(TAG, "Cube vertex data " + CUBE_LAYOUT.describeSavings(FLOAT_LAYOUT, CUBE_VERTICES));
+        return template;
     }
 
     @Override
     public void dispose()
     {
+        // Stop following the Set's camera and being culled.
+        if (m_set instanceof CubeSet)
+            ((CubeSet) m_set).detachRole(this);
         m_vertices = null;
-        m_colorPerVertex = null;
     }
 
     // This Role does not manage any children.
@@ -249,6 +343,10 @@ public class CubeRole extends MleRole implements I3dRole
             m_translation[0] = translation[0];
             m_translation[1] = translation[1];
             m_translation[2] = translation[2];
+            m_boundsDirty = true;
+            m_boundsVersion++;
+            m_modelDirty = true;
+            RedrawTracker.getInstance().markDirty();
         }
     }
 
@@ -275,6 +373,8 @@ public class CubeRole extends MleRole implements I3dRole
             m_rotation[1] = rotation[1];
             m_rotation[2] = rotation[2];
             m_rotation[3] = rotation[3];
+            m_modelDirty = true;
+            RedrawTracker.getInstance().markDirty();
         }
     }
 
@@ -300,6 +400,10 @@ public class CubeRole extends MleRole implements I3dRole
             m_scale[0] = scale[0];
             m_scale[1] = scale[1];
             m_scale[2] = scale[2];
+            m_boundsDirty = true;
+            m_boundsVersion++;
+            m_modelDirty = true;
+            RedrawTracker.getInstance().markDirty();
         }
     }
 
@@ -328,11 +432,9 @@ public class CubeRole extends MleRole implements I3dRole
             m_color[3] = color[3];  // alpha
 
             // Update color buffer.
-            m_colorPerVertex.position(0);
-            for (int i = 0; i < 36; i++) {
-                m_colorPerVertex.position(i * m_color.length);
-                m_colorPerVertex.put(m_color);
-            }
+            if (m_vertices != null)
+                m_vertices.fillAttribute("a_Color", 0, CUBE_VERTICES, m_color);
+            RedrawTracker.getInstance().markDirty();
         }
     }
 
@@ -345,6 +447,106 @@ public class CubeRole extends MleRole implements I3dRole
     public synchronized float[] getColor()
     { return m_color; }
 
+    /**
+     * Retrieve the cube's world-space bounds.
+     * <p>
+     * The bounds only depend on the cube's translation and scale, so they are
+     * cached and recomputed only after one of those properties has changed.
+     * </p>
+     *
+     * @return The cached bounds are returned.
+     */
+    public synchronized Bounds getBounds()
+    {
+        if (m_boundsDirty)
+        {
+            if (m_lodChain != null)
+            {
+                float maxScale = Math.max(Math.abs(m_scale[0]), Math.max(Math.abs(m_scale[1]), Math.abs(m_scale[2])));
+                m_bounds.setSphere(m_translation[0], m_translation[1], m_translation[2],
+                    m_lodChain.getLevel(0).getRadius() * maxScale);
+            } else
+            {
+                m_bounds.setBox(m_translation[0], m_translation[1], m_translation[2],
+                    Math.abs(m_scale[0]) * CUBE_EXTENT,
+                    Math.abs(m_scale[1]) * CUBE_EXTENT,
+                    Math.abs(m_scale[2]) * CUBE_EXTENT);
+            }
+            m_boundsDirty = false;
+        }
+        return m_bounds;
+    }
+
+    /**
+     * Retrieve the version of the cube's bounds. It is incremented each time the
+     * translation, scale or level of detail chain changes; rotation does not
+     * change the bounds.
+     *
+     * @return The version is returned.
+     */
+    public int getBoundsVersion()
+    { return m_boundsVersion; }
+
+    /**
+     * Render the cube using a mesh with levels of detail instead of the built-in
+     * cube geometry. The mesh is drawn with the cube's uniform color.
+     *
+     * @param chain The level of detail chain, or <b>null</b> to restore the
+     * built-in geometry.
+     */
+    public synchronized void setLodChain(LodChain chain)
+    {
+        m_lodChain = chain;
+        m_lodLevel = 0;
+        m_boundsDirty = true;
+        m_boundsVersion++;
+        RedrawTracker.getInstance().markDirty();
+    }
+
+    /**
+     * Retrieve the mesh levels of detail used to render the cube.
+     *
+     * @return The chain is returned, or <b>null</b> if the built-in geometry is used.
+     */
+    public LodChain getLodChain()
+    { return m_lodChain; }
+
+    /**
+     * Select the level of detail for the current frame.
+     *
+     * @param screenSize The projected size of the cube as a fraction of the viewport height.
+     */
+    public void selectLod(float screenSize)
+    {
+        LodChain chain = m_lodChain;
+        if (chain != null)
+            m_lodLevel = chain.selectLevel(m_lodLevel, screenSize);
+    }
+
+    /**
+     * Retrieve the level of detail selected for the current frame.
+     *
+     * @return The level is returned, where 0 is full detail.
+     */
+    public int getLodLevel()
+    { return m_lodLevel; }
+
+    /**
+     * Mark whether the cube has been culled from the current frame.
+     *
+     * @param culled <b>true</b> if the cube is outside of the view frustum.
+     */
+    public void setCulled(boolean culled)
+    { m_culled = culled; }
+
+    /**
+     * Determine whether the cube has been culled from the current frame.
+     *
+     * @return <b>true</b> will be returned if the cube will not be drawn.
+     */
+    public boolean isCulled()
+    { return m_culled; }
+
     @Override
     public boolean setTransform(MlTransform transform)
     {
@@ -369,8 +571,7 @@ public class CubeRole extends MleRole implements I3dRole
         final String vertexShader =
               "uniform mat4 u_MVPMatrix;      \n"    // A constant representing the combined model/view/projection matrix.
 
-            + "attribute vec4 a_Position;     \n"    // Per-vertex position information we will pass in.
-            + "attribute vec4 a_Color;        \n"    // Per-vertex color information we will pass in.
+            + CUBE_LAYOUT.getShaderDeclarations()    // Per-vertex position and color information we will pass in.
 
             + "varying vec4 v_Color;          \n"    // This will be passed into the fragment shader.
 
@@ -387,12 +588,27 @@ public class CubeRole extends MleRole implements I3dRole
     /**
      * Retrieve the fragment shader for the cube.
      *
-     * @return The shader program is returned.
+     * @return The shader program of the full tier is returned.
      */
     protected String getFragmentShader()
+    {
+        return getFragmentShader(QualityGovernor.TIER_FULL);
+    }
+
+    /**
+     * Retrieve the fragment shader for the cube at a shader tier. The cheap
+     * tier computes the color at low precision.
+     *
+     * @param tier <code>QualityGovernor.TIER_FULL</code> or <code>QualityGovernor.TIER_CHEAP</code>.
+     *
+     * @return The shader program is returned.
+     */
+    protected String getFragmentShader(int tier)
     {
         final String fragmentShader =
-              "precision mediump float;       \n"    // Set the default precision to medium. We don't need as high of a
+              ((tier == QualityGovernor.TIER_CHEAP)
+                ? "precision lowp float;          \n"   // Low precision is enough for a flat color.
+                : "precision mediump float;       \n")  // Set the default precision to medium. We don't need as high of a
                                                      // precision in the fragment shader.
             + "varying vec4 v_Color;          \n"    // This is the color from the vertex shader interpolated across the
                                                      // triangle per fragment.
@@ -404,108 +620,19 @@ public class CubeRole extends MleRole implements I3dRole
         return fragmentShader;
     }
 
-    /*
-     * Helper function to compile a shader.
-     *
-     * @param shaderType The shader type.
-     * @param shaderSource The shader source code.
-     *
-     * @return An OpenGL handle to the shader.
-     */
-    private int compileShader(final int shaderType, final String shaderSource)
-    {
-        int shaderHandle = GLES20.glCreateShader(shaderType);
-
-        if (shaderHandle != 0)
-        {
-            // Pass in the shader source.
-            GLES20.glShaderSource(shaderHandle, shaderSource);
-
-            // Compile the shader.
-            GLES20.glCompileShader(shaderHandle);
-
-            // Get the compilation status.
-            final int[] compileStatus = new int[1];
-            GLES20.glGetShaderiv(shaderHandle, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
-
-            // If the compilation failed, delete the shader.
-            if (compileStatus[0] == 0)
-            {
-                Log.e(TAG, "Error compiling shader: " + GLES20.glGetShaderInfoLog(shaderHandle));
-                GLES20.glDeleteShader(shaderHandle);
-                shaderHandle = 0;
-            }
-        }
-
-        if (shaderHandle == 0)
-        {
-            throw new RuntimeException("Error creating shader.");
-        }
-
-        return shaderHandle;
-    }
-
-    /*
-     * Helper function to compile and link a program.
-     *
-     * @param vertexShaderHandle An OpenGL handle to an already-compiled vertex shader.
-     * @param fragmentShaderHandle An OpenGL handle to an already-compiled fragment shader.
-     * @param attributes Attributes that need to be bound to the program.
-     *
-     * @return An OpenGL handle to the program.
-     */
-    private int createAndLinkProgram(final int vertexShaderHandle, final int fragmentShaderHandle, final String[] attributes)
-    {
-        int programHandle = GLES20.glCreateProgram();
-
-        if (programHandle != 0)
-        {
-            // Bind the vertex shader to the program.
-            GLES20.glAttachShader(programHandle, vertexShaderHandle);
-
-            // Bind the fragment shader to the program.
-            GLES20.glAttachShader(programHandle, fragmentShaderHandle);
-
-            // Bind attributes
-            if (attributes != null)
-            {
-                final int size = attributes.length;
-                for (int i = 0; i < size; i++)
-                {
-                    GLES20.glBindAttribLocation(programHandle, i, attributes[i]);
-                }
-            }
-
-            // Link the two shaders together into a program.
-            GLES20.glLinkProgram(programHandle);
-
-            // Get the link status.
-            final int[] linkStatus = new int[1];
-            GLES20.glGetProgramiv(programHandle, GLES20.GL_LINK_STATUS, linkStatus, 0);
-
-            // If the link failed, delete the program.
-            if (linkStatus[0] == 0)
-            {
-                Log.e(TAG, "Error compiling program: " + GLES20.glGetProgramInfoLog(programHandle));
-                GLES20.glDeleteProgram(programHandle);
-                programHandle = 0;
-            }
-        }
-
-        if (programHandle == 0)
-        {
-            throw new RuntimeException("Error creating program.");
-        }
-
-        return programHandle;
-    }
-
     /*
      * Store the model matrix. This matrix is used to move models from object space (where each model can be thought
      * of being located at the center of the universe) to world space.
      */
     private float[] m_modelMatrix = new float[16];
 
+    /*
+     * The model matrix with the dequantization of the built-in geometry's packed
+     * positions folded in, and whether it needs to be rebuilt.
+     */
+    private float[] m_dequantizedModelMatrix = new float[16];
+    private boolean m_dequantizeDirty = true;
+
     /*
      * Store the view matrix. This can be thought of as our camera. This matrix transforms world space to eye space;
      * it positions things relative to our eye.
@@ -515,6 +642,22 @@ public class CubeRole extends MleRole implements I3dRole
     /* Store the projection matrix. This is used to project the scene onto a 2D viewport. */
     private float[] m_projectionMatrix = new float[16];
 
+    /*
+     * Store projection * view, used when the Set does not provide one. It is only
+     * recomputed after the view or projection matrix changes.
+     */
+    private float[] m_viewProjectionMatrix = new float[16];
+    private boolean m_viewProjectionDirty = true;
+
+    /* The camera version of the Set when the view and projection matrices were last copied. */
+    private int m_cameraVersion = -1;
+
+    /* Set when the translation, rotation or scale changes and the model matrix must be rebuilt. */
+    private boolean m_modelDirty = true;
+
+    /* The GL backend used to render the cube. */
+    private IGl m_gl;
+
     /* Allocate storage for the final combined matrix. This will be passed into the shader program. */
     private float[] mMVPMatrix = new float[16];
 
@@ -528,6 +671,7 @@ public class CubeRole extends MleRole implements I3dRole
     {
         for (int i = 0;  i < 16; i++)
             m_viewMatrix[i] = matrix[i];
+        m_viewProjectionDirty = true;
     }
 
     /**
@@ -548,6 +692,7 @@ public class CubeRole extends MleRole implements I3dRole
     {
         for (int i = 0;  i < 16; i++)
             m_projectionMatrix[i] = matrix[i];
+        m_viewProjectionDirty = true;
     }
 
     /**
@@ -561,7 +706,8 @@ public class CubeRole extends MleRole implements I3dRole
     /**
      * Initialize rendering.
      * <p>
-     * The vertex and fragment shaders are constructed.
+     * The shader program is obtained from the <code>GlResourceRegistry</code>,
+     * which compiles it for the first cube Role and shares it with the others.
      * </p>
      *
      * @throws MleRuntimeException
@@ -569,26 +715,44 @@ public class CubeRole extends MleRole implements I3dRole
     public void initRender()
         throws MleRuntimeException
     {
-        final String vertexShader = getVertexShader();
-        final String fragmentShader = getFragmentShader();
-
-        final int vertexShaderHandle = compileShader(GLES20.GL_VERTEX_SHADER, vertexShader);
-        final int fragmentShaderHandle = compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentShader);
-
-        mPerVertexProgramHandle = createAndLinkProgram(vertexShaderHandle, fragmentShaderHandle,
-                new String[] {"a_Position",  "a_Color"});
-
-        // Update the view matrix. Note that initRender is currently only being called once from
-        // the Set; therefore, if the view changes on the Set, we are not yet updating our
-        // local copy of the view. ToDo: update this role's view matrix via a Magic Lantern
-        // event.
-        setViewMatrix(((I3dSet)m_set).getViewMatrix());
-
-        // Update the projection matrix. Note that initRender is currently only being called once
-        // from the Set; therefore, if the projection changes on the Set, we are not yet updating
-        // our local copy of the projection. ToDo: update this role's projection matrix via a Magic
-        // Lantern event.
-        setProjectionMatrix(((I3dSet)m_set).getProjectionMatrix());
+        // Issue GL calls through the title's current backend.
+        m_gl = Gl.getInstance();
+
+        // The registry recreates the program if the GL context has been lost.
+        GlResourceRegistry registry = GlResourceRegistry.getInstance();
+        registry.ensureContext(m_gl, Gl.getCurrentContext());
+        // Both tiers are compiled now, so that the quality governor can switch
+        // between them without stalling a frame.
+        for (int tier = 0; tier < QualityGovernor.NUM_TIERS; tier++)
+            m_programs[tier] = registry.getProgram(m_gl, getVertexShader(), getFragmentShader(tier),
+                    CUBE_LAYOUT.getAttributeNames());
+
+        if (m_set instanceof CubeSet)
+        {
+            // Copy the Set's camera; the Set passes on its later changes.
+            updateCamera((CubeSet) m_set);
+        } else
+        {
+            // Update the view and projection matrices. Other Sets do not report camera
+            // changes, so these copies are only taken once.
+            setViewMatrix(((I3dSet)m_set).getViewMatrix());
+            setProjectionMatrix(((I3dSet)m_set).getProjectionMatrix());
+        }
+    }
+
+    /**
+     * Re-read the view and projection matrices if the Set's camera version differs
+     * from the one last copied. The <code>CubeSet</code> calls this for each of its
+     * attached Roles when its camera changes.
+     *
+     * @param set The Set whose camera is copied.
+     */
+    public synchronized void updateCamera(CubeSet set)
+    {
+        if (set.getCameraVersion() == m_cameraVersion) return;
+
+        m_cameraVersion = set.getCamera(m_viewMatrix, m_projectionMatrix);
+        m_viewProjectionDirty = true;
     }
 
     /**
@@ -596,46 +760,128 @@ public class CubeRole extends MleRole implements I3dRole
      */
     public void render()
     {
-        // Set our per-vertex lighting program.
-        GLES20.glUseProgram(mPerVertexProgramHandle);
-
-        // Set program handles for cube drawing.
-        mMVPMatrixHandle = GLES20.glGetUniformLocation(mPerVertexProgramHandle, "u_MVPMatrix");
-        mPositionHandle = GLES20.glGetAttribLocation(mPerVertexProgramHandle, "a_Position");
-        mColorHandle = GLES20.glGetAttribLocation(mPerVertexProgramHandle, "a_Color");
+        // Nothing to draw if the Set has culled the cube.
+        if (m_culled) return;
+        FlightRecorder.begin(TRACE_RENDER);
 
-        // Update model matrix with cube transformations.
-        Matrix.setIdentityM(m_modelMatrix, 0);
-        Matrix.translateM(m_modelMatrix, 0, m_translation[0], m_translation[1], m_translation[2]);
-        Matrix.rotateM(m_modelMatrix, 0, m_rotation[0], m_rotation[1], m_rotation[2], m_rotation[3]);
-        Matrix.scaleM(m_modelMatrix, 0, m_scale[0], m_scale[1], m_scale[2]);
+        // Set our per-vertex lighting program, at the quality governor's shader tier.
+        GlProgram program = m_programs[QualityGovernor.getInstance().getShaderTier()];
+        m_gl.glUseProgram(program.getName());
 
-        // Pass in the position information.
-        m_vertices.position(0);
-        GLES20.glVertexAttribPointer(mPositionHandle, mPositionDataSize, GLES20.GL_FLOAT, false,
-                0, m_vertices);
+        // Set program handles for cube drawing. The program caches its locations
+        // until the GL context is lost.
+        mMVPMatrixHandle = program.getUniformLocation(m_gl, "u_MVPMatrix");
+        mPositionHandle = program.getAttribLocation("a_Position");
+        mColorHandle = program.getAttribLocation("a_Color");
 
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
+        // Update model matrix with cube transformations, only if they have changed.
+        boolean rebuilt = updateModelMatrix();
 
-        // Pass in the color information.
-        m_colorPerVertex.position(0);
-        GLES20.glVertexAttribPointer(mColorHandle, mColorDataSize, GLES20.GL_FLOAT, false,
-                0, m_colorPerVertex);
+        // Choose the geometry to draw.
+        LodChain chain = m_lodChain;
+        Mesh mesh = (chain != null) ? chain.getLevel(m_lodLevel) : null;
 
-        GLES20.glEnableVertexAttribArray(mColorHandle);
+        if (mesh != null)
+        {
+            // Pass in the position information.
+            FloatBuffer vertices = mesh.getPositions();
+            vertices.position(0);
+            m_gl.glVertexAttribPointer(mPositionHandle, mPositionDataSize, GLES20.GL_FLOAT, false,
+                    0, vertices);
+
+            m_gl.glEnableVertexAttribArray(mPositionHandle);
+
+            // Meshes are drawn with the uniform cube color.
+            m_gl.glDisableVertexAttribArray(mColorHandle);
+            m_gl.glVertexAttrib4f(mColorHandle, m_color[0], m_color[1], m_color[2], m_color[3]);
+        } else
+        {
+            // Pass in the interleaved position and color information.
+            m_attributeLocations[0] = mPositionHandle;
+            m_attributeLocations[1] = mColorHandle;
+            CUBE_LAYOUT.enableAttributes(m_gl, m_attributeLocations, m_vertices.getData());
+        }
 
-        // This multiplies the view matrix by the model matrix, and stores the result in the MVP matrix
-        // (which currently contains model * view).
-        Matrix.multiplyMM(mMVPMatrix, 0, m_viewMatrix, 0, m_modelMatrix, 0);
+        // The built-in geometry's positions are packed relative to its bounds, so the
+        // transform restoring them is folded into the model matrix it is drawn with.
+        float[] modelMatrix = m_modelMatrix;
+        if ((mesh == null) && m_vertices.needsDequantize())
+        {
+            if (m_dequantizeDirty)
+            {
+                MatrixMath.multiplyScaleOffset(m_dequantizedModelMatrix, 0, m_modelMatrix, 0,
+                    m_vertices.getDequantizeScale(), m_vertices.getDequantizeOffset());
+                m_dequantizeDirty = false;
+            }
+            modelMatrix = m_dequantizedModelMatrix;
+        }
 
-        // This multiplies the modelview matrix by the projection matrix, and stores the result in the MVP matrix
-        // (which now contains model * view * projection).
-        Matrix.multiplyMM(mMVPMatrix, 0, m_projectionMatrix, 0, mMVPMatrix, 0);
+        // This multiplies projection * view, shared by every Role of the Set for the frame,
+        // by the model matrix, and stores the result in the MVP matrix.
+        MatrixMath.multiplyAffine(mMVPMatrix, 0, getViewProjectionMatrix(), 0, modelMatrix, 0);
 
         // Pass in the combined matrix.
-        GLES20.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, mMVPMatrix, 0);
+        m_gl.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, mMVPMatrix, 0);
 
         // Draw the cube.
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, 36);
+        int numTriangles;
+        if (mesh != null)
+        {
+            mesh.getIndices().position(0);
+            m_gl.glDrawElements(GLES20.GL_TRIANGLES, mesh.getNumIndices(), GLES20.GL_UNSIGNED_SHORT,
+                    mesh.getIndices());
+            numTriangles = mesh.getNumTriangles();
+        } else
+        {
+            m_gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, CUBE_VERTICES);
+            numTriangles = 12;
+        }
+
+        // Report the submitted geometry and matrix work to the Set.
+        if (m_set instanceof CubeSet)
+        {
+            CubeSet set = (CubeSet) m_set;
+            set.addTrianglesSubmitted(numTriangles);
+            set.addMatrixOps(rebuilt ? 1 : 0, 1);
+        }
+        FlightRecorder.end();
+    }
+
+    /*
+     * Rebuild the model matrix if the translation, rotation or scale has changed.
+     *
+     * @return <b>true</b> is returned if the matrix was rebuilt.
+     */
+    private synchronized boolean updateModelMatrix()
+    {
+        if (! m_modelDirty) return false;
+
+        MatrixMath.setTrs(m_modelMatrix, 0,
+            m_translation[0], m_translation[1], m_translation[2],
+            m_rotation[0], m_rotation[1], m_rotation[2], m_rotation[3],
+            m_scale[0], m_scale[1], m_scale[2]);
+        m_modelDirty = false;
+        m_dequantizeDirty = true;
+        return true;
+    }
+
+    /*
+     * Retrieve projection * view for the current frame. The Set computes it once per
+     * frame for all of its Roles; otherwise this Role's copies of the matrices are used.
+     */
+    private float[] getViewProjectionMatrix()
+    {
+        if (m_set instanceof CubeSet)
+            return ((CubeSet) m_set).getViewProjectionMatrix();
+
+        synchronized (this)
+        {
+            if (m_viewProjectionDirty)
+            {
+                MatrixMath.multiply(m_viewProjectionMatrix, 0, m_projectionMatrix, 0, m_viewMatrix, 0);
+                m_viewProjectionDirty = false;
+            }
+        }
+        return m_viewProjectionMatrix;
     }
 }
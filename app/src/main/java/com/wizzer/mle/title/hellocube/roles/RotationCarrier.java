@@ -8,12 +8,18 @@ package com.wizzer.mle.title.hellocube.roles;
 import com.wizzer.mle.runtime.core.IMleRole;
 import com.wizzer.mle.runtime.core.MleRuntimeException;
 
+// Import title classes.
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
 /**
  * This class implements a carrier for propagating rotation properties
  * between Actors and Roles.
  */
 public class RotationCarrier
 {
+    // The name of the span recorded around each update of a Role.
+    private static final int TRACE_SET = FlightRecorder.register("RotationCarrier.set");
+
     /**
      * Set the rotation from the specified floating-point array and update
      * the specified Role.
@@ -35,7 +41,9 @@ public class RotationCarrier
     {
         if ((role != null) && (role instanceof CubeRole)) {
             if ((values != null) && (values.length == 4)) {
+                FlightRecorder.begin(TRACE_SET);
                 ((CubeRole) role).setRotation(values);
+                FlightRecorder.end();
                 return true;
             }
         }
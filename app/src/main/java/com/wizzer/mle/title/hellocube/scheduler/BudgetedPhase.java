@@ -0,0 +1,329 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.scheduler;
+
+// Import standard Java classes.
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.scheduler.MlePhase;
+import com.wizzer.mle.runtime.scheduler.MleScheduler;
+import com.wizzer.mle.runtime.scheduler.MleTask;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * Runs prioritized tasks within a time budget per tick.
+ * <p>
+ * The scheduler runs every task of an <code>MlePhase</code> to completion each
+ * tick, so one expensive task, or many cheap ones, can stretch the frame. A
+ * budgeted phase is installed as a single task of an <code>MlePhase</code> and
+ * runs its own <code>BudgetedTask</code>s: the critical ones first, every
+ * tick, then the others in priority order for as long as the budget lasts.
+ * Once it is used up, the remaining tasks are deferred to the next tick.
+ * </p>
+ * <p>
+ * Tasks of the same priority take turns: each priority resumes at the first of
+ * its tasks that was deferred and wraps around, so none of them starves. A
+ * steady load of higher priority tasks cannot starve lower priority ones
+ * either: once tasks have been deferred <code>MAX_DEFERRED_TICKS</code> ticks
+ * in a row, the one deferred longest runs whatever the budget. Only one task
+ * a tick may do so, so starved tasks catch up one by one rather than all
+ * running in the same tick.
+ * </p>
+ * <p>
+ * Tasks are added and removed under the phase's lock, so Actors may do so from
+ * any thread.
+ * </p>
+ *
+ * @see BudgetedTask
+ */
+public class BudgetedPhase
+{
+    /** Tasks that run every tick, regardless of the budget. */
+    public static final int PRIORITY_CRITICAL = 0;
+    /** Tasks that run before normal ones. */
+    public static final int PRIORITY_HIGH = 1;
+    /** Tasks that run in the budget left by higher priority ones. */
+    public static final int PRIORITY_NORMAL = 2;
+    /** Tasks that run last. */
+    public static final int PRIORITY_LOW = 3;
+
+    /** The number of ticks in a row a task may be deferred before it runs regardless of the budget. */
+    public static final int MAX_DEFERRED_TICKS = 8;
+
+    // The number of priorities.
+    private static final int NUM_PRIORITIES = PRIORITY_LOW + 1;
+
+    // The budgeted phases installed in each MlePhase.
+    private static final IdentityHashMap<MlePhase, BudgetedPhase> g_installed =
+        new IdentityHashMap<MlePhase, BudgetedPhase>();
+
+    // The name of the phase.
+    private final String m_name;
+
+    // The time the tasks may take per tick, in nanoseconds.
+    private volatile long m_budget;
+
+    // The tasks of each priority, in the order they were added, and the index of
+    // the task each priority resumes at.
+    private final ArrayList<ArrayList<BudgetedTask>> m_tasks = new ArrayList<ArrayList<BudgetedTask>>();
+    private final int[] m_cursors = new int[NUM_PRIORITIES];
+
+    // The metrics.
+    private long m_ticks = 0;
+    private long m_overruns = 0;
+    private long m_deferrals = 0;
+    private long m_lastTime = 0;
+    private int m_lastDeferred = 0;
+
+    // The names of the span and counter recorded for each tick.
+    private final int m_traceRun;
+    private final int m_traceDeferred;
+
+    /**
+     * A constructor that initializes the budget.
+     *
+     * @param name The name of the phase.
+     * @param budget The time the tasks may take per tick, in nanoseconds; it must be positive.
+     */
+    public BudgetedPhase(String name, long budget)
+    {
+        super();
+        setBudget(budget);
+        m_name = name;
+        for (int i = 0; i < NUM_PRIORITIES; i++)
+            m_tasks.add(new ArrayList<BudgetedTask>());
+        m_traceRun = FlightRecorder.register(name);
+        m_traceDeferred = FlightRecorder.register(name + " deferred");
+    }
+
+    /**
+     * Add a task to the specified phase of a scheduler that runs this phase's
+     * tasks. <code>getInstalled()</code> then finds this phase from the
+     * <code>MlePhase</code>.
+     *
+     * @param scheduler The scheduler.
+     * @param phase The scheduler's phase.
+     */
+    public void install(MleScheduler scheduler, MlePhase phase)
+    {
+        scheduler.addTask(phase, new MleTask(new Runnable()
+        {
+            public void run()
+            {
+                BudgetedPhase.this.run();
+            }
+        }, m_name));
+        synchronized (g_installed)
+        {
+            g_installed.put(phase, this);
+        }
+    }
+
+    /**
+     * Find the budgeted phase installed in a scheduler's phase.
+     *
+     * @param phase The scheduler's phase.
+     *
+     * @return The budgeted phase is returned, or <b>null</b> if none was installed.
+     */
+    public static BudgetedPhase getInstalled(MlePhase phase)
+    {
+        synchronized (g_installed)
+        {
+            return g_installed.get(phase);
+        }
+    }
+
+    /**
+     * Set the time the tasks may take per tick.
+     *
+     * @param budget The budget in nanoseconds; it must be positive.
+     */
+    public void setBudget(long budget)
+    {
+        if (budget <= 0)
+            throw new IllegalArgumentException("BudgetedPhase: Invalid budget " + budget + ".");
+        m_budget = budget;
+    }
+
+    /**
+     * Get the time the tasks may take per tick.
+     *
+     * @return The budget in nanoseconds is returned.
+     */
+    public long getBudget()
+    { return m_budget; }
+
+    /**
+     * Add a task. It is run from the next tick on.
+     *
+     * @param task The task.
+     */
+    public synchronized void addTask(BudgetedTask task)
+    {
+        m_tasks.get(task.getPriority()).add(task);
+    }
+
+    /**
+     * Remove a task.
+     *
+     * @param task The task.
+     *
+     * @return <b>true</b> is returned if the task was removed;
+     * <b>false</b> is returned if it had not been added.
+     */
+    public synchronized boolean removeTask(BudgetedTask task)
+    {
+        ArrayList<BudgetedTask> tasks = m_tasks.get(task.getPriority());
+        int index = tasks.indexOf(task);
+        if (index < 0)
+            return false;
+        tasks.remove(index);
+
+        // Keep resuming at the same task.
+        int priority = task.getPriority();
+        if (m_cursors[priority] > index)
+            m_cursors[priority]--;
+        return true;
+    }
+
+    // Get the current time, in nanoseconds.
+    long now()
+    { return System.nanoTime(); }
+
+    /**
+     * Run one tick's tasks. The installed <code>MleTask</code> calls this.
+     */
+    public synchronized void run()
+    {
+        FlightRecorder.begin(m_traceRun);
+        long start = now();
+        long deadline = start + m_budget;
+        long time = start;
+        int deferred = 0;
+        BudgetedTask starved = findStarved();
+
+        for (int priority = PRIORITY_CRITICAL; priority < NUM_PRIORITIES; priority++)
+        {
+            ArrayList<BudgetedTask> tasks = m_tasks.get(priority);
+            int count = tasks.size();
+            if (count == 0)
+                continue;
+            int first = m_cursors[priority] % count;
+            int firstDeferred = -1;
+
+            for (int i = 0; i < count; i++)
+            {
+                int index = (first + i) % count;
+                BudgetedTask task = tasks.get(index);
+                if ((priority != PRIORITY_CRITICAL) && (time >= deadline) && (task != starved))
+                {
+                    task.m_deferredTicks++;
+                    task.m_deferrals++;
+                    deferred++;
+                    if (firstDeferred < 0)
+                        firstDeferred = index;
+                    continue;
+                }
+
+                task.getRunnable().run();
+                long end = now();
+                task.record(time, end);
+                time = end;
+            }
+
+            // Resume at the first deferred task next tick.
+            m_cursors[priority] = (firstDeferred >= 0) ? firstDeferred : first;
+        }
+
+        m_ticks++;
+        m_lastTime = time - start;
+        if (m_lastTime > m_budget)
+            m_overruns++;
+        m_lastDeferred = deferred;
+        m_deferrals += deferred;
+        FlightRecorder.counter(m_traceDeferred, deferred);
+        FlightRecorder.end();
+    }
+
+    /*
+     * Find the task deferred longest, if it has been deferred for at least
+     * MAX_DEFERRED_TICKS ticks. Ties go to the higher priority and then to the
+     * task its priority resumes at.
+     */
+    private BudgetedTask findStarved()
+    {
+        BudgetedTask starved = null;
+        int longest = MAX_DEFERRED_TICKS - 1;
+        for (int priority = PRIORITY_HIGH; priority < NUM_PRIORITIES; priority++)
+        {
+            ArrayList<BudgetedTask> tasks = m_tasks.get(priority);
+            int count = tasks.size();
+            for (int i = 0; i < count; i++)
+            {
+                BudgetedTask task = tasks.get((m_cursors[priority] + i) % count);
+                if (task.m_deferredTicks > longest)
+                {
+                    starved = task;
+                    longest = task.m_deferredTicks;
+                }
+            }
+        }
+        return starved;
+    }
+
+    /**
+     * Get the name of the phase.
+     *
+     * @return The name is returned.
+     */
+    public String getName()
+    { return m_name; }
+
+    /**
+     * Get the number of ticks run.
+     *
+     * @return The tick count is returned.
+     */
+    public synchronized long getTicks()
+    { return m_ticks; }
+
+    /**
+     * Get the number of ticks whose tasks took longer than the budget, because
+     * of critical tasks, starved tasks or a task that ran past the deadline.
+     *
+     * @return The overrun count is returned.
+     */
+    public synchronized long getOverruns()
+    { return m_overruns; }
+
+    /**
+     * Get the total number of task runs deferred.
+     *
+     * @return The deferral count is returned.
+     */
+    public synchronized long getDeferrals()
+    { return m_deferrals; }
+
+    /**
+     * Get the time taken by the latest tick's tasks.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public synchronized long getLastTime()
+    { return m_lastTime; }
+
+    /**
+     * Get the number of tasks deferred by the latest tick.
+     *
+     * @return The deferred task count is returned.
+     */
+    public synchronized int getLastDeferred()
+    { return m_lastDeferred; }
+}
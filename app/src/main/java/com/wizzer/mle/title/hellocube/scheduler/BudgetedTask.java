@@ -0,0 +1,143 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.scheduler;
+
+/**
+ * A task run by a <code>BudgetedPhase</code>, with a priority and an optional
+ * time budget of its own.
+ * <p>
+ * A task runs at most once per tick. A task of <code>PRIORITY_CRITICAL</code>
+ * runs every tick; any other task may be deferred to a later tick when the
+ * phase has used up its budget, so it must tolerate being skipped, for example
+ * by working from the current time rather than counting ticks. A run that takes
+ * longer than the task's budget is counted as an overrun.
+ * </p>
+ *
+ * @see BudgetedPhase
+ */
+public class BudgetedTask
+{
+    // The work, its name and its priority.
+    private final Runnable m_runnable;
+    private final String m_name;
+    private final int m_priority;
+
+    // The time a run may take before it overruns, in nanoseconds; 0 for no budget.
+    private final long m_budget;
+
+    // The metrics, updated by the phase running the task.
+    long m_runs = 0;
+    long m_overruns = 0;
+    long m_deferrals = 0;
+    long m_lastTime = 0;
+    long m_maxTime = 0;
+
+    // The number of ticks in a row the task has been deferred.
+    int m_deferredTicks = 0;
+
+    /**
+     * A constructor that initializes the task.
+     *
+     * @param runnable The work to run.
+     * @param name The name of the task.
+     * @param priority One of the <code>BudgetedPhase.PRIORITY_</code> constants.
+     * @param budget The time a run may take, in nanoseconds, or 0 for no budget.
+     */
+    public BudgetedTask(Runnable runnable, String name, int priority, long budget)
+    {
+        super();
+        if (runnable == null)
+            throw new IllegalArgumentException("BudgetedTask: Runnable is null.");
+        if ((priority < BudgetedPhase.PRIORITY_CRITICAL) || (priority > BudgetedPhase.PRIORITY_LOW))
+            throw new IllegalArgumentException("BudgetedTask: Invalid priority " + priority + ".");
+        if (budget < 0)
+            throw new IllegalArgumentException("BudgetedTask: Invalid budget " + budget + ".");
+        m_runnable = runnable;
+        m_name = name;
+        m_priority = priority;
+        m_budget = budget;
+    }
+
+    // Record a run of the task that started and ended at the specified times.
+    void record(long start, long end)
+    {
+        long time = end - start;
+        m_runs++;
+        m_lastTime = time;
+        if (time > m_maxTime)
+            m_maxTime = time;
+        if ((m_budget > 0) && (time > m_budget))
+            m_overruns++;
+        m_deferredTicks = 0;
+    }
+
+    // Get the work to run.
+    Runnable getRunnable()
+    { return m_runnable; }
+
+    /**
+     * Get the name of the task.
+     *
+     * @return The name is returned.
+     */
+    public String getName()
+    { return m_name; }
+
+    /**
+     * Get the priority of the task.
+     *
+     * @return One of the <code>BudgetedPhase.PRIORITY_</code> constants is returned.
+     */
+    public int getPriority()
+    { return m_priority; }
+
+    /**
+     * Get the time a run of the task may take.
+     *
+     * @return The budget in nanoseconds, or 0 if the task has none, is returned.
+     */
+    public long getBudget()
+    { return m_budget; }
+
+    /**
+     * Get the number of times the task has run.
+     *
+     * @return The run count is returned.
+     */
+    public long getRuns()
+    { return m_runs; }
+
+    /**
+     * Get the number of runs that took longer than the task's budget.
+     *
+     * @return The overrun count is returned.
+     */
+    public long getOverruns()
+    { return m_overruns; }
+
+    /**
+     * Get the number of ticks the task was deferred.
+     *
+     * @return The deferral count is returned.
+     */
+    public long getDeferrals()
+    { return m_deferrals; }
+
+    /**
+     * Get the time taken by the latest run.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getLastTime()
+    { return m_lastTime; }
+
+    /**
+     * Get the time taken by the slowest run.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getMaxTime()
+    { return m_maxTime; }
+}
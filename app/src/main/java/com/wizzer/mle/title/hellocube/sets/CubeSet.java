@@ -0,0 +1,737 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.sets;
+
+// Import standard Java classes.
+import java.util.ArrayList;
+
+// Import Android classes.
+import android.util.Log;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.MleTitle;
+import com.wizzer.mle.runtime.core.IMleRole;
+import com.wizzer.mle.runtime.core.MleActor;
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+import com.wizzer.mle.runtime.event.IMleEventCallback;
+import com.wizzer.mle.runtime.event.MleEvent;
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+import com.wizzer.mle.parts.sets.Mle3dSet;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.gl.Gl;
+import com.wizzer.mle.title.hellocube.gl.GlResourceRegistry;
+import com.wizzer.mle.title.hellocube.gl.IGl;
+import com.wizzer.mle.title.hellocube.math.Bounds;
+import com.wizzer.mle.title.hellocube.math.Bvh;
+import com.wizzer.mle.title.hellocube.math.Frustum;
+import com.wizzer.mle.title.hellocube.math.MatrixMath;
+import com.wizzer.mle.title.hellocube.quality.QualityGovernor;
+import com.wizzer.mle.title.hellocube.render.RedrawTracker;
+import com.wizzer.mle.title.hellocube.roles.CubeRole;
+import com.wizzer.mle.title.hellocube.startup.StartupSequence;
+import com.wizzer.mle.title.hellocube.stress.StressMonitor;
+import com.wizzer.mle.title.hellocube.texture.TextureManager;
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * A 3D Set that culls its attached cube Roles against the view frustum.
+ * <p>
+ * Before the Set renders, the frustum is extracted from the current view and
+ * projection matrices and each attached <code>CubeRole</code> is tested against
+ * its cached world-space bounds. Roles that fall entirely outside of the
+ * frustum are marked as culled and skip issuing any draw calls for the frame.
+ * </p>
+ * <p>
+ * The Set also versions its camera. When the view or projection matrix changes,
+ * the camera version is incremented and a <code>MLE_CAMERA_CHANGED</code> event
+ * is posted to the title's event dispatcher. The Set installs a single callback
+ * for the event, which hands the new camera to its attached Roles. Roles remember
+ * the version they last copied, so they only re-read the matrices when the camera
+ * has actually moved.
+ * </p>
+ * <p>
+ * The Set picks its Roles with a ray cast through a bounding volume hierarchy
+ * of their bounds. The hierarchy is built on the first pick after Roles are
+ * attached or detached. On later picks, Roles whose bounds have changed since
+ * the last pick are found by their bounds version and the hierarchy is refit
+ * around them; it is only built again once refitting has degraded it by
+ * <code>PICK_REBUILD_RATIO</code>. Spinning cubes do not change their bounds,
+ * so they never cause a refit.
+ * </p>
+ */
+public class CubeSet extends Mle3dSet
+{
+    /**
+     * The event posted when the view or projection matrix of a <code>CubeSet</code>
+     * changes. The call data is the Set.
+     */
+    public static final int MLE_CAMERA_CHANGED = 0x1001;
+
+    /**
+     * The event posted by <code>postPick()</code> when a pick hits a Role. The call
+     * data is the <code>PickResult</code>.
+     */
+    public static final int MLE_ROLE_PICKED = 0x1002;
+
+    /**
+     * The degradation of the pick hierarchy, relative to its cost when built, at
+     * which it is built again rather than refit.
+     */
+    public static final float PICK_REBUILD_RATIO = 1.5f;
+
+    /** The GL thread time spent uploading textures per frame, in nanoseconds. */
+    public static final long TEXTURE_UPLOAD_BUDGET = 2000000L;
+
+    // The names of the spans and counters recorded for each frame.
+    private static final int TRACE_RENDER = FlightRecorder.register("CubeSet.render");
+    private static final int TRACE_CULL = FlightRecorder.register("CubeSet.cull");
+    private static final int TRACE_CULLED = FlightRecorder.register("Roles culled");
+    private static final int TRACE_TRIANGLES = FlightRecorder.register("Triangles submitted");
+    private static final int TRACE_MODEL_REBUILDS = FlightRecorder.register("Model matrix rebuilds");
+    private static final int TRACE_MATRIX_MULTIPLIES = FlightRecorder.register("Matrix multiplies");
+    private static final int TRACE_PICK = FlightRecorder.register("CubeSet.pick");
+
+    // The cube Roles attached to this Set.
+    private final ArrayList<CubeRole> m_cubeRoles = new ArrayList<CubeRole>();
+
+    // The combined projection * view matrix for the current frame.
+    private final float[] m_viewProjectionMatrix = new float[16];
+
+    // The view frustum for the current frame.
+    private final Frustum m_frustum = new Frustum();
+
+    // The view and projection matrices for the current camera version.
+    private final float[] m_cameraView = new float[16];
+    private final float[] m_cameraProjection = new float[16];
+
+    // Incremented each time the view or projection matrix changes.
+    private volatile int m_cameraVersion = 0;
+
+    // The camera version the frustum was built from.
+    private int m_frustumVersion = 0;
+
+    // The number of Roles culled during the last frame.
+    private int m_numCulled = 0;
+
+    // The number of triangles submitted during the current and last frames.
+    private int m_trianglesSubmitted = 0;
+    private int m_lastTrianglesSubmitted = 0;
+
+    // The number of model matrix rebuilds and matrix multiplies during the current and last frames.
+    private int m_modelRebuilds = 0;
+    private int m_matrixMultiplies = 0;
+    private int m_lastModelRebuilds = 0;
+    private int m_lastMatrixMultiplies = 0;
+
+    // The hierarchy of Role bounds used for picking, guarded by m_cubeRoles.
+    private final Bvh m_pickTree = new Bvh();
+
+    // The Roles in the pick hierarchy, and the bounds version of each when it was last fit.
+    private CubeRole[] m_pickRoles = new CubeRole[0];
+    private int[] m_pickVersions = new int[0];
+
+    // Cleared when Roles are attached or detached, so the next pick builds the hierarchy.
+    private boolean m_pickTreeValid = false;
+
+    // The number of times the pick hierarchy has been built.
+    private int m_pickBuilds = 0;
+
+    // Set once the callback delivering picks to Actors is installed.
+    private boolean m_pickCallbackInstalled = false;
+
+    // Set once the callback delivering camera changes to Roles is installed.
+    private boolean m_cameraCallbackInstalled = false;
+
+    /**
+     * The default constructor.
+     */
+    public CubeSet()
+    {
+        super();
+    }
+
+    /* (non-Javadoc)
+     * @see com.wizzer.mle.parts.sets.Mle3dSet#attachRoles(com.wizzer.mle.runtime.core.IMleRole, com.wizzer.mle.runtime.core.IMleRole)
+     */
+    @Override
+    public void attachRoles(IMleRole parent, IMleRole child)
+        throws MleRuntimeException
+    {
+        super.attachRoles(parent, child);
+
+        if (child instanceof CubeRole)
+        {
+            synchronized (m_cubeRoles)
+            {
+                m_cubeRoles.add((CubeRole) child);
+                m_pickTreeValid = false;
+            }
+            RedrawTracker.getInstance().markDirty();
+        }
+    }
+
+    /**
+     * Stop culling the specified Role.
+     *
+     * @param role The Role to remove.
+     */
+    public void detachRole(CubeRole role)
+    {
+        synchronized (m_cubeRoles)
+        {
+            if (m_cubeRoles.remove(role))
+                m_pickTreeValid = false;
+        }
+        RedrawTracker.getInstance().markDirty();
+    }
+
+    /**
+     * Render the Set. GL resources are recreated if the context has been lost,
+     * textures that have finished loading are uploaded within
+     * <code>TEXTURE_UPLOAD_BUDGET</code>, and the attached Roles are culled
+     * prior to being drawn.
+     * <p>
+     * Each frame is reported to the <code>RedrawTracker</code>. The first frame
+     * after an idle period is not measured against the last frame before it.
+     * </p>
+     */
+    @Override
+    public void render()
+    {
+        long start = System.nanoTime();
+        if (RedrawTracker.getInstance().onFrame(start))
+        {
+            FlightRecorder.skipInterval();
+            QualityGovernor.getInstance().skipInterval();
+        }
+        FlightRecorder.onFrame(start);
+        FlightRecorder.begin(TRACE_RENDER);
+
+        // Recreate the GL resources first if the context was lost while paused.
+        IGl gl = Gl.getInstance();
+        GlResourceRegistry.getInstance().ensureContext(gl, Gl.getCurrentContext());
+        if (TextureManager.getInstance().upload(gl, TEXTURE_UPLOAD_BUDGET) > 0)
+            RedrawTracker.getInstance().markDirty();
+
+        m_trianglesSubmitted = 0;
+        m_modelRebuilds = 0;
+        m_matrixMultiplies = 0;
+        FlightRecorder.begin(TRACE_CULL);
+        cull();
+        FlightRecorder.end();
+        super.render();
+        m_lastTrianglesSubmitted = m_trianglesSubmitted;
+        m_lastModelRebuilds = m_modelRebuilds;
+        m_lastMatrixMultiplies = m_matrixMultiplies;
+
+        // Startup work deferred until the first frame may now run, and the
+        // latency of a resume is recorded.
+        StartupSequence.getInstance().onFrameRendered();
+
+        // Report the frame to the stress scene's measurements, and to the quality
+        // governor, which may change the shader tier or render scale of later frames.
+        long renderTime = System.nanoTime() - start;
+        StressMonitor.getInstance().onFrame(start, renderTime);
+        QualityGovernor.getInstance().onFrame(start, renderTime);
+
+        FlightRecorder.counter(TRACE_CULLED, m_numCulled);
+        FlightRecorder.counter(TRACE_TRIANGLES, m_lastTrianglesSubmitted);
+        FlightRecorder.counter(TRACE_MODEL_REBUILDS, m_lastModelRebuilds);
+        FlightRecorder.counter(TRACE_MATRIX_MULTIPLIES, m_lastMatrixMultiplies);
+        FlightRecorder.end();
+    }
+
+    /**
+     * Mark each attached cube Role as culled or visible, based on whether
+     * its bounds intersect the current view frustum. Visible Roles with
+     * levels of detail are told their projected size so that they can
+     * select a level.
+     */
+    protected void cull()
+    {
+        final float[] view = getViewMatrix();
+        final float[] projection = getProjectionMatrix();
+
+        // The frustum only needs to be rebuilt when the camera moves.
+        updateCameraVersion(view, projection);
+        if (m_frustumVersion != m_cameraVersion)
+        {
+            MatrixMath.multiply(m_viewProjectionMatrix, 0, projection, 0, view, 0);
+            m_matrixMultiplies++;
+            m_frustum.set(m_viewProjectionMatrix);
+            m_frustumVersion = m_cameraVersion;
+        }
+
+        int numCulled = 0;
+        synchronized (m_cubeRoles)
+        {
+            final int size = m_cubeRoles.size();
+            for (int i = 0; i < size; i++)
+            {
+                CubeRole role = m_cubeRoles.get(i);
+                Bounds bounds = role.getBounds();
+                boolean culled = ! m_frustum.intersects(bounds);
+                role.setCulled(culled);
+                if (culled)
+                    numCulled++;
+                else if (role.getLodChain() != null)
+                    role.selectLod(getScreenSize(bounds, view, projection));
+            }
+        }
+        m_numCulled = numCulled;
+    }
+
+    /**
+     * Look for a camera change made since the last frame. A frame makes the same
+     * check, but no frame is drawn while the scene is idle, so the main loop
+     * calls this each tick to wake the surface when the camera moves.
+     *
+     * @return <b>true</b> is returned if the camera has changed.
+     */
+    public boolean checkCamera()
+    {
+        float[] view = getViewMatrix();
+        float[] projection = getProjectionMatrix();
+        if ((view == null) || (projection == null))
+            return false;
+        return updateCameraVersion(view, projection);
+    }
+
+    /*
+     * Compare the view and projection matrices with those of the current camera
+     * version. If either has changed, start a new version and notify the Roles.
+     *
+     * @return <b>true</b> is returned if the camera has changed.
+     */
+    private synchronized boolean updateCameraVersion(float[] view, float[] projection)
+    {
+        boolean changed = (m_cameraVersion == 0);
+        for (int i = 0; (i < 16) && ! changed; i++)
+            changed = (view[i] != m_cameraView[i]) || (projection[i] != m_cameraProjection[i]);
+        if (! changed) return false;
+
+        synchronized (m_cameraView)
+        {
+            System.arraycopy(view, 0, m_cameraView, 0, 16);
+            System.arraycopy(projection, 0, m_cameraProjection, 0, 16);
+            m_cameraVersion++;
+        }
+        RedrawTracker.getInstance().markDirty();
+        postCameraChanged();
+        return true;
+    }
+
+    /*
+     * Post a camera changed event. The event is delayed so that it is delivered on
+     * the main loop, rather than on the rendering thread.
+     */
+    private void postCameraChanged()
+    {
+        MleTitle title = MleTitle.getInstance();
+        if ((title == null) || (title.m_theDispatcher == null)) return;
+
+        try
+        {
+            installCameraCallback(title.m_theDispatcher);
+            title.m_theDispatcher.processEvent(MLE_CAMERA_CHANGED, this,
+                MleEventDispatcher.MLE_EVMGR_DELAYED);
+        } catch (MleRuntimeException ex)
+        {
+            Log.w(MleTitle.DEBUG_TAG, "CubeSet: Unable to post camera changed event.");
+        }
+    }
+
+    /*
+     * Install the callback that passes this Set's camera changes to its attached
+     * Roles.
+     */
+    private synchronized void installCameraCallback(MleEventDispatcher dispatcher)
+        throws MleRuntimeException
+    {
+        if (m_cameraCallbackInstalled) return;
+
+        dispatcher.installEventCB(MLE_CAMERA_CHANGED, new IMleEventCallback()
+        {
+            public boolean dispatch(MleEvent event, Object clientData)
+            {
+                // The call data identifies the Set whose camera changed.
+                if (event.getCallData() != CubeSet.this)
+                    return true;
+
+                CubeRole[] roles;
+                synchronized (m_cubeRoles)
+                {
+                    roles = m_cubeRoles.toArray(new CubeRole[m_cubeRoles.size()]);
+                }
+                for (CubeRole role : roles)
+                    role.updateCamera(CubeSet.this);
+                return true;
+            }
+        }, null);
+        m_cameraCallbackInstalled = true;
+    }
+
+    /**
+     * Compute the world-space ray through a point on the Set's viewport, using
+     * the current camera.
+     *
+     * @param x The x coordinate of the point, in pixels from the left.
+     * @param y The y coordinate of the point, in pixels from the top.
+     * @param width The width of the viewport, in pixels.
+     * @param height The height of the viewport, in pixels.
+     * @param origin An array of three values to receive the ray's origin, on the
+     * near clipping plane.
+     * @param direction An array of three values to receive the ray's unit direction.
+     *
+     * @return <b>true</b> is returned if the ray was computed; <b>false</b> is
+     * returned if the viewport is empty or the camera cannot be inverted.
+     */
+    public boolean getPickRay(float x, float y, int width, int height, float[] origin, float[] direction)
+    {
+        if ((width <= 0) || (height <= 0))
+            return false;
+
+        float[] view = new float[16];
+        float[] projection = new float[16];
+        float[] inverse = new float[16];
+        getCamera(view, projection);
+        MatrixMath.multiply(inverse, 0, projection, 0, view, 0);
+        if (! MatrixMath.invert(inverse, 0, inverse, 0))
+            return false;
+
+        // Unproject the point on the near and far planes.
+        float ndcX = ((2.0f * x) / width) - 1.0f;
+        float ndcY = 1.0f - ((2.0f * y) / height);
+        float[] near = new float[3];
+        float[] far = new float[3];
+        if (! unproject(inverse, ndcX, ndcY, -1.0f, near) || ! unproject(inverse, ndcX, ndcY, 1.0f, far))
+            return false;
+
+        float dx = far[0] - near[0], dy = far[1] - near[1], dz = far[2] - near[2];
+        float length = (float) Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+        if (length == 0.0f)
+            return false;
+        System.arraycopy(near, 0, origin, 0, 3);
+        direction[0] = dx / length;
+        direction[1] = dy / length;
+        direction[2] = dz / length;
+        return true;
+    }
+
+    // Transform a point in normalized device coordinates to world space.
+    private static boolean unproject(float[] inverse, float x, float y, float z, float[] result)
+    {
+        float w = (inverse[3] * x) + (inverse[7] * y) + (inverse[11] * z) + inverse[15];
+        if (w == 0.0f)
+            return false;
+        result[0] = ((inverse[0] * x) + (inverse[4] * y) + (inverse[8] * z) + inverse[12]) / w;
+        result[1] = ((inverse[1] * x) + (inverse[5] * y) + (inverse[9] * z) + inverse[13]) / w;
+        result[2] = ((inverse[2] * x) + (inverse[6] * y) + (inverse[10] * z) + inverse[14]) / w;
+        return true;
+    }
+
+    /**
+     * Find the nearest Role under a point on the Set's viewport.
+     *
+     * @param x The x coordinate of the point, in pixels from the left.
+     * @param y The y coordinate of the point, in pixels from the top.
+     * @param width The width of the viewport, in pixels.
+     * @param height The height of the viewport, in pixels.
+     *
+     * @return The result is returned, or <b>null</b> if no Role is under the point.
+     */
+    public PickResult pick(float x, float y, int width, int height)
+    {
+        float[] origin = new float[3];
+        float[] direction = new float[3];
+        if (! getPickRay(x, y, width, height, origin, direction))
+            return null;
+        return pick(origin, direction);
+    }
+
+    /**
+     * Find the nearest Role whose bounds a world-space ray hits.
+     *
+     * @param origin The origin of the ray - (x, y, z).
+     * @param direction The direction of the ray - (x, y, z), of unit length.
+     *
+     * @return The result is returned, or <b>null</b> if the ray hits no Role.
+     */
+    public PickResult pick(float[] origin, float[] direction)
+    {
+        FlightRecorder.begin(TRACE_PICK);
+        try
+        {
+            synchronized (m_cubeRoles)
+            {
+                updatePickTree();
+                float[] distance = { Float.MAX_VALUE };
+                int item = m_pickTree.intersectRay(origin, direction, distance);
+                if (item < 0)
+                    return null;
+                return new PickResult(this, m_pickRoles[item], origin, direction, distance[0]);
+            }
+        } finally
+        {
+            FlightRecorder.end();
+        }
+    }
+
+    /*
+     * Bring the pick hierarchy up to date with the Roles' bounds. The caller
+     * holds the lock on m_cubeRoles.
+     */
+    private void updatePickTree()
+    {
+        final int size = m_cubeRoles.size();
+        if (! m_pickTreeValid)
+        {
+            m_pickRoles = m_cubeRoles.toArray(new CubeRole[size]);
+            m_pickVersions = new int[size];
+            Bounds[] bounds = new Bounds[size];
+            for (int i = 0; i < size; i++)
+            {
+                // Read the version first; a change made while reading the bounds is caught next time.
+                m_pickVersions[i] = m_pickRoles[i].getBoundsVersion();
+                bounds[i] = m_pickRoles[i].getBounds();
+            }
+            m_pickTree.build(bounds, size);
+            m_pickTreeValid = true;
+            m_pickBuilds++;
+            return;
+        }
+
+        boolean moved = false;
+        for (int i = 0; i < size; i++)
+        {
+            CubeRole role = m_pickRoles[i];
+            int version = role.getBoundsVersion();
+            if (version != m_pickVersions[i])
+            {
+                m_pickVersions[i] = version;
+                m_pickTree.update(i, role.getBounds());
+                moved = true;
+            }
+        }
+        if (! moved) return;
+
+        m_pickTree.refit();
+        if (m_pickTree.getDegradation() > PICK_REBUILD_RATIO)
+        {
+            m_pickTree.rebuild();
+            m_pickBuilds++;
+        }
+    }
+
+    /**
+     * Pick the nearest Role under a point on the Set's viewport and deliver the
+     * result to its Actor. The result is posted as a delayed
+     * <code>MLE_ROLE_PICKED</code> event, so the Actor receives it on the main
+     * loop through <code>IPickable.onPicked()</code>.
+     *
+     * @param x The x coordinate of the point, in pixels from the left.
+     * @param y The y coordinate of the point, in pixels from the top.
+     * @param width The width of the viewport, in pixels.
+     * @param height The height of the viewport, in pixels.
+     *
+     * @return <b>true</b> is returned if a Role was picked and the event posted.
+     */
+    public boolean postPick(float x, float y, int width, int height)
+    {
+        PickResult result = pick(x, y, width, height);
+        if (result == null)
+            return false;
+
+        MleTitle title = MleTitle.getInstance();
+        if ((title == null) || (title.m_theDispatcher == null))
+            return false;
+
+        try
+        {
+            installPickCallback(title.m_theDispatcher);
+            return title.m_theDispatcher.processEvent(MLE_ROLE_PICKED, result,
+                MleEventDispatcher.MLE_EVMGR_DELAYED);
+        } catch (MleRuntimeException ex)
+        {
+            Log.w(MleTitle.DEBUG_TAG, "CubeSet: Unable to post pick event.");
+            return false;
+        }
+    }
+
+    /*
+     * Install the callback that passes this Set's pick results to the picked
+     * Roles' Actors.
+     */
+    private synchronized void installPickCallback(MleEventDispatcher dispatcher)
+        throws MleRuntimeException
+    {
+        if (m_pickCallbackInstalled) return;
+
+        dispatcher.installEventCB(MLE_ROLE_PICKED, new IMleEventCallback()
+        {
+            public boolean dispatch(MleEvent event, Object clientData)
+            {
+                PickResult result = (PickResult) event.getCallData();
+                if (result.getSet() != CubeSet.this)
+                    return true;
+
+                MleActor actor = result.getActor();
+                if (actor instanceof IPickable)
+                    ((IPickable) actor).onPicked(result);
+                return true;
+            }
+        }, null);
+        m_pickCallbackInstalled = true;
+    }
+
+    /**
+     * Retrieve the number of times the pick hierarchy has been built, either
+     * because Roles were attached or detached or because refitting degraded it.
+     *
+     * @return The build count is returned.
+     */
+    public int getPickBuilds()
+    {
+        synchronized (m_cubeRoles)
+        {
+            return m_pickBuilds;
+        }
+    }
+
+    /**
+     * Retrieve the camera version. It starts at zero and is incremented each time
+     * the view or projection matrix changes.
+     *
+     * @return The version is returned.
+     */
+    public int getCameraVersion()
+    { return m_cameraVersion; }
+
+    /**
+     * Copy the view and projection matrices of the current camera version.
+     *
+     * @param view An array of sixteen values to receive the view matrix.
+     * @param projection An array of sixteen values to receive the projection matrix.
+     *
+     * @return The camera version of the copied matrices is returned.
+     */
+    public int getCamera(float[] view, float[] projection)
+    {
+        // Take the first version if the Set has not rendered yet.
+        if (m_cameraVersion == 0)
+            updateCameraVersion(getViewMatrix(), getProjectionMatrix());
+
+        synchronized (m_cameraView)
+        {
+            System.arraycopy(m_cameraView, 0, view, 0, 16);
+            System.arraycopy(m_cameraProjection, 0, projection, 0, 16);
+            return m_cameraVersion;
+        }
+    }
+
+    /**
+     * Compute the projected size of a bounding sphere.
+     *
+     * @param bounds The world-space bounds.
+     * @param view The view matrix.
+     * @param projection The projection matrix.
+     *
+     * @return The projected diameter as a fraction of the viewport height is returned.
+     */
+    public static float getScreenSize(Bounds bounds, float[] view, float[] projection)
+    {
+        // Distance in front of the eye; the camera looks down -z.
+        float depth = -((view[2] * bounds.m_center[0]) + (view[6] * bounds.m_center[1])
+            + (view[10] * bounds.m_center[2]) + view[14]);
+        if (depth <= bounds.m_radius)
+            return Float.MAX_VALUE;
+        return (bounds.m_radius * projection[5]) / depth;
+    }
+
+    /**
+     * Record triangles submitted by a Role during the current frame.
+     *
+     * @param count The number of triangles drawn.
+     */
+    public void addTrianglesSubmitted(int count)
+    { m_trianglesSubmitted += count; }
+
+    /**
+     * Record matrix work performed by a Role during the current frame.
+     *
+     * @param rebuilds The number of model matrices rebuilt.
+     * @param multiplies The number of 4x4 matrix multiplies.
+     */
+    public void addMatrixOps(int rebuilds, int multiplies)
+    {
+        m_modelRebuilds += rebuilds;
+        m_matrixMultiplies += multiplies;
+    }
+
+    /**
+     * Retrieve the number of model matrices rebuilt during the last frame.
+     *
+     * @return The rebuild count is returned.
+     */
+    public int getModelRebuilds()
+    { return m_lastModelRebuilds; }
+
+    /**
+     * Retrieve the number of 4x4 matrix multiplies performed during the last frame,
+     * including the shared projection * view product.
+     *
+     * @return The multiply count is returned.
+     */
+    public int getMatrixMultiplies()
+    { return m_lastMatrixMultiplies; }
+
+    /**
+     * Retrieve projection * view for the current frame. It is computed once per
+     * frame, before any Role is drawn.
+     *
+     * @return An array of sixteen values in column-major order is returned.
+     */
+    public float[] getViewProjectionMatrix()
+    { return m_viewProjectionMatrix; }
+
+    /**
+     * Retrieve the number of triangles submitted during the last frame.
+     *
+     * @return The triangle count is returned.
+     */
+    public int getTrianglesSubmitted()
+    { return m_lastTrianglesSubmitted; }
+
+    /**
+     * Retrieve the view frustum used to cull the last frame.
+     *
+     * @return The frustum is returned.
+     */
+    public Frustum getFrustum()
+    { return m_frustum; }
+
+    /**
+     * Retrieve the number of Roles culled during the last frame.
+     *
+     * @return The number of culled Roles is returned.
+     */
+    public int getNumCulled()
+    { return m_numCulled; }
+
+    /**
+     * Retrieve the number of cube Roles attached to this Set.
+     *
+     * @return The number of attached Roles is returned.
+     */
+    public int getNumRoles()
+    {
+        synchronized (m_cubeRoles)
+        {
+            return m_cubeRoles.size();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.sets;
+
+/**
+ * Implemented by Actors that respond to being picked.
+ * <p>
+ * When a pick made through <code>CubeSet.postPick()</code> hits a Role, the
+ * result is posted as a <code>MLE_ROLE_PICKED</code> event, and the event's
+ * callback passes it to the Role's Actor if the Actor implements this interface.
+ * </p>
+ *
+ * @see CubeSet#postPick(float, float, int, int)
+ */
+public interface IPickable
+{
+    /**
+     * Called on the main loop, while events are dispatched, when the Actor's
+     * Role has been picked.
+     *
+     * @param result The pick result.
+     */
+    public void onPicked(PickResult result);
+}
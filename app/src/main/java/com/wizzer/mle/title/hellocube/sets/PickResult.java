@@ -0,0 +1,91 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.sets;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleActor;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.roles.CubeRole;
+
+/**
+ * The Role hit by a pick, and where the pick ray hit it.
+ *
+ * @see CubeSet#pick(float[], float[])
+ */
+public class PickResult
+{
+    // The Set that was picked.
+    private final CubeSet m_set;
+
+    // The Role that was hit.
+    private final CubeRole m_role;
+
+    // The distance along the ray to the hit, and the hit point - (x, y, z).
+    private final float m_distance;
+    private final float[] m_point;
+
+    /**
+     * A constructor that initializes the result.
+     *
+     * @param set The Set that was picked.
+     * @param role The Role that was hit.
+     * @param origin The origin of the pick ray.
+     * @param direction The unit direction of the pick ray.
+     * @param distance The distance along the ray to the hit.
+     */
+    PickResult(CubeSet set, CubeRole role, float[] origin, float[] direction, float distance)
+    {
+        super();
+        m_set = set;
+        m_role = role;
+        m_distance = distance;
+        m_point = new float[] {
+            origin[0] + (direction[0] * distance),
+            origin[1] + (direction[1] * distance),
+            origin[2] + (direction[2] * distance) };
+    }
+
+    /**
+     * Retrieve the Set that was picked.
+     *
+     * @return The Set is returned.
+     */
+    public CubeSet getSet()
+    { return m_set; }
+
+    /**
+     * Retrieve the Role that was hit.
+     *
+     * @return The Role is returned.
+     */
+    public CubeRole getRole()
+    { return m_role; }
+
+    /**
+     * Retrieve the Actor of the Role that was hit.
+     *
+     * @return The Actor is returned, or <b>null</b> if the Role has none.
+     */
+    public MleActor getActor()
+    { return m_role.getActor(); }
+
+    /**
+     * Retrieve the distance from the ray's origin to the hit. The Roles are
+     * tested by their bounding spheres, so this is the distance to the sphere.
+     *
+     * @return The distance in world units is returned.
+     */
+    public float getDistance()
+    { return m_distance; }
+
+    /**
+     * Retrieve the world-space point where the ray hit.
+     *
+     * @return An array of three values - (x, y, z) - is returned.
+     */
+    public float[] getPoint()
+    { return m_point.clone(); }
+}
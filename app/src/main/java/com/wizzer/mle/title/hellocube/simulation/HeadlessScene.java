@@ -0,0 +1,304 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.simulation;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+import com.wizzer.mle.runtime.scheduler.MlePhase;
+import com.wizzer.mle.runtime.scheduler.MleScheduler;
+import com.wizzer.mle.runtime.scheduler.MleTask;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+import com.wizzer.mle.title.hellocube.math.Frustum;
+import com.wizzer.mle.title.hellocube.math.MatrixMath;
+import com.wizzer.mle.title.hellocube.roles.CubeRole;
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+import com.wizzer.mle.title.hellocube.trace.PhaseTracer;
+
+/**
+ * A scene that runs the title's simulation without an Activity or a Stage.
+ * <p>
+ * The scene builds the same six-phase scheduler and event dispatcher as
+ * <code>HelloCube</code>, binds each Actor to a <code>CubeRole</code> and
+ * registers the Actors' behaviors with its own Actor phase. Nothing is shared
+ * through <code>MleTitle</code>, so independent scenes may tick on different
+ * threads at the same time; a single scene must only be ticked by one thread.
+ * </p>
+ * <p>
+ * In place of the Set, the Set phase culls the Roles against a fixed camera,
+ * the work a <code>CubeSet</code> does before drawing. Nothing is drawn, so the
+ * Role and Stage phases only run the tasks others add to them.
+ * </p>
+ * <p>
+ * Each tick dispatches the delayed events and runs the scheduler once, as the
+ * title's main loop does. The time spent dispatching events and in each phase
+ * is accumulated; the phases are timed by a task added at the head of each one.
+ * When the <code>FlightRecorder</code> is enabled, each tick and phase is also
+ * recorded as a span.
+ * </p>
+ */
+public class HeadlessScene
+{
+    /** The index of the Actor phase. */
+    public static final int PHASE_ACTOR = 0;
+    /** The index of the Post Actor phase. */
+    public static final int PHASE_POST_ACTOR = 1;
+    /** The index of the Pre Role phase. */
+    public static final int PHASE_PRE_ROLE = 2;
+    /** The index of the Role phase. */
+    public static final int PHASE_ROLE = 3;
+    /** The index of the Set phase. */
+    public static final int PHASE_SET = 4;
+    /** The index of the Stage phase. */
+    public static final int PHASE_STAGE = 5;
+
+    /** The number of phases in the scheduler. */
+    public static final int NUM_PHASES = 6;
+
+    // The names of the phases, as created by HelloCube.
+    private static final String[] PHASE_NAMES = {
+        "Actor Phase", "Post Actor Phase", "Pre Role Phase", "Role Phase", "Set Phase", "Stage Phase"
+    };
+
+    // The camera: the stage's aspect ratio, looking down -z from the origin.
+    private static final float FIELD_OF_VIEW = 60.0f;
+    private static final float ASPECT_RATIO = 320.0f / 480.0f;
+    private static final float NEAR_PLANE = 1.0f;
+    private static final float FAR_PLANE = 100.0f;
+
+    // The name of the span recorded around each tick.
+    private static final int TRACE_TICK = FlightRecorder.register("HeadlessScene.tick");
+
+    // Records the time at which a phase starts.
+    private class PhaseMark implements Runnable
+    {
+        private final int m_phase;
+
+        PhaseMark(int phase)
+        { m_phase = phase; }
+
+        public void run()
+        { m_phaseStart[m_phase] = System.nanoTime(); }
+    }
+
+    // Culls the Roles against the camera.
+    private class Cull implements Runnable
+    {
+        public void run()
+        { cull(); }
+    }
+
+    // The scene's scheduler, phases and event dispatcher.
+    private final MleScheduler m_scheduler;
+    private final MlePhase[] m_phases = new MlePhase[NUM_PHASES];
+    private final MleEventDispatcher m_dispatcher;
+
+    // Records a FlightRecorder span for each phase.
+    private final PhaseTracer m_phaseTracer;
+
+    // The Actors and their Roles.
+    private final CubeActor[] m_actors;
+    private final CubeRole[] m_roles;
+
+    // The view frustum of the fixed camera.
+    private final Frustum m_frustum = new Frustum();
+
+    // The System.nanoTime() value at which each phase of the current tick started.
+    private final long[] m_phaseStart = new long[NUM_PHASES];
+
+    // The accumulated time spent in each phase and dispatching events, in nanoseconds.
+    private final long[] m_phaseTime = new long[NUM_PHASES];
+    private long m_eventTime = 0;
+
+    // The number of ticks run.
+    private long m_numTicks = 0;
+
+    // The number of Roles culled during the last tick.
+    private int m_numCulled = 0;
+
+    /**
+     * A constructor that builds the scene's scheduler and binds the specified
+     * Actors, whose properties must already be set, to new Roles.
+     *
+     * @param actors The Actors.
+     *
+     * @throws MleRuntimeException This exception is thrown if an Actor cannot be
+     * initialized.
+     */
+    public HeadlessScene(CubeActor[] actors)
+        throws MleRuntimeException
+    {
+        super();
+
+        // Create the scheduler, with a task marking the start of each phase.
+        m_scheduler = new MleScheduler(NUM_PHASES);
+        for (int i = 0; i < NUM_PHASES; i++)
+        {
+            m_phases[i] = new MlePhase(PHASE_NAMES[i]);
+            m_scheduler.addPhase(m_phases[i]);
+            m_scheduler.addTask(m_phases[i], new MleTask(new PhaseMark(i), "Mark " + PHASE_NAMES[i]));
+        }
+        m_phaseTracer = new PhaseTracer(m_scheduler, m_phases, PHASE_NAMES);
+        m_scheduler.addTask(m_phases[PHASE_SET], new MleTask(new Cull(), "Cull"));
+
+        // Create the event dispatcher.
+        m_dispatcher = new MleEventDispatcher();
+
+        // Set up the camera.
+        float[] projection = new float[MatrixMath.SIZE];
+        MatrixMath.setPerspective(projection, 0, FIELD_OF_VIEW, ASPECT_RATIO, NEAR_PLANE, FAR_PLANE);
+        m_frustum.set(projection);
+
+        // Bind the Actors to Roles, then initialize the Actors.
+        m_actors = actors.clone();
+        m_roles = new CubeRole[actors.length];
+        for (int i = 0; i < actors.length; i++)
+        {
+            // The Role constructor binds the Role to its Actor.
+            m_roles[i] = new CubeRole(actors[i]);
+            m_roles[i].init();
+            actors[i].init(m_scheduler, m_phases[PHASE_ACTOR]);
+        }
+    }
+
+    // Mark each Role as culled or visible.
+    private void cull()
+    {
+        int numCulled = 0;
+        for (CubeRole role : m_roles)
+        {
+            boolean culled = ! m_frustum.intersects(role.getBounds());
+            role.setCulled(culled);
+            if (culled)
+                numCulled++;
+        }
+        m_numCulled = numCulled;
+    }
+
+    /**
+     * Run one tick: dispatch the delayed events, then run each phase of the
+     * scheduler once.
+     */
+    public void tick()
+    {
+        FlightRecorder.begin(TRACE_TICK);
+        long start = System.nanoTime();
+        m_dispatcher.dispatchEvents();
+        m_eventTime += System.nanoTime() - start;
+
+        m_scheduler.run();
+        long end = System.nanoTime();
+        m_phaseTracer.finish();
+        FlightRecorder.end();
+
+        for (int i = 0; i < NUM_PHASES; i++)
+            m_phaseTime[i] += ((i + 1 < NUM_PHASES) ? m_phaseStart[i + 1] : end) - m_phaseStart[i];
+        m_numTicks++;
+    }
+
+    /**
+     * Run a number of ticks back to back.
+     *
+     * @param numTicks The number of ticks.
+     */
+    public void run(long numTicks)
+    {
+        for (long i = 0; i < numTicks; i++)
+            tick();
+    }
+
+    /**
+     * Remove the Actors' behaviors from the scheduler.
+     *
+     * @throws MleRuntimeException This exception is thrown if an Actor cannot
+     * be disposed.
+     */
+    public void dispose()
+        throws MleRuntimeException
+    {
+        for (CubeActor actor : m_actors)
+            actor.dispose();
+    }
+
+    /**
+     * Get the scene's scheduler.
+     *
+     * @return The scheduler is returned.
+     */
+    public MleScheduler getScheduler()
+    { return m_scheduler; }
+
+    /**
+     * Get a phase of the scene's scheduler, so that tasks may be added to it.
+     *
+     * @param phase The index of the phase, such as <code>PHASE_ROLE</code>.
+     *
+     * @return The phase is returned.
+     */
+    public MlePhase getPhase(int phase)
+    { return m_phases[phase]; }
+
+    /**
+     * Get the name of a phase.
+     *
+     * @param phase The index of the phase.
+     *
+     * @return The name is returned.
+     */
+    public static String getPhaseName(int phase)
+    { return PHASE_NAMES[phase]; }
+
+    /**
+     * Get the scene's event dispatcher.
+     *
+     * @return The dispatcher is returned.
+     */
+    public MleEventDispatcher getDispatcher()
+    { return m_dispatcher; }
+
+    /**
+     * Get the number of Actors in the scene.
+     *
+     * @return The number of Actors is returned.
+     */
+    public int getNumActors()
+    { return m_actors.length; }
+
+    /**
+     * Get the number of ticks run.
+     *
+     * @return The number of ticks is returned.
+     */
+    public long getNumTicks()
+    { return m_numTicks; }
+
+    /**
+     * Get the time spent in a phase, accumulated over every tick.
+     *
+     * @param phase The index of the phase.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getPhaseTime(int phase)
+    { return m_phaseTime[phase]; }
+
+    /**
+     * Get the time spent dispatching events, accumulated over every tick.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getEventTime()
+    { return m_eventTime; }
+
+    /**
+     * Get the number of Roles culled during the last tick.
+     *
+     * @return The number of culled Roles is returned.
+     */
+    public int getNumCulled()
+    { return m_numCulled; }
+}
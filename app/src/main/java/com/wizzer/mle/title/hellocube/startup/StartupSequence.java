@@ -0,0 +1,375 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.startup;
+
+// Import standard Java classes.
+import java.util.ArrayList;
+
+// Import Android classes.
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.resource.IResourceTask;
+
+/**
+ * Orchestrates and traces the title's startup.
+ * <p>
+ * Each startup step is bracketed by <code>begin()</code> and <code>end()</code>,
+ * which open a named <code>android.os.Trace</code> section, so the step shows
+ * up in systrace and Perfetto captures, and record the step's start and
+ * duration relative to <code>start()</code>. Steps that run on loader threads
+ * are traced by wrapping their tasks with <code>traced()</code>.
+ * </p>
+ * <p>
+ * Work that the first frame does not need is passed to <code>defer()</code>.
+ * When the Set renders its first frame it calls <code>onFirstFrame()</code>,
+ * which records the time to first frame, logs the recorded sections and posts
+ * the deferred steps to the UI thread.
+ * </p>
+ * <p>
+ * The Set calls <code>onFrameRendered()</code> after every frame, which takes
+ * care of the first frame and also measures the time from each later
+ * <code>onResume()</code> to the next frame, which includes recreating the GL
+ * resources if the context was lost while paused.
+ * </p>
+ */
+public class StartupSequence
+{
+    private static final String TAG = "titles-hellocube";
+
+    // A recorded section.
+    private static class Section
+    {
+        final String m_name;
+        final String m_thread;
+        final long m_startTime;
+        long m_endTime = 0;
+
+        Section(String name, long startTime)
+        {
+            m_name = name;
+            m_thread = Thread.currentThread().getName();
+            m_startTime = startTime;
+        }
+    }
+
+    // A step deferred until after the first frame.
+    private static class DeferredStep
+    {
+        final String m_name;
+        final Runnable m_step;
+
+        DeferredStep(String name, Runnable step)
+        {
+            m_name = name;
+            m_step = step;
+        }
+    }
+
+    // The singleton instance.
+    private static StartupSequence g_theSequence = null;
+
+    // The sections, in the order they began.
+    private final ArrayList<Section> m_sections = new ArrayList<Section>();
+
+    // The sections open on each thread, innermost last.
+    private final ThreadLocal<ArrayList<Section>> m_open = new ThreadLocal<ArrayList<Section>>()
+    {
+        @Override
+        protected ArrayList<Section> initialValue()
+        {
+            return new ArrayList<Section>();
+        }
+    };
+
+    // The steps waiting for the first frame.
+    private final ArrayList<DeferredStep> m_deferred = new ArrayList<DeferredStep>();
+
+    // The System.nanoTime() values at which startup began and the first frame was rendered.
+    private long m_startTime = 0;
+    private long m_firstFrameTime = 0;
+
+    // Set once the first frame has been rendered.
+    private volatile boolean m_firstFrame = false;
+
+    // The System.nanoTime() value of the last resume, and the latency of the last resume to its first frame.
+    private long m_resumeTime = 0;
+    private long m_resumeLatency = -1;
+
+    // Set from a resume until the next frame is rendered.
+    private volatile boolean m_resumePending = false;
+
+    // Hide default constructor.
+    private StartupSequence()
+    {
+        super();
+    }
+
+    /**
+     * Get the startup sequence.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized StartupSequence getInstance()
+    {
+        if (g_theSequence == null)
+            g_theSequence = new StartupSequence();
+        return g_theSequence;
+    }
+
+    /**
+     * Mark the start of startup, typically at the top of <code>onCreate()</code>.
+     * Any previously recorded sections are discarded.
+     */
+    public synchronized void start()
+    {
+        m_sections.clear();
+        m_startTime = System.nanoTime();
+        m_firstFrameTime = 0;
+        m_firstFrame = false;
+        m_resumeLatency = -1;
+        m_resumePending = false;
+    }
+
+    /**
+     * Begin a named section on the calling thread. Sections may nest, and must be
+     * ended on the thread that began them.
+     *
+     * @param name The name of the section.
+     */
+    public void begin(String name)
+    {
+        Trace.beginSection(name);
+        Section section = new Section(name, System.nanoTime());
+        m_open.get().add(section);
+        synchronized (this)
+        {
+            m_sections.add(section);
+        }
+    }
+
+    /**
+     * End the innermost section begun on the calling thread.
+     */
+    public void end()
+    {
+        ArrayList<Section> open = m_open.get();
+        if (open.isEmpty())
+            throw new IllegalStateException("StartupSequence: No section to end.");
+
+        Section section = open.remove(open.size() - 1);
+        synchronized (this)
+        {
+            section.m_endTime = System.nanoTime();
+        }
+        Trace.endSection();
+    }
+
+    /**
+     * Wrap a resource task so that it runs within a named section.
+     *
+     * @param name The name of the section.
+     * @param task The task.
+     *
+     * @return The wrapped task is returned.
+     */
+    public IResourceTask traced(final String name, final IResourceTask task)
+    {
+        return new IResourceTask()
+        {
+            public void load() throws Exception
+            {
+                begin(name);
+                try
+                {
+                    task.load();
+                } finally
+                {
+                    end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Defer a step until after the first frame. The step runs on the UI thread,
+     * within a section of the same name. If the first frame has already been
+     * rendered, the step is posted immediately.
+     *
+     * @param name The name of the step.
+     * @param step The step.
+     */
+    public void defer(String name, Runnable step)
+    {
+        DeferredStep deferred = new DeferredStep(name, step);
+        synchronized (this)
+        {
+            if (! m_firstFrame)
+            {
+                m_deferred.add(deferred);
+                return;
+            }
+        }
+        post(deferred);
+    }
+
+    // Run a deferred step on the UI thread.
+    private void post(final DeferredStep deferred)
+    {
+        new Handler(Looper.getMainLooper()).post(new Runnable()
+        {
+            public void run()
+            {
+                begin(deferred.m_name);
+                try
+                {
+                    deferred.m_step.run();
+                } finally
+                {
+                    end();
+                }
+            }
+        });
+    }
+
+    /**
+     * Called when the first frame has been rendered. The first call records the
+     * time to first frame, logs the startup sections and releases the deferred
+     * steps; later calls do nothing.
+     */
+    public void onFirstFrame()
+    {
+        DeferredStep[] deferred;
+        synchronized (this)
+        {
+            if (m_firstFrame)
+                return;
+            m_firstFrameTime = System.nanoTime();
+            m_firstFrame = true;
+            deferred = m_deferred.toArray(new DeferredStep[m_deferred.size()]);
+            m_deferred.clear();
+        }
+
+        Log.i(TAG, "Startup:\n" + getSummary());
+        for (DeferredStep step : deferred)
+            post(step);
+    }
+
+    /**
+     * Called when the title is resumed, after <code>Mle3dStage.resume()</code>.
+     * Resumes before the first frame are part of startup and are ignored.
+     */
+    public synchronized void onResume()
+    {
+        if (! m_firstFrame)
+            return;
+        m_resumeTime = System.nanoTime();
+        m_resumePending = true;
+    }
+
+    /**
+     * Called each time a frame has been rendered. The first call is passed on to
+     * <code>onFirstFrame()</code>; the first call after each resume records and
+     * logs the time from the resume to the frame. Other calls only read two flags.
+     */
+    public void onFrameRendered()
+    {
+        if (! m_firstFrame)
+        {
+            onFirstFrame();
+            return;
+        }
+        if (! m_resumePending)
+            return;
+
+        long latency;
+        synchronized (this)
+        {
+            if (! m_resumePending)
+                return;
+            latency = System.nanoTime() - m_resumeTime;
+            m_resumeLatency = latency;
+            m_resumePending = false;
+        }
+        Log.i(TAG, "Resume to first frame: " + (latency / 1000L) + " us.");
+    }
+
+    /**
+     * Get the time from the last resume to the frame that followed it.
+     *
+     * @return The time in nanoseconds is returned, or -1 if no frame has been
+     * rendered after a resume.
+     */
+    public synchronized long getResumeLatency()
+    {
+        return m_resumeLatency;
+    }
+
+    /**
+     * Determine whether the first frame has been rendered.
+     *
+     * @return <b>true</b> will be returned once <code>onFirstFrame()</code> has been called.
+     */
+    public boolean isFirstFrameRendered()
+    {
+        return m_firstFrame;
+    }
+
+    /**
+     * Get the time from <code>start()</code> until the first frame was rendered.
+     *
+     * @return The time in nanoseconds is returned, or -1 if no frame has been rendered.
+     */
+    public synchronized long getTimeToFirstFrame()
+    {
+        return m_firstFrame ? (m_firstFrameTime - m_startTime) : -1;
+    }
+
+    /**
+     * Get the duration of a section. If the section ran more than once, the
+     * durations are summed.
+     *
+     * @param name The name of the section.
+     *
+     * @return The duration in nanoseconds is returned, or -1 if no such section has ended.
+     */
+    public synchronized long getSectionTime(String name)
+    {
+        long total = -1;
+        for (Section section : m_sections)
+        {
+            if (section.m_name.equals(name) && (section.m_endTime != 0))
+                total = Math.max(total, 0) + (section.m_endTime - section.m_startTime);
+        }
+        return total;
+    }
+
+    /**
+     * Summarize the sections, one per line with the thread it ran on, its start
+     * relative to <code>start()</code> and its duration, followed by the time to
+     * first frame.
+     *
+     * @return The summary is returned.
+     */
+    public synchronized String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Section section : m_sections)
+        {
+            summary.append(section.m_name).append(" [").append(section.m_thread).append("]: at ")
+                .append((section.m_startTime - m_startTime) / 1000L).append(" us, ");
+            if (section.m_endTime != 0)
+                summary.append((section.m_endTime - section.m_startTime) / 1000L).append(" us\n");
+            else
+                summary.append("running\n");
+        }
+        summary.append("first frame at ")
+            .append(m_firstFrame ? ((m_firstFrameTime - m_startTime) / 1000L) + " us" : "pending");
+        return summary.toString();
+    }
+}
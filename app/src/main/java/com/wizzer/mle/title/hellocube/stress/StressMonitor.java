@@ -0,0 +1,200 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.stress;
+
+/**
+ * Collects frame and tick times for the stress scene's measurement mode.
+ * <p>
+ * The Set reports the start and duration of each frame it renders, and the
+ * main loop the duration of each tick. While the monitor is stopped, reporting
+ * costs a single volatile read. Once started, the first <code>WARMUP_FRAMES</code>
+ * frames are discarded, so that a step is not charged for binding its cubes and
+ * warming up, and the step is complete after a further
+ * <code>MEASURED_FRAMES</code> frames.
+ * </p>
+ */
+public class StressMonitor
+{
+    /** The number of frames discarded at the start of a step. */
+    public static final int WARMUP_FRAMES = 60;
+    /** The number of frames measured in a step. */
+    public static final int MEASURED_FRAMES = 300;
+
+    // The singleton instance.
+    private static StressMonitor g_theMonitor = null;
+
+    // Set while measuring.
+    private volatile boolean m_active = false;
+
+    // The number of frames seen in the current step, including the warm up.
+    private int m_numFrames = 0;
+
+    // The start of the last frame, and the frame intervals and render times measured.
+    private long m_lastFrameStart = 0;
+    private long m_frameIntervalTotal = 0;
+    private long m_frameIntervalMax = 0;
+    private int m_numIntervals = 0;
+    private long m_renderTimeTotal = 0;
+    private long m_renderTimeMax = 0;
+
+    // The tick times measured.
+    private long m_tickTimeTotal = 0;
+    private long m_tickTimeMax = 0;
+    private int m_numTicks = 0;
+
+    // Hide default constructor.
+    private StressMonitor()
+    {
+        super();
+    }
+
+    /**
+     * Get the monitor.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized StressMonitor getInstance()
+    {
+        if (g_theMonitor == null)
+            g_theMonitor = new StressMonitor();
+        return g_theMonitor;
+    }
+
+    /**
+     * Start measuring a step, discarding the previous measurements.
+     */
+    public synchronized void start()
+    {
+        m_numFrames = 0;
+        m_lastFrameStart = 0;
+        m_frameIntervalTotal = 0;
+        m_frameIntervalMax = 0;
+        m_numIntervals = 0;
+        m_renderTimeTotal = 0;
+        m_renderTimeMax = 0;
+        m_tickTimeTotal = 0;
+        m_tickTimeMax = 0;
+        m_numTicks = 0;
+        m_active = true;
+    }
+
+    /**
+     * Stop measuring.
+     */
+    public void stop()
+    {
+        m_active = false;
+    }
+
+    /**
+     * Determine whether the monitor is measuring.
+     *
+     * @return <b>true</b> is returned between <code>start()</code> and <code>stop()</code>.
+     */
+    public boolean isActive()
+    {
+        return m_active;
+    }
+
+    /**
+     * Called by the Set after each frame.
+     *
+     * @param start The System.nanoTime() value at which the frame started.
+     * @param renderTime The time spent rendering the frame, in nanoseconds.
+     */
+    public void onFrame(long start, long renderTime)
+    {
+        if (! m_active)
+            return;
+
+        synchronized (this)
+        {
+            m_numFrames++;
+            if (m_numFrames > WARMUP_FRAMES)
+            {
+                if (m_lastFrameStart != 0)
+                {
+                    long interval = start - m_lastFrameStart;
+                    m_frameIntervalTotal += interval;
+                    m_frameIntervalMax = Math.max(m_frameIntervalMax, interval);
+                    m_numIntervals++;
+                }
+                m_renderTimeTotal += renderTime;
+                m_renderTimeMax = Math.max(m_renderTimeMax, renderTime);
+            }
+            m_lastFrameStart = start;
+        }
+    }
+
+    /**
+     * Called by the main loop after each tick.
+     *
+     * @param tickTime The time spent dispatching events and running the
+     * scheduler, in nanoseconds.
+     */
+    public void onTick(long tickTime)
+    {
+        if (! m_active)
+            return;
+
+        synchronized (this)
+        {
+            // Ticks during the warm up frames are discarded too.
+            if (m_numFrames > WARMUP_FRAMES)
+            {
+                m_tickTimeTotal += tickTime;
+                m_tickTimeMax = Math.max(m_tickTimeMax, tickTime);
+                m_numTicks++;
+            }
+        }
+    }
+
+    /**
+     * Determine whether the current step has been measured.
+     *
+     * @return <b>true</b> is returned once <code>MEASURED_FRAMES</code> frames
+     * have been measured.
+     */
+    public synchronized boolean isStepComplete()
+    {
+        return m_active && (m_numFrames >= (WARMUP_FRAMES + MEASURED_FRAMES));
+    }
+
+    /**
+     * Get the average frame interval of the current step.
+     *
+     * @return The interval in nanoseconds is returned, or 0 if none was measured.
+     */
+    public synchronized long getAverageFrameInterval()
+    {
+        return (m_numIntervals > 0) ? (m_frameIntervalTotal / m_numIntervals) : 0;
+    }
+
+    /**
+     * Get the average tick time of the current step.
+     *
+     * @return The time in nanoseconds is returned, or 0 if none was measured.
+     */
+    public synchronized long getAverageTickTime()
+    {
+        return (m_numTicks > 0) ? (m_tickTimeTotal / m_numTicks) : 0;
+    }
+
+    /**
+     * Summarize the measurements of the current step.
+     *
+     * @return The summary is returned.
+     */
+    public synchronized String getSummary()
+    {
+        int numFrames = Math.max(0, m_numFrames - WARMUP_FRAMES);
+        return "frame " + (getAverageFrameInterval() / 1000L) + " us avg, "
+            + (m_frameIntervalMax / 1000L) + " us max; render "
+            + ((numFrames > 0) ? (m_renderTimeTotal / numFrames) / 1000L : 0) + " us avg, "
+            + (m_renderTimeMax / 1000L) + " us max; tick "
+            + (getAverageTickTime() / 1000L) + " us avg, "
+            + (m_tickTimeMax / 1000L) + " us max over " + m_numTicks + " ticks";
+    }
+}
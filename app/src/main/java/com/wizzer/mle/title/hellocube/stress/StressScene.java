@@ -0,0 +1,301 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.stress;
+
+// Import standard Java classes.
+import java.util.Random;
+
+// Import Android classes.
+import android.os.Debug;
+import android.util.Log;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+
+import com.wizzer.mle.parts.sets.Mle3dSet;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+import com.wizzer.mle.title.hellocube.playprint.PlayprintLoader;
+import com.wizzer.mle.title.hellocube.props.ColorProperty;
+import com.wizzer.mle.title.hellocube.props.PositionProperty;
+import com.wizzer.mle.title.hellocube.props.RotationProperty;
+import com.wizzer.mle.title.hellocube.props.ScaleProperty;
+
+/**
+ * Spawns a configurable number of cube Actors and Roles to load the title.
+ * <p>
+ * The cubes are laid out in a grid facing the camera or scattered through a
+ * random field, each with a random spin axis and period, scale and color. They
+ * are created with the same properties, Roles and carriers as the playprint's
+ * Actors, so the scene exercises the title's regular update and render paths.
+ * The layout of the i'th cube depends only on the configuration, so the scene
+ * can grow without moving the cubes already spawned.
+ * </p>
+ * <p>
+ * In measurement mode the scene steps through a list of cube counts. At each
+ * count the <code>StressMonitor</code> collects frame and tick times, and once
+ * it has enough the scene logs them with the memory in use and grows to the
+ * next count. Stepping is driven by <code>update()</code>, which the main loop
+ * calls between ticks.
+ * </p>
+ */
+public class StressScene
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** Lay the cubes out in a square grid. */
+    public static final int LAYOUT_GRID = 0;
+    /** Scatter the cubes through a random field. */
+    public static final int LAYOUT_RANDOM = 1;
+
+    // The extent of the layouts, in world units around the camera axis.
+    private static final float GRID_EXTENT = 4.0f;
+    private static final float FIELD_EXTENT = 6.0f;
+
+    // The depth range of the layouts.
+    private static final float GRID_DEPTH = -8.0f;
+    private static final float FIELD_NEAR = -4.0f;
+    private static final float FIELD_FAR = -24.0f;
+
+    // The range of spin periods, in milliseconds.
+    private static final long MIN_SPIN_PERIOD = 2000L;
+    private static final long MAX_SPIN_PERIOD = 20000L;
+
+    // The bytes in a kilobyte.
+    private static final long KILOBYTE = 1024L;
+
+    // The layout and the seed of the random properties.
+    private final int m_layout;
+    private final long m_seed;
+
+    // The cube counts to step through; a single count unless measuring.
+    private final int[] m_counts;
+
+    // Set if the scene is measuring.
+    private final boolean m_measure;
+
+    // The number of cubes the layout is sized for, and the grid's side.
+    private final int m_maxCount;
+    private final int m_gridSide;
+
+    // The Set the cubes are attached to.
+    private Mle3dSet m_set = null;
+
+    // The number of cubes spawned, and the index of the current step.
+    private int m_numCubes = 0;
+    private int m_step = 0;
+
+    /**
+     * A constructor that configures the scene.
+     *
+     * @param counts The cube counts. The scene spawns the first count; in
+     * measurement mode it steps through the rest in turn.
+     * @param layout The layout, <code>LAYOUT_GRID</code> or <code>LAYOUT_RANDOM</code>.
+     * @param seed The seed of the random properties.
+     * @param measure <b>true</b> to measure each count.
+     */
+    public StressScene(int[] counts, int layout, long seed, boolean measure)
+    {
+        super();
+        if ((counts == null) || (counts.length == 0))
+            throw new IllegalArgumentException("StressScene: No cube counts.");
+        if ((layout != LAYOUT_GRID) && (layout != LAYOUT_RANDOM))
+            throw new IllegalArgumentException("StressScene: Invalid layout " + layout + ".");
+
+        int maxCount = 0;
+        for (int count : counts)
+        {
+            if (count < 0)
+                throw new IllegalArgumentException("StressScene: Invalid cube count " + count + ".");
+            maxCount = Math.max(maxCount, count);
+        }
+
+        m_counts = counts.clone();
+        m_layout = layout;
+        m_seed = seed;
+        m_measure = measure;
+        m_maxCount = maxCount;
+        m_gridSide = Math.max(1, (int) Math.ceil(Math.sqrt(maxCount)));
+    }
+
+    /**
+     * Parse the name of a layout.
+     *
+     * @param name The name, "grid" or "random".
+     *
+     * @return The layout is returned.
+     */
+    public static int parseLayout(String name)
+    {
+        if ("grid".equals(name))
+            return LAYOUT_GRID;
+        else if ("random".equals(name))
+            return LAYOUT_RANDOM;
+        throw new IllegalArgumentException("StressScene: Unknown layout " + name + ".");
+    }
+
+    /**
+     * Create the Actors of a range of cubes and set their properties. The
+     * Actors are not bound to Roles or initialized.
+     *
+     * @param first The index of the first cube.
+     * @param count The number of cubes.
+     *
+     * @return The Actors are returned.
+     */
+    public CubeActor[] createActors(int first, int count)
+    {
+        float[] vec3 = new float[3];
+        float[] vec4 = new float[4];
+
+        CubeActor[] actors = new CubeActor[count];
+        for (int i = 0; i < count; i++)
+        {
+            int index = first + i;
+            // Each cube has its own generator, so its properties do not depend on the others.
+            Random random = new Random(m_seed + (index * 0x9E3779B97F4A7C15L));
+            CubeActor actor = new CubeActor();
+
+            float size;
+            if (m_layout == LAYOUT_GRID)
+            {
+                float spacing = GRID_EXTENT / m_gridSide;
+                vec3[0] = (((index % m_gridSide) + 0.5f) * spacing) - (GRID_EXTENT * 0.5f);
+                vec3[1] = (((index / m_gridSide) + 0.5f) * spacing) - (GRID_EXTENT * 0.5f);
+                vec3[2] = GRID_DEPTH;
+                size = spacing * (0.2f + (random.nextFloat() * 0.15f));
+            } else
+            {
+                vec3[0] = (random.nextFloat() - 0.5f) * FIELD_EXTENT;
+                vec3[1] = (random.nextFloat() - 0.5f) * FIELD_EXTENT;
+                vec3[2] = FIELD_NEAR + (random.nextFloat() * (FIELD_FAR - FIELD_NEAR));
+                size = 0.05f + (random.nextFloat() * 0.25f);
+            }
+            actor.position = new PositionProperty();
+            actor.position.setProperty(vec3);
+
+            // A random axis; the angle is driven by the spin.
+            vec4[0] = 0.0f;
+            vec4[1] = random.nextFloat() - 0.5f;
+            vec4[2] = random.nextFloat() - 0.5f;
+            vec4[3] = random.nextFloat() - 0.5f;
+            actor.orientation = new RotationProperty();
+            actor.orientation.setProperty(vec4);
+            actor.setSpinPeriod(MIN_SPIN_PERIOD + (long) (random.nextFloat() * (MAX_SPIN_PERIOD - MIN_SPIN_PERIOD)));
+
+            vec3[0] = size;
+            vec3[1] = size;
+            vec3[2] = size;
+            actor.scale = new ScaleProperty();
+            actor.scale.setProperty(vec3);
+
+            vec4[0] = random.nextFloat();
+            vec4[1] = random.nextFloat();
+            vec4[2] = random.nextFloat();
+            vec4[3] = 1.0f;
+            actor.color = new ColorProperty();
+            actor.color.setProperty(vec4);
+
+            actors[i] = actor;
+        }
+        return actors;
+    }
+
+    /**
+     * Spawn the first count of cubes on a Set, starting over if the scene was
+     * spawned before. In measurement mode the <code>StressMonitor</code> is
+     * started.
+     *
+     * @param set The Set to attach the Roles to.
+     *
+     * @throws MleRuntimeException This exception is thrown if an Actor or Role
+     * cannot be initialized.
+     */
+    public void spawn(Mle3dSet set)
+        throws MleRuntimeException
+    {
+        m_set = set;
+        m_numCubes = 0;
+        m_step = 0;
+        growTo(m_counts[0]);
+        Log.i(TAG, "Stress scene: " + m_numCubes + " cubes, "
+            + ((m_layout == LAYOUT_GRID) ? "grid" : "random") + " layout, seed " + m_seed + ".");
+        if (m_measure)
+            StressMonitor.getInstance().start();
+    }
+
+    // Spawn cubes until there are the specified number.
+    private void growTo(int count)
+        throws MleRuntimeException
+    {
+        if (count <= m_numCubes)
+            return;
+        CubeActor[] actors = createActors(m_numCubes, count - m_numCubes);
+        PlayprintLoader.bind(actors, m_set);
+        m_numCubes = count;
+    }
+
+    /**
+     * Called by the main loop between ticks. In measurement mode, once the
+     * monitor has measured the current count, the measurement is logged and
+     * the scene grows to the next count; after the last count the monitor is
+     * stopped. Otherwise nothing is done.
+     *
+     * @throws MleRuntimeException This exception is thrown if an Actor or Role
+     * cannot be initialized.
+     */
+    public void update()
+        throws MleRuntimeException
+    {
+        if (! m_measure || (m_step >= m_counts.length))
+            return;
+
+        StressMonitor monitor = StressMonitor.getInstance();
+        if (! monitor.isStepComplete())
+            return;
+
+        Runtime runtime = Runtime.getRuntime();
+        long javaHeap = runtime.totalMemory() - runtime.freeMemory();
+        Log.i(TAG, "Stress " + m_numCubes + " cubes: " + monitor.getSummary()
+            + ", Java heap " + (javaHeap / KILOBYTE) + " KB, native heap "
+            + (Debug.getNativeHeapAllocatedSize() / KILOBYTE) + " KB.");
+
+        m_step++;
+        if (m_step < m_counts.length)
+        {
+            growTo(m_counts[m_step]);
+            monitor.start();
+        } else
+        {
+            monitor.stop();
+            Log.i(TAG, "Stress measurement complete.");
+        }
+    }
+
+    /**
+     * Get the number of cubes spawned.
+     *
+     * @return The number of cubes is returned.
+     */
+    public int getNumCubes()
+    { return m_numCubes; }
+
+    /**
+     * Get the largest cube count, which the layout is sized for.
+     *
+     * @return The count is returned.
+     */
+    public int getMaxCount()
+    { return m_maxCount; }
+
+    /**
+     * Determine whether the scene is measuring.
+     *
+     * @return <b>true</b> is returned until the last count has been measured.
+     */
+    public boolean isMeasuring()
+    { return m_measure && (m_step < m_counts.length); }
+}
@@ -0,0 +1,312 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.texture;
+
+// Import standard Java classes.
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes and decodes ETC1 compressed images.
+ * <p>
+ * ETC1 blocks are also valid <code>GL_COMPRESSED_RGB8_ETC2</code> blocks, so
+ * the output can be uploaded with either format. Each 4x4 block of pixels is
+ * stored in 64 bits as two sub-blocks, each with a base color and one of eight
+ * intensity modifier tables. The encoder tries both sub-block orientations,
+ * the individual and differential base color modes and every table, and keeps
+ * the combination with the least squared error. Alpha is not stored.
+ * </p>
+ */
+public class EtcCodec
+{
+    /** The size of an encoded block, in bytes. */
+    public static final int BLOCK_SIZE = 8;
+
+    // The intensity modifier tables; each pixel uses +small, +large, -small or -large.
+    private static final int[][] MODIFIERS = {
+        { 2, 8 }, { 5, 17 }, { 9, 29 }, { 13, 42 },
+        { 18, 60 }, { 24, 80 }, { 33, 106 }, { 47, 183 }
+    };
+
+    // Hide default constructor.
+    private EtcCodec() {}
+
+    /**
+     * Compute the size of an encoded image.
+     *
+     * @param width The image width.
+     * @param height The image height.
+     *
+     * @return The size in bytes is returned.
+     */
+    public static int getEncodedSize(int width, int height)
+    {
+        return ((width + 3) / 4) * ((height + 3) / 4) * BLOCK_SIZE;
+    }
+
+    /**
+     * Encode an image. Partial blocks at the right and bottom edges are padded by
+     * repeating the last column and row.
+     *
+     * @param rgba The pixels, four bytes (R, G, B, A) per pixel, row by row.
+     * @param width The image width.
+     * @param height The image height.
+     *
+     * @return A direct buffer holding the encoded blocks, row by row, is returned.
+     */
+    public static ByteBuffer encode(ByteBuffer rgba, int width, int height)
+    {
+        ByteBuffer out = ByteBuffer.allocateDirect(getEncodedSize(width, height)).order(ByteOrder.BIG_ENDIAN);
+        int[] block = new int[16 * 3];
+        int[] candidate = new int[2];
+
+        for (int by = 0; by < height; by += 4)
+        {
+            for (int bx = 0; bx < width; bx += 4)
+            {
+                // Gather the block; block[(x * 4 + y) * 3] is the pixel at column x, row y.
+                for (int x = 0; x < 4; x++)
+                {
+                    for (int y = 0; y < 4; y++)
+                    {
+                        int sx = Math.min(bx + x, width - 1);
+                        int sy = Math.min(by + y, height - 1);
+                        int source = ((sy * width) + sx) * 4;
+                        int target = ((x * 4) + y) * 3;
+                        block[target]     = rgba.get(source) & 0xFF;
+                        block[target + 1] = rgba.get(source + 1) & 0xFF;
+                        block[target + 2] = rgba.get(source + 2) & 0xFF;
+                    }
+                }
+                out.putLong(encodeBlock(block, candidate));
+            }
+        }
+        out.flip();
+        return out;
+    }
+
+    // Encode one block, trying both orientations and both base color modes.
+    private static long encodeBlock(int[] block, int[] candidate)
+    {
+        long best = 0;
+        long bestError = Long.MAX_VALUE;
+        int[] average = new int[6];
+        int[] bases = new int[6];
+        int[] tables = new int[2];
+        int[] indices = new int[16];
+
+        for (int flip = 0; flip < 2; flip++)
+        {
+            // The average color of each sub-block.
+            for (int s = 0; s < 2; s++)
+            {
+                int r = 0, g = 0, b = 0;
+                for (int p = 0; p < 16; p++)
+                {
+                    if (subBlock(p, flip) != s) continue;
+                    r += block[p * 3];
+                    g += block[(p * 3) + 1];
+                    b += block[(p * 3) + 2];
+                }
+                average[s * 3] = r;
+                average[(s * 3) + 1] = g;
+                average[(s * 3) + 2] = b;
+            }
+
+            for (int diff = 0; diff < 2; diff++)
+            {
+                // Quantize the base colors.
+                int levels = (diff == 1) ? 31 : 15;
+                for (int i = 0; i < 6; i++)
+                    bases[i] = Math.min(levels, (average[i] * levels + (8 * 255 / 2)) / (8 * 255));
+                if (diff == 1)
+                {
+                    boolean representable = true;
+                    for (int c = 0; c < 3; c++)
+                    {
+                        int delta = bases[3 + c] - bases[c];
+                        if ((delta < -4) || (delta > 3)) representable = false;
+                    }
+                    if (! representable) continue;
+                }
+
+                // Choose the best table for each sub-block.
+                long error = 0;
+                for (int s = 0; s < 2; s++)
+                {
+                    int r = expand(bases[s * 3], diff), g = expand(bases[(s * 3) + 1], diff), b = expand(bases[(s * 3) + 2], diff);
+                    long subBest = Long.MAX_VALUE;
+                    for (int t = 0; t < MODIFIERS.length; t++)
+                    {
+                        long subError = 0;
+                        for (int p = 0; p < 16; p++)
+                        {
+                            if (subBlock(p, flip) != s) continue;
+                            subError += selectModifier(block, p, r, g, b, t, candidate);
+                        }
+                        if (subError < subBest)
+                        {
+                            subBest = subError;
+                            tables[s] = t;
+                        }
+                    }
+                    error += subBest;
+                }
+                if (error >= bestError) continue;
+
+                // Record the pixel indices for the chosen tables.
+                for (int s = 0; s < 2; s++)
+                {
+                    int r = expand(bases[s * 3], diff), g = expand(bases[(s * 3) + 1], diff), b = expand(bases[(s * 3) + 2], diff);
+                    for (int p = 0; p < 16; p++)
+                    {
+                        if (subBlock(p, flip) != s) continue;
+                        selectModifier(block, p, r, g, b, tables[s], candidate);
+                        indices[p] = candidate[0];
+                    }
+                }
+
+                bestError = error;
+                best = pack(bases, diff, flip, tables, indices);
+            }
+        }
+        return best;
+    }
+
+    // The sub-block of a pixel; pixels are numbered x * 4 + y.
+    private static int subBlock(int pixel, int flip)
+    {
+        return (flip == 0) ? ((pixel >> 3) & 1) : ((pixel >> 1) & 1);
+    }
+
+    // Expand a quantized base color component to 8 bits.
+    private static int expand(int value, int diff)
+    {
+        return (diff == 1) ? ((value << 3) | (value >> 2)) : ((value << 4) | value);
+    }
+
+    // Choose the modifier for a pixel; candidate[0] receives the 2-bit index.
+    private static long selectModifier(int[] block, int pixel, int r, int g, int b, int table, int[] candidate)
+    {
+        long best = Long.MAX_VALUE;
+        for (int index = 0; index < 4; index++)
+        {
+            int modifier = modifier(table, index);
+            int dr = clamp(r + modifier) - block[pixel * 3];
+            int dg = clamp(g + modifier) - block[(pixel * 3) + 1];
+            int db = clamp(b + modifier) - block[(pixel * 3) + 2];
+            long error = (dr * dr) + (dg * dg) + (db * db);
+            if (error < best)
+            {
+                best = error;
+                candidate[0] = index;
+            }
+        }
+        return best;
+    }
+
+    // The modifier for a 2-bit pixel index.
+    private static int modifier(int table, int index)
+    {
+        int magnitude = MODIFIERS[table][index & 1];
+        return ((index & 2) != 0) ? -magnitude : magnitude;
+    }
+
+    // Clamp a color component to a byte.
+    private static int clamp(int value)
+    {
+        return (value < 0) ? 0 : ((value > 255) ? 255 : value);
+    }
+
+    // Assemble the 64-bit block.
+    private static long pack(int[] bases, int diff, int flip, int[] tables, int[] indices)
+    {
+        long high;
+        if (diff == 1)
+        {
+            high = ((long) bases[0] << 27) | ((long) ((bases[3] - bases[0]) & 7) << 24)
+                 | ((long) bases[1] << 19) | ((long) ((bases[4] - bases[1]) & 7) << 16)
+                 | ((long) bases[2] << 11) | ((long) ((bases[5] - bases[2]) & 7) << 8);
+        } else
+        {
+            high = ((long) bases[0] << 28) | ((long) bases[3] << 24)
+                 | ((long) bases[1] << 20) | ((long) bases[4] << 16)
+                 | ((long) bases[2] << 12) | ((long) bases[5] << 8);
+        }
+        high |= (tables[0] << 5) | (tables[1] << 2) | (diff << 1) | flip;
+
+        long low = 0;
+        for (int p = 0; p < 16; p++)
+        {
+            low |= (long) ((indices[p] >> 1) & 1) << (16 + p);
+            low |= (long) (indices[p] & 1) << p;
+        }
+        return (high << 32) | low;
+    }
+
+    /**
+     * Decode an image.
+     *
+     * @param blocks The encoded blocks, row by row.
+     * @param width The image width.
+     * @param height The image height.
+     *
+     * @return A direct buffer of RGBA pixels, with alpha set to 255, is returned.
+     */
+    public static ByteBuffer decode(ByteBuffer blocks, int width, int height)
+    {
+        ByteBuffer out = ByteBuffer.allocateDirect(width * height * 4);
+        ByteBuffer in = blocks.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int[] base = new int[6];
+
+        for (int by = 0; by < height; by += 4)
+        {
+            for (int bx = 0; bx < width; bx += 4)
+            {
+                long bits = in.getLong();
+                int high = (int) (bits >>> 32);
+                int low = (int) bits;
+                boolean diff = (high & 2) != 0;
+                int flip = high & 1;
+
+                for (int c = 0; c < 3; c++)
+                {
+                    int shift = 24 - (c * 8);
+                    if (diff)
+                    {
+                        int first = (high >>> (shift + 3)) & 0x1F;
+                        int delta = ((high >>> shift) & 7);
+                        if (delta > 3) delta -= 8;
+                        int second = first + delta;
+                        base[c] = (first << 3) | (first >> 2);
+                        base[3 + c] = ((second & 0x1F) << 3) | ((second & 0x1F) >> 2);
+                    } else
+                    {
+                        int first = (high >>> (shift + 4)) & 0xF;
+                        int second = (high >>> shift) & 0xF;
+                        base[c] = (first << 4) | first;
+                        base[3 + c] = (second << 4) | second;
+                    }
+                }
+                int[] tables = { (high >>> 5) & 7, (high >>> 2) & 7 };
+
+                for (int p = 0; p < 16; p++)
+                {
+                    int x = bx + (p >> 2), y = by + (p & 3);
+                    if ((x >= width) || (y >= height)) continue;
+                    int s = subBlock(p, flip);
+                    int index = (((low >>> (16 + p)) & 1) << 1) | ((low >>> p) & 1);
+                    int modifier = modifier(tables[s], index);
+                    int target = ((y * width) + x) * 4;
+                    out.put(target, (byte) clamp(base[s * 3] + modifier));
+                    out.put(target + 1, (byte) clamp(base[(s * 3) + 1] + modifier));
+                    out.put(target + 2, (byte) clamp(base[(s * 3) + 2] + modifier));
+                    out.put(target + 3, (byte) 255);
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,279 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.texture;
+
+// Import standard Java classes.
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A texture loaded by the <code>TextureManager</code>.
+ * <p>
+ * A texture is returned as soon as it is requested. Its image is decoded,
+ * mipmapped and optionally compressed on a loader thread; the texture is then
+ * <i>ready</i>, and the GL thread uploads it a level at a time within its
+ * per-frame budget. Once every level is uploaded, the texture is
+ * <i>uploaded</i>, its GL name may be bound, and its image is released if it
+ * was cached. If the GL context is lost the texture goes back to being ready,
+ * or loading while its image is read back from the cache, and is uploaded again.
+ * </p>
+ */
+public class Texture
+{
+    /** The image is being decoded. */
+    public static final int STATE_LOADING = 0;
+    /** The image is decoded and waiting to be uploaded. */
+    public static final int STATE_READY = 1;
+    /** The image is uploaded; the GL name may be bound. */
+    public static final int STATE_UPLOADED = 2;
+    /** The image could not be loaded. */
+    public static final int STATE_FAILED = 3;
+
+    // The name of the texture.
+    private final String m_name;
+    // The load state.
+    private volatile int m_state = STATE_LOADING;
+    // The decoded image; released once uploaded if it can be read back from the cache.
+    private volatile TextureImage m_image = null;
+    // The image properties, retained after the image is released.
+    private int m_format = TextureImage.FORMAT_RGBA8;
+    private int m_width = 0;
+    private int m_height = 0;
+    private int m_numLevels = 0;
+    private int m_sizeInBytes = 0;
+    // Whether the image was read from the cache.
+    private boolean m_fromCache = false;
+
+    // The cache file holding the image, with its format and the source's length and
+    // checksum; used to restore the image after the GL context is lost.
+    private volatile File m_cacheFile = null;
+    private int m_cacheFormat = TextureImage.FORMAT_RGBA8;
+    private long m_sourceLength = 0;
+    private long m_sourceChecksum = 0;
+
+    // The GL texture name; 0 until the upload starts.
+    int m_glName = 0;
+    // The next level to upload.
+    int m_nextLevel = 0;
+
+    // The System.nanoTime() values at which the texture was requested, ready and uploaded.
+    private final long m_requestTime;
+    private long m_readyTime = 0;
+    private long m_uploadedTime = 0;
+    // The time spent on the GL thread uploading the texture, in nanoseconds.
+    long m_uploadNanos = 0;
+
+    /**
+     * A constructor that initializes a requested texture.
+     *
+     * @param name The name of the texture.
+     */
+    Texture(String name)
+    {
+        super();
+        m_name = name;
+        m_requestTime = System.nanoTime();
+    }
+
+    // Called on the loader thread when the image is decoded.
+    void setImage(TextureImage image, boolean fromCache)
+    {
+        m_format = image.getFormat();
+        m_width = image.getWidth();
+        m_height = image.getHeight();
+        m_numLevels = image.getNumLevels();
+        m_sizeInBytes = image.getSizeInBytes();
+        m_fromCache = fromCache;
+        m_readyTime = System.nanoTime();
+        m_image = image;
+        m_state = STATE_READY;
+    }
+
+    // Called on the GL thread if the image must be replaced, for example decompressed.
+    void replaceImage(TextureImage image)
+    {
+        m_format = image.getFormat();
+        m_sizeInBytes = image.getSizeInBytes();
+        m_image = image;
+    }
+
+    // Called on the loader thread when the image is read from or written to the cache.
+    void setCacheFile(File file, int format, long sourceLength, long sourceChecksum)
+    {
+        m_cacheFormat = format;
+        m_sourceLength = sourceLength;
+        m_sourceChecksum = sourceChecksum;
+        m_cacheFile = file;
+    }
+
+    // Called on the GL thread when the last level is uploaded. The image is kept
+    // if there is no cache file to restore it from after a context loss.
+    void setUploaded()
+    {
+        m_uploadedTime = System.nanoTime();
+        if (m_cacheFile != null)
+            m_image = null;
+        m_state = STATE_UPLOADED;
+    }
+
+    // Called on the GL thread when the context is lost. The texture must be
+    // uploaded again, once its image is restored if it was released.
+    void setLost()
+    {
+        m_glName = 0;
+        m_nextLevel = 0;
+        m_state = (m_image != null) ? STATE_READY : STATE_LOADING;
+    }
+
+    // Called on the loader thread with the image read back from the cache.
+    void setRestored(TextureImage image)
+    {
+        m_image = image;
+        m_state = STATE_READY;
+    }
+
+    // Read the image back from the cache; null if the cache file is missing or stale.
+    TextureImage readCache()
+        throws IOException
+    {
+        File file = m_cacheFile;
+        if (file == null)
+            return null;
+        return TextureCache.read(file, m_cacheFormat, m_sourceLength, m_sourceChecksum);
+    }
+
+    // Called on the loader thread if the image cannot be loaded.
+    void setFailed()
+    {
+        m_state = STATE_FAILED;
+    }
+
+    // Get the decoded image; null once uploaded.
+    TextureImage getImage()
+    {
+        return m_image;
+    }
+
+    /**
+     * Get the name of the texture.
+     *
+     * @return The name, the resource entry name, is returned.
+     */
+    public String getName()
+    {
+        return m_name;
+    }
+
+    /**
+     * Get the load state.
+     *
+     * @return One of the <code>STATE_</code> constants is returned.
+     */
+    public int getState()
+    {
+        return m_state;
+    }
+
+    /**
+     * Get the GL texture name.
+     *
+     * @return The name is returned, or 0 if the texture has not been uploaded.
+     */
+    public int getGlName()
+    {
+        return (m_state == STATE_UPLOADED) ? m_glName : 0;
+    }
+
+    /**
+     * Get the image format.
+     *
+     * @return <code>TextureImage.FORMAT_RGBA8</code> or <code>TextureImage.FORMAT_ETC1</code>
+     * is returned. The value is meaningful once the texture is ready.
+     */
+    public int getFormat()
+    {
+        return m_format;
+    }
+
+    /**
+     * Get the width of the base level.
+     *
+     * @return The width in pixels is returned.
+     */
+    public int getWidth()
+    {
+        return m_width;
+    }
+
+    /**
+     * Get the height of the base level.
+     *
+     * @return The height in pixels is returned.
+     */
+    public int getHeight()
+    {
+        return m_height;
+    }
+
+    /**
+     * Get the number of mipmap levels.
+     *
+     * @return The number of levels is returned.
+     */
+    public int getNumLevels()
+    {
+        return m_numLevels;
+    }
+
+    /**
+     * Get the size of all levels.
+     *
+     * @return The size in bytes is returned.
+     */
+    public int getSizeInBytes()
+    {
+        return m_sizeInBytes;
+    }
+
+    /**
+     * Determine whether the image was read from the texture cache.
+     *
+     * @return <b>true</b> is returned if decoding was skipped.
+     */
+    public boolean isFromCache()
+    {
+        return m_fromCache;
+    }
+
+    /**
+     * Get the time from the request until the image was ready to upload.
+     *
+     * @return The latency in nanoseconds is returned, or -1 if the texture is not ready.
+     */
+    public long getLoadLatency()
+    {
+        return (m_readyTime != 0) ? (m_readyTime - m_requestTime) : -1;
+    }
+
+    /**
+     * Get the time from the request until the last level was uploaded.
+     *
+     * @return The latency in nanoseconds is returned, or -1 if the texture is not uploaded.
+     */
+    public long getTotalLatency()
+    {
+        return (m_uploadedTime != 0) ? (m_uploadedTime - m_requestTime) : -1;
+    }
+
+    /**
+     * Get the time spent on the GL thread uploading the texture, across all frames.
+     *
+     * @return The time in nanoseconds is returned.
+     */
+    public long getUploadTime()
+    {
+        return m_uploadNanos;
+    }
+}
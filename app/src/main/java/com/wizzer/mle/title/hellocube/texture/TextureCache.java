@@ -0,0 +1,204 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.texture;
+
+// Import standard Java classes.
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads and writes processed textures in a compact, versioned binary format
+ * that can be memory mapped.
+ * <p>
+ * The file starts with a fixed size header, followed by one blob per level,
+ * each aligned to 16 bytes:
+ * </p>
+ * <pre>
+ *   0  int    magic ('MLET')
+ *   4  int    format version
+ *   8  int    image format (TextureImage.FORMAT_)
+ *  12  int    width of level 0
+ *  16  int    height of level 0
+ *  20  int    number of levels
+ *  24  long   length of the source image
+ *  32  long   CRC-32 of the source image
+ *  64  int[2] level table, per level: offset, size
+ * 192         level blobs
+ * </pre>
+ * <p>
+ * The header is written in big endian order; the blobs are byte streams that
+ * are uploaded as they are. A file whose version, format or source checksum
+ * does not match is treated as stale.
+ * </p>
+ */
+public class TextureCache
+{
+    /** The file format magic number, "MLET". */
+    public static final int MAGIC = 0x4D4C4554;
+
+    /** The current file format version. */
+    public static final int VERSION = 1;
+
+    /** The maximum number of levels, enough for a 32768x32768 image. */
+    public static final int MAX_LEVELS = 16;
+
+    // The size of the header.
+    private static final int HEADER_SIZE = 192;
+
+    // The offset of the level table.
+    private static final int LEVEL_TABLE = 64;
+
+    // Hide default constructor.
+    private TextureCache() {}
+
+    // Round an offset up to a multiple of 16 bytes.
+    private static int align(int offset)
+    {
+        return (offset + 15) & ~15;
+    }
+
+    /**
+     * Write an image to a file. The file is written under a temporary name and
+     * renamed into place, so readers never observe a partial file.
+     *
+     * @param file The file to write.
+     * @param image The image.
+     * @param sourceLength The length of the source image.
+     * @param sourceChecksum The CRC-32 of the source image.
+     *
+     * @throws IOException This exception is thrown if the file cannot be written.
+     */
+    public static void write(File file, TextureImage image, long sourceLength, long sourceChecksum)
+        throws IOException
+    {
+        final int numLevels = image.getNumLevels();
+        if (numLevels > MAX_LEVELS)
+            throw new IOException("TextureCache: Too many levels.");
+
+        int[] offsets = new int[numLevels];
+        int offset = HEADER_SIZE;
+        for (int level = 0; level < numLevels; level++)
+        {
+            offsets[level] = offset;
+            offset = align(offset + image.getLevelSize(level));
+        }
+
+        ByteBuffer data = ByteBuffer.allocateDirect(offset).order(ByteOrder.BIG_ENDIAN);
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, image.getFormat());
+        data.putInt(12, image.getWidth());
+        data.putInt(16, image.getHeight());
+        data.putInt(20, numLevels);
+        data.putLong(24, sourceLength);
+        data.putLong(32, sourceChecksum);
+        for (int level = 0; level < numLevels; level++)
+        {
+            int size = image.getLevelSize(level);
+            data.putInt(LEVEL_TABLE + (level * 8), offsets[level]);
+            data.putInt(LEVEL_TABLE + (level * 8) + 4, size);
+
+            ByteBuffer source = image.getLevel(level).duplicate();
+            source.position(0);
+            source.limit(size);
+            data.position(offsets[level]);
+            data.put(source);
+        }
+
+        File parent = file.getParentFile();
+        if ((parent != null) && ! parent.isDirectory() && ! parent.mkdirs())
+            throw new IOException("TextureCache: Unable to create " + parent + ".");
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try
+        {
+            FileChannel channel = out.getChannel();
+            data.position(0);
+            while (data.hasRemaining())
+                channel.write(data);
+        } finally
+        {
+            out.close();
+        }
+
+        if (! temp.renameTo(file))
+        {
+            temp.delete();
+            throw new IOException("TextureCache: Unable to rename " + temp + ".");
+        }
+    }
+
+    /**
+     * Map an image file into memory.
+     *
+     * @param file The file to map.
+     * @param format The image format required, one of the <code>TextureImage.FORMAT_</code> constants.
+     * @param sourceLength The length of the current source image.
+     * @param sourceChecksum The CRC-32 of the current source image.
+     *
+     * @return An image whose levels are views of the mapped file is returned, or
+     * <b>null</b> if the file does not exist or is stale.
+     *
+     * @throws IOException This exception is thrown if the file cannot be read.
+     */
+    public static TextureImage read(File file, int format, long sourceLength, long sourceChecksum)
+        throws IOException
+    {
+        if (! file.isFile() || (file.length() < HEADER_SIZE))
+            return null;
+
+        MappedByteBuffer map;
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = in.getChannel();
+            // The mapping remains valid after the channel is closed.
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally
+        {
+            in.close();
+        }
+        map.order(ByteOrder.BIG_ENDIAN);
+
+        // Validate the header.
+        if ((map.getInt(0) != MAGIC) || (map.getInt(4) != VERSION) || (map.getInt(8) != format))
+            return null;
+        if ((map.getLong(24) != sourceLength) || (map.getLong(32) != sourceChecksum))
+            return null;
+
+        final int width = map.getInt(12);
+        final int height = map.getInt(16);
+        final int numLevels = map.getInt(20);
+        if ((width <= 0) || (height <= 0) || (numLevels < 1) || (numLevels > MAX_LEVELS)
+            || (numLevels > TextureImage.getMaxLevels(width, height)))
+            return null;
+
+        ByteBuffer[] levels = new ByteBuffer[numLevels];
+        for (int level = 0; level < numLevels; level++)
+        {
+            int offset = map.getInt(LEVEL_TABLE + (level * 8));
+            int size = map.getInt(LEVEL_TABLE + (level * 8) + 4);
+            if ((offset < HEADER_SIZE) || (size < 0) || ((offset + size) > map.capacity()))
+                return null;
+
+            ByteBuffer view = map.duplicate();
+            view.position(offset);
+            view.limit(offset + size);
+            levels[level] = view.slice();
+        }
+
+        TextureImage image = new TextureImage(format, width, height, levels);
+        for (int level = 0; level < numLevels; level++)
+            if (levels[level].capacity() != image.getLevelSize(level)) return null;
+        return image;
+    }
+}
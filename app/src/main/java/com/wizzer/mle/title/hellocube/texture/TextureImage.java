@@ -0,0 +1,268 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.texture;
+
+// Import standard Java classes.
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The pixels of a texture and its mipmap levels, held in CPU memory until they
+ * are uploaded.
+ * <p>
+ * Levels are stored either as 8-bit RGBA pixels or as ETC1 blocks. Level 0 is
+ * the full size image and each following level halves the width and height,
+ * down to 1x1.
+ * </p>
+ */
+public class TextureImage
+{
+    /** Uncompressed pixels, four bytes (R, G, B, A) per pixel. */
+    public static final int FORMAT_RGBA8 = 0;
+
+    /** ETC1 compressed blocks; see <code>EtcCodec</code>. */
+    public static final int FORMAT_ETC1 = 1;
+
+    /** The internal format of ETC1 textures defined by <code>OES_compressed_ETC1_RGB8_texture</code>. */
+    public static final int GL_ETC1_RGB8_OES = 0x8D64;
+
+    // The format of the levels.
+    private final int m_format;
+
+    // The size of level 0.
+    private final int m_width;
+    private final int m_height;
+
+    // The levels.
+    private final ByteBuffer[] m_levels;
+
+    /**
+     * Construct an image from existing levels.
+     *
+     * @param format One of the <code>FORMAT_</code> constants.
+     * @param width The width of level 0.
+     * @param height The height of level 0.
+     * @param levels The levels, starting with level 0.
+     */
+    public TextureImage(int format, int width, int height, ByteBuffer[] levels)
+    {
+        super();
+
+        if ((width <= 0) || (height <= 0) || (levels == null) || (levels.length == 0)
+            || (levels.length > getMaxLevels(width, height)))
+            throw new IllegalArgumentException("TextureImage: Invalid input arguments.");
+
+        m_format = format;
+        m_width = width;
+        m_height = height;
+        m_levels = levels;
+    }
+
+    /**
+     * Compute the number of levels in a full mipmap chain.
+     *
+     * @param width The width of level 0.
+     * @param height The height of level 0.
+     *
+     * @return The number of levels, down to 1x1, is returned.
+     */
+    public static int getMaxLevels(int width, int height)
+    {
+        int levels = 1;
+        int size = Math.max(width, height);
+        while (size > 1)
+        {
+            size >>= 1;
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Create an uncompressed image, optionally with a full chain of mipmaps. Each
+     * level is filtered from the one before it with a 2x2 box filter.
+     *
+     * @param rgba The level 0 pixels, four bytes per pixel, row by row.
+     * @param width The image width.
+     * @param height The image height.
+     * @param mipmaps <b>true</b> to generate mipmaps.
+     *
+     * @return The image is returned.
+     */
+    public static TextureImage fromRgba(ByteBuffer rgba, int width, int height, boolean mipmaps)
+    {
+        int numLevels = mipmaps ? getMaxLevels(width, height) : 1;
+        ByteBuffer[] levels = new ByteBuffer[numLevels];
+        levels[0] = rgba;
+
+        int w = width, h = height;
+        for (int level = 1; level < numLevels; level++)
+        {
+            int nw = Math.max(1, w >> 1), nh = Math.max(1, h >> 1);
+            levels[level] = downsample(levels[level - 1], w, h, nw, nh);
+            w = nw;
+            h = nh;
+        }
+        return new TextureImage(FORMAT_RGBA8, width, height, levels);
+    }
+
+    // Filter a level to half its size.
+    private static ByteBuffer downsample(ByteBuffer source, int width, int height, int newWidth, int newHeight)
+    {
+        ByteBuffer target = ByteBuffer.allocateDirect(newWidth * newHeight * 4).order(ByteOrder.nativeOrder());
+        for (int y = 0; y < newHeight; y++)
+        {
+            int y0 = Math.min(y * 2, height - 1), y1 = Math.min((y * 2) + 1, height - 1);
+            for (int x = 0; x < newWidth; x++)
+            {
+                int x0 = Math.min(x * 2, width - 1), x1 = Math.min((x * 2) + 1, width - 1);
+                for (int c = 0; c < 4; c++)
+                {
+                    int sum = (source.get((((y0 * width) + x0) * 4) + c) & 0xFF)
+                            + (source.get((((y0 * width) + x1) * 4) + c) & 0xFF)
+                            + (source.get((((y1 * width) + x0) * 4) + c) & 0xFF)
+                            + (source.get((((y1 * width) + x1) * 4) + c) & 0xFF);
+                    target.put((((y * newWidth) + x) * 4) + c, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Determine whether any level 0 pixel is not fully opaque. Only meaningful for
+     * uncompressed images.
+     *
+     * @return <b>true</b> will be returned if the image uses alpha.
+     */
+    public boolean hasAlpha()
+    {
+        if (m_format != FORMAT_RGBA8) return false;
+        ByteBuffer pixels = m_levels[0];
+        for (int i = 3; i < (m_width * m_height * 4); i += 4)
+            if ((pixels.get(i) & 0xFF) != 255) return true;
+        return false;
+    }
+
+    /**
+     * Compress every level with ETC1.
+     *
+     * @return A new compressed image is returned; this image is returned if it is
+     * already compressed.
+     */
+    public TextureImage compress()
+    {
+        if (m_format == FORMAT_ETC1) return this;
+
+        ByteBuffer[] levels = new ByteBuffer[m_levels.length];
+        for (int level = 0; level < m_levels.length; level++)
+            levels[level] = EtcCodec.encode(m_levels[level], getLevelWidth(level), getLevelHeight(level));
+        return new TextureImage(FORMAT_ETC1, m_width, m_height, levels);
+    }
+
+    /**
+     * Decompress every level.
+     *
+     * @return A new uncompressed image is returned; this image is returned if it is
+     * not compressed.
+     */
+    public TextureImage decompress()
+    {
+        if (m_format == FORMAT_RGBA8) return this;
+
+        ByteBuffer[] levels = new ByteBuffer[m_levels.length];
+        for (int level = 0; level < m_levels.length; level++)
+            levels[level] = EtcCodec.decode(m_levels[level], getLevelWidth(level), getLevelHeight(level));
+        return new TextureImage(FORMAT_RGBA8, m_width, m_height, levels);
+    }
+
+    /**
+     * Retrieve the format of the levels.
+     *
+     * @return One of the <code>FORMAT_</code> constants is returned.
+     */
+    public int getFormat()
+    { return m_format; }
+
+    /**
+     * Retrieve the width of level 0.
+     *
+     * @return The width in pixels is returned.
+     */
+    public int getWidth()
+    { return m_width; }
+
+    /**
+     * Retrieve the height of level 0.
+     *
+     * @return The height in pixels is returned.
+     */
+    public int getHeight()
+    { return m_height; }
+
+    /**
+     * Retrieve the number of levels.
+     *
+     * @return The level count is returned.
+     */
+    public int getNumLevels()
+    { return m_levels.length; }
+
+    /**
+     * Retrieve the data of a level.
+     *
+     * @param level The level.
+     *
+     * @return The level's pixels or blocks are returned.
+     */
+    public ByteBuffer getLevel(int level)
+    { return m_levels[level]; }
+
+    /**
+     * Retrieve the width of a level.
+     *
+     * @param level The level.
+     *
+     * @return The width in pixels is returned.
+     */
+    public int getLevelWidth(int level)
+    { return Math.max(1, m_width >> level); }
+
+    /**
+     * Retrieve the height of a level.
+     *
+     * @param level The level.
+     *
+     * @return The height in pixels is returned.
+     */
+    public int getLevelHeight(int level)
+    { return Math.max(1, m_height >> level); }
+
+    /**
+     * Retrieve the size of a level's data.
+     *
+     * @param level The level.
+     *
+     * @return The size in bytes is returned.
+     */
+    public int getLevelSize(int level)
+    {
+        int width = getLevelWidth(level), height = getLevelHeight(level);
+        return (m_format == FORMAT_ETC1) ? EtcCodec.getEncodedSize(width, height) : (width * height * 4);
+    }
+
+    /**
+     * Retrieve the total size of all levels.
+     *
+     * @return The size in bytes is returned.
+     */
+    public int getSizeInBytes()
+    {
+        int size = 0;
+        for (int level = 0; level < m_levels.length; level++)
+            size += getLevelSize(level);
+        return size;
+    }
+}
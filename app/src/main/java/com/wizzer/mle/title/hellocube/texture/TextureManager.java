@@ -0,0 +1,531 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.texture;
+
+// Import standard Java classes.
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+// Import Android classes.
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.opengl.GLES20;
+import android.util.Log;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.gl.GlResourceRegistry;
+import com.wizzer.mle.title.hellocube.gl.IGl;
+import com.wizzer.mle.title.hellocube.gl.IGlContextListener;
+import com.wizzer.mle.title.hellocube.render.RedrawTracker;
+
+/**
+ * The textures loaded from the title resources, keyed by resource name.
+ * <p>
+ * Loading is split so that the GL thread does as little as possible. A small
+ * pool of loader threads reads each image, decodes it, generates its mipmaps
+ * and, when compression is enabled and the image is opaque, compresses it with
+ * ETC1. When a cache directory is set, the result is stored in the
+ * <code>TextureCache</code> format and later loads map it instead of decoding,
+ * as long as the source's checksum is unchanged. The GL thread then calls
+ * <code>upload()</code> once per frame, which uploads ready textures a mipmap
+ * level at a time until its time budget is spent.
+ * </p>
+ * <p>
+ * The manager listens to the <code>GlResourceRegistry</code>. When the GL
+ * context is lost, uploaded textures are queued to be uploaded again: cached
+ * images are mapped again from the cache on a loader thread, and the images of
+ * textures that were not cached are kept in memory for this purpose.
+ * </p>
+ */
+public class TextureManager implements IGlContextListener
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** The extension required to upload ETC1 textures. */
+    public static final String ETC1_EXTENSION = "GL_OES_compressed_ETC1_RGB8_texture";
+
+    // The file name extensions of cached textures.
+    private static final String RGBA_CACHE_EXTENSION = ".rgba.mlt";
+    private static final String ETC1_CACHE_EXTENSION = ".etc1.mlt";
+
+    // The maximum number of loader threads.
+    private static final int MAX_LOADERS = 2;
+
+    // The singleton instance.
+    private static TextureManager g_theManager = null;
+
+    // The requested textures.
+    private final HashMap<String, Texture> m_textures = new HashMap<String, Texture>();
+
+    // The textures ready to upload, in the order they became ready.
+    private final ConcurrentLinkedQueue<Texture> m_ready = new ConcurrentLinkedQueue<Texture>();
+
+    // The texture partly uploaded by the previous frame; GL thread only.
+    private Texture m_uploading = null;
+
+    // The loader threads.
+    private final ExecutorService m_loaders;
+
+    // The directory holding cached textures; null disables caching.
+    private File m_cacheDir = null;
+
+    // Whether opaque textures are compressed.
+    private volatile boolean m_compression = false;
+
+    // Whether the GL context's extensions have been checked; GL thread only.
+    private boolean m_extensionsChecked = false;
+
+    // Hide default constructor.
+    private TextureManager()
+    {
+        super();
+
+        int numLoaders = Math.max(1, Math.min(MAX_LOADERS, Runtime.getRuntime().availableProcessors() - 1));
+        m_loaders = Executors.newFixedThreadPool(numLoaders, new ThreadFactory()
+        {
+            private int m_count = 0;
+
+            public synchronized Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "Texture Loader " + (m_count++));
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+
+        GlResourceRegistry.getInstance().addContextListener(this);
+    }
+
+    /**
+     * Get the manager.
+     *
+     * @return The singleton instance is returned.
+     */
+    public static synchronized TextureManager getInstance()
+    {
+        if (g_theManager == null)
+            g_theManager = new TextureManager();
+        return g_theManager;
+    }
+
+    /**
+     * Set the directory used to cache decoded textures.
+     *
+     * @param dir The directory, typically a subdirectory of the application's
+     * cache directory, or <b>null</b> to disable caching.
+     */
+    public synchronized void setCacheDirectory(File dir)
+    {
+        m_cacheDir = dir;
+    }
+
+    /**
+     * Enable or disable ETC1 compression of opaque textures. Compression is
+     * turned off again by the first <code>upload()</code> if the GL context does
+     * not support it.
+     *
+     * @param compression <b>true</b> to compress textures.
+     */
+    public void setCompression(boolean compression)
+    {
+        m_compression = compression;
+    }
+
+    /**
+     * Determine whether opaque textures are compressed.
+     *
+     * @return <b>true</b> will be returned if compression is enabled.
+     */
+    public boolean isCompression()
+    {
+        return m_compression;
+    }
+
+    /**
+     * Request a texture from a raw resource. The image is loaded on a loader
+     * thread; the texture is registered under the resource's entry name (for
+     * example, "wwlogo" for <code>R.raw.wwlogo</code>) and returned immediately.
+     *
+     * @param resources The title resources.
+     * @param id The raw resource identifier.
+     *
+     * @return The texture is returned. If it was already requested, the existing
+     * texture is returned.
+     */
+    public Texture load(final Resources resources, final int id)
+    {
+        final String name = resources.getResourceEntryName(id);
+        final Texture texture;
+        synchronized (this)
+        {
+            Texture existing = m_textures.get(name);
+            if (existing != null)
+                return existing;
+            texture = new Texture(name);
+            m_textures.put(name, texture);
+        }
+
+        m_loaders.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    InputStream in = resources.openRawResource(id);
+                    try
+                    {
+                        loadImage(texture, in);
+                    } finally
+                    {
+                        in.close();
+                    }
+                    m_ready.add(texture);
+                    RedrawTracker.getInstance().markDirty();
+                } catch (Exception ex)
+                {
+                    Log.w(TAG, "Unable to load texture " + name + ": " + ex.getMessage());
+                    texture.setFailed();
+                }
+            }
+        });
+        return texture;
+    }
+
+    // Load a texture's image, using the texture cache when it is valid. Called on a loader thread.
+    private void loadImage(Texture texture, InputStream in)
+        throws IOException
+    {
+        final String name = texture.getName();
+
+        // Read the source once; it is needed for the checksum and, on a miss, for decoding.
+        ByteArrayOutputStream source = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+        byte[] buffer = new byte[16 * 1024];
+        CRC32 crc = new CRC32();
+        int n;
+        while ((n = in.read(buffer)) > 0)
+        {
+            crc.update(buffer, 0, n);
+            source.write(buffer, 0, n);
+        }
+        long length = source.size();
+        long checksum = crc.getValue();
+
+        File cacheDir;
+        synchronized (this)
+        {
+            cacheDir = m_cacheDir;
+        }
+        boolean compression = m_compression;
+
+        if (cacheDir != null)
+        {
+            // Opaque images are cached compressed; images with alpha are always cached uncompressed.
+            if (compression)
+            {
+                File file = new File(cacheDir, name + ETC1_CACHE_EXTENSION);
+                TextureImage cached = readCache(file, TextureImage.FORMAT_ETC1, length, checksum);
+                if (cached != null)
+                {
+                    texture.setCacheFile(file, TextureImage.FORMAT_ETC1, length, checksum);
+                    texture.setImage(cached, true);
+                    return;
+                }
+            }
+            File file = new File(cacheDir, name + RGBA_CACHE_EXTENSION);
+            TextureImage cached = readCache(file, TextureImage.FORMAT_RGBA8, length, checksum);
+            if (cached != null)
+            {
+                texture.setCacheFile(file, TextureImage.FORMAT_RGBA8, length, checksum);
+                texture.setImage(cached, true);
+                return;
+            }
+        }
+
+        long start = System.nanoTime();
+        TextureImage image = decode(source.toByteArray());
+        long decoded = System.nanoTime();
+        if (compression && ! image.hasAlpha())
+            image = image.compress();
+        Log.i(TAG, "Decoded texture " + name + " (" + image.getWidth() + "x" + image.getHeight()
+            + ", " + image.getNumLevels() + " levels) in " + ((decoded - start) / 1000L)
+            + " us, compressed in " + ((System.nanoTime() - decoded) / 1000L) + " us.");
+
+        if (cacheDir != null)
+        {
+            String extension = (image.getFormat() == TextureImage.FORMAT_ETC1)
+                ? ETC1_CACHE_EXTENSION : RGBA_CACHE_EXTENSION;
+            File file = new File(cacheDir, name + extension);
+            try
+            {
+                TextureCache.write(file, image, length, checksum);
+                texture.setCacheFile(file, image.getFormat(), length, checksum);
+            } catch (IOException ex)
+            {
+                Log.w(TAG, "Unable to cache texture " + name + ": " + ex.getMessage());
+            }
+        }
+
+        texture.setImage(image, false);
+    }
+
+    // Read a cached image, ignoring unreadable files.
+    private static TextureImage readCache(File file, int format, long length, long checksum)
+    {
+        try
+        {
+            return TextureCache.read(file, format, length, checksum);
+        } catch (IOException ex)
+        {
+            Log.w(TAG, "Ignoring unreadable texture cache " + file + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    // Decode an encoded image (PNG, JPEG, ...) into RGBA pixels with a full mipmap chain.
+    private static TextureImage decode(byte[] source)
+        throws IOException
+    {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inPremultiplied = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap = BitmapFactory.decodeStream(new ByteArrayInputStream(source), null, options);
+        if (bitmap == null)
+            throw new IOException("TextureManager: Unable to decode image.");
+
+        try
+        {
+            final int width = bitmap.getWidth();
+            final int height = bitmap.getHeight();
+            // An ARGB_8888 bitmap is stored as R, G, B, A bytes.
+            ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+            bitmap.copyPixelsToBuffer(pixels);
+            pixels.rewind();
+            return TextureImage.fromRgba(pixels, width, height, true);
+        } finally
+        {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Retrieve a texture.
+     *
+     * @param name The name of the texture.
+     *
+     * @return The texture is returned, or <b>null</b> if it has not been requested.
+     */
+    public synchronized Texture get(String name)
+    {
+        return m_textures.get(name);
+    }
+
+    /**
+     * Upload ready textures. This must be called on the GL thread, typically
+     * once per frame. Levels are uploaded until the budget is spent; at least one
+     * level is uploaded per call while any are pending, so that every texture is
+     * eventually uploaded regardless of the budget.
+     *
+     * @param gl The GL backend.
+     * @param budget The time budget in nanoseconds.
+     *
+     * @return The number of levels uploaded is returned.
+     */
+    public int upload(IGl gl, long budget)
+    {
+        if ((m_uploading == null) && m_ready.isEmpty())
+            return 0;
+
+        final long start = System.nanoTime();
+        if (! m_extensionsChecked)
+        {
+            m_extensionsChecked = true;
+            String extensions = gl.glGetString(GLES20.GL_EXTENSIONS);
+            if (m_compression && ((extensions == null) || (extensions.indexOf(ETC1_EXTENSION) < 0)))
+            {
+                Log.w(TAG, "ETC1 textures are not supported; disabling texture compression.");
+                m_compression = false;
+            }
+        }
+
+        int numLevels = 0;
+        long now = start;
+        do
+        {
+            if (m_uploading == null)
+            {
+                m_uploading = m_ready.poll();
+                if (m_uploading == null)
+                    break;
+            }
+
+            final Texture texture = m_uploading;
+            final long levelStart = now;
+            uploadLevel(gl, texture);
+            numLevels++;
+            now = System.nanoTime();
+            texture.m_uploadNanos += now - levelStart;
+
+            if (texture.m_nextLevel == texture.getNumLevels())
+            {
+                texture.setUploaded();
+                m_uploading = null;
+                Log.i(TAG, "Uploaded texture " + texture.getName() + " (" + texture.getSizeInBytes()
+                    + " bytes" + (texture.isFromCache() ? ", cached" : "") + "): ready after "
+                    + (texture.getLoadLatency() / 1000L) + " us, uploaded after "
+                    + (texture.getTotalLatency() / 1000L) + " us, "
+                    + (texture.getUploadTime() / 1000L) + " us on the GL thread.");
+            }
+        } while ((now - start) < budget);
+
+        return numLevels;
+    }
+
+    // Upload the next level of a texture.
+    private void uploadLevel(IGl gl, Texture texture)
+    {
+        TextureImage image = texture.getImage();
+        if ((image.getFormat() == TextureImage.FORMAT_ETC1) && ! m_compression)
+        {
+            // Only reached if the context lacks ETC1 support and the image was
+            // compressed, or read compressed from the cache, before that was known.
+            image = image.decompress();
+            texture.replaceImage(image);
+        }
+
+        if (texture.m_glName == 0)
+        {
+            int[] names = new int[1];
+            gl.glGenTextures(1, names, 0);
+            texture.m_glName = names[0];
+        }
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, texture.m_glName);
+
+        final int level = texture.m_nextLevel;
+        final int width = image.getLevelWidth(level);
+        final int height = image.getLevelHeight(level);
+        ByteBuffer data = image.getLevel(level);
+        if (image.getFormat() == TextureImage.FORMAT_ETC1)
+            gl.glCompressedTexImage2D(GLES20.GL_TEXTURE_2D, level, TextureImage.GL_ETC1_RGB8_OES,
+                width, height, 0, image.getLevelSize(level), data);
+        else
+            gl.glTexImage2D(GLES20.GL_TEXTURE_2D, level, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, data);
+        texture.m_nextLevel++;
+
+        if (texture.m_nextLevel == image.getNumLevels())
+        {
+            int minFilter = (image.getNumLevels() > 1) ? GLES20.GL_LINEAR_MIPMAP_LINEAR : GLES20.GL_LINEAR;
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, minFilter);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        }
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * Queue every uploaded or partly uploaded texture to be uploaded again in the
+     * new context. Textures whose images were released are first read back from
+     * the cache on a loader thread. Called by the <code>GlResourceRegistry</code>
+     * on the GL thread.
+     *
+     * @param gl The GL backend.
+     */
+    public void onContextLost(IGl gl)
+    {
+        Texture[] textures;
+        synchronized (this)
+        {
+            textures = m_textures.values().toArray(new Texture[m_textures.size()]);
+        }
+        m_ready.clear();
+        m_uploading = null;
+        m_extensionsChecked = false;
+
+        int numRequeued = 0;
+        int numRestored = 0;
+        for (final Texture texture : textures)
+        {
+            // Loading textures are queued by their loader; failed ones have nothing to upload.
+            final int state = texture.getState();
+            if ((state == Texture.STATE_LOADING) || (state == Texture.STATE_FAILED))
+                continue;
+
+            texture.setLost();
+            numRequeued++;
+            if (texture.getState() == Texture.STATE_READY)
+            {
+                m_ready.add(texture);
+                continue;
+            }
+
+            numRestored++;
+            m_loaders.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        TextureImage image = texture.readCache();
+                        if (image == null)
+                            throw new IOException("TextureManager: Cached image is missing or stale.");
+                        texture.setRestored(image);
+                        m_ready.add(texture);
+                        RedrawTracker.getInstance().markDirty();
+                    } catch (IOException ex)
+                    {
+                        Log.w(TAG, "Unable to restore texture " + texture.getName() + ": " + ex.getMessage());
+                        texture.setFailed();
+                    }
+                }
+            });
+        }
+        Log.i(TAG, "Requeued " + numRequeued + " textures after a context loss, "
+            + numRestored + " read back from the cache.");
+    }
+
+    /**
+     * Forget every texture. This must be called on the GL thread; uploaded
+     * textures are deleted.
+     *
+     * @param gl The GL backend.
+     */
+    public void clear(IGl gl)
+    {
+        Texture[] textures;
+        synchronized (this)
+        {
+            textures = m_textures.values().toArray(new Texture[m_textures.size()]);
+            m_textures.clear();
+        }
+        m_ready.clear();
+        m_uploading = null;
+
+        int[] name = new int[1];
+        for (Texture texture : textures)
+        {
+            if (texture.m_glName != 0)
+            {
+                name[0] = texture.m_glName;
+                gl.glDeleteTextures(1, name, 0);
+                texture.m_glName = 0;
+            }
+        }
+    }
+}
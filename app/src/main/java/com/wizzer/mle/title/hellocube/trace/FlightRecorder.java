@@ -0,0 +1,487 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.trace;
+
+// Import standard Java classes.
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Import Android classes.
+import android.util.Log;
+
+/**
+ * A low-overhead flight recorder of spans and counters.
+ * <p>
+ * Each thread records into a ring buffer of its own, so recording takes no
+ * locks; when a ring is full its oldest events are overwritten, keeping the
+ * most recent few seconds of each thread. Spans are opened with
+ * <code>begin()</code> and closed with <code>end()</code> on the same thread,
+ * and counters sample a value with <code>counter()</code>. Names are
+ * registered once with <code>register()</code>, typically into a static
+ * field, so that recording does not allocate.
+ * </p>
+ * <p>
+ * While the recorder is disabled, which is the default, each call costs a
+ * single branch on a volatile flag.
+ * </p>
+ * <p>
+ * <code>dump()</code> writes the recorded window of every thread as a
+ * Chrome trace event JSON file, which chrome://tracing and the Perfetto UI
+ * open; <code>requestDump()</code> does so on a background thread. The Set
+ * reports each frame to <code>onFrame()</code>, so that a frame slower than
+ * the spike threshold dumps the window that led up to it.
+ * </p>
+ */
+public class FlightRecorder
+{
+    private static final String TAG = "titles-hellocube";
+
+    /** The number of events each thread's ring holds. */
+    public static final int RING_CAPACITY = 16384;
+
+    /** The default window of events written by a dump, in nanoseconds. */
+    public static final long DEFAULT_WINDOW = 5000000000L;
+
+    /** The default frame time above which a frame is a spike, in nanoseconds. */
+    public static final long DEFAULT_SPIKE_THRESHOLD = 50000000L;
+
+    // The minimum time between automatic dumps, in nanoseconds.
+    private static final long SPIKE_COOLDOWN = 10000000000L;
+
+    // The event types.
+    private static final int TYPE_BEGIN = 0;
+    private static final int TYPE_END = 1;
+    private static final int TYPE_COUNTER = 2;
+
+    // The number of longs per event: time, type and name, value.
+    private static final int EVENT_SIZE = 3;
+
+    // A thread's ring of events. Only the owning thread writes to it.
+    static final class Ring
+    {
+        final long[] m_events = new long[RING_CAPACITY * EVENT_SIZE];
+        final long m_threadId;
+        final String m_threadName;
+
+        // The owning thread, held weakly so that the ring does not keep it reachable.
+        final WeakReference<Thread> m_thread;
+
+        // The number of events written; the next event goes at this position modulo the capacity.
+        volatile long m_position = 0;
+
+        Ring(Thread thread)
+        {
+            m_threadId = thread.getId();
+            m_threadName = thread.getName();
+            m_thread = new WeakReference<Thread>(thread);
+        }
+
+        boolean isAlive()
+        {
+            Thread thread = m_thread.get();
+            return (thread != null) && thread.isAlive();
+        }
+
+        // The time of the newest event, or Long.MIN_VALUE if there is none. Only
+        // reliable once the owning thread has stopped.
+        long getLastTime()
+        {
+            long position = m_position;
+            if (position == 0)
+                return Long.MIN_VALUE;
+            return m_events[(int) ((position - 1) & (RING_CAPACITY - 1)) * EVENT_SIZE];
+        }
+
+        void put(int type, int name, long value)
+        {
+            long position = m_position;
+            int i = (int) (position & (RING_CAPACITY - 1)) * EVENT_SIZE;
+            m_events[i] = System.nanoTime();
+            m_events[i + 1] = ((long) type << 32) | name;
+            m_events[i + 2] = value;
+            m_position = position + 1;
+        }
+    }
+
+    // Set while recording.
+    private static volatile boolean g_enabled = false;
+
+    // The registered names, indexed by id.
+    private static final ArrayList<String> g_names = new ArrayList<String>();
+    private static final HashMap<String, Integer> g_nameIds = new HashMap<String, Integer>();
+
+    // The rings of every thread that has recorded. The ring of a thread that
+    // has stopped is kept until it has been dumped or its events have left the
+    // default window.
+    private static final CopyOnWriteArrayList<Ring> g_rings = new CopyOnWriteArrayList<Ring>();
+
+    // Each thread's ring.
+    private static final ThreadLocal<Ring> g_ring = new ThreadLocal<Ring>()
+    {
+        @Override
+        protected Ring initialValue()
+        {
+            Ring ring = new Ring(Thread.currentThread());
+            pruneRings(System.nanoTime() - DEFAULT_WINDOW);
+            g_rings.add(ring);
+            return ring;
+        }
+    };
+
+    // The dump directory, the spike threshold, the time of the last frame and dump,
+    // and whether a dump is being written.
+    private static File g_dumpDirectory = null;
+    private static long g_spikeThreshold = DEFAULT_SPIKE_THRESHOLD;
+    private static long g_lastFrame = 0;
+    private static long g_lastDump = 0;
+    private static boolean g_dumping = false;
+
+    // Hide default constructor.
+    private FlightRecorder() {}
+
+    /**
+     * Register the name of a span or counter.
+     *
+     * @param name The name.
+     *
+     * @return The id of the name is returned; registering a name twice returns the same id.
+     */
+    public static synchronized int register(String name)
+    {
+        Integer id = g_nameIds.get(name);
+        if (id == null)
+        {
+            id = g_names.size();
+            g_names.add(name);
+            g_nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Start or stop recording. Events already recorded are kept.
+     *
+     * @param enabled <b>true</b> to record.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        g_enabled = enabled;
+    }
+
+    /**
+     * Determine whether the recorder is recording.
+     *
+     * @return <b>true</b> is returned if it is.
+     */
+    public static boolean isEnabled()
+    {
+        return g_enabled;
+    }
+
+    /**
+     * Open a span on the calling thread.
+     *
+     * @param name The id of the span's name.
+     */
+    public static void begin(int name)
+    {
+        if (g_enabled)
+            g_ring.get().put(TYPE_BEGIN, name, 0);
+    }
+
+    /**
+     * Close the innermost span opened on the calling thread.
+     */
+    public static void end()
+    {
+        if (g_enabled)
+            g_ring.get().put(TYPE_END, 0, 0);
+    }
+
+    /**
+     * Sample a counter.
+     *
+     * @param name The id of the counter's name.
+     * @param value The value.
+     */
+    public static void counter(int name, long value)
+    {
+        if (g_enabled)
+            g_ring.get().put(TYPE_COUNTER, name, value);
+    }
+
+    /**
+     * Set the directory dumps are written into, and the frame time that causes
+     * a dump.
+     *
+     * @param directory The directory, or <b>null</b> to stop dumping automatically.
+     * @param threshold The frame time above which a frame is a spike, in nanoseconds.
+     */
+    public static synchronized void setDumpDirectory(File directory, long threshold)
+    {
+        g_dumpDirectory = directory;
+        g_spikeThreshold = threshold;
+    }
+
+    /**
+     * Called by the Set at the start of each frame. If the time since the last
+     * frame exceeds the spike threshold, the recorded window is dumped, at most
+     * once every ten seconds.
+     *
+     * @param start The System.nanoTime() value at which the frame started.
+     */
+    public static void onFrame(long start)
+    {
+        if (! g_enabled)
+            return;
+
+        long frameTime;
+        synchronized (FlightRecorder.class)
+        {
+            frameTime = (g_lastFrame != 0) ? (start - g_lastFrame) : 0;
+            g_lastFrame = start;
+            if ((frameTime <= g_spikeThreshold)
+                || ((g_lastDump != 0) && ((start - g_lastDump) < SPIKE_COOLDOWN)))
+                return;
+            g_lastDump = start;
+        }
+        requestDump("frame took " + (frameTime / 1000L) + " us");
+    }
+
+    /**
+     * Dump the last <code>DEFAULT_WINDOW</code> of events into the dump
+     * directory, on a background thread. Nothing is done if the recorder is
+     * disabled, has no dump directory or is already dumping.
+     *
+     * @param reason The reason for the dump, which is logged.
+     */
+    public static void requestDump(final String reason)
+    {
+        final File file;
+        synchronized (FlightRecorder.class)
+        {
+            if (! g_enabled || (g_dumpDirectory == null) || g_dumping)
+                return;
+            g_dumping = true;
+            file = new File(g_dumpDirectory, "trace-" + System.currentTimeMillis() + ".json");
+        }
+
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    file.getParentFile().mkdirs();
+                    int count = dump(file, DEFAULT_WINDOW);
+                    Log.i(TAG, "Dumped " + count + " trace events to " + file + "; " + reason + ".");
+                } catch (IOException ex)
+                {
+                    Log.w(TAG, "Unable to dump trace: " + ex.getMessage());
+                } finally
+                {
+                    synchronized (FlightRecorder.class)
+                    {
+                        g_dumping = false;
+                    }
+                }
+            }
+        }, "FlightRecorder");
+        thread.start();
+    }
+
+    /**
+     * Write the events recorded within a window ending now as a Chrome trace
+     * event JSON file. Recording continues during the dump. Ends of spans that
+     * began before the window are dropped; spans still open are left open.
+     *
+     * @param file The file to write.
+     * @param window The window, in nanoseconds.
+     *
+     * @return The number of events written is returned.
+     *
+     * @throws IOException This exception is thrown if the file cannot be written.
+     */
+    public static int dump(File file, long window)
+        throws IOException
+    {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try
+        {
+            return write(out, window);
+        } finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Write the events recorded within a window ending now as Chrome trace
+     * event JSON.
+     *
+     * @param out The writer.
+     * @param window The window, in nanoseconds.
+     *
+     * @return The number of events written is returned.
+     *
+     * @throws IOException This exception is thrown if the events cannot be written.
+     */
+    public static int write(Writer out, long window)
+        throws IOException
+    {
+        String[] names;
+        synchronized (FlightRecorder.class)
+        {
+            names = g_names.toArray(new String[g_names.size()]);
+        }
+
+        final long now = System.nanoTime();
+        final long cutoff = now - window;
+        int count = 0;
+        boolean first = true;
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        for (Ring ring : g_rings)
+        {
+            // Copy the ring, then drop the events that may have been overwritten
+            // while copying: those a full ring behind the position after the copy,
+            // including the one the writer may be overwriting now.
+            long end = ring.m_position;
+            long[] events = ring.m_events.clone();
+            long start = Math.max(0, (ring.m_position - RING_CAPACITY) + 1);
+
+            // Name the thread.
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":" + ring.m_threadId
+                + ",\"args\":{\"name\":" + quote(ring.m_threadName) + "}}");
+
+            int depth = 0;
+            StringBuilder event = new StringBuilder();
+            for (long position = start; position < end; position++)
+            {
+                int i = (int) (position & (RING_CAPACITY - 1)) * EVENT_SIZE;
+                long time = events[i];
+                int type = (int) (events[i + 1] >>> 32);
+                int name = (int) events[i + 1];
+                if (time < cutoff)
+                    continue;
+
+                event.setLength(0);
+                if (type == TYPE_BEGIN)
+                {
+                    depth++;
+                    event.append("{\"ph\":\"B\",\"name\":").append(quote(names[name]));
+                } else if (type == TYPE_END)
+                {
+                    // The span began before the window.
+                    if (depth == 0)
+                        continue;
+                    depth--;
+                    event.append("{\"ph\":\"E\"");
+                } else
+                {
+                    event.append("{\"ph\":\"C\",\"name\":").append(quote(names[name]))
+                        .append(",\"args\":{\"value\":").append(events[i + 2]).append('}');
+                }
+                event.append(",\"pid\":1,\"tid\":").append(ring.m_threadId).append(",\"ts\":");
+                appendMicroseconds(event, time);
+                event.append('}');
+
+                out.write(",\n");
+                out.write(event.toString());
+                count++;
+            }
+        }
+        out.write("\n]}\n");
+
+        // The rings of threads that have stopped have been written for the last time.
+        pruneRings(Long.MAX_VALUE);
+        return count;
+    }
+
+    // Drop the rings of threads that have stopped and recorded nothing since a time.
+    private static void pruneRings(long before)
+    {
+        for (Ring ring : g_rings)
+        {
+            if (! ring.isAlive() && (ring.getLastTime() < before))
+                g_rings.remove(ring);
+        }
+    }
+
+    /**
+     * Get the number of rings being kept, one for each thread that is
+     * recording or has recently recorded.
+     *
+     * @return The number of rings is returned.
+     */
+    static int getNumRings()
+    {
+        return g_rings.size();
+    }
+
+    // Append a System.nanoTime() value in microseconds, to the nanosecond.
+    private static void appendMicroseconds(StringBuilder out, long time)
+    {
+        out.append(time / 1000L).append('.');
+        long fraction = Math.abs(time % 1000L);
+        if (fraction < 100)
+            out.append('0');
+        if (fraction < 10)
+            out.append('0');
+        out.append(fraction);
+    }
+
+    // Quote a string for JSON.
+    private static String quote(String value)
+    {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if ((c == '"') || (c == '\\'))
+                quoted.append('\\').append(c);
+            else if (c < 0x20)
+                quoted.append(String.format("\\u%04x", (int) c));
+            else
+                quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Forget the start of the last frame, so that the next frame is not taken
+     * for a spike. Called when rendering resumes after an idle period.
+     */
+    public static synchronized void skipInterval()
+    {
+        g_lastFrame = 0;
+    }
+
+    /**
+     * Discard the events recorded by every thread. Only safe while nothing is
+     * recording.
+     */
+    public static void clear()
+    {
+        for (Ring ring : g_rings)
+            ring.m_position = 0;
+        synchronized (FlightRecorder.class)
+        {
+            g_lastFrame = 0;
+            g_lastDump = 0;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.trace;
+
+// Import Magic Lantern classes.
+import com.wizzer.mle.runtime.scheduler.MlePhase;
+import com.wizzer.mle.runtime.scheduler.MleScheduler;
+import com.wizzer.mle.runtime.scheduler.MleTask;
+
+/**
+ * Records a <code>FlightRecorder</code> span for each phase of a scheduler.
+ * <p>
+ * The scheduler runs its phases without notifying anyone, so a task is added at
+ * the head of each phase. It closes the span of the previous phase and opens
+ * the span of its own; <code>finish()</code> closes the last phase's span once
+ * the scheduler has run. The tracer must be installed before any other task is
+ * added to the phases.
+ * </p>
+ */
+public class PhaseTracer
+{
+    // Marks the start of a phase.
+    private static class PhaseMark implements Runnable
+    {
+        private final int m_name;
+        private final boolean m_first;
+
+        PhaseMark(int name, boolean first)
+        {
+            m_name = name;
+            m_first = first;
+        }
+
+        public void run()
+        {
+            if (! m_first)
+                FlightRecorder.end();
+            FlightRecorder.begin(m_name);
+        }
+    }
+
+    /**
+     * A constructor that installs a task at the head of each phase.
+     *
+     * @param scheduler The scheduler.
+     * @param phases The scheduler's phases, in the order they run.
+     * @param names The names of the phases.
+     */
+    public PhaseTracer(MleScheduler scheduler, MlePhase[] phases, String[] names)
+    {
+        super();
+        if (phases.length != names.length)
+            throw new IllegalArgumentException("PhaseTracer: Each phase needs a name.");
+
+        for (int i = 0; i < phases.length; i++)
+        {
+            PhaseMark mark = new PhaseMark(FlightRecorder.register(names[i]), i == 0);
+            scheduler.addTask(phases[i], new MleTask(mark, "Trace " + names[i]));
+        }
+    }
+
+    /**
+     * Close the span of the last phase. Called after the scheduler has run.
+     */
+    public void finish()
+    {
+        FlightRecorder.end();
+    }
+}
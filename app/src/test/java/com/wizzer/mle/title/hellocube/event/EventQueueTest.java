@@ -0,0 +1,158 @@
+package com.wizzer.mle.title.hellocube.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the lock-free event queue and its full-queue policies.
+ */
+public class EventQueueTest {
+    private static final int EVENT = 0x2001;
+    private static final int OTHER = 0x2002;
+
+    // Records the id and call data of each event.
+    private static class RecordingDispatcher extends MleEventDispatcher {
+        final List<Integer> m_ids = new ArrayList<Integer>();
+        final List<Object> m_data = new ArrayList<Object>();
+
+        @Override
+        public boolean processEvent(int id, Object callData, int type) {
+            m_ids.add(id);
+            m_data.add(callData);
+            return true;
+        }
+    }
+
+    @Test
+    public void fullQueue_dropsOldest() {
+        EventQueue queue = new EventQueue(4, EventQueue.POLICY_DROP_OLDEST);
+        for (int i = 0; i < 6; i++)
+            assertTrue(queue.post(EVENT, i));
+        assertEquals(4, queue.getDepth());
+        assertEquals(2, queue.getDropped());
+
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        assertEquals(4, queue.dispatch(dispatcher));
+        assertEquals(Arrays.<Object>asList(2, 3, 4, 5), dispatcher.m_data);
+        assertEquals(4, queue.getMaxDepth());
+        assertEquals(0, queue.getDepth());
+        assertEquals(0, queue.dispatch(dispatcher));
+    }
+
+    @Test
+    public void coalescedEvent_deliversLatestDataInFirstPostsPlace() {
+        EventQueue queue = new EventQueue(8, EventQueue.POLICY_BLOCK);
+        queue.setPolicy(EVENT, EventQueue.POLICY_COALESCE);
+        queue.post(EVENT, "a");
+        queue.post(OTHER, "x");
+        queue.post(EVENT, "b");
+        queue.post(EVENT, null);
+        assertEquals(2, queue.getDepth());
+        assertEquals(2, queue.getCoalesced());
+
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        assertEquals(2, queue.dispatch(dispatcher));
+        assertEquals(Arrays.asList(EVENT, OTHER), dispatcher.m_ids);
+        assertEquals(Arrays.<Object>asList(null, "x"), dispatcher.m_data);
+
+        // Once delivered, the next post takes a slot again.
+        queue.post(EVENT, "c");
+        assertEquals(1, queue.dispatch(dispatcher));
+        assertEquals("c", dispatcher.m_data.get(2));
+    }
+
+    @Test
+    public void blockingProducers_deliverEveryEventInOrder() throws Exception {
+        final int producers = 4;
+        final int posts = 20000;
+        final EventQueue queue = new EventQueue(64, EventQueue.POLICY_BLOCK);
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        // Make the test thread the consumer before the producers can fill the queue.
+        queue.dispatch(dispatcher);
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < posts; i++)
+                        queue.post(EVENT + producer, i);
+                }
+            };
+            threads[p].start();
+        }
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (dispatcher.m_ids.size() < producers * posts) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            queue.dispatch(dispatcher);
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        // Each producer's events arrive in the order it posted them.
+        int[] next = new int[producers];
+        for (int i = 0; i < dispatcher.m_ids.size(); i++) {
+            int producer = dispatcher.m_ids.get(i) - EVENT;
+            assertEquals(next[producer]++, ((Integer) dispatcher.m_data.get(i)).intValue());
+        }
+        assertEquals(0, queue.getDropped());
+        assertTrue(queue.getMaxDepth() <= 64);
+    }
+
+    @Test
+    public void coalescedEvent_keepsTheLastPostedDataWhileOthersAreDropped() throws Exception {
+        final int posts = 20000;
+        final EventQueue queue = new EventQueue(8, EventQueue.POLICY_DROP_OLDEST);
+        queue.setPolicy(EVENT, EventQueue.POLICY_COALESCE);
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        queue.dispatch(dispatcher);
+
+        // One thread keeps the queue full while another coalesces into its event.
+        final AtomicBoolean stop = new AtomicBoolean();
+        Thread flood = new Thread() {
+            public void run() {
+                while (! stop.get())
+                    queue.post(OTHER, null);
+            }
+        };
+        Thread producer = new Thread() {
+            public void run() {
+                for (int i = 0; i < posts; i++)
+                    queue.post(EVENT, i);
+            }
+        };
+        flood.start();
+        producer.start();
+
+        long deadline = System.currentTimeMillis() + 30000;
+        while (producer.isAlive()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            queue.dispatch(dispatcher);
+        }
+        stop.set(true);
+        flood.join();
+        while (queue.getDepth() > 0)
+            queue.dispatch(dispatcher);
+        assertTrue(queue.getDropped() > 0);
+
+        // The coalesced event's data only moves forward, and its last post is delivered.
+        int last = -1;
+        for (int i = 0; i < dispatcher.m_ids.size(); i++) {
+            if (dispatcher.m_ids.get(i) != EVENT)
+                continue;
+            int data = (Integer) dispatcher.m_data.get(i);
+            assertTrue(data > last);
+            last = data;
+        }
+        assertEquals(posts - 1, last);
+    }
+}
@@ -0,0 +1,184 @@
+package com.wizzer.mle.title.hellocube.gl;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GL resource registry, against the recording GL backend.
+ */
+public class GlResourceRegistryTest {
+    private static final String VERTEX = "attribute vec4 a_Position; void main() { gl_Position = a_Position; }";
+    private static final String FRAGMENT = "void main() { gl_FragColor = vec4(1.0); }";
+    private static final String[] ATTRIBUTES = { "a_Position", "a_Color" };
+
+    @Test
+    public void getProgram_sharesProgramsWithTheSameDescriptor() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        GlResourceRegistry registry = new GlResourceRegistry();
+        registry.ensureContext(gl, gl);
+
+        GlProgram first = registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES);
+        GlProgram second = registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES.clone());
+        GlProgram other = registry.getProgram(gl, VERTEX, FRAGMENT, new String[] { "a_Position" });
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, registry.getNumPrograms());
+        assertEquals(2, registry.getNumCompiled());
+        assertEquals(4, gl.getCallCount(RecordingGl.OP_COMPILE_SHADER));
+        assertEquals(1, first.getAttribLocation("a_Color"));
+        assertEquals(-1, other.getAttribLocation("a_Color"));
+    }
+
+    @Test
+    public void getProgram_retrievesBinaryAndCachesUniformLocations() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        GlResourceRegistry registry = new GlResourceRegistry();
+        registry.ensureContext(gl, gl);
+
+        GlProgram program = registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES);
+        assertTrue(program.hasBinary());
+        assertEquals(1, gl.getCallCount(RecordingGl.OP_GET_PROGRAM_BINARY));
+
+        int location = program.getUniformLocation(gl, "u_MVPMatrix");
+        assertEquals(location, program.getUniformLocation(gl, "u_MVPMatrix"));
+        assertEquals(1, gl.getCallCount(RecordingGl.OP_GET_UNIFORM_LOCATION));
+    }
+
+    @Test
+    public void ensureContext_isCheapWhileTheContextIsUnchanged() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        GlResourceRegistry registry = new GlResourceRegistry();
+        assertFalse(registry.ensureContext(gl, gl));
+        long calls = gl.getNumCalls();
+
+        assertFalse(registry.ensureContext(gl, gl));
+        assertEquals(calls, gl.getNumCalls());
+        assertEquals(1, registry.getGeneration());
+        assertEquals(-1, registry.getLastRecoveryTime());
+    }
+
+    @Test
+    public void lostContext_recreatesProgramsFromBinariesWithoutCompiling() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        GlResourceRegistry registry = new GlResourceRegistry();
+        final int[] notified = new int[1];
+        registry.addContextListener(new IGlContextListener() {
+            public void onContextLost(IGl gl) {
+                notified[0]++;
+            }
+        });
+        registry.ensureContext(gl, gl);
+        GlProgram program = registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES);
+
+        RecordingGl restored = new RecordingGl();
+        assertTrue(registry.ensureContext(restored, restored));
+        assertEquals(0, restored.getCallCount(RecordingGl.OP_COMPILE_SHADER));
+        assertEquals(1, restored.getCallCount(RecordingGl.OP_PROGRAM_BINARY));
+        assertEquals(1, registry.getNumCompiled());
+        assertEquals(1, registry.getNumLoadedFromBinary());
+        assertEquals(1, notified[0]);
+        assertEquals(2, registry.getGeneration());
+        assertTrue(registry.getLastRecoveryTime() >= 0);
+
+        // The program is usable in the new context under its new name.
+        assertNotEquals(0, program.getName());
+        assertSame(program, registry.getProgram(restored, VERTEX, FRAGMENT, ATTRIBUTES));
+        assertEquals(1, restored.glGetAttribLocation(program.getName(), "a_Color"));
+    }
+
+    @Test
+    public void rejectedBinary_fallsBackToCompiling() throws Exception {
+        File dir = newCacheDirectory();
+        try {
+            RecordingGl gl = new RecordingGl();
+            GlResourceRegistry registry = new GlResourceRegistry();
+            registry.setCacheDirectory(dir);
+            registry.ensureContext(gl, gl);
+            GlProgram program = registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES);
+            assertEquals(1, dir.listFiles().length);
+
+            RecordingGl updated = new RecordingGl();
+            updated.setRejectProgramBinaries(true);
+            assertTrue(registry.ensureContext(updated, updated));
+            assertEquals(1, updated.getCallCount(RecordingGl.OP_PROGRAM_BINARY));
+            assertEquals(2, updated.getCallCount(RecordingGl.OP_COMPILE_SHADER));
+            assertEquals(1, updated.getCallCount(RecordingGl.OP_DELETE_PROGRAM));
+            assertEquals(2, registry.getNumCompiled());
+            assertEquals(0, registry.getNumLoadedFromBinary());
+            assertEquals(1, updated.glGetAttribLocation(program.getName(), "a_Color"));
+
+            // The binary is retrieved again from the recompiled program.
+            assertTrue(program.hasBinary());
+            assertEquals(1, dir.listFiles().length);
+        } finally {
+            deleteCacheDirectory(dir);
+        }
+    }
+
+    @Test
+    public void freshRegistry_loadsTheCachedBinary() throws Exception {
+        File dir = newCacheDirectory();
+        try {
+            RecordingGl gl = new RecordingGl();
+            GlResourceRegistry registry = new GlResourceRegistry();
+            registry.setCacheDirectory(dir);
+            registry.ensureContext(gl, gl);
+            registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES);
+
+            // The next launch.
+            RecordingGl next = new RecordingGl();
+            GlResourceRegistry launched = new GlResourceRegistry();
+            launched.setCacheDirectory(dir);
+            launched.ensureContext(next, next);
+            GlProgram program = launched.getProgram(next, VERTEX, FRAGMENT, ATTRIBUTES);
+
+            assertEquals(0, next.getCallCount(RecordingGl.OP_COMPILE_SHADER));
+            assertEquals(1, next.getCallCount(RecordingGl.OP_PROGRAM_BINARY));
+            assertEquals(0, launched.getNumCompiled());
+            assertEquals(1, launched.getNumLoadedFromBinary());
+            assertEquals(1, next.glGetAttribLocation(program.getName(), "a_Color"));
+        } finally {
+            deleteCacheDirectory(dir);
+        }
+    }
+
+    @Test
+    public void softwareGl_doesNotUseProgramBinaries() throws Exception {
+        SoftwareGl gl = new SoftwareGl(4, 4);
+        GlResourceRegistry registry = new GlResourceRegistry();
+        registry.ensureContext(gl, gl);
+
+        assertFalse(registry.getProgram(gl, VERTEX, FRAGMENT, ATTRIBUTES).hasBinary());
+        gl.shutdown();
+    }
+
+    @Test
+    public void getMajorVersion_parsesVersionStrings() throws Exception {
+        assertEquals(3, GlResourceRegistry.getMajorVersion("OpenGL ES 3.2 V@415.0"));
+        assertEquals(2, GlResourceRegistry.getMajorVersion("OpenGL ES 2.0 build 1.9"));
+        assertEquals(0, GlResourceRegistry.getMajorVersion("OpenGL ES-CM 1.1"));
+        assertEquals(0, GlResourceRegistry.getMajorVersion(null));
+    }
+
+    // Create an empty directory for program binaries.
+    private static File newCacheDirectory() throws Exception {
+        File dir = File.createTempFile("programs", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        return dir;
+    }
+
+    // Delete a cache directory and its files.
+    private static void deleteCacheDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files)
+                file.delete();
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,121 @@
+package com.wizzer.mle.title.hellocube.gl;
+
+import android.opengl.GLES20;
+
+import com.wizzer.mle.title.hellocube.mesh.VertexData;
+import com.wizzer.mle.title.hellocube.mesh.VertexLayout;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the recording GL backend.
+ */
+public class RecordingGlTest {
+    private static final VertexLayout LAYOUT = new VertexLayout.Builder()
+            .add("a_Position", 3, VertexLayout.ENCODING_SHORT_NORM)
+            .add("a_Color", 4, VertexLayout.ENCODING_UBYTE_NORM)
+            .build();
+
+    @Test
+    public void records_exactCallSequence() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        int program = gl.glCreateProgram();
+        gl.glBindAttribLocation(program, 0, "a_Position");
+        gl.glBindAttribLocation(program, 1, "a_Color");
+        gl.glUseProgram(program);
+        int[] locations = {
+                gl.glGetAttribLocation(program, "a_Position"),
+                gl.glGetAttribLocation(program, "a_Color")
+        };
+        assertArrayEquals(new int[] {0, 1}, locations);
+
+        VertexData vertices = new VertexData(LAYOUT, 3);
+        LAYOUT.enableAttributes(gl, locations, vertices.getData());
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+
+        String expected = "glCreateProgram(1)\n"
+                + "glBindAttribLocation(1, 0, \"a_Position\")\n"
+                + "glBindAttribLocation(1, 1, \"a_Color\")\n"
+                + "glUseProgram(1)\n"
+                + "glGetAttribLocation(1, 0, \"a_Position\")\n"
+                + "glGetAttribLocation(1, 1, \"a_Color\")\n"
+                + "glVertexAttribPointer(0, 3, " + GLES20.GL_SHORT + ", 1, 12, 36)\n"
+                + "glEnableVertexAttribArray(0)\n"
+                + "glVertexAttribPointer(1, 4, " + GLES20.GL_UNSIGNED_BYTE + ", 1, 12, 28)\n"
+                + "glEnableVertexAttribArray(1)\n"
+                + "glDrawArrays(4, 0, 3)\n";
+        assertEquals(expected, gl.describe());
+        assertEquals(11, gl.getNumCalls());
+        assertEquals(1, gl.getNumDraws());
+        assertEquals(2, gl.getCallCount(RecordingGl.OP_VERTEX_ATTRIB_POINTER));
+        // Three vertices of 6 + 4 bytes.
+        assertEquals(30, gl.getBytesUploaded());
+    }
+
+    @Test
+    public void counts_stateChangesAndRedundantCalls() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        gl.setRecording(false);
+        gl.glUseProgram(3);
+        gl.glUseProgram(3);
+        gl.glEnableVertexAttribArray(0);
+        gl.glEnableVertexAttribArray(0);
+        gl.glDisableVertexAttribArray(0);
+
+        assertEquals(3, gl.getStateChanges());
+        assertEquals(2, gl.getRedundantCalls());
+        assertEquals(0, gl.getCommands().remaining());
+        assertEquals(5, gl.getNumCalls());
+    }
+
+    @Test
+    public void drawElements_countsVerticesUpToLargestIndex() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        gl.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, 0, ShortBuffer.allocate(0));
+        gl.glEnableVertexAttribArray(0);
+        float[] mvp = new float[16];
+        gl.glUniformMatrix4fv(0, 1, false, mvp, 0);
+        gl.reset();
+
+        ShortBuffer indices = ShortBuffer.wrap(new short[] {0, 1, 9, 9, 1, 2});
+        gl.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_SHORT, indices);
+
+        // Ten vertices of 12 bytes, and six 2 byte indices.
+        assertEquals(132, gl.getBytesUploaded());
+        assertEquals("glDrawElements(4, 6, " + GLES20.GL_UNSIGNED_SHORT + ", 12)\n", gl.describe());
+    }
+
+    @Test
+    public void programBinary_restoresAttributeBindingsInAnotherInstance() throws Exception {
+        RecordingGl gl = new RecordingGl();
+        int program = gl.glCreateProgram();
+        gl.glBindAttribLocation(program, 1, "a_Color");
+        gl.glLinkProgram(program);
+
+        int[] length = new int[1];
+        int[] format = new int[1];
+        gl.glGetProgramiv(program, android.opengl.GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        ByteBuffer binary = ByteBuffer.allocate(length[0]);
+        gl.glGetProgramBinary(program, length[0], length, 0, format, 0, binary);
+
+        RecordingGl restored = new RecordingGl();
+        int copy = restored.glCreateProgram();
+        restored.glProgramBinary(copy, format[0], binary, length[0]);
+        int[] linked = new int[1];
+        restored.glGetProgramiv(copy, GLES20.GL_LINK_STATUS, linked, 0);
+        assertEquals(GLES20.GL_TRUE, linked[0]);
+        assertEquals(1, restored.glGetAttribLocation(copy, "a_Color"));
+
+        RecordingGl updated = new RecordingGl();
+        updated.setRejectProgramBinaries(true);
+        copy = updated.glCreateProgram();
+        updated.glProgramBinary(copy, format[0], binary, length[0]);
+        updated.glGetProgramiv(copy, GLES20.GL_LINK_STATUS, linked, 0);
+        assertEquals(GLES20.GL_FALSE, linked[0]);
+    }
+}
@@ -0,0 +1,156 @@
+package com.wizzer.mle.title.hellocube.gl;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the software rasterizer.
+ */
+public class SoftwareGlTest {
+    private static final int RED = 0xFF0000FF;
+    private static final int GREEN = 0x00FF00FF;
+    private static final int BLACK = 0x000000FF;
+
+    // Set up the program used by the Roles, with an identity MVP.
+    private static int[] useProgram(IGl gl) {
+        int program = gl.glCreateProgram();
+        gl.glBindAttribLocation(program, 0, "a_Position");
+        gl.glBindAttribLocation(program, 1, "a_Color");
+        gl.glUseProgram(program);
+        float[] identity = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+        gl.glUniformMatrix4fv(gl.glGetUniformLocation(program, "u_MVPMatrix"), 1, false, identity, 0);
+        return new int[] {0, 1};
+    }
+
+    // Draw one triangle in normalized device coordinates with a flat color.
+    private static void drawTriangle(IGl gl, float[] positions, float r, float g, float b) {
+        gl.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, 0, FloatBuffer.wrap(positions));
+        gl.glEnableVertexAttribArray(0);
+        gl.glDisableVertexAttribArray(1);
+        gl.glVertexAttrib4f(1, r, g, b, 1.0f);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+    }
+
+    @Test
+    public void triangle_coversCenterOnly() throws Exception {
+        SoftwareGl gl = new SoftwareGl(64, 64, 1);
+        useProgram(gl);
+        drawTriangle(gl, new float[] {-0.5f, -0.5f, 0, 0.5f, -0.5f, 0, 0, 0.5f, 0}, 1, 0, 0);
+
+        assertEquals(RED, gl.getPixel(32, 32));
+        assertEquals(BLACK, gl.getPixel(2, 2));
+        assertEquals(BLACK, gl.getPixel(60, 60));
+        assertEquals(1, gl.getTrianglesRasterized());
+    }
+
+    @Test
+    public void depthTest_keepsNearestFragment() throws Exception {
+        SoftwareGl gl = new SoftwareGl(32, 32, 1);
+        useProgram(gl);
+        drawTriangle(gl, new float[] {-1, -1, 0, 3, -1, 0, -1, 3, 0}, 1, 0, 0);
+        drawTriangle(gl, new float[] {-1, -1, 0.5f, 3, -1, 0.5f, -1, 3, 0.5f}, 0, 1, 0);
+        assertEquals(RED, gl.getPixel(16, 16));
+
+        drawTriangle(gl, new float[] {-1, -1, -0.5f, 3, -1, -0.5f, -1, 3, -0.5f}, 0, 1, 0);
+        assertEquals(GREEN, gl.getPixel(16, 16));
+    }
+
+    @Test
+    public void sharedEdge_isFilledExactlyOnce() throws Exception {
+        SoftwareGl gl = new SoftwareGl(16, 16, 1);
+        useProgram(gl);
+        // A quad split along its diagonal covers every pixel once.
+        gl.glVertexAttribPointer(0, 2, GLES20.GL_FLOAT, false, 0,
+                FloatBuffer.wrap(new float[] {-1, -1, 1, -1, 1, 1, -1, 1}));
+        gl.glEnableVertexAttribArray(0);
+        gl.glVertexAttrib4f(1, 1, 0, 0, 1);
+        gl.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_SHORT,
+                ShortBuffer.wrap(new short[] {0, 1, 2, 0, 2, 3}));
+        gl.flush();
+
+        assertEquals(16 * 16, gl.getFragments());
+    }
+
+    // Draw 300 random, overlapping triangles with per-vertex colors.
+    private static void drawRandom(SoftwareGl gl) {
+        useProgram(gl);
+        Random random = new Random(7);
+        float[] positions = new float[300 * 9];
+        float[] colors = new float[300 * 12];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = (random.nextFloat() * 2.4f) - 1.2f;
+        for (int i = 0; i < colors.length; i++)
+            colors[i] = random.nextFloat();
+        gl.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, 0, FloatBuffer.wrap(positions));
+        gl.glEnableVertexAttribArray(0);
+        gl.glVertexAttribPointer(1, 4, GLES20.GL_FLOAT, false, 0, FloatBuffer.wrap(colors));
+        gl.glEnableVertexAttribArray(1);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 900);
+    }
+
+    @Test
+    public void parallelTiles_matchSingleThread() throws Exception {
+        SoftwareGl serial = new SoftwareGl(200, 150, 1);
+        SoftwareGl parallel = new SoftwareGl(200, 150, 4);
+        drawRandom(serial);
+        drawRandom(parallel);
+
+        assertEquals(serial.getColorBuffer(), parallel.getColorBuffer());
+        assertEquals(serial.getFragments(), parallel.getFragments());
+        parallel.shutdown();
+    }
+
+    @Test
+    public void interruptedFlush_waitsForWorkersAndKeepsInterrupt() throws Exception {
+        SoftwareGl serial = new SoftwareGl(200, 150, 1);
+        SoftwareGl parallel = new SoftwareGl(200, 150, 4);
+        drawRandom(serial);
+        drawRandom(parallel);
+
+        Thread.currentThread().interrupt();
+        try {
+            parallel.getColorBuffer();
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(serial.getColorBuffer(), parallel.getColorBuffer());
+        assertEquals(serial.getFragments(), parallel.getFragments());
+        parallel.shutdown();
+    }
+
+    @Test
+    public void nearPlane_clipsTriangle() throws Exception {
+        SoftwareGl gl = new SoftwareGl(32, 32, 1);
+        useProgram(gl);
+        // One vertex is behind the near plane (z < -w); the rest of the triangle is drawn.
+        drawTriangle(gl, new float[] {-1, -1, 0, 1, -1, 0, 0, 1, -3}, 1, 0, 0);
+        gl.flush();
+
+        assertEquals(2, gl.getTrianglesRasterized());
+        assertEquals(RED, gl.getPixel(16, 4));
+    }
+
+    @Test
+    public void writePng_producesValidFile() throws Exception {
+        SoftwareGl gl = new SoftwareGl(8, 4, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        gl.writePng(out);
+        byte[] png = out.toByteArray();
+
+        assertEquals((byte) 0x89, png[0]);
+        assertEquals('P', png[1]);
+        // IHDR width and height.
+        assertEquals(8, png[19]);
+        assertEquals(4, png[23]);
+        assertEquals("IEND", new String(png, png.length - 8, 4, "US-ASCII"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.wizzer.mle.title.hellocube.input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for coalescing touch and sensor samples into pooled events.
+ */
+public class InputQueueTest {
+    // Records a copy of each event, since the events are reused after dispatch.
+    private static class RecordingDispatcher extends MleEventDispatcher {
+        final List<float[]> m_events = new ArrayList<float[]>();
+
+        @Override
+        public boolean processEvent(int id, Object callData, int type) {
+            InputEvent event = (InputEvent) callData;
+            if (id == InputQueue.MLE_TOUCH_EVENT)
+                m_events.add(new float[] { event.getAction(), event.getPointerId(), event.getX(), event.getSamples() });
+            else
+                m_events.add(new float[] { event.getSensorType(), event.getValue(0), event.getIntegral(0), event.getSamples() });
+            return true;
+        }
+    }
+
+    @Test
+    public void moves_coalescePerPointerAndKeepOrder() throws Exception {
+        InputQueue queue = new InputQueue(16);
+        queue.addTouch(InputEvent.ACTION_DOWN, 0, 1.0f, 0.0f, 0L, 100, 100, 1);
+        queue.addTouch(InputEvent.ACTION_MOVE, 0, 2.0f, 0.0f, 1L, 100, 100, 4);
+        queue.addTouch(InputEvent.ACTION_MOVE, 1, 7.0f, 0.0f, 1L, 100, 100, 1);
+        queue.addTouch(InputEvent.ACTION_MOVE, 0, 3.0f, 0.0f, 2L, 100, 100, 4);
+        queue.addTouch(InputEvent.ACTION_UP, 0, 3.0f, 0.0f, 3L, 100, 100, 1);
+        queue.addTouch(InputEvent.ACTION_MOVE, 0, 9.0f, 0.0f, 4L, 100, 100, 1);
+
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        assertEquals(5, queue.dispatch(dispatcher));
+        assertArrayEquals(new float[] { 0, 0, 1, 1 }, dispatcher.m_events.get(0), 0.0f);
+        assertArrayEquals(new float[] { 2, 0, 3, 8 }, dispatcher.m_events.get(1), 0.0f);
+        assertArrayEquals(new float[] { 2, 1, 7, 1 }, dispatcher.m_events.get(2), 0.0f);
+        assertArrayEquals(new float[] { 1, 0, 3, 1 }, dispatcher.m_events.get(3), 0.0f);
+        assertArrayEquals(new float[] { 2, 0, 9, 1 }, dispatcher.m_events.get(4), 0.0f);
+        assertEquals(12, queue.getSamples());
+        assertEquals(5, queue.getEvents());
+
+        // A move after the dispatch starts a new event.
+        queue.addTouch(InputEvent.ACTION_MOVE, 1, 8.0f, 0.0f, 5L, 100, 100, 1);
+        assertEquals(1, queue.dispatch(dispatcher));
+        assertArrayEquals(new float[] { 2, 1, 8, 1 }, dispatcher.m_events.get(5), 0.0f);
+        assertEquals(0, queue.dispatch(dispatcher));
+    }
+
+    @Test
+    public void sensorSamples_coalesceAndIntegrate() throws Exception {
+        InputQueue queue = new InputQueue(4);
+        // 2 rad/s for four 5 ms samples; the first has no previous sample to integrate from.
+        for (int i = 0; i < 4; i++)
+            queue.addSensor(4, new float[] { 2.0f, 0.0f, 0.0f }, 3, i * 5000000L);
+
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        assertEquals(1, queue.dispatch(dispatcher));
+        assertArrayEquals(new float[] { 4, 2.0f, 0.03f, 4 }, dispatcher.m_events.get(0), 1e-6f);
+
+        // The next tick integrates from the last sample of the previous one.
+        queue.addSensor(4, new float[] { 1.0f, 0.0f, 0.0f }, 3, 20000000L);
+        assertEquals(1, queue.dispatch(dispatcher));
+        assertArrayEquals(new float[] { 4, 1.0f, 0.005f, 1 }, dispatcher.m_events.get(1), 1e-6f);
+    }
+
+    @Test
+    public void exhaustedPool_dropsAndRecovers() throws Exception {
+        InputQueue queue = new InputQueue(2);
+        assertTrue(queue.addTouch(InputEvent.ACTION_DOWN, 0, 0.0f, 0.0f, 0L, 100, 100, 1));
+        assertTrue(queue.addTouch(InputEvent.ACTION_DOWN, 1, 0.0f, 0.0f, 0L, 100, 100, 1));
+        assertFalse(queue.addTouch(InputEvent.ACTION_DOWN, 2, 0.0f, 0.0f, 0L, 100, 100, 1));
+        assertEquals(1, queue.getDropped());
+
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        assertEquals(2, queue.dispatch(dispatcher));
+        assertTrue(queue.addTouch(InputEvent.ACTION_UP, 0, 0.0f, 0.0f, 1L, 100, 100, 1));
+        assertTrue(queue.addTouch(InputEvent.ACTION_UP, 1, 0.0f, 0.0f, 1L, 100, 100, 1));
+        assertEquals(2, queue.dispatch(dispatcher));
+    }
+}
@@ -0,0 +1,117 @@
+package com.wizzer.mle.title.hellocube.math;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the bounding volume hierarchy, checked against testing every
+ * sphere.
+ */
+public class BvhTest {
+    private static Bounds[] scatter(Random random, int count, float extent) {
+        Bounds[] bounds = new Bounds[count];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = new Bounds();
+            bounds[i].setSphere((random.nextFloat() - 0.5f) * extent, (random.nextFloat() - 0.5f) * extent,
+                (random.nextFloat() - 0.5f) * extent, 0.1f + random.nextFloat());
+        }
+        return bounds;
+    }
+
+    // The nearest sphere hit by testing every one, or -1.
+    private static int bruteForce(Bounds[] bounds, float[] origin, float[] direction, float[] distance) {
+        int hit = -1;
+        for (int i = 0; i < bounds.length; i++) {
+            float cx = origin[0] - bounds[i].m_center[0];
+            float cy = origin[1] - bounds[i].m_center[1];
+            float cz = origin[2] - bounds[i].m_center[2];
+            float b = (cx * direction[0]) + (cy * direction[1]) + (cz * direction[2]);
+            float c = (cx * cx) + (cy * cy) + (cz * cz) - (bounds[i].m_radius * bounds[i].m_radius);
+            float t;
+            if (c <= 0.0f)
+                t = 0.0f;
+            else if ((b > 0.0f) || (((b * b) - c) < 0.0f))
+                continue;
+            else
+                t = -b - (float) Math.sqrt((b * b) - c);
+            if (t < distance[0]) {
+                distance[0] = t;
+                hit = i;
+            }
+        }
+        return hit;
+    }
+
+    private static void assertSameHits(Bvh bvh, Bounds[] bounds, Random random) {
+        for (int i = 0; i < 200; i++) {
+            float[] origin = { 0.0f, 0.0f, 80.0f };
+            float[] direction = { (random.nextFloat() - 0.5f) * 0.8f, (random.nextFloat() - 0.5f) * 0.8f, -1.0f };
+            float length = (float) Math.sqrt((direction[0] * direction[0]) + (direction[1] * direction[1]) + 1.0f);
+            for (int j = 0; j < 3; j++)
+                direction[j] /= length;
+
+            float[] expected = { Float.MAX_VALUE };
+            float[] actual = { Float.MAX_VALUE };
+            assertEquals(bruteForce(bounds, origin, direction, expected), bvh.intersectRay(origin, direction, actual));
+            assertEquals(expected[0], actual[0], 0.0f);
+        }
+    }
+
+    @Test
+    public void intersectRay_matchesBruteForce() throws Exception {
+        Random random = new Random(7);
+        Bounds[] bounds = scatter(random, 5000, 100.0f);
+        Bvh bvh = new Bvh();
+        bvh.build(bounds, bounds.length);
+
+        assertEquals(5000, bvh.getNumItems());
+        assertTrue(bvh.getNumNodes() <= (2 * 5000) - 1);
+        assertEquals(1.0f, bvh.getDegradation(), 0.0f);
+        assertSameHits(bvh, bounds, random);
+
+        float[] distance = { Float.MAX_VALUE };
+        assertEquals(-1, bvh.intersectRay(new float[] { 0.0f, 0.0f, 80.0f }, new float[] { 0.0f, 0.0f, 1.0f }, distance));
+        assertEquals(Float.MAX_VALUE, distance[0], 0.0f);
+    }
+
+    @Test
+    public void refit_findsMovedItems() throws Exception {
+        Random random = new Random(11);
+        Bounds[] bounds = scatter(random, 2000, 100.0f);
+        Bvh bvh = new Bvh();
+        bvh.build(bounds, bounds.length);
+
+        // Move one item onto the ray, in front of everything else.
+        bounds[1234].setSphere(0.0f, 0.0f, 70.0f, 1.0f);
+        bvh.update(1234, bounds[1234]);
+        bvh.refit();
+
+        float[] distance = { Float.MAX_VALUE };
+        assertEquals(1234, bvh.intersectRay(new float[] { 0.0f, 0.0f, 80.0f }, new float[] { 0.0f, 0.0f, -1.0f }, distance));
+        assertEquals(9.0f, distance[0], 1e-4f);
+        assertSameHits(bvh, bounds, random);
+    }
+
+    @Test
+    public void degradation_growsWithScatterAndResetsOnRebuild() throws Exception {
+        Random random = new Random(13);
+        Bounds[] bounds = scatter(random, 2000, 100.0f);
+        Bvh bvh = new Bvh();
+        bvh.build(bounds, bounds.length);
+
+        // Scatter the items so that every leaf spans the whole volume.
+        Bounds[] scattered = scatter(random, 2000, 100.0f);
+        for (int i = 0; i < bounds.length; i++)
+            bvh.update(i, scattered[i]);
+        bvh.refit();
+        assertTrue(bvh.getDegradation() > 1.5f);
+        assertSameHits(bvh, scattered, random);
+
+        bvh.rebuild();
+        assertEquals(1.0f, bvh.getDegradation(), 0.0f);
+        assertSameHits(bvh, scattered, random);
+    }
+}
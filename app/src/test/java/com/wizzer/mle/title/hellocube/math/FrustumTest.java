@@ -0,0 +1,60 @@
+package com.wizzer.mle.title.hellocube.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for frustum plane extraction and sphere culling.
+ */
+public class FrustumTest {
+    // Column-major perspective projection (90 degree fov, aspect 1, near 1, far 100).
+    private static float[] perspective() {
+        float near = 1.0f, far = 100.0f;
+        float[] m = new float[16];
+        m[0] = 1.0f;
+        m[5] = 1.0f;
+        m[10] = -(far + near) / (far - near);
+        m[11] = -1.0f;
+        m[14] = -(2.0f * far * near) / (far - near);
+        return m;
+    }
+
+    @Test
+    public void identity_isUnitCube() throws Exception {
+        float[] identity = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+        Frustum frustum = new Frustum();
+        frustum.set(identity);
+
+        assertTrue(frustum.intersectsSphere(0.0f, 0.0f, 0.0f, 0.1f));
+        assertTrue(frustum.intersectsSphere(1.5f, 0.0f, 0.0f, 0.6f));
+        assertFalse(frustum.intersectsSphere(1.5f, 0.0f, 0.0f, 0.4f));
+        assertFalse(frustum.intersectsSphere(0.0f, -3.0f, 0.0f, 1.0f));
+    }
+
+    @Test
+    public void perspective_cullsBehindAndBeyond() throws Exception {
+        Frustum frustum = new Frustum();
+        frustum.set(perspective());
+
+        // In front of the camera.
+        assertTrue(frustum.intersectsSphere(0.0f, 0.0f, -5.0f, 1.0f));
+        // Behind the camera.
+        assertFalse(frustum.intersectsSphere(0.0f, 0.0f, 5.0f, 1.0f));
+        // Beyond the far plane.
+        assertFalse(frustum.intersectsSphere(0.0f, 0.0f, -200.0f, 1.0f));
+        // Off to the side; the 90 degree fov admits |x| <= |z|.
+        assertFalse(frustum.intersectsSphere(20.0f, 0.0f, -5.0f, 1.0f));
+        assertTrue(frustum.intersectsSphere(5.5f, 0.0f, -5.0f, 1.0f));
+    }
+
+    @Test
+    public void bounds_areRotationInvariant() throws Exception {
+        Bounds bounds = new Bounds();
+        bounds.setBox(1.0f, 2.0f, 3.0f, 1.0f, 2.0f, 2.0f);
+
+        assertEquals(3.0f, bounds.m_radius, 1e-6f);
+        assertEquals(-2.0f, bounds.m_min[0], 1e-6f);
+        assertEquals(6.0f, bounds.m_max[2], 1e-6f);
+    }
+}
@@ -0,0 +1,205 @@
+package com.wizzer.mle.title.hellocube.math;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the allocation-free matrix routines, checked against a naive
+ * reference that composes T * R * S the way android.opengl.Matrix does.
+ */
+public class MatrixMathTest {
+    private static final float EPSILON = 1e-5f;
+
+    // Naive column-major multiply.
+    private static float[] reference(float[] a, float[] b) {
+        float[] r = new float[16];
+        for (int i = 0; i < 4; i++)
+            for (int j = 0; j < 4; j++)
+                for (int k = 0; k < 4; k++)
+                    r[(j * 4) + i] += a[(k * 4) + i] * b[(j * 4) + k];
+        return r;
+    }
+
+    private static float[] identity() {
+        float[] m = new float[16];
+        MatrixMath.setIdentity(m, 0);
+        return m;
+    }
+
+    // Rodrigues rotation about a normalized axis, column-major.
+    private static float[] rotation(float angle, float x, float y, float z) {
+        float length = (float) Math.sqrt((x * x) + (y * y) + (z * z));
+        x /= length;
+        y /= length;
+        z /= length;
+        double radians = Math.toRadians(angle);
+        float s = (float) Math.sin(radians), c = (float) Math.cos(radians), nc = 1.0f - c;
+        float[] m = identity();
+        m[0] = (x * x * nc) + c;      m[4] = (x * y * nc) - (z * s); m[8] = (x * z * nc) + (y * s);
+        m[1] = (y * x * nc) + (z * s); m[5] = (y * y * nc) + c;      m[9] = (y * z * nc) - (x * s);
+        m[2] = (z * x * nc) - (y * s); m[6] = (z * y * nc) + (x * s); m[10] = (z * z * nc) + c;
+        return m;
+    }
+
+    private static float[] trsReference(float[] t, float[] r, float[] s) {
+        float[] translate = identity();
+        translate[12] = t[0];
+        translate[13] = t[1];
+        translate[14] = t[2];
+        float[] scale = identity();
+        scale[0] = s[0];
+        scale[5] = s[1];
+        scale[10] = s[2];
+        return reference(reference(translate, rotation(r[0], r[1], r[2], r[3])), scale);
+    }
+
+    private static float[] perspective() {
+        float[] m = new float[16];
+        m[0] = 1.5f;
+        m[5] = 2.0f;
+        m[10] = -1.02f;
+        m[11] = -1.0f;
+        m[14] = -2.02f;
+        return m;
+    }
+
+    @Test
+    public void setTrs_matchesComposedMatrices() throws Exception {
+        float[] t = {1.0f, -2.0f, 3.5f};
+        float[] r = {37.0f, 0.3f, -1.0f, 2.0f};
+        float[] s = {2.0f, 0.5f, 1.25f};
+
+        float[] m = new float[20];
+        MatrixMath.setTrs(m, 4, t[0], t[1], t[2], r[0], r[1], r[2], r[3], s[0], s[1], s[2]);
+
+        float[] expected = trsReference(t, r, s);
+        for (int i = 0; i < 16; i++)
+            assertEquals(expected[i], m[4 + i], EPSILON);
+    }
+
+    @Test
+    public void setTrs_zeroAxisIsNoRotation() throws Exception {
+        float[] m = new float[16];
+        MatrixMath.setTrs(m, 0, 1.0f, 2.0f, 3.0f, 45.0f, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f);
+
+        float[] expected = identity();
+        expected[12] = 1.0f;
+        expected[13] = 2.0f;
+        expected[14] = 3.0f;
+        assertArrayEquals(expected, m, 0.0f);
+    }
+
+    @Test
+    public void multiply_matchesReferenceAndAllowsAliasing() throws Exception {
+        float[] a = perspective();
+        float[] b = trsReference(new float[] {0, 0, -5}, new float[] {30, 0, 1, 0}, new float[] {1, 1, 1});
+        float[] expected = reference(a, b);
+
+        float[] result = new float[16];
+        MatrixMath.multiply(result, 0, a, 0, b, 0);
+        assertArrayEquals(expected, result, EPSILON);
+
+        MatrixMath.multiply(b, 0, a, 0, b, 0);
+        assertArrayEquals(expected, b, EPSILON);
+    }
+
+    @Test
+    public void multiplyAffine_matchesGeneralMultiply() throws Exception {
+        float[] a = perspective();
+        float[] b = trsReference(new float[] {4, -1, -9}, new float[] {-70, 1, 1, 0}, new float[] {3, 2, 1});
+
+        float[] expected = new float[16];
+        MatrixMath.multiply(expected, 0, a, 0, b, 0);
+        float[] result = new float[16];
+        MatrixMath.multiplyAffine(result, 0, a, 0, b, 0);
+        assertArrayEquals(expected, result, EPSILON);
+    }
+
+    @Test
+    public void multiplyScaleOffset_matchesComposedMatrices() throws Exception {
+        float[] model = trsReference(new float[] {1.0f, -2.0f, 3.5f}, new float[] {37.0f, 0.3f, -1.0f, 2.0f},
+            new float[] {2.0f, 0.5f, 1.25f});
+        float[] scale = {0.5f, 2.0f, 3.0f};
+        float[] offset = {0.25f, -1.0f, 4.0f};
+
+        float[] restore = trsReference(offset, new float[] {0.0f, 1.0f, 0.0f, 0.0f}, scale);
+        float[] expected = reference(model, restore);
+        MatrixMath.multiplyScaleOffset(model, 0, model, 0, scale, offset);
+        for (int i = 0; i < 16; i++)
+            assertEquals(expected[i], model[i], EPSILON);
+    }
+
+    @Test
+    public void batches_matchSingleCalls() throws Exception {
+        final int count = 5;
+        float[] trs = new float[count * MatrixMath.TRS_STRIDE];
+        for (int i = 0; i < count; i++) {
+            int t = i * MatrixMath.TRS_STRIDE;
+            trs[t] = i;
+            trs[t + 1] = -i;
+            trs[t + 2] = -10.0f;
+            trs[t + 3] = i * 20.0f;
+            trs[t + 4] = 0.0f;
+            trs[t + 5] = 1.0f;
+            trs[t + 6] = 0.0f;
+            trs[t + 7] = 1.0f + i;
+            trs[t + 8] = 1.0f;
+            trs[t + 9] = 1.0f;
+        }
+
+        float[] models = new float[count * MatrixMath.SIZE];
+        MatrixMath.setTrsBatch(models, 0, trs, 0, count);
+        float[] mvps = new float[count * MatrixMath.SIZE];
+        MatrixMath.multiplyAffineBatch(mvps, 0, perspective(), 0, models, 0, count);
+
+        float[] model = new float[16];
+        float[] mvp = new float[16];
+        for (int i = 0; i < count; i++) {
+            int t = i * MatrixMath.TRS_STRIDE;
+            MatrixMath.setTrs(model, 0, trs[t], trs[t + 1], trs[t + 2], trs[t + 3], trs[t + 4],
+                    trs[t + 5], trs[t + 6], trs[t + 7], trs[t + 8], trs[t + 9]);
+            MatrixMath.multiplyAffine(mvp, 0, perspective(), 0, model, 0);
+            for (int j = 0; j < 16; j++) {
+                assertEquals(model[j], models[(i * 16) + j], 0.0f);
+                assertEquals(mvp[j], mvps[(i * 16) + j], 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void setPerspective_matchesPerspectiveM() throws Exception {
+        float[] m = new float[20];
+        Arrays.fill(m, 7.0f);
+        MatrixMath.setPerspective(m, 4, 90.0f, 2.0f, 1.0f, 100.0f);
+
+        float[] expected = new float[16];
+        expected[0] = 0.5f;
+        expected[5] = 1.0f;
+        expected[10] = -101.0f / 99.0f;
+        expected[11] = -1.0f;
+        expected[14] = -200.0f / 99.0f;
+        for (int i = 0; i < 16; i++)
+            assertEquals(expected[i], m[4 + i], EPSILON);
+        assertEquals(7.0f, m[3], 0.0f);
+    }
+
+    @Test
+    public void invert_multipliesBackToIdentity() throws Exception {
+        float[] model = new float[16];
+        MatrixMath.setTrs(model, 0, 1.0f, -2.0f, 3.0f, 30.0f, 1.0f, 2.0f, 3.0f, 2.0f, 0.5f, 1.5f);
+        float[] m = reference(perspective(), model);
+
+        float[] inverse = m.clone();
+        assertTrue(MatrixMath.invert(inverse, 0, inverse, 0));
+        float[] product = reference(m, inverse);
+        float[] expected = identity();
+        for (int i = 0; i < 16; i++)
+            assertEquals(expected[i], product[i], EPSILON);
+
+        float[] singular = new float[16];
+        assertFalse(MatrixMath.invert(inverse, 0, singular, 0));
+    }
+}
@@ -0,0 +1,115 @@
+package com.wizzer.mle.title.hellocube.mesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the memory-mapped binary mesh cache.
+ */
+public class MeshCacheTest {
+    private static final String OBJ =
+        "v -1 -1 0\nv 1 -1 0\nv 1 1 0.5\nv -1 1 0\nvt 0 0\nvt 1 0\nvt 1 1\nvt 0 1\nvn 0 0 1\n"
+        + "f 1/1/1 2/2/1 3/3/1 4/4/1\n";
+
+    @Test
+    public void mesh_roundTrips() throws Exception {
+        byte[] bytes = OBJ.getBytes("US-ASCII");
+        Mesh mesh = ObjLoader.load(new ByteArrayInputStream(bytes), bytes.length);
+
+        File file = File.createTempFile("mesh", ".mlm");
+        try {
+            MeshCache.write(file, mesh, bytes.length, 1234L);
+            Mesh mapped = MeshCache.read(file, bytes.length, 1234L);
+
+            assertNotNull(mapped);
+            assertEquals(mesh.getNumVertices(), mapped.getNumVertices());
+            assertEquals(mesh.getNumIndices(), mapped.getNumIndices());
+            assertArrayEquals(mesh.getExtents(), mapped.getExtents(), 0.0f);
+            for (int i = 0; i < mesh.getNumVertices() * 3; i++) {
+                assertEquals(mesh.getPositions().get(i), mapped.getPositions().get(i), 0.0f);
+                assertEquals(mesh.getNormals().get(i), mapped.getNormals().get(i), 0.0f);
+            }
+            for (int i = 0; i < mesh.getNumVertices() * 2; i++)
+                assertEquals(mesh.getTexCoords().get(i), mapped.getTexCoords().get(i), 0.0f);
+            for (int i = 0; i < mesh.getNumIndices(); i++)
+                assertEquals(mesh.getIndices().get(i), mapped.getIndices().get(i));
+            assertTrue(mapped.getPositions().isDirect());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void changedSource_isStale() throws Exception {
+        byte[] bytes = OBJ.getBytes("US-ASCII");
+        Mesh mesh = ObjLoader.load(new ByteArrayInputStream(bytes), bytes.length);
+
+        File file = File.createTempFile("mesh", ".mlm");
+        try {
+            MeshCache.write(file, mesh, bytes.length, 1234L);
+            assertNull(MeshCache.read(file, bytes.length, 4321L));
+            assertNull(MeshCache.read(file, bytes.length + 1, 1234L));
+            assertNull(MeshCache.read(new File(file.getPath() + ".missing"), bytes.length, 1234L));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void corruptOrTruncatedFile_isStale() throws Exception {
+        byte[] bytes = OBJ.getBytes("US-ASCII");
+        Mesh mesh = ObjLoader.load(new ByteArrayInputStream(bytes), bytes.length);
+
+        File file = File.createTempFile("mesh", ".mlm");
+        try {
+            MeshCache.write(file, mesh, bytes.length, 1234L);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // Point the last index past the vertices.
+                long last = raf.length() - 2;
+                raf.seek(last);
+                raf.writeShort(0x7F7F);
+                assertNull(MeshCache.read(file, bytes.length, 1234L));
+
+                raf.setLength(last);
+                assertNull(MeshCache.read(file, bytes.length, 1234L));
+            } finally {
+                raf.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void corruptAttributeSize_isStale() throws Exception {
+        byte[] bytes = OBJ.getBytes("US-ASCII");
+        Mesh mesh = ObjLoader.load(new ByteArrayInputStream(bytes), bytes.length);
+
+        File file = File.createTempFile("mesh", ".mlm");
+        try {
+            MeshCache.write(file, mesh, bytes.length, 1234L);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // A size whose blob length overflows an int to a negative value, written
+                // in native order like the rest of the header.
+                ByteBuffer size = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+                size.putInt(0, 0x08000000);
+                raf.seek(64 + 4);
+                raf.write(size.array());
+            } finally {
+                raf.close();
+            }
+            assertNull(MeshCache.read(file, bytes.length, 1234L));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.wizzer.mle.title.hellocube.mesh;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for quadric mesh simplification and level of detail selection.
+ */
+public class MeshSimplifierTest {
+    // Build a flat n x n grid of quads in the z = 0 plane spanning [-1, 1].
+    private static Mesh grid(int n) {
+        int side = n + 1;
+        FloatBuffer positions = Mesh.allocateFloats(side * side * 3);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                positions.put(-1.0f + (2.0f * x) / n);
+                positions.put(-1.0f + (2.0f * y) / n);
+                positions.put(0.0f);
+            }
+        }
+        ShortBuffer indices = Mesh.allocateShorts(n * n * 6);
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                short a = (short) (y * side + x), b = (short) (a + 1);
+                short c = (short) (a + side), d = (short) (c + 1);
+                indices.put(a).put(b).put(d);
+                indices.put(a).put(d).put(c);
+            }
+        }
+        return new Mesh(positions, null, null, indices, side * side, n * n * 6);
+    }
+
+    // Build a unit sphere of rings x segments quads, sharing its vertices.
+    private static Mesh sphere(int rings, int segments) {
+        int numVertices = 2 + (rings - 1) * segments;
+        FloatBuffer positions = Mesh.allocateFloats(numVertices * 3);
+        positions.put(0).put(1).put(0);
+        for (int r = 1; r < rings; r++) {
+            double phi = Math.PI * r / rings;
+            for (int s = 0; s < segments; s++) {
+                double theta = 2.0 * Math.PI * s / segments;
+                positions.put((float) (Math.sin(phi) * Math.cos(theta)));
+                positions.put((float) Math.cos(phi));
+                positions.put((float) (Math.sin(phi) * Math.sin(theta)));
+            }
+        }
+        positions.put(0).put(-1).put(0);
+
+        int numIndices = 6 * segments * (rings - 1);
+        ShortBuffer indices = Mesh.allocateShorts(numIndices);
+        int south = numVertices - 1;
+        for (int s = 0; s < segments; s++) {
+            int next = (s + 1) % segments;
+            indices.put((short) 0).put((short) (1 + next)).put((short) (1 + s));
+            int last = 1 + (rings - 2) * segments;
+            indices.put((short) south).put((short) (last + s)).put((short) (last + next));
+        }
+        for (int r = 1; r < rings - 1; r++) {
+            int row = 1 + (r - 1) * segments;
+            for (int s = 0; s < segments; s++) {
+                int next = (s + 1) % segments;
+                short a = (short) (row + s), b = (short) (row + next);
+                short c = (short) (a + segments), d = (short) (b + segments);
+                indices.put(a).put(b).put(d);
+                indices.put(a).put(d).put(c);
+            }
+        }
+        return new Mesh(positions, null, null, indices, numVertices, numIndices);
+    }
+
+    // Assert that every edge between welded positions is shared by exactly two triangles.
+    private static void assertClosed(Mesh mesh) {
+        Map<String, Integer> welded = new HashMap<String, Integer>();
+        int[] positions = new int[mesh.getNumVertices()];
+        for (int v = 0; v < positions.length; v++) {
+            String key = mesh.getPositions().get(v * 3) + "," + mesh.getPositions().get(v * 3 + 1)
+                + "," + mesh.getPositions().get(v * 3 + 2);
+            Integer p = welded.get(key);
+            if (p == null) {
+                p = welded.size();
+                welded.put(key, p);
+            }
+            positions[v] = p;
+        }
+
+        Map<Long, Integer> edges = new HashMap<Long, Integer>();
+        for (int i = 0; i < mesh.getNumIndices(); i += 3) {
+            for (int k = 0; k < 3; k++) {
+                int a = positions[mesh.getIndices().get(i + k)];
+                int b = positions[mesh.getIndices().get(i + (k + 1) % 3)];
+                assertTrue("degenerate triangle", a != b);
+                long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                Integer count = edges.get(key);
+                edges.put(key, (count == null) ? 1 : count + 1);
+            }
+        }
+        for (Integer count : edges.values())
+            assertEquals("edge not shared by two triangles", 2, count.intValue());
+    }
+
+    @Test
+    public void closedSphere_staysClosed() throws Exception {
+        Mesh mesh = sphere(16, 24);
+        assertClosed(mesh);
+
+        Mesh simplified = mesh;
+        for (int level = 1; level <= 3; level++) {
+            simplified = MeshSimplifier.simplify(simplified, mesh.getNumTriangles() >> level, Double.MAX_VALUE);
+            assertTrue(simplified.getNumTriangles() <= mesh.getNumTriangles() >> level);
+            assertClosed(simplified);
+        }
+    }
+
+    @Test
+    public void boxWithFaceNormals_keepsOnlyLevelZero() throws Exception {
+        InputStream in = new FileInputStream("src/main/res/raw/box.obj");
+        Mesh box;
+        try {
+            box = ObjLoader.load(in, 0);
+        } finally {
+            in.close();
+        }
+        assertClosed(box);
+
+        // Every corner is a normal seam, so nothing may move.
+        Mesh simplified = MeshSimplifier.simplify(box, 6, LodCache.getMaxError(box));
+        assertEquals(box.getNumTriangles(), simplified.getNumTriangles());
+        assertClosed(simplified);
+    }
+
+    @Test
+    public void smallMesh_getsSingleLevelChain() throws Exception {
+        Mesh mesh = grid(2);
+        LodChain chain = LodCache.getInstance().getChain("MeshSimplifierTest.grid", mesh);
+        assertEquals(1, chain.getMaxLevels());
+        assertSame(mesh, chain.getLevel(chain.selectLevel(0, 0.01f)));
+    }
+
+    @Test
+    public void flatGrid_simplifiesWithoutMovingBorder() throws Exception {
+        Mesh mesh = grid(16);
+        Mesh simplified = MeshSimplifier.simplify(mesh, 64, Double.MAX_VALUE);
+
+        assertTrue(simplified.getNumTriangles() <= 64);
+        assertTrue(simplified.getNumTriangles() > 0);
+        // The planar interior collapses freely, but the outline is preserved.
+        float[] extents = simplified.getExtents();
+        assertArrayEquals(new float[] {-1, -1, 0, 1, 1, 0}, extents, 1e-6f);
+        // Every index refers to an output vertex.
+        for (int i = 0; i < simplified.getNumIndices(); i++)
+            assertTrue(simplified.getIndices().get(i) < simplified.getNumVertices());
+    }
+
+    @Test
+    public void errorLimit_stopsSimplification() throws Exception {
+        Mesh mesh = grid(4);
+        // A negative limit rejects every collapse.
+        Mesh simplified = MeshSimplifier.simplify(mesh, 1, -1.0);
+        assertEquals(mesh.getNumTriangles(), simplified.getNumTriangles());
+    }
+
+    @Test
+    public void lodSelection_appliesHysteresis() throws Exception {
+        Mesh mesh = grid(2);
+        LodChain chain = new LodChain(mesh, new float[] {Float.MAX_VALUE, 0.5f, 0.25f}, 0.1f);
+        chain.addLevel(mesh);
+        chain.addLevel(mesh);
+
+        assertEquals(0, chain.selectLevel(0, 1.0f));
+        // Just below the threshold is inside the hysteresis band.
+        assertEquals(0, chain.selectLevel(0, 0.48f));
+        assertEquals(1, chain.selectLevel(0, 0.40f));
+        // Returning above the threshold, but within the band, keeps the coarser level.
+        assertEquals(1, chain.selectLevel(1, 0.52f));
+        assertEquals(0, chain.selectLevel(1, 0.60f));
+        assertEquals(2, chain.selectLevel(0, 0.01f));
+    }
+}
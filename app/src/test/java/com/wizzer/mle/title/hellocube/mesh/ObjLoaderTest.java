@@ -0,0 +1,87 @@
+package com.wizzer.mle.title.hellocube.mesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the streaming OBJ parser.
+ */
+public class ObjLoaderTest {
+    private static Mesh parse(String obj) throws IOException {
+        byte[] bytes = obj.getBytes("US-ASCII");
+        return ObjLoader.load(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    @Test
+    public void quad_isTriangulatedAndDeduplicated() throws Exception {
+        Mesh mesh = parse(
+            "# comment\n"
+            + "o quad\n"
+            + "v 0 0 0\nv 1.5 0 0\nv 1.5 2e0 0\nv 0 2 -0.25\n"
+            + "vn 0 0 1\n"
+            + "f 1//1 2//1 3//1 4//1\n");
+
+        assertEquals(4, mesh.getNumVertices());
+        assertEquals(2, mesh.getNumTriangles());
+        assertNotNull(mesh.getNormals());
+        assertNull(mesh.getTexCoords());
+        assertEquals(1.5f, mesh.getPositions().get(3), 0.0f);
+        assertEquals(2.0f, mesh.getPositions().get(7), 0.0f);
+        assertEquals(-0.25f, mesh.getPositions().get(11), 0.0f);
+        assertArrayEquals(new short[] {0, 1, 2, 0, 2, 3},
+            new short[] {mesh.getIndices().get(0), mesh.getIndices().get(1), mesh.getIndices().get(2),
+                         mesh.getIndices().get(3), mesh.getIndices().get(4), mesh.getIndices().get(5)});
+    }
+
+    @Test
+    public void relativeIndicesAndTexCoords_areResolved() throws Exception {
+        Mesh mesh = parse(
+            "v -1 -1 0\r\nv 1 -1 0\r\nv 0 1 0\r\n"
+            + "vt 0 0\r\nvt 1 0\r\nvt 0.5 1 0\r\n"
+            + "f -3/-3 -2/-2 -1/-1\r\n"
+            + "f 1/1 2/2 3/3\r\n");
+
+        // The second face reuses the vertices of the first.
+        assertEquals(3, mesh.getNumVertices());
+        assertEquals(2, mesh.getNumTriangles());
+        assertEquals(0.5f, mesh.getTexCoords().get(4), 0.0f);
+        assertEquals(1.0f, mesh.getTexCoords().get(5), 0.0f);
+    }
+
+    @Test
+    public void numbers_matchJavaParsing() throws Exception {
+        String[] values = {"0.000001", "-123.456789", "3.4028235e38", "1.17549435E-38", "+42", "-0.5e-3", "7."};
+        StringBuilder obj = new StringBuilder();
+        for (String value : values)
+            obj.append("v ").append(value).append(" 0 0\n");
+        obj.append("f 1 2 3\nf 4 5 6\nf 7 1 2\n");
+        Mesh mesh = parse(obj.toString());
+
+        // Vertices are emitted in first-use order, which matches declaration order here.
+        for (int i = 0; i < values.length; i++)
+            assertEquals(Float.parseFloat(values[i]), mesh.getPositions().get(i * 3), Math.ulp(Float.parseFloat(values[i])));
+    }
+
+    @Test(expected = IOException.class)
+    public void outOfRangeIndex_isRejected() throws Exception {
+        parse("v 0 0 0\nv 1 0 0\nf 1 2 3\n");
+    }
+
+    @Test
+    public void boxResource_loads() throws Exception {
+        InputStream in = new FileInputStream("src/main/res/raw/box.obj");
+        try {
+            Mesh mesh = ObjLoader.load(in, 0);
+            assertEquals(12, mesh.getNumTriangles());
+            assertArrayEquals(new float[] {-1, -1, -1, 1, 1, 1}, mesh.getExtents(), 1e-5f);
+        } finally {
+            in.close();
+        }
+    }
+}
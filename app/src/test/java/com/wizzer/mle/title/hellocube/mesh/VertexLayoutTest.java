@@ -0,0 +1,53 @@
+package com.wizzer.mle.title.hellocube.mesh;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for interleaved vertex layouts and attribute encodings.
+ */
+public class VertexLayoutTest {
+    @Test
+    public void builder_alignsAttributes() throws Exception {
+        VertexLayout layout = new VertexLayout.Builder()
+            .add("a_Position", 3, VertexLayout.ENCODING_SHORT_NORM)
+            .add("a_Normal", 3, VertexLayout.ENCODING_BYTE_NORM)
+            .add("a_Color", 4, VertexLayout.ENCODING_UBYTE_NORM)
+            .build();
+
+        assertEquals(0, layout.getAttribute(0).m_offset);
+        assertEquals(8, layout.getAttribute(1).m_offset);
+        assertEquals(12, layout.getAttribute(2).m_offset);
+        assertEquals(16, layout.getStride());
+        assertEquals(2, layout.indexOf("a_Color"));
+        assertEquals("attribute vec4 a_Position;\nattribute vec4 a_Normal;\nattribute vec4 a_Color;\n",
+            layout.getShaderDeclarations());
+    }
+
+    @Test
+    public void halfFloat_roundTrips() throws Exception {
+        float[] values = {0.0f, 1.0f, -2.5f, 0.333f, 65504.0f, 6.1e-5f};
+        for (float value : values)
+            assertEquals(value, VertexLayout.halfToFloat(VertexLayout.floatToHalf(value)), Math.abs(value) * 1e-3f);
+        assertTrue(Float.isInfinite(VertexLayout.halfToFloat(VertexLayout.floatToHalf(1.0e6f))));
+    }
+
+    @Test
+    public void positions_areQuantizedToBounds() throws Exception {
+        VertexLayout layout = new VertexLayout.Builder()
+            .add("a_Position", 3, VertexLayout.ENCODING_SHORT_NORM)
+            .build();
+        VertexData data = new VertexData(layout, 2);
+        data.setPositions("a_Position", FloatBuffer.wrap(new float[] {10, 0, -4, 20, 2, -4}));
+
+        assertArrayEquals(new float[] {5, 1, 1}, data.getDequantizeScale(), 0.0f);
+        assertArrayEquals(new float[] {15, 1, -4}, data.getDequantizeOffset(), 0.0f);
+        // Restored positions are within the quantization step of the originals.
+        float x = data.get("a_Position", 1, 0) * data.getDequantizeScale()[0] + data.getDequantizeOffset()[0];
+        assertEquals(20.0f, x, 1e-3f);
+        assertTrue(data.needsDequantize());
+    }
+}
@@ -0,0 +1,90 @@
+package com.wizzer.mle.title.hellocube.playprint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the binary Digital Playprint format and bulk Actor creation.
+ */
+public class PlayprintTest {
+    private static float[] cubes(int count) {
+        float[] values = new float[count * Playprint.getRecordSize(Playprint.PROPERTIES_CUBE)];
+        int v = 0;
+        for (int i = 0; i < count; i++) {
+            values[v++] = i; values[v++] = -i; values[v++] = -5.0f;
+            values[v++] = i % 360; values[v++] = 0.0f; values[v++] = 1.0f; values[v++] = 0.0f;
+            values[v++] = 1.0f; values[v++] = 2.0f; values[v++] = 3.0f;
+            values[v++] = 1.0f; values[v++] = 0.5f; values[v++] = 0.25f; values[v++] = 1.0f;
+        }
+        return values;
+    }
+
+    @Test
+    public void playprint_roundTripsThroughFile() throws Exception {
+        PlayprintWriter writer = new PlayprintWriter();
+        writer.addGroup("cubes", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE, Playprint.PROPERTIES_CUBE, cubes(3), 3);
+        writer.addGroup("dots", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE, Playprint.PROPERTY_POSITION,
+            new float[] { 7.0f, 8.0f, 9.0f }, 1);
+
+        File file = File.createTempFile("playprint", ".mlp");
+        try {
+            writer.write(file);
+            Playprint playprint = Playprint.map(file);
+
+            assertEquals(2, playprint.getNumGroups());
+            assertEquals("cubes", playprint.getGroupName(0));
+            assertEquals(1, playprint.findGroup("dots"));
+            assertEquals(-1, playprint.findGroup("missing"));
+            assertEquals(3, playprint.getNumActors(0));
+            assertEquals(Playprint.PROPERTY_POSITION, playprint.getProperties(1));
+            assertEquals(9.0f, playprint.getPropertyBlock(1).get(2), 0.0f);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void createActors_setsEveryProperty() throws Exception {
+        PlayprintWriter writer = new PlayprintWriter();
+        writer.addGroup("cubes", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE, Playprint.PROPERTIES_CUBE, cubes(100), 100);
+        Playprint playprint = new Playprint(writer.toByteBuffer());
+
+        CubeActor[] actors = PlayprintLoader.createActors(playprint, 0);
+        assertEquals(100, actors.length);
+        CubeActor actor = actors[42];
+        assertArrayEquals(new float[] { 42.0f, -42.0f, -5.0f }, actor.position.getProperty(), 0.0f);
+        assertArrayEquals(new float[] { 42.0f, 0.0f, 1.0f, 0.0f }, actor.orientation.getProperty(), 0.0f);
+        assertArrayEquals(new float[] { 1.0f, 2.0f, 3.0f }, actor.scale.getProperty(), 0.0f);
+        assertArrayEquals(new float[] { 1.0f, 0.5f, 0.25f, 1.0f }, actor.color.getProperty(), 0.0f);
+    }
+
+    @Test
+    public void createActors_leavesMissingPropertiesUnset() throws Exception {
+        PlayprintWriter writer = new PlayprintWriter();
+        writer.addGroup("dots", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE,
+            Playprint.PROPERTY_POSITION | Playprint.PROPERTY_COLOR,
+            new float[] { 1.0f, 2.0f, 3.0f, 0.1f, 0.2f, 0.3f, 0.4f }, 1);
+        CubeActor actor = PlayprintLoader.createActors(new Playprint(writer.toByteBuffer()), 0)[0];
+
+        assertArrayEquals(new float[] { 1.0f, 2.0f, 3.0f }, actor.position.getProperty(), 0.0f);
+        assertArrayEquals(new float[] { 0.1f, 0.2f, 0.3f, 0.4f }, actor.color.getProperty(), 0.0f);
+        assertNull(actor.orientation);
+        assertNull(actor.scale);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedPlayprint_isRejected() throws Exception {
+        PlayprintWriter writer = new PlayprintWriter();
+        writer.addGroup("cubes", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE, Playprint.PROPERTIES_CUBE, cubes(10), 10);
+        ByteBuffer data = writer.toByteBuffer();
+        data.limit(data.limit() - 100);
+        new Playprint(data);
+    }
+}
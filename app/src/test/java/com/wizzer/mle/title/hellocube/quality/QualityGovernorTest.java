@@ -0,0 +1,91 @@
+package com.wizzer.mle.title.hellocube.quality;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the quality governor, driven by synthetic frame time traces.
+ */
+public class QualityGovernorTest {
+    private static final long MS = 1000000L;
+    private static final int WINDOW = QualityGovernor.WINDOW_FRAMES;
+
+    // Replays frames with a fixed interval and render time.
+    private static class Trace {
+        final QualityGovernor m_governor = new QualityGovernor(QualityGovernor.DEFAULT_TARGET);
+        long m_time = 1000 * MS;
+
+        Trace frames(int count, long interval, long renderTime) {
+            for (int i = 0; i < count; i++) {
+                m_time += interval;
+                m_governor.onFrame(m_time, renderTime);
+            }
+            return this;
+        }
+    }
+
+    @Test
+    public void sustainedSlowFrames_stepDownOneLevelPerWindow() {
+        Trace trace = new Trace().frames(WINDOW, 16 * MS, 10 * MS);
+        assertEquals(0, trace.m_governor.getLevel());
+
+        trace.frames(4 * WINDOW, 25 * MS, 20 * MS);
+        QualityGovernor governor = trace.m_governor;
+        assertEquals(QualityGovernor.NUM_LEVELS - 1, governor.getLevel());
+        assertEquals(0.5f, governor.getRenderScale(), 0.0f);
+        assertEquals(QualityGovernor.TIER_CHEAP, governor.getShaderTier());
+        assertEquals(3, governor.getDowngrades());
+
+        QualityGovernor.Decision[] decisions = governor.getDecisions();
+        assertEquals(3, decisions.length);
+        assertEquals(0, decisions[0].getFrom());
+        assertEquals(1, decisions[0].getTo());
+        assertEquals(2 * WINDOW, decisions[0].getFrame());
+        assertEquals(25 * MS, decisions[0].getAverageInterval());
+        assertEquals(WINDOW, governor.getFramesAtLevel(1));
+    }
+
+    @Test
+    public void upgrade_needsSustainedHeadroomAndIgnoresJitter() {
+        Trace trace = new Trace().frames(WINDOW, 25 * MS, 20 * MS);
+        QualityGovernor governor = trace.m_governor;
+        assertEquals(1, governor.getLevel());
+
+        // Display-paced frames with headroom; the fourth such window upgrades.
+        trace.frames((QualityGovernor.UPGRADE_WINDOWS - 1) * WINDOW, 16 * MS, 6 * MS);
+        assertEquals(1, governor.getLevel());
+        trace.frames(WINDOW, 16 * MS, 6 * MS);
+        assertEquals(0, governor.getLevel());
+        assertEquals(1, governor.getUpgrades());
+
+        // Frames jittering around the target, averaging within the threshold, hold the level.
+        for (int i = 0; i < 10 * WINDOW / 2; i++)
+            trace.frames(1, 14 * MS, 9 * MS).frames(1, 20 * MS, 9 * MS);
+        assertEquals(0, governor.getLevel());
+        assertEquals(2, governor.getDecisions().length);
+    }
+
+    @Test
+    public void failedUpgrade_doublesTheWait() {
+        Trace trace = new Trace().frames(WINDOW, 25 * MS, 20 * MS)
+            .frames(QualityGovernor.UPGRADE_WINDOWS * WINDOW, 16 * MS, 6 * MS);
+        QualityGovernor governor = trace.m_governor;
+        assertEquals(0, governor.getLevel());
+
+        // The upgraded level cannot keep up.
+        trace.frames(WINDOW, 25 * MS, 20 * MS);
+        assertEquals(1, governor.getLevel());
+        assertEquals(1, governor.getFailedUpgrades());
+        assertEquals(2 * QualityGovernor.UPGRADE_WINDOWS, governor.getUpgradeWindows());
+
+        trace.frames((2 * QualityGovernor.UPGRADE_WINDOWS - 1) * WINDOW, 16 * MS, 6 * MS);
+        assertEquals(1, governor.getLevel());
+        trace.frames(WINDOW, 16 * MS, 6 * MS);
+        assertEquals(0, governor.getLevel());
+
+        // An upgrade that holds restores the wait.
+        trace.frames((QualityGovernor.UPGRADE_WINDOWS + 1) * WINDOW, 16 * MS, 10 * MS);
+        assertEquals(QualityGovernor.UPGRADE_WINDOWS, governor.getUpgradeWindows());
+    }
+}
@@ -0,0 +1,100 @@
+package com.wizzer.mle.title.hellocube.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the redraw tracker, driven by a fake clock.
+ */
+public class RedrawTrackerTest {
+    private static final long MS = 1000000L;
+
+    // A tracker on a fake clock that records its listener's calls.
+    private static class FakeTracker extends RedrawTracker implements IRedrawListener {
+        long m_time = 1000 * MS;
+        final List<Boolean> m_changes = new ArrayList<Boolean>();
+
+        FakeTracker() {
+            setListener(this);
+        }
+
+        @Override
+        long now() {
+            return m_time;
+        }
+
+        public void onIdleChanged(boolean idle) {
+            m_changes.add(idle);
+        }
+
+        boolean frame() {
+            m_time += RedrawTracker.FRAME_PERIOD;
+            return onFrame(m_time);
+        }
+    }
+
+    @Test
+    public void unchangedFrames_goIdleOnce() {
+        FakeTracker tracker = new FakeTracker();
+        tracker.markDirty();
+        tracker.frame();
+        for (int i = 1; i < RedrawTracker.IDLE_FRAMES; i++)
+            tracker.frame();
+        assertFalse(tracker.isIdle());
+
+        tracker.frame();
+        assertTrue(tracker.isIdle());
+        assertEquals(1, tracker.getIdlePeriods());
+        assertEquals(1, tracker.m_changes.size());
+        assertTrue(tracker.m_changes.get(0));
+
+        // A frame drawn on request while idle does not go idle again.
+        tracker.frame();
+        assertEquals(1, tracker.getIdlePeriods());
+        assertEquals(RedrawTracker.IDLE_FRAMES + 2, tracker.getRedrawn());
+    }
+
+    @Test
+    public void markDirty_wakesAndTheNextFrameIsResumed() throws InterruptedException {
+        FakeTracker tracker = new FakeTracker();
+        for (int i = 0; i <= RedrawTracker.IDLE_FRAMES; i++)
+            assertFalse(tracker.frame());
+        assertTrue(tracker.isIdle());
+
+        // Input wakes the main loop without ending the idle period.
+        tracker.wakeTick();
+        assertTrue(tracker.isIdle());
+
+        tracker.markDirty();
+        assertFalse(tracker.isIdle());
+        assertEquals(2, tracker.m_changes.size());
+        assertFalse(tracker.m_changes.get(1));
+
+        // The tick returns at once while awake.
+        long start = System.nanoTime();
+        tracker.awaitTick(10000);
+        assertTrue(System.nanoTime() - start < 5000 * MS);
+
+        assertTrue(tracker.frame());
+        assertFalse(tracker.frame());
+    }
+
+    @Test
+    public void skipped_countsTheFramesOfTheIdleTime() {
+        FakeTracker tracker = new FakeTracker();
+        for (int i = 0; i <= RedrawTracker.IDLE_FRAMES; i++)
+            tracker.frame();
+        tracker.m_time += 120 * RedrawTracker.FRAME_PERIOD;
+        assertEquals(120 * RedrawTracker.FRAME_PERIOD, tracker.getIdleTime());
+        assertEquals(120, tracker.getSkipped());
+
+        // Time after waking is not idle.
+        tracker.markDirty();
+        tracker.m_time += 1000 * MS;
+        assertEquals(120, tracker.getSkipped());
+    }
+}
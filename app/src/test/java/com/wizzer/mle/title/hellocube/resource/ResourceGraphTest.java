@@ -0,0 +1,104 @@
+package com.wizzer.mle.title.hellocube.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the dependency-ordered concurrent resource loader.
+ */
+public class ResourceGraphTest {
+    private static IResourceTask record(final List<String> order, final String name, final long sleepMillis) {
+        return new IResourceTask() {
+            public void load() throws Exception {
+                Thread.sleep(sleepMillis);
+                order.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void dependencies_loadFirst() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        ResourceGraph graph = new ResourceGraph(4);
+        graph.add("c", new String[] { "a", "b" }, record(order, "c", 0));
+        graph.add("a", null, record(order, "a", 20));
+        graph.add("b", new String[] { "a" }, record(order, "b", 5));
+        graph.start();
+
+        assertTrue(graph.join(5000));
+        assertEquals(3, order.size());
+        assertEquals("a", order.get(0));
+        assertEquals("b", order.get(1));
+        assertEquals("c", order.get(2));
+        assertTrue(graph.isLoaded("c"));
+        assertArrayEquals(new String[] { "a", "b", "c" }, graph.getCriticalPath());
+        assertTrue(graph.getCriticalPathTime() >= TimeUnit.MILLISECONDS.toNanos(25));
+        assertTrue(graph.getLoadTime("a") >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void independentResources_loadConcurrently() throws Exception {
+        // Each task waits for the other to start, so they only finish if run in parallel.
+        final CountDownLatch started = new CountDownLatch(2);
+        IResourceTask task = new IResourceTask() {
+            public void load() throws Exception {
+                started.countDown();
+                if (! started.await(5, TimeUnit.SECONDS))
+                    throw new IllegalStateException("not concurrent");
+            }
+        };
+        ResourceGraph graph = new ResourceGraph(2);
+        graph.add("x", null, task);
+        graph.add("y", null, task);
+        graph.start();
+
+        assertTrue(graph.join(10000));
+        assertTrue(graph.isLoaded("x"));
+        assertTrue(graph.isLoaded("y"));
+        assertEquals(1, graph.getCriticalPath().length);
+    }
+
+    @Test
+    public void failure_propagatesToDependents() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        ResourceGraph graph = new ResourceGraph(2);
+        graph.add("bad", null, new IResourceTask() {
+            public void load() throws Exception {
+                throw new java.io.IOException("missing");
+            }
+        });
+        graph.add("child", new String[] { "bad" }, record(order, "child", 0));
+        graph.add("other", null, record(order, "other", 0));
+        graph.start();
+
+        assertTrue(graph.join(5000));
+        assertEquals("missing", graph.getFailure("bad").getMessage());
+        assertNotNull(graph.getFailure("child"));
+        assertFalse(graph.isLoaded("child"));
+        assertTrue(graph.isLoaded("other"));
+        assertEquals(Collections.singletonList("other"), order);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cycle_isRejected() {
+        ResourceGraph graph = new ResourceGraph(1);
+        graph.add("a", new String[] { "b" }, record(new ArrayList<String>(), "a", 0));
+        graph.add("b", new String[] { "a" }, record(new ArrayList<String>(), "b", 0));
+        graph.start();
+    }
+
+    @Test
+    public void emptyGraph_finishesImmediately() throws Exception {
+        ResourceGraph graph = new ResourceGraph(1);
+        graph.start();
+        assertTrue(graph.join(0));
+        assertEquals(0, graph.getCriticalPathTime());
+    }
+}
@@ -0,0 +1,129 @@
+package com.wizzer.mle.title.hellocube.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for running prioritized tasks within a time budget.
+ */
+public class BudgetedPhaseTest {
+    // A phase whose clock only moves when its tasks say so.
+    private static class FakeClockPhase extends BudgetedPhase {
+        long m_time = 0;
+
+        FakeClockPhase(long budget) {
+            super("Test", budget);
+        }
+
+        @Override
+        long now() {
+            return m_time;
+        }
+    }
+
+    // A task that takes a fixed time and records that it ran.
+    private static BudgetedTask task(final FakeClockPhase phase, final List<String> log, final String name,
+            int priority, final long cost, long budget) {
+        return new BudgetedTask(new Runnable() {
+            public void run() {
+                log.add(name);
+                phase.m_time += cost;
+            }
+        }, name, priority, budget);
+    }
+
+    @Test
+    public void exhaustedBudget_defersAndResumesRoundRobin() {
+        FakeClockPhase phase = new FakeClockPhase(10);
+        List<String> log = new ArrayList<String>();
+        phase.addTask(task(phase, log, "c", BudgetedPhase.PRIORITY_CRITICAL, 2, 0));
+        for (int i = 0; i < 4; i++)
+            phase.addTask(task(phase, log, "n" + i, BudgetedPhase.PRIORITY_NORMAL, 3, 0));
+
+        phase.run();
+        assertEquals("[c, n0, n1, n2]", log.toString());
+        assertEquals(1, phase.getLastDeferred());
+        assertEquals(11, phase.getLastTime());
+        assertEquals(1, phase.getOverruns());
+
+        log.clear();
+        phase.run();
+        assertEquals("[c, n3, n0, n1]", log.toString());
+        assertEquals(2, phase.getDeferrals());
+    }
+
+    @Test
+    public void priorities_runInOrderAndOverrunsAreRecordedPerTask() {
+        FakeClockPhase phase = new FakeClockPhase(100);
+        List<String> log = new ArrayList<String>();
+        BudgetedTask slow = task(phase, log, "slow", BudgetedPhase.PRIORITY_LOW, 20, 10);
+        BudgetedTask fast = task(phase, log, "fast", BudgetedPhase.PRIORITY_HIGH, 5, 10);
+        phase.addTask(slow);
+        phase.addTask(task(phase, log, "normal", BudgetedPhase.PRIORITY_NORMAL, 1, 0));
+        phase.addTask(fast);
+
+        phase.run();
+        phase.run();
+        assertEquals("[fast, normal, slow, fast, normal, slow]", log.toString());
+        assertEquals(2, slow.getOverruns());
+        assertEquals(20, slow.getMaxTime());
+        assertEquals(0, fast.getOverruns());
+        assertEquals(2, fast.getRuns());
+        assertEquals(0, phase.getOverruns());
+
+        assertTrue(phase.removeTask(slow));
+        assertFalse(phase.removeTask(slow));
+        log.clear();
+        phase.run();
+        assertEquals("[fast, normal]", log.toString());
+    }
+
+    @Test
+    public void starvedTask_runsAfterMaxDeferredTicks() {
+        FakeClockPhase phase = new FakeClockPhase(10);
+        List<String> log = new ArrayList<String>();
+        phase.addTask(task(phase, log, "hog", BudgetedPhase.PRIORITY_HIGH, 10, 0));
+        BudgetedTask low = task(phase, log, "low", BudgetedPhase.PRIORITY_LOW, 1, 0);
+        phase.addTask(low);
+
+        for (int i = 0; i < BudgetedPhase.MAX_DEFERRED_TICKS; i++)
+            phase.run();
+        assertEquals(0, low.getRuns());
+        assertEquals(BudgetedPhase.MAX_DEFERRED_TICKS, low.getDeferrals());
+
+        phase.run();
+        assertEquals(1, low.getRuns());
+        phase.run();
+        assertEquals(1, low.getRuns());
+    }
+
+    @Test
+    public void saturatingCriticalLoad_starvedTasksTakeTurns() {
+        FakeClockPhase phase = new FakeClockPhase(10);
+        List<String> log = new ArrayList<String>();
+        phase.addTask(task(phase, log, "c", BudgetedPhase.PRIORITY_CRITICAL, 10, 0));
+        List<BudgetedTask> others = new ArrayList<BudgetedTask>();
+        for (int i = 0; i < 3; i++) {
+            others.add(task(phase, log, "n" + i, BudgetedPhase.PRIORITY_NORMAL, 1, 0));
+            others.add(task(phase, log, "l" + i, BudgetedPhase.PRIORITY_LOW, 1, 0));
+        }
+        for (BudgetedTask other : others)
+            phase.addTask(other);
+
+        final int ticks = 20 * BudgetedPhase.MAX_DEFERRED_TICKS;
+        for (int tick = 0; tick < ticks; tick++) {
+            log.clear();
+            phase.run();
+            // The critical task, and at most one starved task past the budget.
+            assertEquals("c", log.get(0));
+            assertTrue(log.toString(), log.size() <= 2);
+        }
+        // Each task runs soon after it has been deferred MAX_DEFERRED_TICKS ticks.
+        for (BudgetedTask other : others)
+            assertTrue(other.getName(), other.getRuns() >= ticks / (BudgetedPhase.MAX_DEFERRED_TICKS + 2));
+    }
+}
@@ -0,0 +1,79 @@
+package com.wizzer.mle.title.hellocube.stress;
+
+import org.junit.Test;
+
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the stress scene's cube layout and the measurement monitor.
+ */
+public class StressSceneTest {
+    @Test
+    public void createActors_doesNotDependOnTheRange() throws Exception {
+        StressScene scene = new StressScene(new int[] {10, 100}, StressScene.LAYOUT_RANDOM, 7L, true);
+        CubeActor[] all = scene.createActors(0, 100);
+        CubeActor[] tail = scene.createActors(10, 90);
+
+        for (int i = 0; i < 90; i++) {
+            CubeActor a = all[10 + i];
+            CubeActor b = tail[i];
+            assertArrayEquals(a.position.getProperty(), b.position.getProperty(), 0.0f);
+            assertArrayEquals(a.orientation.getProperty(), b.orientation.getProperty(), 0.0f);
+            assertArrayEquals(a.scale.getProperty(), b.scale.getProperty(), 0.0f);
+            assertArrayEquals(a.color.getProperty(), b.color.getProperty(), 0.0f);
+            assertEquals(a.getSpinPeriod(), b.getSpinPeriod());
+        }
+    }
+
+    @Test
+    public void grid_fillsASquareSizedForTheLargestCount() throws Exception {
+        StressScene scene = new StressScene(new int[] {1, 16}, StressScene.LAYOUT_GRID, 0L, true);
+        assertEquals(16, scene.getMaxCount());
+        CubeActor[] actors = scene.createActors(0, 16);
+
+        // Four columns across four world units.
+        assertEquals(-1.5f, actors[0].position.getProperty()[0], 1e-6f);
+        assertEquals(-0.5f, actors[1].position.getProperty()[0], 1e-6f);
+        assertEquals(-1.5f, actors[4].position.getProperty()[0], 1e-6f);
+        assertEquals(-0.5f, actors[4].position.getProperty()[1], 1e-6f);
+        assertEquals(1.5f, actors[15].position.getProperty()[1], 1e-6f);
+        for (CubeActor actor : actors) {
+            float size = actor.scale.getProperty()[0];
+            assertTrue(size > 0.0f && size < 1.0f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownLayout_isRejected() throws Exception {
+        StressScene.parseLayout("spiral");
+    }
+
+    @Test
+    public void monitor_discardsWarmupAndCompletesAfterMeasuredFrames() throws Exception {
+        StressMonitor monitor = StressMonitor.getInstance();
+        monitor.start();
+        long time = 0;
+        for (int i = 0; i < StressMonitor.WARMUP_FRAMES; i++) {
+            monitor.onFrame(time, 1000000L);
+            monitor.onTick(5000000L);
+            time += 100000000L;
+        }
+        assertEquals(0, monitor.getAverageTickTime());
+
+        for (int i = 0; i < StressMonitor.MEASURED_FRAMES; i++) {
+            assertFalse(monitor.isStepComplete());
+            monitor.onFrame(time, 1000000L);
+            monitor.onTick(2000000L);
+            time += 16000000L;
+        }
+        assertTrue(monitor.isStepComplete());
+        // The first measured interval spans the last warm up frame.
+        assertEquals(16000000L, monitor.getAverageFrameInterval(), 300000L);
+        assertEquals(2000000L, monitor.getAverageTickTime());
+
+        monitor.stop();
+        assertFalse(monitor.isStepComplete());
+    }
+}
@@ -0,0 +1,87 @@
+package com.wizzer.mle.title.hellocube.texture;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for texture mipmapping, ETC1 compression and the texture cache.
+ */
+public class TextureImageTest {
+    private static ByteBuffer gradient(int width, int height) {
+        ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * 4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels.put((byte) (x * 255 / Math.max(1, width - 1)));
+                pixels.put((byte) (y * 255 / Math.max(1, height - 1)));
+                pixels.put((byte) 128);
+                pixels.put((byte) 255);
+            }
+        }
+        pixels.rewind();
+        return pixels;
+    }
+
+    @Test
+    public void fromRgba_buildsFullMipChain() {
+        TextureImage image = TextureImage.fromRgba(gradient(16, 4), 16, 4, true);
+
+        assertEquals(5, image.getNumLevels());
+        assertEquals(16, image.getLevelWidth(0));
+        assertEquals(2, image.getLevelWidth(3));
+        assertEquals(1, image.getLevelHeight(3));
+        assertEquals(1, image.getLevelWidth(4));
+        assertEquals(4, image.getLevelSize(4));
+        assertFalse(image.hasAlpha());
+    }
+
+    @Test
+    public void etc1_roundTripsWithinErrorBound() {
+        final int width = 32, height = 20;
+        ByteBuffer source = gradient(width, height);
+        ByteBuffer blocks = EtcCodec.encode(source, width, height);
+        assertEquals(EtcCodec.getEncodedSize(width, height), blocks.capacity());
+
+        ByteBuffer decoded = EtcCodec.decode(blocks, width, height);
+        long sumSquared = 0;
+        for (int i = 0; i < width * height * 4; i++) {
+            if ((i & 3) == 3) {
+                assertEquals(255, decoded.get(i) & 0xFF);
+                continue;
+            }
+            int error = (source.get(i) & 0xFF) - (decoded.get(i) & 0xFF);
+            sumSquared += error * error;
+        }
+        double rmse = Math.sqrt((double) sumSquared / (width * height * 3));
+        assertTrue("RMSE " + rmse, rmse < 8.0);
+    }
+
+    @Test
+    public void cache_roundTripsCompressedImage() throws Exception {
+        TextureImage image = TextureImage.fromRgba(gradient(8, 8), 8, 8, true).compress();
+        assertEquals(TextureImage.FORMAT_ETC1, image.getFormat());
+
+        File file = File.createTempFile("texture", ".mlt");
+        try {
+            TextureCache.write(file, image, 100L, 42L);
+            TextureImage mapped = TextureCache.read(file, TextureImage.FORMAT_ETC1, 100L, 42L);
+
+            assertNotNull(mapped);
+            assertEquals(image.getNumLevels(), mapped.getNumLevels());
+            for (int level = 0; level < image.getNumLevels(); level++) {
+                assertEquals(image.getLevelSize(level), mapped.getLevelSize(level));
+                for (int i = 0; i < image.getLevelSize(level); i++)
+                    assertEquals(image.getLevel(level).get(i), mapped.getLevel(level).get(i));
+            }
+
+            // A changed source or a different format invalidates the entry.
+            assertNull(TextureCache.read(file, TextureImage.FORMAT_ETC1, 100L, 43L));
+            assertNull(TextureCache.read(file, TextureImage.FORMAT_RGBA8, 100L, 42L));
+        } finally {
+            file.delete();
+        }
+    }
+}
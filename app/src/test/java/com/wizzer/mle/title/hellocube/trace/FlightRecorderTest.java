@@ -0,0 +1,126 @@
+package com.wizzer.mle.title.hellocube.trace;
+
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the flight recorder's ring buffers and Chrome trace output.
+ */
+public class FlightRecorderTest {
+    private static final long WINDOW = 60000000000L;
+
+    @Before
+    public void setUp() {
+        FlightRecorder.setEnabled(false);
+        FlightRecorder.clear();
+    }
+
+    @After
+    public void tearDown() {
+        FlightRecorder.setEnabled(false);
+        FlightRecorder.clear();
+    }
+
+    private static String write() throws Exception {
+        StringWriter out = new StringWriter();
+        FlightRecorder.write(out, WINDOW);
+        return out.toString();
+    }
+
+    @Test
+    public void register_returnsTheSameIdForTheSameName() throws Exception {
+        int id = FlightRecorder.register("test.span");
+        assertEquals(id, FlightRecorder.register("test.span"));
+        assertNotEquals(id, FlightRecorder.register("test.other"));
+    }
+
+    @Test
+    public void disabled_recordsNothing() throws Exception {
+        int span = FlightRecorder.register("test.span");
+        FlightRecorder.begin(span);
+        FlightRecorder.counter(span, 1);
+        FlightRecorder.end();
+
+        StringWriter out = new StringWriter();
+        assertEquals(0, FlightRecorder.write(out, WINDOW));
+    }
+
+    @Test
+    public void spansAndCounters_areWrittenAsChromeTraceEvents() throws Exception {
+        int span = FlightRecorder.register("test.span");
+        int counter = FlightRecorder.register("test \"counter\"");
+        FlightRecorder.setEnabled(true);
+        FlightRecorder.begin(span);
+        FlightRecorder.counter(counter, 42);
+        FlightRecorder.end();
+
+        String json = write();
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json.endsWith("]}\n"));
+        assertTrue(json.contains("\"ph\":\"M\",\"name\":\"thread_name\""));
+        assertTrue(json.contains("{\"ph\":\"B\",\"name\":\"test.span\",\"pid\":1,\"tid\":"
+                + Thread.currentThread().getId() + ",\"ts\":"));
+        assertTrue(json.contains("{\"ph\":\"C\",\"name\":\"test \\\"counter\\\"\",\"args\":{\"value\":42}"));
+        assertTrue(json.contains("{\"ph\":\"E\",\"pid\":1"));
+    }
+
+    @Test
+    public void endsOfSpansBeganBeforeTheWindow_areDropped() throws Exception {
+        int span = FlightRecorder.register("test.span");
+        FlightRecorder.setEnabled(true);
+        FlightRecorder.end();
+        FlightRecorder.begin(span);
+        FlightRecorder.end();
+
+        StringWriter out = new StringWriter();
+        assertEquals(2, FlightRecorder.write(out, WINDOW));
+    }
+
+    @Test
+    public void fullRing_keepsTheMostRecentEvents() throws Exception {
+        int counter = FlightRecorder.register("test.counter");
+        FlightRecorder.setEnabled(true);
+        for (int i = 0; i < FlightRecorder.RING_CAPACITY + 10; i++)
+            FlightRecorder.counter(counter, i);
+
+        StringWriter out = new StringWriter();
+        // The oldest slot is left out, as the writer may be overwriting it.
+        assertEquals(FlightRecorder.RING_CAPACITY - 1, FlightRecorder.write(out, WINDOW));
+        String json = out.toString();
+        assertTrue(json.contains("\"value\":" + (FlightRecorder.RING_CAPACITY + 9) + "}"));
+        assertFalse(json.contains("\"value\":10}"));
+        assertTrue(json.contains("\"value\":11}"));
+    }
+
+    @Test
+    public void ringsOfStoppedThreads_areDroppedOnceDumped() throws Exception {
+        final int span = FlightRecorder.register("test.span");
+        FlightRecorder.setEnabled(true);
+        FlightRecorder.counter(span, 0);
+        int rings = FlightRecorder.getNumRings();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    FlightRecorder.begin(span);
+                    FlightRecorder.end();
+                }
+            }, "test.worker" + i);
+            threads[i].start();
+            threads[i].join();
+        }
+
+        // The stopped threads' recent events are still dumped, once.
+        assertEquals(rings + threads.length, FlightRecorder.getNumRings());
+        String json = write();
+        assertTrue(json.contains("\"name\":\"test.worker3\""));
+        assertEquals(rings, FlightRecorder.getNumRings());
+        assertFalse(write().contains("test.worker"));
+    }
+}
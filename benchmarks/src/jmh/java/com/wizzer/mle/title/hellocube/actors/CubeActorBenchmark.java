@@ -0,0 +1,98 @@
+package com.wizzer.mle.title.hellocube.actors;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.math.MlMath;
+import com.wizzer.mle.runtime.core.MleProp;
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+
+import com.wizzer.mle.title.hellocube.props.ColorProperty;
+import com.wizzer.mle.title.hellocube.props.PositionProperty;
+import com.wizzer.mle.title.hellocube.props.RotationProperty;
+import com.wizzer.mle.title.hellocube.props.ScaleProperty;
+import com.wizzer.mle.title.hellocube.roles.CubeRole;
+
+/**
+ * Benchmarks of the cube Actor: parsing a property from its Digital Playprint
+ * stream, the per-tick behavior, and pushing the transform to the Role.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CubeActorBenchmark {
+    private CubeActor m_actor;
+
+    /**
+     * A property's stream, as an Actor receives it from a workprint.
+     */
+    @State(Scope.Thread)
+    public static class PropertyStream {
+        @Param({"position", "orientation", "scale", "color"})
+        public String m_name;
+
+        byte[] m_data;
+
+        @Setup
+        public void setUp() throws MleRuntimeException {
+            int numValues = (m_name.equals("position") || m_name.equals("scale")) ? 3 : 4;
+            m_data = new byte[numValues * 4];
+            for (int i = 0; i < numValues; i++)
+                MlMath.convertFloatToByteArray(0.5f * (i + 1), m_data, i * 4, ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    /**
+     * Create a cube Actor bound to its Role, with every property set.
+     *
+     * @return The Actor is returned.
+     */
+    public static CubeActor createCube() {
+        CubeActor actor = new CubeActor();
+        actor.position = new PositionProperty();
+        actor.position.setProperty(new float[] { 0.0f, 0.0f, -5.0f });
+        actor.orientation = new RotationProperty();
+        actor.orientation.setProperty(new float[] { 0.0f, 1.0f, 1.0f, 1.0f });
+        actor.scale = new ScaleProperty();
+        actor.scale.setProperty(new float[] { 1.0f, 1.0f, 1.0f });
+        actor.color = new ColorProperty();
+        actor.color.setProperty(new float[] { 1.0f, 0.0f, 0.0f, 1.0f });
+
+        // The Role constructor binds the Role to its Actor.
+        new CubeRole(actor);
+        return actor;
+    }
+
+    @Setup
+    public void setUp() {
+        m_actor = createCube();
+    }
+
+    @Benchmark
+    public CubeActor setProperty(PropertyStream stream) throws MleRuntimeException {
+        m_actor.setProperty(stream.m_name, new MleProp(stream.m_data.length, new ByteArrayInputStream(stream.m_data)));
+        return m_actor;
+    }
+
+    @Benchmark
+    public CubeActor behave() {
+        CubeActor.behave(m_actor);
+        return m_actor;
+    }
+
+    @Benchmark
+    public CubeActor update() {
+        m_actor.update();
+        return m_actor;
+    }
+}
@@ -0,0 +1,105 @@
+package com.wizzer.mle.title.hellocube.event;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+/**
+ * Contention benchmark of posting events from four producer threads while one
+ * consumer drains them, as the UI, rendering and loader threads do into the
+ * main loop. The lockFree group uses the event queue with the given full-queue
+ * policy; the locked group is a synchronized ArrayDeque of the same capacity
+ * that drops the oldest event, for comparison. The per-method scores of a
+ * group show the posts and drains per microsecond.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventQueueBenchmark {
+    private static final int EVENT = 0x2001;
+    private static final int CAPACITY = EventQueue.DEFAULT_CAPACITY;
+
+    // Counts the events instead of dispatching them, so only the queue is measured.
+    private static class CountingDispatcher extends MleEventDispatcher {
+        long m_count = 0;
+
+        @Override
+        public boolean processEvent(int id, Object callData, int type) {
+            m_count++;
+            return true;
+        }
+    }
+
+    @Param({ "DROP_OLDEST", "COALESCE" })
+    public String policy;
+
+    private EventQueue m_queue;
+    private final CountingDispatcher m_dispatcher = new CountingDispatcher();
+    private final ArrayDeque<Object> m_locked = new ArrayDeque<Object>(CAPACITY);
+    private final Object m_data = new Object();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        m_queue = new EventQueue(CAPACITY, EventQueue.POLICY_DROP_OLDEST);
+        if (policy.equals("COALESCE"))
+            m_queue.setPolicy(EVENT, EventQueue.POLICY_COALESCE);
+        synchronized (m_locked) {
+            m_locked.clear();
+        }
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(4)
+    public boolean post() {
+        return m_queue.post(EVENT, m_data);
+    }
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(1)
+    public int drain() {
+        return m_queue.dispatch(m_dispatcher);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(4)
+    public boolean postLocked() {
+        synchronized (m_locked) {
+            if (m_locked.size() == CAPACITY)
+                m_locked.poll();
+            return m_locked.add(m_data);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public int drainLocked() {
+        int count = 0;
+        while (true) {
+            Object data;
+            synchronized (m_locked) {
+                data = m_locked.poll();
+            }
+            if (data == null)
+                return count;
+            m_dispatcher.processEvent(EVENT, data, MleEventDispatcher.MLE_EVMGR_IMMEDIATE);
+            count++;
+        }
+    }
+}
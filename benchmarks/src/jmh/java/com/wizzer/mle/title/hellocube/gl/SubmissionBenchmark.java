@@ -0,0 +1,72 @@
+package com.wizzer.mle.title.hellocube.gl;
+
+import java.util.concurrent.TimeUnit;
+
+import android.opengl.GLES20;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.title.hellocube.mesh.VertexData;
+import com.wizzer.mle.title.hellocube.mesh.VertexLayout;
+
+/**
+ * Benchmark of submitting a frame of cubes through the recording GL backend,
+ * issuing the calls <code>CubeRole.render()</code> makes for each cube.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubmissionBenchmark {
+    // The interleaved layout of the cube Role's vertices.
+    private static final VertexLayout LAYOUT = new VertexLayout.Builder()
+            .add("a_Position", 3, VertexLayout.ENCODING_SHORT_NORM)
+            .add("a_Color", 4, VertexLayout.ENCODING_UBYTE_NORM)
+            .build();
+    private static final int NUM_VERTICES = 36;
+
+    @Param({"100", "1000"})
+    public int numCubes;
+
+    @Param({"true", "false"})
+    public boolean recording;
+
+    private final RecordingGl m_gl = new RecordingGl();
+    private final float[] m_mvp = new float[16];
+    private final int[] m_locations = new int[2];
+    private VertexData m_vertices;
+    private int m_program;
+    private int m_mvpLocation;
+
+    @Setup
+    public void setUp() {
+        m_gl.setRecording(recording);
+        m_program = m_gl.glCreateProgram();
+        m_gl.glBindAttribLocation(m_program, 0, "a_Position");
+        m_gl.glBindAttribLocation(m_program, 1, "a_Color");
+        m_gl.glLinkProgram(m_program);
+        m_mvpLocation = m_gl.glGetUniformLocation(m_program, "u_MVPMatrix");
+        m_locations[0] = 0;
+        m_locations[1] = 1;
+        m_vertices = new VertexData(LAYOUT, NUM_VERTICES);
+    }
+
+    @Benchmark
+    public long submitFrame() {
+        m_gl.reset();
+        for (int i = 0; i < numCubes; i++) {
+            m_gl.glUseProgram(m_program);
+            LAYOUT.enableAttributes(m_gl, m_locations, m_vertices.getData());
+            m_mvp[12] = i;
+            m_gl.glUniformMatrix4fv(m_mvpLocation, 1, false, m_mvp, 0);
+            m_gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, NUM_VERTICES);
+        }
+        return m_gl.getNumDraws();
+    }
+}
@@ -0,0 +1,92 @@
+package com.wizzer.mle.title.hellocube.input;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+import com.wizzer.mle.runtime.event.IMleEventCallback;
+import com.wizzer.mle.runtime.event.MleEvent;
+import com.wizzer.mle.runtime.event.MleEventDispatcher;
+
+/**
+ * Benchmark of one 60 Hz tick of input at full rate: every pointer reports
+ * four 240 Hz touch moves, the gyroscope three or four 200 Hz samples, and the
+ * tick dispatches the coalesced events to a callback. The gc profiler's
+ * gc.alloc.rate.norm shows whether anything allocates per sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InputBenchmark {
+    private static final long TICK = 16666667L;
+    private static final long TOUCH_PERIOD = TICK / 4;
+    private static final long GYRO_PERIOD = 5000000L;
+    private static final int TYPE_GYROSCOPE = 4;
+
+    @Param({ "1", "2", "5" })
+    public int pointers;
+
+    private final InputQueue m_queue = new InputQueue(InputQueue.DEFAULT_POOL_SIZE);
+    private final MleEventDispatcher m_dispatcher = new MleEventDispatcher();
+    private final float[] m_gyro = { 0.1f, 0.2f, 0.3f };
+    private long m_time = 0;
+    private long m_gyroTime = 0;
+    private float m_sum = 0.0f;
+
+    @Setup
+    public void setUp() throws MleRuntimeException {
+        IMleEventCallback callback = new IMleEventCallback() {
+            public boolean dispatch(MleEvent event, Object clientData) {
+                InputEvent input = (InputEvent) event.getCallData();
+                m_sum += input.getX() + input.getIntegral(0);
+                return true;
+            }
+        };
+        m_dispatcher.installEventCB(InputQueue.MLE_TOUCH_EVENT, callback, null);
+        m_dispatcher.installEventCB(InputQueue.MLE_SENSOR_EVENT, callback, null);
+    }
+
+    @Benchmark
+    public int tick() {
+        // The samples arriving on the UI and sensor threads during the tick.
+        for (int i = 0; i < 4; i++) {
+            m_time += TOUCH_PERIOD;
+            for (int p = 0; p < pointers; p++)
+                m_queue.addTouch(InputEvent.ACTION_MOVE, p, m_time * 1.0e-6f, p, m_time, 1080, 1920, 1);
+        }
+        while (m_gyroTime < m_time) {
+            m_gyroTime += GYRO_PERIOD;
+            m_queue.addSensor(TYPE_GYROSCOPE, m_gyro, 3, m_gyroTime);
+        }
+
+        // The main loop's dispatch.
+        return m_queue.dispatch(m_dispatcher);
+    }
+
+    @Benchmark
+    public int tickUncoalesced() {
+        // The same samples with a dispatch per sample, as posting each one would.
+        int events = 0;
+        for (int i = 0; i < 4; i++) {
+            m_time += TOUCH_PERIOD;
+            for (int p = 0; p < pointers; p++) {
+                m_queue.addTouch(InputEvent.ACTION_MOVE, p, m_time * 1.0e-6f, p, m_time, 1080, 1920, 1);
+                events += m_queue.dispatch(m_dispatcher);
+            }
+        }
+        while (m_gyroTime < m_time) {
+            m_gyroTime += GYRO_PERIOD;
+            m_queue.addSensor(TYPE_GYROSCOPE, m_gyro, 3, m_gyroTime);
+            events += m_queue.dispatch(m_dispatcher);
+        }
+        return events;
+    }
+}
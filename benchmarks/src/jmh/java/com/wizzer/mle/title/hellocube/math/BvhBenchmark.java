@@ -0,0 +1,109 @@
+package com.wizzer.mle.title.hellocube.math;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of picking among 100,000 cube bounds: a ray cast through the
+ * bounding volume hierarchy against testing every sphere, and the cost of
+ * keeping the hierarchy up to date when 1% of the cubes move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BvhBenchmark {
+    private static final int NUM_BOUNDS = 100000;
+    private static final int NUM_RAYS = 256;
+    private static final int NUM_MOVED = NUM_BOUNDS / 100;
+
+    private final Bounds[] m_bounds = new Bounds[NUM_BOUNDS];
+    private final Bvh m_bvh = new Bvh();
+
+    // Rays from the camera through random points on the screen.
+    private final float[][] m_directions = new float[NUM_RAYS][];
+    private final float[] m_origin = { 0.0f, 0.0f, 0.0f };
+    private final float[] m_distance = new float[1];
+    private int m_ray = 0;
+
+    private final Random m_random = new Random(42);
+
+    @Setup
+    public void setUp() {
+        // A 100 x 100 x 100 grid of cubes, 10 units deep in front of the camera.
+        for (int i = 0; i < NUM_BOUNDS; i++) {
+            m_bounds[i] = new Bounds();
+            m_bounds[i].setBox((m_random.nextFloat() - 0.5f) * 100.0f, (m_random.nextFloat() - 0.5f) * 100.0f,
+                -10.0f - (m_random.nextFloat() * 100.0f), 0.5f, 0.5f, 0.5f);
+        }
+        m_bvh.build(m_bounds, NUM_BOUNDS);
+
+        for (int i = 0; i < NUM_RAYS; i++) {
+            float x = m_random.nextFloat() - 0.5f;
+            float y = m_random.nextFloat() - 0.5f;
+            float length = (float) Math.sqrt((x * x) + (y * y) + 1.0f);
+            m_directions[i] = new float[] { x / length, y / length, -1.0f / length };
+        }
+    }
+
+    private float[] nextRay() {
+        m_ray = (m_ray + 1) % NUM_RAYS;
+        m_distance[0] = Float.MAX_VALUE;
+        return m_directions[m_ray];
+    }
+
+    @Benchmark
+    public int pick100k() {
+        return m_bvh.intersectRay(m_origin, nextRay(), m_distance);
+    }
+
+    @Benchmark
+    public int pickBruteForce100k() {
+        final float[] direction = nextRay();
+        int hit = -1;
+        for (int i = 0; i < NUM_BOUNDS; i++) {
+            Bounds bounds = m_bounds[i];
+            float cx = m_origin[0] - bounds.m_center[0];
+            float cy = m_origin[1] - bounds.m_center[1];
+            float cz = m_origin[2] - bounds.m_center[2];
+            float b = (cx * direction[0]) + (cy * direction[1]) + (cz * direction[2]);
+            float c = (cx * cx) + (cy * cy) + (cz * cz) - (bounds.m_radius * bounds.m_radius);
+            float discriminant = (b * b) - c;
+            if ((b > 0.0f) || (discriminant < 0.0f))
+                continue;
+            float t = -b - (float) Math.sqrt(discriminant);
+            if (t < m_distance[0]) {
+                m_distance[0] = t;
+                hit = i;
+            }
+        }
+        return hit;
+    }
+
+    @Benchmark
+    public float refit1Percent() {
+        // Nudge 1% of the cubes, as animated Actors would.
+        for (int i = 0; i < NUM_MOVED; i++) {
+            int item = m_random.nextInt(NUM_BOUNDS);
+            Bounds bounds = m_bounds[item];
+            bounds.setSphere(bounds.m_center[0] + ((m_random.nextFloat() - 0.5f) * 0.1f),
+                bounds.m_center[1], bounds.m_center[2], bounds.m_radius);
+            m_bvh.update(item, bounds);
+        }
+        m_bvh.refit();
+        return m_bvh.getDegradation();
+    }
+
+    @Benchmark
+    public int rebuild100k() {
+        m_bvh.rebuild();
+        return m_bvh.getNumNodes();
+    }
+}
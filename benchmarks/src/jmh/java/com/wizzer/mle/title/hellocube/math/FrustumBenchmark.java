@@ -0,0 +1,59 @@
+package com.wizzer.mle.title.hellocube.math;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of view frustum culling: 100,000 cube bounds, 90% of them behind
+ * the camera, as the Set tests them each frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrustumBenchmark {
+    private static final int NUM_BOUNDS = 100000;
+
+    private final Frustum m_frustum = new Frustum();
+    private final Bounds[] m_bounds = new Bounds[NUM_BOUNDS];
+
+    @Setup
+    public void setUp() {
+        // A 60 degree perspective projection, near 1 and far 100, looking down -z.
+        final float f = 1.0f / (float) Math.tan(Math.toRadians(30.0));
+        final float near = 1.0f;
+        final float far = 100.0f;
+        float[] projection = new float[MatrixMath.SIZE];
+        projection[0] = f;
+        projection[5] = f;
+        projection[10] = (far + near) / (near - far);
+        projection[11] = -1.0f;
+        projection[14] = (2.0f * far * near) / (near - far);
+        m_frustum.set(projection);
+
+        Random random = new Random(42);
+        for (int i = 0; i < NUM_BOUNDS; i++) {
+            // Every tenth cube is in front of the camera.
+            float z = ((i % 10) == 0) ? -10.0f - (random.nextFloat() * 50.0f) : 10.0f + (random.nextFloat() * 50.0f);
+            m_bounds[i] = new Bounds();
+            m_bounds[i].setSphere(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, z, 0.87f);
+        }
+    }
+
+    @Benchmark
+    public int cull100k() {
+        int numVisible = 0;
+        for (Bounds bounds : m_bounds) {
+            if (m_frustum.intersects(bounds))
+                numVisible++;
+        }
+        return numVisible;
+    }
+}
@@ -0,0 +1,70 @@
+package com.wizzer.mle.title.hellocube.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the per-Role matrix work: building a model matrix and
+ * combining it with the Set's projection * view, singly and in batches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MatrixMathBenchmark {
+    private static final int BATCH = 1000;
+
+    private final float[] m_viewProjection = new float[MatrixMath.SIZE];
+    private final float[] m_model = new float[MatrixMath.SIZE];
+    private final float[] m_mvp = new float[MatrixMath.SIZE];
+    private final float[] m_trs = new float[BATCH * MatrixMath.TRS_STRIDE];
+    private final float[] m_models = new float[BATCH * MatrixMath.SIZE];
+    private final float[] m_mvps = new float[BATCH * MatrixMath.SIZE];
+
+    @Setup
+    public void setUp() {
+        MatrixMath.setTrs(m_viewProjection, 0, 0.0f, 0.0f, -5.0f, 30.0f, 0.0f, 1.0f, 0.0f, 1.0f, 1.0f, 1.0f);
+        MatrixMath.setTrs(m_model, 0, 1.0f, 2.0f, 3.0f, 45.0f, 0.0f, 1.0f, 1.0f, 1.0f, 2.0f, 1.0f);
+        for (int i = 0; i < BATCH; i++) {
+            int t = i * MatrixMath.TRS_STRIDE;
+            // Translation, angle, axis and scale.
+            m_trs[t] = i;
+            m_trs[t + 3] = i % 360;
+            m_trs[t + 5] = 1.0f;
+            m_trs[t + 7] = 1.0f;
+            m_trs[t + 8] = 1.0f;
+            m_trs[t + 9] = 1.0f;
+        }
+    }
+
+    @Benchmark
+    public float[] setTrs() {
+        MatrixMath.setTrs(m_model, 0, 1.0f, 2.0f, 3.0f, 45.0f, 0.0f, 1.0f, 1.0f, 1.0f, 2.0f, 1.0f);
+        return m_model;
+    }
+
+    @Benchmark
+    public float[] multiply() {
+        MatrixMath.multiply(m_mvp, 0, m_viewProjection, 0, m_model, 0);
+        return m_mvp;
+    }
+
+    @Benchmark
+    public float[] multiplyAffine() {
+        MatrixMath.multiplyAffine(m_mvp, 0, m_viewProjection, 0, m_model, 0);
+        return m_mvp;
+    }
+
+    @Benchmark
+    public float[] batch1000() {
+        MatrixMath.setTrsBatch(m_models, 0, m_trs, 0, BATCH);
+        MatrixMath.multiplyAffineBatch(m_mvps, 0, m_viewProjection, 0, m_models, 0, BATCH);
+        return m_mvps;
+    }
+}
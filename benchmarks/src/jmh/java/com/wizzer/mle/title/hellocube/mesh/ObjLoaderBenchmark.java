@@ -0,0 +1,47 @@
+package com.wizzer.mle.title.hellocube.mesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of parsing the title's cube mesh, the raw resource <code>box.obj</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjLoaderBenchmark {
+    private byte[] m_source;
+
+    @Setup
+    public void setUp() throws IOException {
+        InputStream in = ObjLoaderBenchmark.class.getResourceAsStream("/box.obj");
+        if (in == null)
+            throw new IOException("ObjLoaderBenchmark: box.obj is not on the classpath.");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                out.write(buffer, 0, n);
+            m_source = out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Mesh load() throws IOException {
+        return ObjLoader.load(new ByteArrayInputStream(m_source), m_source.length);
+    }
+}
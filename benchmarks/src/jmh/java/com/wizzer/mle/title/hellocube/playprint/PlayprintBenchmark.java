@@ -0,0 +1,52 @@
+package com.wizzer.mle.title.hellocube.playprint;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+
+/**
+ * Benchmark of creating 100,000 cube Actors from a playprint group.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PlayprintBenchmark {
+    private static final int NUM_ACTORS = 100000;
+
+    private Playprint m_playprint;
+
+    @Setup
+    public void setUp() throws IOException {
+        final int recordSize = Playprint.getRecordSize(Playprint.PROPERTIES_CUBE);
+        float[] values = new float[NUM_ACTORS * recordSize];
+        for (int i = 0; i < NUM_ACTORS; i++) {
+            int v = i * recordSize;
+            values[v] = i;
+            values[v + 2] = -5.0f;
+            values[v + 5] = 1.0f;
+            for (int j = 7; j < recordSize; j++)
+                values[v + j] = 1.0f;
+        }
+
+        PlayprintWriter writer = new PlayprintWriter();
+        writer.addGroup("cubes", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE, Playprint.PROPERTIES_CUBE,
+            values, NUM_ACTORS);
+        m_playprint = new Playprint(writer.toByteBuffer());
+    }
+
+    @Benchmark
+    public CubeActor[] createActors100k() throws MleRuntimeException {
+        return PlayprintLoader.createActors(m_playprint, 0);
+    }
+}
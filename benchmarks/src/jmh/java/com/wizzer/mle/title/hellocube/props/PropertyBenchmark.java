@@ -0,0 +1,59 @@
+package com.wizzer.mle.title.hellocube.props;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+import com.wizzer.mle.title.hellocube.actors.CubeActorBenchmark;
+
+/**
+ * Benchmarks of the cube properties: pushing each property to the Role, and
+ * setting a property's value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PropertyBenchmark {
+    private CubeActor m_actor;
+    private final float[] m_rotation = { 45.0f, 0.0f, 1.0f, 0.0f };
+
+    @Setup
+    public void setUp() {
+        m_actor = CubeActorBenchmark.createCube();
+    }
+
+    @Benchmark
+    public boolean pushPosition() throws MleRuntimeException {
+        return m_actor.position.push(m_actor);
+    }
+
+    @Benchmark
+    public boolean pushOrientation() throws MleRuntimeException {
+        return m_actor.orientation.push(m_actor);
+    }
+
+    @Benchmark
+    public boolean pushScale() throws MleRuntimeException {
+        return m_actor.scale.push(m_actor);
+    }
+
+    @Benchmark
+    public boolean pushColor() throws MleRuntimeException {
+        return m_actor.color.push(m_actor);
+    }
+
+    @Benchmark
+    public RotationProperty setOrientation() {
+        m_actor.orientation.setProperty(m_rotation);
+        return m_actor.orientation;
+    }
+}
@@ -0,0 +1,60 @@
+package com.wizzer.mle.title.hellocube.roles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.wizzer.mle.runtime.core.MleRuntimeException;
+
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+
+/**
+ * Benchmarks of the carriers that copy property values from an Actor to its
+ * cube Role.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CarrierBenchmark {
+    private CubeRole m_role;
+    private final float[] m_vec3 = { 1.0f, 2.0f, 3.0f };
+    private final float[] m_vec4 = { 45.0f, 0.0f, 1.0f, 0.0f };
+    private final float[] m_out3 = new float[3];
+
+    @Setup
+    public void setUp() {
+        m_role = new CubeRole(new CubeActor());
+    }
+
+    @Benchmark
+    public boolean setPosition() throws MleRuntimeException {
+        return PositionCarrier.set(m_role, m_vec3);
+    }
+
+    @Benchmark
+    public boolean setRotation() throws MleRuntimeException {
+        return RotationCarrier.set(m_role, m_vec4);
+    }
+
+    @Benchmark
+    public boolean setScale() throws MleRuntimeException {
+        return ScaleCarrier.set(m_role, m_vec3);
+    }
+
+    @Benchmark
+    public boolean setColor() throws MleRuntimeException {
+        return ColorCarrier.set(m_role, m_vec4);
+    }
+
+    @Benchmark
+    public float[] getPosition() throws MleRuntimeException {
+        PositionCarrier.get(m_role, m_out3);
+        return m_out3;
+    }
+}
@@ -0,0 +1,214 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube.simulation;
+
+// Import standard Java classes.
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Import title classes.
+import com.wizzer.mle.title.hellocube.actors.CubeActor;
+import com.wizzer.mle.title.hellocube.playprint.Playprint;
+import com.wizzer.mle.title.hellocube.playprint.PlayprintLoader;
+import com.wizzer.mle.title.hellocube.playprint.PlayprintWriter;
+import com.wizzer.mle.title.hellocube.trace.FlightRecorder;
+
+/**
+ * Runs headless scenes as fast as possible on a JVM and reports their
+ * throughput, the time per tick spent in each scheduler phase and the peak heap.
+ * <p>
+ * Usage: <code>SimulationRunner [-scenes n] [-threads n] [-cubes n] [-ticks n]
+ * [-playprint file] [-trace file]</code>. Each scene is built from the playprint,
+ * or from <code>-cubes</code> generated cubes, and ticked on its own task; scenes
+ * run in parallel on <code>-threads</code> threads, by default one per processor.
+ * With <code>-trace</code>, the <code>FlightRecorder</code> records the run and
+ * its last seconds are written to the file as Chrome trace JSON.
+ * </p>
+ *
+ * @see HeadlessScene
+ */
+public class SimulationRunner
+{
+    // The defaults.
+    private static final int DEFAULT_SCENES = 1;
+    private static final int DEFAULT_CUBES = 1000;
+    private static final long DEFAULT_TICKS = 10000L;
+
+    // The bytes in a megabyte.
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    // Hide default constructor.
+    private SimulationRunner() {}
+
+    // Build a playprint of cubes laid out on a grid, a tenth of them in front of the camera.
+    private static Playprint createPlayprint(int numCubes)
+        throws Exception
+    {
+        final int recordSize = Playprint.getRecordSize(Playprint.PROPERTIES_CUBE);
+        float[] values = new float[numCubes * recordSize];
+        for (int i = 0; i < numCubes; i++)
+        {
+            int v = i * recordSize;
+            // Position.
+            values[v] = (i % 10) - 4.5f;
+            values[v + 1] = ((i / 10) % 10) - 4.5f;
+            values[v + 2] = ((i % 10) == 0) ? -20.0f : 20.0f;
+            // Orientation.
+            values[v + 3] = i % 360;
+            values[v + 5] = 1.0f;
+            // Scale.
+            values[v + 7] = 1.0f;
+            values[v + 8] = 1.0f;
+            values[v + 9] = 1.0f;
+            // Color.
+            values[v + 10] = 1.0f;
+            values[v + 13] = 1.0f;
+        }
+
+        PlayprintWriter writer = new PlayprintWriter();
+        writer.addGroup("cubes", Playprint.TYPE_CUBE, Playprint.TYPE_CUBE, Playprint.PROPERTIES_CUBE,
+            values, numCubes);
+        return new Playprint(writer.toByteBuffer());
+    }
+
+    // Reset the peak usage of the heap memory pools.
+    private static void resetPeakHeap()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    // Sum the peak usage of the heap memory pools.
+    private static long getPeakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Run the scenes and print the report.
+     *
+     * @param args The command line arguments.
+     *
+     * @throws Exception This exception is thrown if a scene cannot be built or fails.
+     */
+    public static void main(String[] args)
+        throws Exception
+    {
+        int numScenes = DEFAULT_SCENES;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        int numCubes = DEFAULT_CUBES;
+        long numTicks = DEFAULT_TICKS;
+        File playprintFile = null;
+        File traceFile = null;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            if ((i + 1) >= args.length)
+                throw new IllegalArgumentException("SimulationRunner: Missing value for " + arg + ".");
+            String value = args[++i];
+            if (arg.equals("-scenes"))
+                numScenes = Integer.parseInt(value);
+            else if (arg.equals("-threads"))
+                numThreads = Integer.parseInt(value);
+            else if (arg.equals("-cubes"))
+                numCubes = Integer.parseInt(value);
+            else if (arg.equals("-ticks"))
+                numTicks = Long.parseLong(value);
+            else if (arg.equals("-playprint"))
+                playprintFile = new File(value);
+            else if (arg.equals("-trace"))
+                traceFile = new File(value);
+            else
+                throw new IllegalArgumentException("SimulationRunner: Unknown option " + arg + ".");
+        }
+
+        final Playprint playprint = (playprintFile != null) ? Playprint.map(playprintFile) : createPlayprint(numCubes);
+        final long ticks = numTicks;
+        numThreads = Math.max(1, Math.min(numThreads, numScenes));
+
+        FlightRecorder.setEnabled(traceFile != null);
+        resetPeakHeap();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<HeadlessScene>> futures = new ArrayList<Future<HeadlessScene>>();
+        long start = System.nanoTime();
+        for (int i = 0; i < numScenes; i++)
+        {
+            futures.add(executor.submit(new Callable<HeadlessScene>()
+            {
+                public HeadlessScene call() throws Exception
+                {
+                    // Each scene decodes its own Actors.
+                    CubeActor[] actors = PlayprintLoader.createActors(playprint);
+                    HeadlessScene scene = new HeadlessScene(actors);
+                    scene.run(ticks);
+                    return scene;
+                }
+            }));
+        }
+
+        List<HeadlessScene> scenes = new ArrayList<HeadlessScene>();
+        try
+        {
+            for (Future<HeadlessScene> future : futures)
+                scenes.add(future.get());
+        } finally
+        {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        long peakHeap = getPeakHeap();
+
+        // Sum the scenes.
+        long totalTicks = 0;
+        long eventTime = 0;
+        long[] phaseTime = new long[HeadlessScene.NUM_PHASES];
+        for (HeadlessScene scene : scenes)
+        {
+            totalTicks += scene.getNumTicks();
+            eventTime += scene.getEventTime();
+            for (int i = 0; i < HeadlessScene.NUM_PHASES; i++)
+                phaseTime[i] += scene.getPhaseTime(i);
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Scenes: %d of %d Actors on %d threads, %d ticks each%n",
+            numScenes, scenes.isEmpty() ? 0 : scenes.get(0).getNumActors(), numThreads, ticks));
+        report.append(String.format("Elapsed: %.1f ms, including scene construction%n", elapsed / 1e6));
+        report.append(String.format("Throughput: %.0f ticks/s in total, %.0f ticks/s per scene%n",
+            totalTicks / (elapsed / 1e9), (totalTicks / (elapsed / 1e9)) / Math.max(1, numScenes)));
+        report.append("Time per tick:\n");
+        report.append(String.format("  %-18s %10.2f us%n", "Events", (eventTime / 1e3) / Math.max(1, totalTicks)));
+        for (int i = 0; i < HeadlessScene.NUM_PHASES; i++)
+            report.append(String.format("  %-18s %10.2f us%n", HeadlessScene.getPhaseName(i),
+                (phaseTime[i] / 1e3) / Math.max(1, totalTicks)));
+        report.append(String.format("Peak heap: %d MB%n", peakHeap / MEGABYTE));
+        System.out.print(report);
+
+        if (traceFile != null)
+        {
+            FlightRecorder.setEnabled(false);
+            int count = FlightRecorder.dump(traceFile, FlightRecorder.DEFAULT_WINDOW);
+            System.out.println("Trace: " + count + " events written to " + traceFile);
+        }
+    }
+}
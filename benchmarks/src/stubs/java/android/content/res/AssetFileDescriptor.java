@@ -0,0 +1,32 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.content.res;
+
+// Import standard Java classes.
+import java.io.FileDescriptor;
+import java.io.IOException;
+
+/**
+ * A JVM stub of <code>android.content.res.AssetFileDescriptor</code>. The
+ * stubbed <code>Resources</code> never returns one.
+ */
+public class AssetFileDescriptor
+{
+    // Hide default constructor.
+    private AssetFileDescriptor() {}
+
+    public FileDescriptor getFileDescriptor()
+    { throw new UnsupportedOperationException("AssetFileDescriptor: Not available on the JVM."); }
+
+    public long getStartOffset()
+    { throw new UnsupportedOperationException("AssetFileDescriptor: Not available on the JVM."); }
+
+    public long getLength()
+    { throw new UnsupportedOperationException("AssetFileDescriptor: Not available on the JVM."); }
+
+    public void close()
+        throws IOException
+    {}
+}
@@ -0,0 +1,39 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.content.res;
+
+// Import standard Java classes.
+import java.io.InputStream;
+
+/**
+ * A JVM stub of <code>android.content.res.Resources</code>. There is no
+ * application package, so every call throws; benchmarks read the raw
+ * resources from the classpath instead.
+ */
+public class Resources
+{
+    // Hide default constructor.
+    private Resources() {}
+
+    public InputStream openRawResource(int id)
+    { throw new NotFoundException("Resources: No application package on the JVM."); }
+
+    public AssetFileDescriptor openRawResourceFd(int id)
+    { throw new NotFoundException("Resources: No application package on the JVM."); }
+
+    public String getResourceEntryName(int id)
+    { throw new NotFoundException("Resources: No application package on the JVM."); }
+
+    /**
+     * Thrown when a resource cannot be found.
+     */
+    public static class NotFoundException extends RuntimeException
+    {
+        public NotFoundException(String name)
+        {
+            super(name);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.graphics;
+
+// Import standard Java classes.
+import java.nio.Buffer;
+
+/**
+ * A JVM stub of <code>android.graphics.Bitmap</code>. The stubbed
+ * <code>BitmapFactory</code> never returns one.
+ */
+public final class Bitmap
+{
+    public enum Config
+    {
+        ALPHA_8,
+        RGB_565,
+        ARGB_8888
+    }
+
+    // Hide default constructor.
+    private Bitmap() {}
+
+    public int getWidth()
+    { throw new UnsupportedOperationException("Bitmap: Not available on the JVM."); }
+
+    public int getHeight()
+    { throw new UnsupportedOperationException("Bitmap: Not available on the JVM."); }
+
+    public void copyPixelsToBuffer(Buffer dst)
+    { throw new UnsupportedOperationException("Bitmap: Not available on the JVM."); }
+
+    public void recycle()
+    {}
+}
@@ -0,0 +1,25 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.graphics;
+
+// Import standard Java classes.
+import java.io.InputStream;
+
+/**
+ * A JVM stub of <code>android.graphics.BitmapFactory</code>. Images cannot be
+ * decoded, so <b>null</b> is returned as for an undecodable stream.
+ */
+public class BitmapFactory
+{
+    public static class Options
+    {
+        public boolean inScaled = true;
+        public boolean inPremultiplied = true;
+        public Bitmap.Config inPreferredConfig = Bitmap.Config.ARGB_8888;
+    }
+
+    public static Bitmap decodeStream(InputStream is, Rect outPadding, Options opts)
+    { return null; }
+}
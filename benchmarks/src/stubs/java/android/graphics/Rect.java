@@ -0,0 +1,16 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.graphics;
+
+/**
+ * A JVM stub of <code>android.graphics.Rect</code>.
+ */
+public final class Rect
+{
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+}
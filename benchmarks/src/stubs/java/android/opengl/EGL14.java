@@ -0,0 +1,19 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.opengl;
+
+/**
+ * A JVM stub of <code>android.opengl.EGL14</code>. No context is ever current.
+ */
+public class EGL14
+{
+    public static final EGLContext EGL_NO_CONTEXT = new EGLContext(0);
+
+    // Hide default constructor.
+    private EGL14() {}
+
+    public static EGLContext eglGetCurrentContext()
+    { return EGL_NO_CONTEXT; }
+}
@@ -0,0 +1,31 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.opengl;
+
+/**
+ * A JVM stub of <code>android.opengl.EGLContext</code>.
+ */
+public class EGLContext
+{
+    // The native handle.
+    private final long m_handle;
+
+    EGLContext(long handle)
+    {
+        super();
+        m_handle = handle;
+    }
+
+    public long getNativeHandle()
+    { return m_handle; }
+
+    @Override
+    public boolean equals(Object o)
+    { return (o instanceof EGLContext) && (((EGLContext) o).m_handle == m_handle); }
+
+    @Override
+    public int hashCode()
+    { return (int) (m_handle ^ (m_handle >>> 32)); }
+}
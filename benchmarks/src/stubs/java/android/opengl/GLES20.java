@@ -0,0 +1,146 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.opengl;
+
+// Import standard Java classes.
+import java.nio.Buffer;
+
+/**
+ * A JVM stub of <code>android.opengl.GLES20</code>, with the constants and
+ * calls the title uses. There is no driver, so every call throws; benchmarks
+ * install a headless backend with <code>Gl.setInstance()</code>.
+ */
+public class GLES20
+{
+    public static final int GL_FALSE = 0;
+    public static final int GL_TRUE = 1;
+    public static final int GL_TRIANGLES = 0x0004;
+    public static final int GL_BYTE = 0x1400;
+    public static final int GL_UNSIGNED_BYTE = 0x1401;
+    public static final int GL_SHORT = 0x1402;
+    public static final int GL_UNSIGNED_SHORT = 0x1403;
+    public static final int GL_INT = 0x1404;
+    public static final int GL_UNSIGNED_INT = 0x1405;
+    public static final int GL_FLOAT = 0x1406;
+    public static final int GL_RGBA = 0x1908;
+    public static final int GL_RENDERER = 0x1F01;
+    public static final int GL_VERSION = 0x1F02;
+    public static final int GL_EXTENSIONS = 0x1F03;
+    public static final int GL_TEXTURE_2D = 0x0DE1;
+    public static final int GL_LINEAR = 0x2601;
+    public static final int GL_LINEAR_MIPMAP_LINEAR = 0x2703;
+    public static final int GL_TEXTURE_MAG_FILTER = 0x2800;
+    public static final int GL_TEXTURE_MIN_FILTER = 0x2801;
+    public static final int GL_TEXTURE_WRAP_S = 0x2802;
+    public static final int GL_TEXTURE_WRAP_T = 0x2803;
+    public static final int GL_CLAMP_TO_EDGE = 0x812F;
+    public static final int GL_FRAGMENT_SHADER = 0x8B30;
+    public static final int GL_VERTEX_SHADER = 0x8B31;
+    public static final int GL_COMPILE_STATUS = 0x8B81;
+    public static final int GL_LINK_STATUS = 0x8B82;
+
+    // Hide default constructor.
+    GLES20() {}
+
+    // The exception thrown by every call.
+    static UnsupportedOperationException stub()
+    {
+        return new UnsupportedOperationException("GLES20: There is no GL driver on the JVM.");
+    }
+
+    public static int glCreateShader(int type)
+    { throw stub(); }
+
+    public static void glShaderSource(int shader, String string)
+    { throw stub(); }
+
+    public static void glCompileShader(int shader)
+    { throw stub(); }
+
+    public static void glGetShaderiv(int shader, int pname, int[] params, int offset)
+    { throw stub(); }
+
+    public static String glGetShaderInfoLog(int shader)
+    { throw stub(); }
+
+    public static void glDeleteShader(int shader)
+    { throw stub(); }
+
+    public static int glCreateProgram()
+    { throw stub(); }
+
+    public static void glAttachShader(int program, int shader)
+    { throw stub(); }
+
+    public static void glBindAttribLocation(int program, int index, String name)
+    { throw stub(); }
+
+    public static void glLinkProgram(int program)
+    { throw stub(); }
+
+    public static void glGetProgramiv(int program, int pname, int[] params, int offset)
+    { throw stub(); }
+
+    public static String glGetProgramInfoLog(int program)
+    { throw stub(); }
+
+    public static void glDeleteProgram(int program)
+    { throw stub(); }
+
+    public static void glUseProgram(int program)
+    { throw stub(); }
+
+    public static int glGetUniformLocation(int program, String name)
+    { throw stub(); }
+
+    public static int glGetAttribLocation(int program, String name)
+    { throw stub(); }
+
+    public static void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride,
+        Buffer ptr)
+    { throw stub(); }
+
+    public static void glEnableVertexAttribArray(int index)
+    { throw stub(); }
+
+    public static void glDisableVertexAttribArray(int index)
+    { throw stub(); }
+
+    public static void glVertexAttrib4f(int indx, float x, float y, float z, float w)
+    { throw stub(); }
+
+    public static void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value,
+        int offset)
+    { throw stub(); }
+
+    public static void glDrawArrays(int mode, int first, int count)
+    { throw stub(); }
+
+    public static void glDrawElements(int mode, int count, int type, Buffer indices)
+    { throw stub(); }
+
+    public static void glGenTextures(int n, int[] textures, int offset)
+    { throw stub(); }
+
+    public static void glBindTexture(int target, int texture)
+    { throw stub(); }
+
+    public static void glTexParameteri(int target, int pname, int param)
+    { throw stub(); }
+
+    public static void glTexImage2D(int target, int level, int internalformat, int width, int height,
+        int border, int format, int type, Buffer pixels)
+    { throw stub(); }
+
+    public static void glCompressedTexImage2D(int target, int level, int internalformat, int width,
+        int height, int border, int imageSize, Buffer data)
+    { throw stub(); }
+
+    public static void glDeleteTextures(int n, int[] textures, int offset)
+    { throw stub(); }
+
+    public static String glGetString(int name)
+    { throw stub(); }
+}
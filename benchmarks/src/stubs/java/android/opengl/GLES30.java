@@ -0,0 +1,27 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.opengl;
+
+// Import standard Java classes.
+import java.nio.Buffer;
+
+/**
+ * A JVM stub of <code>android.opengl.GLES30</code>, with the constants and
+ * calls the title uses. Every call throws.
+ */
+public class GLES30 extends GLES20
+{
+    public static final int GL_PROGRAM_BINARY_LENGTH = 0x8741;
+
+    // Hide default constructor.
+    GLES30() {}
+
+    public static void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+        int[] binaryFormat, int binaryFormatOffset, Buffer binary)
+    { throw stub(); }
+
+    public static void glProgramBinary(int program, int binaryFormat, Buffer binary, int length)
+    { throw stub(); }
+}
@@ -0,0 +1,18 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.os;
+
+/**
+ * A JVM stub of <code>android.os.Debug</code>. There is no native heap to
+ * report, so its size is 0.
+ */
+public final class Debug
+{
+    // Hide default constructor.
+    private Debug() {}
+
+    public static long getNativeHeapAllocatedSize()
+    { return 0L; }
+}
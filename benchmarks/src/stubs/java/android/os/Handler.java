@@ -0,0 +1,23 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.os;
+
+/**
+ * A JVM stub of <code>android.os.Handler</code>. Posted work runs immediately
+ * on the calling thread.
+ */
+public class Handler
+{
+    public Handler(Looper looper)
+    {
+        super();
+    }
+
+    public final boolean post(Runnable r)
+    {
+        r.run();
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.os;
+
+/**
+ * A JVM stub of <code>android.os.Looper</code>. There is no main thread
+ * message queue; see <code>Handler</code>.
+ */
+public final class Looper
+{
+    // The main looper.
+    private static final Looper g_mainLooper = new Looper();
+
+    // Hide default constructor.
+    private Looper() {}
+
+    public static Looper getMainLooper()
+    { return g_mainLooper; }
+
+    public static Looper myLooper()
+    { return g_mainLooper; }
+}
@@ -0,0 +1,24 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.os;
+
+/**
+ * A JVM stub of <code>android.os.SystemClock</code>, backed by
+ * <code>System.nanoTime()</code>.
+ */
+public final class SystemClock
+{
+    // Hide default constructor.
+    private SystemClock() {}
+
+    public static long uptimeMillis()
+    { return System.nanoTime() / 1000000L; }
+
+    public static long elapsedRealtime()
+    { return System.nanoTime() / 1000000L; }
+
+    public static long elapsedRealtimeNanos()
+    { return System.nanoTime(); }
+}
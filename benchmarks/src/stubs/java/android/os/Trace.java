@@ -0,0 +1,20 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.os;
+
+/**
+ * A JVM stub of <code>android.os.Trace</code>. Sections are not recorded.
+ */
+public final class Trace
+{
+    // Hide default constructor.
+    private Trace() {}
+
+    public static void beginSection(String sectionName)
+    {}
+
+    public static void endSection()
+    {}
+}
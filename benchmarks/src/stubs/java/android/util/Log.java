@@ -0,0 +1,33 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package android.util;
+
+/**
+ * A JVM stub of <code>android.util.Log</code>. Messages are discarded, so that
+ * logging does not distort the benchmarks.
+ */
+public final class Log
+{
+    // Hide default constructor.
+    private Log() {}
+
+    public static int d(String tag, String msg)
+    { return 0; }
+
+    public static int i(String tag, String msg)
+    { return 0; }
+
+    public static int w(String tag, String msg)
+    { return 0; }
+
+    public static int w(String tag, String msg, Throwable tr)
+    { return 0; }
+
+    public static int e(String tag, String msg)
+    { return 0; }
+
+    public static int e(String tag, String msg, Throwable tr)
+    { return 0; }
+}
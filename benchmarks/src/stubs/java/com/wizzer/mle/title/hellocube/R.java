@@ -0,0 +1,20 @@
+// COPYRIGHT_BEGIN
+// COPYRIGHT_END
+
+// Declare package.
+package com.wizzer.mle.title.hellocube;
+
+/**
+ * A JVM stand-in for the resource identifiers the Android build generates.
+ * Only the raw resources referenced by the title's classes are declared; the
+ * <code>Resources</code> stub does not resolve them.
+ */
+public final class R
+{
+    public static final class raw
+    {
+        public static final int box = 0x7f0b0000;
+        public static final int hellocube = 0x7f0b0001;
+        public static final int wwlogo = 0x7f0b0002;
+    }
+}